@@ -0,0 +1,89 @@
+package radu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import radu.engine.EngineSettings;
+import radu.engine.Order;
+import radu.engine.OrderBatch;
+import radu.engine.OrderType;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.TimeInForce;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to requote a ladder of {@code levels} bids through a {@link ShardedMatchingEngine}:
+ * every quote is cancelled and replaced one level lower, either as one future per command
+ * or as a single {@link OrderBatch}. Divide by {@code 2 * levels} for the cost per command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchSubmitBenchmark {
+
+    private static final String SYMBOL = "AAPL";
+    private static final long EXPIRY = Long.MAX_VALUE;
+
+    @Param({"10", "100"})
+    int levels;
+
+    ShardedMatchingEngine engine;
+    long[] quoteIds;
+    long basePrice;
+
+    @Setup(Level.Trial)
+    public void start() {
+        engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(1));
+        quoteIds = new long[levels];
+        basePrice = 1_000_000;
+        OrderBatch batch = new OrderBatch(SYMBOL);
+        for (int i = 0; i < levels; i++) {
+            quoteIds[i] = batch.add(OrderType.BUY, basePrice - i, 10, EXPIRY, TimeInForce.GTC).getOrderId();
+        }
+        engine.submitBatch(batch).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        engine.close();
+    }
+
+    @Benchmark
+    public boolean individualCommands() {
+        basePrice--;
+        CompletableFuture<Boolean> last = null;
+        for (int i = 0; i < levels; i++) {
+            engine.cancelOrder(SYMBOL, quoteIds[i]);
+            Order quote = new Order(OrderType.BUY, SYMBOL, basePrice - i, 10, EXPIRY, TimeInForce.GTC);
+            quoteIds[i] = quote.getId();
+            last = engine.addOrder(quote);
+        }
+        return last.join();
+    }
+
+    @Benchmark
+    public OrderBatch batch() {
+        basePrice--;
+        OrderBatch batch = new OrderBatch(SYMBOL);
+        for (int i = 0; i < levels; i++) {
+            batch.cancel(quoteIds[i]);
+            quoteIds[i] = batch.add(OrderType.BUY, basePrice - i, 10, EXPIRY, TimeInForce.GTC).getOrderId();
+        }
+        return engine.submitBatch(batch).join();
+    }
+}
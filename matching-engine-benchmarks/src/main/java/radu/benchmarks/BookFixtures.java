@@ -0,0 +1,72 @@
+package radu.benchmarks;
+
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds order books with a realistic shape for the benchmarks: thin near the touch and
+ * thicker further away, with order sizes spread around a typical lot rather than all equal.
+ */
+final class BookFixtures {
+
+    static final long MID = 100_000;
+    static final long EXPIRY = Long.MAX_VALUE;
+
+    // held so the logger configuration is not garbage collected
+    private static final Logger ENGINE_LOGGER = Logger.getLogger("radu");
+
+    private BookFixtures() {
+    }
+
+    /**
+     * Fills both sides of a book around {@link #MID}, one tick apart.
+     *
+     * @param book           the book to fill
+     * @param symbol         the symbol of the orders
+     * @param levels         price levels per side
+     * @param ordersPerLevel orders at the touch; deeper levels hold more
+     * @param random         source of the order sizes
+     * @return the resting orders, in no particular order
+     */
+    static List<Order> fill(OrderBook book, String symbol, int levels, int ordersPerLevel, Random random) {
+        List<Order> orders = new ArrayList<>();
+        for (int level = 0; level < levels; level++) {
+            int count = (int) Math.ceil(ordersPerLevel * Math.sqrt(level + 1));
+            for (int i = 0; i < count; i++) {
+                Order bid = new Order(Order.nextId(), OrderType.BUY, symbol, MID - 1 - level, size(random), System.nanoTime(), EXPIRY, TimeInForce.GTC);
+                Order ask = new Order(Order.nextId(), OrderType.SELL, symbol, MID + 1 + level, size(random), System.nanoTime(), EXPIRY, TimeInForce.GTC);
+                book.addOrder(bid);
+                book.addOrder(ask);
+                orders.add(bid);
+                orders.add(ask);
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * @return an order size, log-normally distributed around a few dozen lots
+     */
+    static int size(Random random) {
+        return Math.max(1, (int) Math.exp(3 + 0.8 * random.nextGaussian()));
+    }
+
+    /**
+     * Discards the engine's console output and logging, so the benchmarks measure the engine
+     * rather than the terminal. The messages are still built, so their cost stays visible.
+     */
+    static void silenceEngineOutput() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        ENGINE_LOGGER.setLevel(Level.OFF);
+    }
+}
@@ -0,0 +1,138 @@
+package radu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import radu.engine.EngineCommand;
+import radu.engine.EngineSettings;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order flow throughput of a single {@link MatchingEngine} spread over several symbols.
+ * Each operation is one step of a mixed flow per symbol: passive orders on both sides, an
+ * aggressive order that trades at the touch, and cancellation of the oldest passive order,
+ * which keeps every book at a steady depth.
+ *
+ * <p>{@code mixedFlow} hands the engine orders created by the caller. {@code mixedFlowCommands}
+ * runs the same flow as commands through a reused {@link EngineCommand}, the way the shards
+ * do, so the engine builds the orders from its preallocated pool; once the books are warm it
+ * allocates nothing, and with {@code -prof gc} its {@code gc.alloc.rate.norm} should stay at
+ * 0 B/op. {@code MatchingEngineTest.testSteadyStateAllocatesNothing} checks the same.</p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineThroughputBenchmark {
+
+    private static final int OUTSTANDING = 256;
+    private static final int PREALLOCATED_ORDERS = 1 << 16;
+
+    @Param({"1", "16", "256"})
+    int symbols;
+
+    MatchingEngine engine;
+    EngineCommand command;
+    String[] names;
+    long[][] outstanding;
+    int[] heads;
+    Random random;
+    long step;
+
+    @Setup
+    public void setUp() {
+        BookFixtures.silenceEngineOutput();
+        engine = new MatchingEngine(new EngineSettings().withPreallocatedOrders(PREALLOCATED_ORDERS));
+        command = new EngineCommand();
+        random = new Random(42);
+        names = new String[symbols];
+        outstanding = new long[symbols][OUTSTANDING];
+        heads = new int[symbols];
+        for (int i = 0; i < symbols; i++) {
+            names[i] = "SYM" + i;
+        }
+    }
+
+    @Benchmark
+    public long mixedFlow() {
+        int index = (int) (step % symbols);
+        String symbol = names[index];
+        long now = System.nanoTime();
+        switch ((int) (step++ / symbols % 4)) {
+            case 0:
+            case 1: {
+                OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                long depth = 1 + random.nextInt(20);
+                long price = side == OrderType.BUY ? BookFixtures.MID - depth : BookFixtures.MID + depth;
+                long id = Order.nextId();
+                engine.addOrder(symbol, new Order(id, side, symbol, price, BookFixtures.size(random), now, BookFixtures.EXPIRY, TimeInForce.GTC));
+                int head = heads[index];
+                engine.cancelOrder(symbol, outstanding[index][head]);
+                outstanding[index][head] = id;
+                heads[index] = (head + 1) % OUTSTANDING;
+                return id;
+            }
+            case 2: {
+                long id = Order.nextId();
+                engine.addOrder(symbol, new Order(id, OrderType.BUY, symbol, BookFixtures.MID + 2, BookFixtures.size(random), now, BookFixtures.EXPIRY, TimeInForce.IOC));
+                return id;
+            }
+            default: {
+                long id = Order.nextId();
+                engine.addOrder(symbol, new Order(id, OrderType.SELL, symbol, BookFixtures.MID - 2, BookFixtures.size(random), now, BookFixtures.EXPIRY, TimeInForce.IOC));
+                return id;
+            }
+        }
+    }
+
+    @Benchmark
+    public long mixedFlowCommands() {
+        int index = (int) (step % symbols);
+        String symbol = names[index];
+        switch ((int) (step++ / symbols % 4)) {
+            case 0:
+            case 1: {
+                OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                long depth = 1 + random.nextInt(20);
+                long price = side == OrderType.BUY ? BookFixtures.MID - depth : BookFixtures.MID + depth;
+                long id = Order.nextId();
+                command.setAdd(id, side, symbol, price, BookFixtures.size(random), BookFixtures.EXPIRY, TimeInForce.GTC, null);
+                engine.execute(command);
+                int head = heads[index];
+                command.setCancel(symbol, outstanding[index][head], null);
+                engine.execute(command);
+                outstanding[index][head] = id;
+                heads[index] = (head + 1) % OUTSTANDING;
+                return id;
+            }
+            case 2: {
+                long id = Order.nextId();
+                command.setAdd(id, OrderType.BUY, symbol, BookFixtures.MID + 2, BookFixtures.size(random), BookFixtures.EXPIRY, TimeInForce.IOC, null);
+                engine.execute(command);
+                return id;
+            }
+            default: {
+                long id = Order.nextId();
+                command.setAdd(id, OrderType.SELL, symbol, BookFixtures.MID - 2, BookFixtures.size(random), BookFixtures.EXPIRY, TimeInForce.IOC, null);
+                engine.execute(command);
+                return id;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package radu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.matching.FOKMatcher;
+import radu.matching.GTCMatcher;
+import radu.matching.IOCMatcher;
+import radu.matching.OrderMatchingStrategy;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of matching an aggressive order on arrival with each of the time-in-force strategies.
+ * The incoming buy sweeps the asks up to a few ticks through the touch. The liquidity it took is
+ * put back outside the measurement, every hit ask replaced by one order of its original size,
+ * so the book keeps the same shape for the whole run. Run with {@code -prof gc} to see the
+ * allocation rate of each strategy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatcherBenchmark {
+
+    private static final String SYMBOL = "AAPL";
+
+    @Param({"GTC", "IOC", "FOK"})
+    TimeInForce tif;
+
+    @Param({"100"})
+    int levels;
+
+    /** Size of the incoming order in multiples of a typical resting order. */
+    @Param({"1", "20"})
+    int sweepSize;
+
+    OrderBook book;
+    OrderMatchingStrategy strategy;
+    Random random;
+    Map<Long, Order> asks = new HashMap<>();
+    Order incoming;
+
+    // asks hit by the last match and how much was taken from each
+    long[] hitIds = new long[1024];
+    int[] hitQuantities = new int[1024];
+    int hits;
+
+    @Setup
+    public void setUp() {
+        BookFixtures.silenceEngineOutput();
+        random = new Random(42);
+        book = new OrderBook(SYMBOL, null);
+        List<Order> orders = BookFixtures.fill(book, SYMBOL, levels, 5, random);
+        for (Order order : orders) {
+            if (order.getType() == OrderType.SELL) asks.put(order.getId(), order);
+        }
+        book.setTradeListener((symbol, buyOrderId, sellOrderId, price, quantity, timestamp) -> {
+            hitIds[hits] = sellOrderId;
+            hitQuantities[hits] = quantity;
+            hits++;
+        });
+        switch (tif) {
+            case GTC: strategy = new GTCMatcher(); break;
+            case IOC: strategy = new IOCMatcher(); break;
+            default: strategy = new FOKMatcher(); break;
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newIncoming() {
+        incoming = new Order(Order.nextId(), OrderType.BUY, SYMBOL, BookFixtures.MID + 3,
+                sweepSize * BookFixtures.size(random), System.nanoTime(), BookFixtures.EXPIRY, tif);
+    }
+
+    @Benchmark
+    public int matchIncoming() {
+        strategy.matchIncoming(book, incoming);
+        return incoming.getQuantity();
+    }
+
+    @TearDown(Level.Invocation)
+    public void restoreAsks() {
+        book.cancelOrder(incoming.getId()); // a GTC residual
+        long now = System.nanoTime();
+        for (int i = 0; i < hits; i++) {
+            Order hit = asks.remove(hitIds[i]);
+            if (hit.getQuantity() > 0) {
+                book.cancelOrder(hit.getId());
+            }
+            Order replacement = new Order(Order.nextId(), OrderType.SELL, SYMBOL, hit.getPrice(),
+                    hit.getQuantity() + hitQuantities[i], now, BookFixtures.EXPIRY, TimeInForce.GTC);
+            book.addOrder(replacement);
+            asks.put(replacement.getId(), replacement);
+        }
+        hits = 0;
+    }
+}
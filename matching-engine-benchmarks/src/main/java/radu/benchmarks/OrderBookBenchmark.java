@@ -0,0 +1,118 @@
+package radu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the basic {@link OrderBook} operations on a book of realistic depth. Every benchmark
+ * leaves the book as it found it, so the depth stays constant for the whole run.
+ * Run with {@code -prof gc} to see the allocation rate of each operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+    private static final String SYMBOL = "AAPL";
+
+    @Param({"10", "100", "1000"})
+    int levels;
+
+    @Param({"5"})
+    int ordersPerLevel;
+
+    OrderBook book;
+    Order[] resting;
+    Random random;
+    int cursor;
+
+    @Setup
+    public void setUp() {
+        BookFixtures.silenceEngineOutput();
+        random = new Random(42);
+        book = new OrderBook(SYMBOL, null);
+        List<Order> orders = BookFixtures.fill(book, SYMBOL, levels, ordersPerLevel, random);
+        resting = orders.toArray(new Order[0]);
+    }
+
+    private Order nextResting() {
+        cursor = cursor + 1 == resting.length ? 0 : cursor + 1;
+        return resting[cursor];
+    }
+
+    private long passivePrice(OrderType side) {
+        long depth = 1 + random.nextInt(levels);
+        return side == OrderType.BUY ? BookFixtures.MID - depth : BookFixtures.MID + depth;
+    }
+
+    /**
+     * A passive order joining the book at a random depth, then cancelled again.
+     */
+    @Benchmark
+    public boolean addAndCancel() {
+        OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+        Order order = new Order(Order.nextId(), side, SYMBOL, passivePrice(side), BookFixtures.size(random),
+                System.nanoTime(), BookFixtures.EXPIRY, TimeInForce.GTC);
+        book.addOrder(order);
+        return book.cancelOrder(order.getId());
+    }
+
+    /**
+     * Cancelling an order anywhere in the book and replacing it at the back of its level.
+     */
+    @Benchmark
+    public boolean cancelAndReplace() {
+        Order old = nextResting();
+        boolean cancelled = book.cancelOrder(old.getId());
+        Order replacement = new Order(Order.nextId(), old.getType(), SYMBOL, old.getPrice(), old.getQuantity(),
+                System.nanoTime(), BookFixtures.EXPIRY, TimeInForce.GTC);
+        book.addOrder(replacement);
+        resting[cursor] = replacement;
+        return cancelled;
+    }
+
+    /**
+     * Amending an order anywhere in the book. Each order alternates between a size increase,
+     * which sends it to the back of its level, and a reduction, which keeps its time priority.
+     */
+    @Benchmark
+    public boolean updateOrder() {
+        Order order = nextResting();
+        int quantity = order.getQuantity();
+        int newQuantity = (quantity & 1) == 1 ? quantity + 1 : quantity - 1;
+        return book.updateOrder(order.getId(), order.getPrice(), newQuantity);
+    }
+
+    /**
+     * A crossing pair resting at the touch and matched by {@link OrderBook#matchOrders()}.
+     */
+    @Benchmark
+    public int matchOrders() {
+        int quantity = BookFixtures.size(random);
+        long now = System.nanoTime();
+        book.addOrder(new Order(Order.nextId(), OrderType.SELL, SYMBOL, BookFixtures.MID, quantity, now, BookFixtures.EXPIRY, TimeInForce.GTC));
+        book.addOrder(new Order(Order.nextId(), OrderType.BUY, SYMBOL, BookFixtures.MID, quantity, now, BookFixtures.EXPIRY, TimeInForce.GTC));
+        book.matchOrders();
+        return book.getBuyOrders().size();
+    }
+}
@@ -0,0 +1,101 @@
+package radu.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import radu.engine.EngineCommand;
+import radu.engine.EngineSettings;
+import radu.engine.EngineShard;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+import radu.pipeline.WaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip latency of getting one add and one cancel applied to a book, comparing the
+ * ring buffer ingress of an {@link EngineShard} with calling a {@link MatchingEngine}
+ * directly under a lock. Sample mode reports p50/p99/p99.9 per operation; run with
+ * {@code -t 4} to see how both behave with competing producers.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RingBufferLatencyBenchmark {
+
+    private static final String SYMBOL = "AAPL";
+    private static final long EXPIRY = Long.MAX_VALUE;
+
+    @State(Scope.Benchmark)
+    public static class Direct {
+        final MatchingEngine engine = new MatchingEngine();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pipeline {
+        @Param({"busy-spin", "yield", "park"})
+        String waitStrategy;
+
+        EngineShard shard;
+        RingBuffer<EngineCommand> ring;
+        Sequence applied;
+
+        @Setup(Level.Trial)
+        public void start() {
+            shard = new EngineShard(0, new EngineSettings().withRingSize(1024).withWaitStrategy(WaitStrategy.named(waitStrategy)), null);
+            ring = shard.getRingBuffer();
+            applied = shard.getProcessedSequence();
+            shard.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            shard.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean synchronizedEngine(Direct state) {
+        long orderId = Order.nextId();
+        MatchingEngine engine = state.engine;
+        synchronized (engine) {
+            engine.addOrder(SYMBOL, new Order(orderId, OrderType.BUY, SYMBOL, 10000, 1, System.nanoTime(), EXPIRY, TimeInForce.GTC));
+        }
+        synchronized (engine) {
+            return engine.cancelOrder(SYMBOL, orderId);
+        }
+    }
+
+    @Benchmark
+    public long ringBuffer(Pipeline state) {
+        long orderId = Order.nextId();
+        RingBuffer<EngineCommand> ring = state.ring;
+
+        long hi = ring.next(2);
+        long lo = hi - 1;
+        ring.get(lo).setAdd(orderId, OrderType.BUY, SYMBOL, 10000, 1, EXPIRY, TimeInForce.GTC, null);
+        ring.get(hi).setCancel(SYMBOL, orderId, null);
+        ring.publish(lo, hi);
+
+        while (state.applied.get() < hi) {
+            Thread.onSpinWait();
+        }
+        return hi;
+    }
+}
@@ -0,0 +1,56 @@
+package radu.benchmarks.load;
+
+import radu.engine.EngineCommand;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.TimeInForce;
+
+/**
+ * Applies every command to one {@link MatchingEngine} on the generator thread, the way a shard
+ * thread would, so the response time is the engine's own cost plus any time spent behind schedule.
+ */
+final class EngineTarget implements LoadTarget {
+
+    private static final long EXPIRY = Long.MAX_VALUE;
+
+    private final MatchingEngine engine = new MatchingEngine();
+    private final EngineCommand command = new EngineCommand();
+    private final OrderFlow flow;
+    private final LatencyRecorder recorder;
+    private volatile long completed;
+
+    EngineTarget(OrderFlow flow, LatencyRecorder recorder) {
+        this.flow = flow;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void submit(FlowCommand flowCommand, long intendedNanos) {
+        long sent = System.nanoTime();
+        long orderId = 0;
+        if (flowCommand.cancel) {
+            command.setCancel(flowCommand.symbol, flowCommand.orderId, null);
+        }
+        else {
+            orderId = Order.nextId();
+            command.setAdd(orderId, flowCommand.side, flowCommand.symbol, flowCommand.price, flowCommand.quantity, EXPIRY,
+                    flowCommand.tif, null);
+        }
+        engine.execute(command);
+        command.clear();
+        recorder.record(intendedNanos, sent, System.nanoTime());
+        completed++;
+        if (orderId != 0 && flowCommand.tif == TimeInForce.GTC) {
+            flow.resting(flowCommand.symbolIndex, orderId);
+        }
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,42 @@
+package radu.benchmarks.load;
+
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+/**
+ * One arrival of the order flow: a new order or the cancel of a resting one. The generator
+ * reuses a single instance, so targets copy what they need before {@code submit} returns.
+ */
+final class FlowCommand {
+
+    boolean cancel;
+    int symbolIndex;
+    String symbol;
+    long orderId;
+    OrderType side;
+    TimeInForce tif;
+    long price;
+    int quantity;
+
+    void setNew(int symbolIndex, String symbol, OrderType side, TimeInForce tif, long price, int quantity) {
+        this.cancel = false;
+        this.symbolIndex = symbolIndex;
+        this.symbol = symbol;
+        this.orderId = 0;
+        this.side = side;
+        this.tif = tif;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    void setCancel(int symbolIndex, String symbol, long orderId) {
+        this.cancel = true;
+        this.symbolIndex = symbolIndex;
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.side = null;
+        this.tif = null;
+        this.price = 0;
+        this.quantity = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package radu.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the latency of every command twice, in nanoseconds.
+ *
+ * <p>The response time runs from when the schedule said the command should be sent, not from
+ * when it was actually sent. A generator held back by a slow system sends late, and measuring
+ * from the actual send would hide exactly those delays (coordinated omission); measuring from
+ * the intended time charges them to the commands that suffered them. The service time runs from
+ * the actual send and shows how much of the response time was spent waiting to be sent.</p>
+ *
+ * <p>Recording is safe from any thread. The reporter takes an interval at a time.</p>
+ */
+final class LatencyRecorder {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder response = new Recorder(SIGNIFICANT_DIGITS);
+    private final Recorder service = new Recorder(SIGNIFICANT_DIGITS);
+    private Histogram responseInterval;
+    private Histogram serviceInterval;
+
+    /**
+     * @param intendedNanos when the command was scheduled to be sent, in {@link System#nanoTime()}
+     * @param sentNanos     when it was sent
+     * @param doneNanos     when its response arrived
+     */
+    void record(long intendedNanos, long sentNanos, long doneNanos) {
+        response.recordValue(Math.max(0, doneNanos - intendedNanos));
+        service.recordValue(Math.max(0, doneNanos - sentNanos));
+    }
+
+    /**
+     * Ends the current interval. Only the reporter calls this.
+     */
+    void sample() {
+        responseInterval = response.getIntervalHistogram(responseInterval);
+        serviceInterval = service.getIntervalHistogram(serviceInterval);
+    }
+
+    /**
+     * @return the response times of the last interval; overwritten by the next {@link #sample()}
+     */
+    Histogram getResponseInterval() {
+        return responseInterval;
+    }
+
+    /**
+     * @return the service times of the last interval; overwritten by the next {@link #sample()}
+     */
+    Histogram getServiceInterval() {
+        return serviceInterval;
+    }
+}
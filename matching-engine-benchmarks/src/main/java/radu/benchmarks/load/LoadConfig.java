@@ -0,0 +1,156 @@
+package radu.benchmarks.load;
+
+import radu.engine.TimeInForce;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from {@code --name=value} arguments. Every setting has a default,
+ * so a run without arguments drives an in-process engine for a quick check.
+ */
+final class LoadConfig {
+
+    /**
+     * Where the generated orders go.
+     */
+    enum Target {
+        /** One {@code MatchingEngine} applied on the generator thread. */
+        ENGINE,
+        /** A {@code ShardedMatchingEngine} in the same process, through the shard rings. */
+        SHARDED,
+        /** The binary order entry gateway of a running server. */
+        TCP,
+        /** The REST API of a running server. */
+        REST
+    }
+
+    /**
+     * How far from mid an order is priced.
+     */
+    enum Distribution {
+        EXPONENTIAL, UNIFORM, NORMAL
+    }
+
+    Target target = Target.ENGINE;
+    int symbols = 16;
+    double rate = 50_000;
+    int durationSeconds = 30;
+    int warmupSeconds = 5;
+    double cancelRatio = 0.3;
+    double marketableRatio = 0.1;
+    final Map<TimeInForce, Integer> tifWeights = new EnumMap<>(TimeInForce.class);
+    Distribution priceDistribution = Distribution.EXPONENTIAL;
+    double priceScale = 5;
+    long midPrice = 10_000;
+    int maxQuantity = 100;
+    int shards = 4;
+    String host = "localhost";
+    int port;
+    String csv;
+    long seed = 42;
+
+    LoadConfig() {
+        tifWeights.put(TimeInForce.GTC, 80);
+        tifWeights.put(TimeInForce.IOC, 15);
+        tifWeights.put(TimeInForce.FOK, 5);
+    }
+
+    static LoadConfig parse(String[] args) {
+        LoadConfig config = new LoadConfig();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            config.set(name, value);
+        }
+        if (config.port == 0) {
+            config.port = config.target == Target.REST ? 8080 : 9001;
+        }
+        config.validate();
+        return config;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "target": target = Target.valueOf(value.toUpperCase()); break;
+            case "symbols": symbols = Integer.parseInt(value); break;
+            case "rate": rate = Double.parseDouble(value); break;
+            case "duration": durationSeconds = Integer.parseInt(value); break;
+            case "warmup": warmupSeconds = Integer.parseInt(value); break;
+            case "cancel-ratio": cancelRatio = Double.parseDouble(value); break;
+            case "marketable-ratio": marketableRatio = Double.parseDouble(value); break;
+            case "tif": parseTifMix(value); break;
+            case "price-distance": parsePriceDistance(value); break;
+            case "mid": midPrice = Long.parseLong(value); break;
+            case "max-quantity": maxQuantity = Integer.parseInt(value); break;
+            case "shards": shards = Integer.parseInt(value); break;
+            case "host": host = value; break;
+            case "port": port = Integer.parseInt(value); break;
+            case "csv": csv = value; break;
+            case "seed": seed = Long.parseLong(value); break;
+            default: throw new IllegalArgumentException("Unknown setting: --" + name);
+        }
+    }
+
+    /**
+     * Reads a mix such as {@code GTC:80,IOC:15,FOK:5}; weights are relative.
+     */
+    private void parseTifMix(String value) {
+        tifWeights.clear();
+        for (String part : value.split(",")) {
+            String[] tifAndWeight = part.split(":");
+            tifWeights.put(TimeInForce.valueOf(tifAndWeight[0].trim().toUpperCase()), Integer.parseInt(tifAndWeight[1].trim()));
+        }
+    }
+
+    /**
+     * Reads a distribution such as {@code exponential:5}, {@code uniform:20} or {@code normal:8},
+     * the number being the mean, the largest distance or the standard deviation in ticks.
+     */
+    private void parsePriceDistance(String value) {
+        String[] kindAndScale = value.split(":");
+        priceDistribution = Distribution.valueOf(kindAndScale[0].trim().toUpperCase());
+        priceScale = Double.parseDouble(kindAndScale[1].trim());
+    }
+
+    private void validate() {
+        if (symbols < 1 || symbols > 9999) throw new IllegalArgumentException("--symbols must be between 1 and 9999");
+        if (rate <= 0) throw new IllegalArgumentException("--rate must be positive");
+        if (durationSeconds <= 0 || warmupSeconds < 0) throw new IllegalArgumentException("Invalid --duration or --warmup");
+        if (cancelRatio < 0 || cancelRatio >= 1) throw new IllegalArgumentException("--cancel-ratio must be in [0, 1)");
+        if (marketableRatio < 0 || marketableRatio > 1) throw new IllegalArgumentException("--marketable-ratio must be in [0, 1]");
+        if (tifWeights.values().stream().mapToInt(Integer::intValue).sum() <= 0) throw new IllegalArgumentException("Empty --tif mix");
+        if (priceScale <= 0 || midPrice <= priceScale * 10) throw new IllegalArgumentException("--mid must be well above the price distance");
+        if (maxQuantity < 1) throw new IllegalArgumentException("--max-quantity must be positive");
+    }
+
+    @Override
+    public String toString() {
+        return "target=" + target + (target == Target.TCP || target == Target.REST ? " (" + host + ":" + port + ")" : "")
+                + (target == Target.SHARDED ? " shards=" + shards : "")
+                + " symbols=" + symbols + " rate=" + (long) rate + "/s duration=" + durationSeconds + "s warmup=" + warmupSeconds + "s"
+                + " cancel-ratio=" + cancelRatio + " marketable-ratio=" + marketableRatio + " tif=" + tifWeights
+                + " price-distance=" + priceDistribution.name().toLowerCase() + ":" + priceScale + " seed=" + seed;
+    }
+
+    static String usage() {
+        return String.join(System.lineSeparator(),
+                "Usage: java -cp benchmarks.jar radu.benchmarks.load.LoadGenerator [--name=value ...]",
+                "  --target=engine|sharded|tcp|rest   where orders go (engine)",
+                "  --symbols=N                        symbols traded, orders spread evenly (16)",
+                "  --rate=N                           mean arrivals per second, Poisson (50000)",
+                "  --duration=S --warmup=S            measured and discarded seconds (30, 5)",
+                "  --cancel-ratio=R                   share of arrivals cancelling a resting order (0.3)",
+                "  --marketable-ratio=R               share of new orders priced through mid (0.1)",
+                "  --tif=GTC:80,IOC:15,FOK:5          relative weights of the times in force",
+                "  --price-distance=exponential:5     distance from mid in ticks: exponential:mean, uniform:max, normal:stddev",
+                "  --mid=TICKS --max-quantity=N       mid price of every symbol and largest order size (10000, 100)",
+                "  --shards=N                         shards of the sharded target (4)",
+                "  --host=H --port=P                  server of the tcp (9001) and rest (8080) targets",
+                "  --csv=PREFIX                       write PREFIX-timeline.csv and PREFIX-percentiles.csv",
+                "  --seed=N                           seed of the order flow (42)");
+    }
+}
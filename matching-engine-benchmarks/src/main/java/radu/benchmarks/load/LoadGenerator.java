@@ -0,0 +1,235 @@
+package radu.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: drives the engine with a realistic order flow at a fixed mean rate
+ * and reports the latency it sees, corrected for coordinated omission.
+ *
+ * <p>Arrival times are drawn up front from a Poisson process and do not depend on how fast the
+ * target answers. The generator sends each command at its scheduled time, or right away if it is
+ * already late, and every latency is measured from the scheduled time; see
+ * {@link LatencyRecorder}. Once a second a line with the percentiles of the last second is
+ * printed; at the end the percentiles of the whole measured run, and optionally CSV files with
+ * the per-second timeline and the full percentile distribution.</p>
+ *
+ * <pre>
+ * mvn install -DskipTests
+ * mvn -f matching-engine-benchmarks/pom.xml package
+ * java -cp matching-engine-benchmarks/target/benchmarks.jar radu.benchmarks.load.LoadGenerator \
+ *     --target=sharded --symbols=64 --rate=200000 --duration=60 --csv=run1
+ * </pre>
+ *
+ * Run with {@code --help} for every setting.
+ */
+public final class LoadGenerator {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    // sleep instead of spinning when the next arrival is further away than this
+    private static final long PARK_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    // a report this soon after the end of the warmup still covers the last warmup second
+    private static final long REPORT_SLACK_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private final LoadConfig config;
+    private final LatencyRecorder recorder = new LatencyRecorder();
+    private final OrderFlow flow;
+    private final LoadTarget target;
+    private final Histogram responseTotal = new Histogram(3);
+    private final Histogram serviceTotal = new Histogram(3);
+    private final List<String> timeline = new ArrayList<>();
+    private volatile long measureStart;
+    private volatile long sent;
+    private volatile long sentInWarmup;
+    private volatile long completedInWarmup;
+
+    LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.flow = new OrderFlow(config);
+        switch (config.target) {
+            case SHARDED:
+                this.target = new ShardedTarget(config.shards, flow, recorder);
+                break;
+            case TCP:
+                this.target = new TcpTarget(config.host, config.port, recorder);
+                break;
+            case REST:
+                this.target = new RestTarget(config.host, config.port, recorder);
+                break;
+            case ENGINE:
+            default:
+                this.target = new EngineTarget(flow, recorder);
+                break;
+        }
+    }
+
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length > 0 && (args[0].equals("--help") || args[0].equals("-h"))) {
+            System.out.println(LoadConfig.usage());
+            return;
+        }
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args);
+        }
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadConfig.usage());
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(config).run();
+    }
+
+    void run() throws FileNotFoundException {
+        System.out.println("Load: " + config);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long warmupEnd = start + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+        measureStart = warmupEnd;
+        reporter.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+
+        generate(start, warmupEnd, end);
+
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (target.getCompletedCount() < sent && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        reporter.shutdownNow();
+        try {
+            reporter.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+        target.close();
+
+        summarize(TimeUnit.NANOSECONDS.toSeconds(end - warmupEnd));
+        if (config.csv != null) {
+            writeCsv();
+        }
+    }
+
+    /**
+     * Sends every arrival of the schedule at its time, on this thread.
+     */
+    private void generate(long start, long warmupEnd, long end) {
+        FlowCommand command = new FlowCommand();
+        boolean warm = config.warmupSeconds == 0;
+        long count = 0;
+        for (long next = start; next < end; next += flow.nextGapNanos()) {
+            long now;
+            while ((now = System.nanoTime()) < next) {
+                if (next - now > PARK_THRESHOLD_NANOS) {
+                    LockSupport.parkNanos(next - now - PARK_THRESHOLD_NANOS / 2);
+                }
+                else {
+                    Thread.onSpinWait();
+                }
+            }
+            if (!warm && next >= warmupEnd) {
+                warm = true;
+                sentInWarmup = count;
+            }
+            target.drainResting(flow);
+            flow.next(command);
+            target.submit(command, next);
+            sent = ++count;
+        }
+    }
+
+    /**
+     * Takes the interval recorded since the last call, prints it and adds it to the totals once
+     * the warmup is over. Runs on the reporter thread, and once more on the main thread at the end.
+     */
+    private synchronized void report() {
+        recorder.sample();
+        Histogram response = recorder.getResponseInterval();
+        Histogram service = recorder.getServiceInterval();
+        long now = System.nanoTime();
+        if (now < measureStart + REPORT_SLACK_NANOS) {
+            completedInWarmup = target.getCompletedCount();
+            System.out.printf("warmup   %8d done  p50 %9.1f  p99 %9.1f  max %9.1f us%n", response.getTotalCount(),
+                    micros(response.getValueAtPercentile(50)), micros(response.getValueAtPercentile(99)), micros(response.getMaxValue()));
+            return;
+        }
+        responseTotal.add(response);
+        serviceTotal.add(service);
+        double elapsed = (now - measureStart) / 1e9;
+        timeline.add(String.format("%.1f,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f", elapsed, response.getTotalCount(),
+                micros(response.getValueAtPercentile(50)), micros(response.getValueAtPercentile(90)),
+                micros(response.getValueAtPercentile(99)), micros(response.getValueAtPercentile(99.9)),
+                micros(response.getMaxValue()), micros(service.getValueAtPercentile(99))));
+        System.out.printf("t=%5.1fs %8d done  p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f us (service p99 %9.1f)%n",
+                elapsed, response.getTotalCount(), micros(response.getValueAtPercentile(50)),
+                micros(response.getValueAtPercentile(99)), micros(response.getValueAtPercentile(99.9)),
+                micros(response.getMaxValue()), micros(service.getValueAtPercentile(99)));
+    }
+
+    private void summarize(long seconds) {
+        long measuredSent = sent - sentInWarmup;
+        long measuredCompleted = target.getCompletedCount() - completedInWarmup;
+        System.out.println();
+        System.out.printf("Sent %d, completed %d in %ds: %.0f/s offered, %.0f/s completed%n",
+                measuredSent, measuredCompleted, seconds, (double) measuredSent / seconds, (double) measuredCompleted / seconds);
+        if (target.getFailedCount() > 0) {
+            System.out.println("Failed: " + target.getFailedCount());
+        }
+        if (sent > target.getCompletedCount()) {
+            System.out.println("Still outstanding after " + TimeUnit.NANOSECONDS.toSeconds(DRAIN_TIMEOUT_NANOS) + "s: "
+                    + (sent - target.getCompletedCount()));
+        }
+        StringBuilder header = new StringBuilder(String.format("%-14s", "latency (us)"));
+        for (double percentile : PERCENTILES) {
+            header.append(String.format("%11s", "p" + format(percentile)));
+        }
+        System.out.println(header.append(String.format("%11s", "max")));
+        System.out.println(row("response time", responseTotal));
+        System.out.println(row("service time", serviceTotal));
+    }
+
+    private static String row(String name, Histogram histogram) {
+        StringBuilder row = new StringBuilder(String.format("%-14s", name));
+        for (double percentile : PERCENTILES) {
+            row.append(String.format("%11.1f", micros(histogram.getValueAtPercentile(percentile))));
+        }
+        return row.append(String.format("%11.1f", micros(histogram.getMaxValue()))).toString();
+    }
+
+    private void writeCsv() throws FileNotFoundException {
+        String timelineFile = config.csv + "-timeline.csv";
+        try (PrintStream out = new PrintStream(timelineFile)) {
+            out.println("elapsed_s,count,p50_us,p90_us,p99_us,p999_us,max_us,service_p99_us");
+            timeline.forEach(out::println);
+        }
+        String percentilesFile = config.csv + "-percentiles.csv";
+        try (PrintStream out = new PrintStream(percentilesFile)) {
+            // HdrHistogram's own CSV: value (us), percentile, total count, 1/(1-percentile)
+            responseTotal.outputPercentileDistribution(out, 5, 1000.0, true);
+        }
+        System.out.println("Wrote " + timelineFile + " and " + percentilesFile);
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
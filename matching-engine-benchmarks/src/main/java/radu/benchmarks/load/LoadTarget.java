@@ -0,0 +1,40 @@
+package radu.benchmarks.load;
+
+/**
+ * Where a load run sends its commands. Commands are submitted on the generator thread only;
+ * completions may be recorded on any thread.
+ */
+interface LoadTarget extends AutoCloseable {
+
+    /**
+     * Sends a command and arranges for its latency to be recorded once it completes.
+     *
+     * @param command       the command; reused by the generator once this returns
+     * @param intendedNanos when the schedule wanted it sent, in {@link System#nanoTime()}
+     */
+    void submit(FlowCommand command, long intendedNanos);
+
+    /**
+     * Tells the flow about orders the target has learned are resting since the last call.
+     * Called on the generator thread.
+     *
+     * @param flow the flow
+     */
+    default void drainResting(OrderFlow flow) {
+    }
+
+    /**
+     * @return the number of commands completed so far
+     */
+    long getCompletedCount();
+
+    /**
+     * @return the number of completed commands the target could not deliver, included in the completed count
+     */
+    default long getFailedCount() {
+        return 0;
+    }
+
+    @Override
+    void close();
+}
@@ -0,0 +1,138 @@
+package radu.benchmarks.load;
+
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the order flow of a load run from a seeded random source, so two runs with the
+ * same settings send the same orders.
+ *
+ * <p>Arrivals are a Poisson process: the gaps between them are exponentially distributed around
+ * the configured rate. Each arrival picks a symbol uniformly. With the configured probability,
+ * and if the symbol has one, it cancels a randomly chosen resting order; otherwise it is a new
+ * order with a random side, a time in force drawn from the mix, and a price some distance from
+ * mid. Passive orders are priced away from mid on their own side and never cross; the
+ * marketable share is priced through mid by the same distance and trades against the passive
+ * orders resting there.</p>
+ *
+ * <p>The flow only learns which orders rest from its target, through {@link #resting(int, long)}.
+ * Not thread-safe; it belongs to the generator thread.</p>
+ */
+final class OrderFlow {
+
+    // resting orders remembered per symbol as cancel candidates; beyond this, random ones are forgotten
+    private static final int RESTING_PER_SYMBOL = 1024;
+
+    private final LoadConfig config;
+    private final Random random;
+    private final String[] symbols;
+    private final TimeInForce[] tifs;
+    private final int[] tifCumulativeWeights;
+    private final long[][] resting;
+    private final int[] restingCount;
+    private final double meanGapNanos;
+
+    OrderFlow(LoadConfig config) {
+        this.config = config;
+        this.random = new Random(config.seed);
+        this.symbols = new String[config.symbols];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = String.format("S%04d", i);
+        }
+        this.tifs = new TimeInForce[config.tifWeights.size()];
+        this.tifCumulativeWeights = new int[tifs.length];
+        int i = 0;
+        int total = 0;
+        for (Map.Entry<TimeInForce, Integer> entry : config.tifWeights.entrySet()) {
+            total += entry.getValue();
+            tifs[i] = entry.getKey();
+            tifCumulativeWeights[i++] = total;
+        }
+        this.resting = new long[symbols.length][RESTING_PER_SYMBOL];
+        this.restingCount = new int[symbols.length];
+        this.meanGapNanos = 1e9 / config.rate;
+    }
+
+    /**
+     * @return the gap to the next arrival in nanoseconds, exponentially distributed
+     */
+    long nextGapNanos() {
+        return (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+    }
+
+    /**
+     * Fills the command with the next arrival.
+     *
+     * @param command the command to overwrite
+     */
+    void next(FlowCommand command) {
+        int s = random.nextInt(symbols.length);
+        if (restingCount[s] > 0 && random.nextDouble() < config.cancelRatio) {
+            int slot = random.nextInt(restingCount[s]);
+            long orderId = resting[s][slot];
+            resting[s][slot] = resting[s][--restingCount[s]];
+            command.setCancel(s, symbols[s], orderId);
+            return;
+        }
+        OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+        long distance = distance();
+        boolean marketable = random.nextDouble() < config.marketableRatio;
+        long price = (side == OrderType.BUY) != marketable ? config.midPrice - distance : config.midPrice + distance;
+        command.setNew(s, symbols[s], side, tif(), price, 1 + random.nextInt(config.maxQuantity));
+    }
+
+    /**
+     * Remembers an order that rests in its book, as a candidate for a later cancel.
+     *
+     * @param symbolIndex the symbol of the order
+     * @param orderId     the engine's id of the order
+     */
+    void resting(int symbolIndex, long orderId) {
+        if (restingCount[symbolIndex] < RESTING_PER_SYMBOL) {
+            resting[symbolIndex][restingCount[symbolIndex]++] = orderId;
+        }
+        else {
+            resting[symbolIndex][random.nextInt(RESTING_PER_SYMBOL)] = orderId;
+        }
+    }
+
+    int getSymbolCount() {
+        return symbols.length;
+    }
+
+    String getSymbol(int symbolIndex) {
+        return symbols[symbolIndex];
+    }
+
+    private TimeInForce tif() {
+        int pick = random.nextInt(tifCumulativeWeights[tifCumulativeWeights.length - 1]);
+        for (int i = 0; i < tifs.length; i++) {
+            if (pick < tifCumulativeWeights[i]) return tifs[i];
+        }
+        return tifs[tifs.length - 1];
+    }
+
+    /**
+     * @return the distance from mid in ticks, at least one
+     */
+    private long distance() {
+        double scale = config.priceScale;
+        double ticks;
+        switch (config.priceDistribution) {
+            case UNIFORM:
+                ticks = 1 + random.nextInt((int) Math.ceil(scale));
+                break;
+            case NORMAL:
+                ticks = Math.abs(random.nextGaussian() * scale);
+                break;
+            case EXPONENTIAL:
+            default:
+                ticks = -Math.log(1 - random.nextDouble()) * scale;
+                break;
+        }
+        return Math.max(1, Math.round(ticks));
+    }
+}
@@ -0,0 +1,59 @@
+package radu.benchmarks.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Posts every new order to the REST API of a running server and records its latency when the
+ * response arrives. Requests are sent asynchronously, so a slow server does not hold back the
+ * schedule. The REST API cannot cancel an order by id, so this target never learns of resting
+ * orders and the flow only sends new orders.
+ */
+final class RestTarget implements LoadTarget {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI addOrder;
+    private final LatencyRecorder recorder;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    RestTarget(String host, int port, LatencyRecorder recorder) {
+        this.addOrder = URI.create("http://" + host + ":" + port + "/api/addOrder");
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void submit(FlowCommand command, long intendedNanos) {
+        String body = "{\"type\":\"" + command.side + "\",\"symbol\":\"" + command.symbol + "\",\"priceTicks\":" + command.price
+                + ",\"quantity\":" + command.quantity + ",\"tif\":\"" + command.tif + "\"}";
+        HttpRequest request = HttpRequest.newBuilder(addOrder)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long sent = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            recorder.record(intendedNanos, sent, System.nanoTime());
+            if (error != null || response.statusCode() >= 300) {
+                failed.incrementAndGet();
+            }
+            completed.incrementAndGet();
+        });
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+    }
+}
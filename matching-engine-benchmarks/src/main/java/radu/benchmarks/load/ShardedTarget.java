@@ -0,0 +1,74 @@
+package radu.benchmarks.load;
+
+import radu.engine.CommandListener;
+import radu.engine.EngineCommand;
+import radu.engine.EngineSettings;
+import radu.engine.Order;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.TimeInForce;
+import radu.pipeline.RingBuffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes every command into the ring of the shard that owns its symbol, as the gateway does,
+ * and records its latency when the shard thread reports the result. The intended send time
+ * travels in the command's correlation id, so nothing is allocated per command.
+ */
+final class ShardedTarget implements LoadTarget, CommandListener {
+
+    private static final long EXPIRY = Long.MAX_VALUE;
+    private static final int RING_SIZE = 65536;
+
+    private final ShardedMatchingEngine engine;
+    private final OrderFlow flow;
+    private final LatencyRecorder recorder;
+    private final AtomicLong completed = new AtomicLong();
+
+    ShardedTarget(int shards, OrderFlow flow, LatencyRecorder recorder) {
+        this.engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(shards).withRingSize(RING_SIZE));
+        this.flow = flow;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void submit(FlowCommand flowCommand, long intendedNanos) {
+        long orderId = flowCommand.cancel ? 0 : Order.nextId();
+        RingBuffer<EngineCommand> ring = engine.shardFor(flowCommand.symbol).getRingBuffer();
+        long sequence = ring.next();
+        try {
+            EngineCommand command = ring.get(sequence);
+            if (flowCommand.cancel) {
+                command.setCancel(flowCommand.symbol, flowCommand.orderId, null);
+            }
+            else {
+                command.setAdd(orderId, flowCommand.side, flowCommand.symbol, flowCommand.price, flowCommand.quantity,
+                        EXPIRY, flowCommand.tif, null);
+            }
+            command.setListener(this, intendedNanos);
+        }
+        finally {
+            ring.publish(sequence);
+        }
+        if (orderId != 0 && flowCommand.tif == TimeInForce.GTC) {
+            flow.resting(flowCommand.symbolIndex, orderId);
+        }
+    }
+
+    @Override
+    public void onCommandResult(EngineCommand command, boolean success) {
+        // the slot was filled right before it was published, so its enqueue time is the send time
+        recorder.record(command.getCorrelationId(), command.getEnqueueNanos(), System.nanoTime());
+        completed.incrementAndGet();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public void close() {
+        engine.close();
+    }
+}
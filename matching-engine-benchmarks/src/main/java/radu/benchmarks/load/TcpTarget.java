@@ -0,0 +1,157 @@
+package radu.benchmarks.load;
+
+import radu.engine.TimeInForce;
+import radu.gateway.ExecType;
+import radu.gateway.GatewayProtocol;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends every command over one connection to the binary order entry gateway of a running server,
+ * and records its latency when the first execution report for it comes back: the NEW or
+ * REJECTED of an order, the CANCELED or CANCEL_REJECTED of a cancel.
+ *
+ * <p>Commands in flight are tracked by client order id in fixed arrays, so a run never has more
+ * than {@value #MAX_IN_FLIGHT} of them outstanding; the generator waits for the server beyond
+ * that, and the wait shows up in the response times.</p>
+ */
+final class TcpTarget implements LoadTarget {
+
+    private static final int MAX_IN_FLIGHT = 1 << 20;
+    private static final int MASK = MAX_IN_FLIGHT - 1;
+    // a resting order is handed to the generator as orderId << SYMBOL_BITS | symbolIndex
+    private static final int SYMBOL_BITS = 14;
+
+    private final SocketChannel channel;
+    private final LatencyRecorder recorder;
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(GatewayProtocol.NEW_ORDER_LENGTH).order(GatewayProtocol.BYTE_ORDER);
+    private final AtomicLongArray intended = new AtomicLongArray(MAX_IN_FLIGHT);
+    private final AtomicLongArray sent = new AtomicLongArray(MAX_IN_FLIGHT);
+    // symbol of a GTC order that may rest, -1 for anything else
+    private final AtomicIntegerArray restingSymbol = new AtomicIntegerArray(MAX_IN_FLIGHT);
+    private final Queue<Long> resting = new ConcurrentLinkedQueue<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final Thread reader;
+    private long nextClientOrderId = 1;
+    private volatile boolean running = true;
+
+    TcpTarget(String host, int port, LatencyRecorder recorder) {
+        this.recorder = recorder;
+        try {
+            this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.socket().setTcpNoDelay(true);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot connect to the gateway at " + host + ":" + port, e);
+        }
+        this.reader = new Thread(this::read, "load-reports");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public void submit(FlowCommand command, long intendedNanos) {
+        long clientOrderId = nextClientOrderId++;
+        while (clientOrderId - completed.get() >= MAX_IN_FLIGHT) {
+            LockSupport.parkNanos(1000);
+        }
+        int slot = (int) (clientOrderId & MASK);
+        outbound.clear();
+        if (command.cancel) {
+            GatewayProtocol.putCancel(outbound, clientOrderId, command.orderId, command.symbol);
+            restingSymbol.set(slot, -1);
+        }
+        else {
+            GatewayProtocol.putNewOrder(outbound, clientOrderId, command.side, command.tif, command.symbol,
+                    command.price, command.quantity, 0);
+            restingSymbol.set(slot, command.tif == TimeInForce.GTC ? command.symbolIndex : -1);
+        }
+        outbound.flip();
+        intended.set(slot, intendedNanos);
+        sent.set(slot, System.nanoTime());
+        try {
+            while (outbound.hasRemaining()) {
+                channel.write(outbound);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Gateway connection lost", e);
+        }
+    }
+
+    @Override
+    public void drainResting(OrderFlow flow) {
+        Long packed;
+        while ((packed = resting.poll()) != null) {
+            flow.resting((int) (packed & ((1 << SYMBOL_BITS) - 1)), packed >>> SYMBOL_BITS);
+        }
+    }
+
+    private void read() {
+        ByteBuffer inbound = ByteBuffer.allocateDirect(64 * 1024).order(GatewayProtocol.BYTE_ORDER);
+        try {
+            while (running && channel.read(inbound) >= 0) {
+                inbound.flip();
+                while (inbound.remaining() >= GatewayProtocol.HEADER_LENGTH) {
+                    int start = inbound.position();
+                    int length = inbound.getShort(start);
+                    if (inbound.remaining() < length) break;
+                    if (inbound.getShort(start + 2) == GatewayProtocol.EXECUTION_REPORT) {
+                        onReport(inbound, start);
+                    }
+                    inbound.position(start + length);
+                }
+                inbound.compact();
+            }
+        }
+        catch (IOException e) {
+            if (running) {
+                System.err.println("Gateway connection lost: " + e);
+            }
+        }
+    }
+
+    private void onReport(ByteBuffer inbound, int start) {
+        long now = System.nanoTime();
+        int slot = (int) (GatewayProtocol.reportClientOrderId(inbound, start) & MASK);
+        long intendedNanos = intended.getAndSet(slot, 0);
+        if (intendedNanos == 0) return;
+        recorder.record(intendedNanos, sent.get(slot), now);
+        int symbolIndex = restingSymbol.get(slot);
+        if (symbolIndex >= 0 && GatewayProtocol.reportExecType(inbound, start) == ExecType.NEW
+                && GatewayProtocol.reportLeavesQuantity(inbound, start) > 0) {
+            resting.offer(GatewayProtocol.reportOrderId(inbound, start) << SYMBOL_BITS | symbolIndex);
+        }
+        completed.incrementAndGet();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            channel.close();
+            reader.join(1000);
+        }
+        catch (IOException e) {
+            // closing anyway
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package radu.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import radu.marketdata.DepthSnapshot;
+import radu.marketdata.MarketDataPublisher;
+
+/**
+ * REST controller serving the conflated market data depth of a symbol.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnProperty(name = "matching.marketdata.enabled", havingValue = "true")
+public class MarketDataController {
+
+    private final MarketDataPublisher marketData;
+
+    public MarketDataController(MarketDataPublisher marketData) {
+        this.marketData = marketData;
+    }
+
+    /**
+     *
+     * @param symbol the symbol to look up
+     * @return returns 200 OK with the top price levels in ticks, or 404 if the symbol has no market data
+     */
+    @GetMapping("/depth/{symbol}")
+    public ResponseEntity<DepthSnapshot> depth(@PathVariable("symbol") String symbol) {
+        DepthSnapshot snapshot = marketData.getSnapshot(symbol);
+        if (snapshot == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(snapshot);
+    }
+}
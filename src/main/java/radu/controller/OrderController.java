@@ -3,56 +3,93 @@ package radu.controller;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import radu.domain.dto.BatchRequest;
 import radu.domain.dto.OrderRequest;
-import radu.engine.MatchingEngine;
-import radu.engine.Order;
-import radu.engine.OrderBook;
+import radu.engine.ExecutionReport;
+import radu.engine.OrderBatch;
+import radu.engine.Quote;
 import radu.service.OrderService;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for handling order-related operations.
+ *
+ * <p>Orders and batches are answered asynchronously: the request thread only hands the command
+ * to its shard and returns, and the response is written once the shard has applied it. No
+ * request thread waits on the engine, so the number of requests in flight is bounded by the
+ * connection limit rather than by the size of the thread pool.</p>
  */
 @RestController
 @RequestMapping("/api")
 public class OrderController {
 
-    private final MatchingEngine engine;
     private final OrderService orderService;
 
-    public OrderController(MatchingEngine engine, OrderService orderService) {
-        this.engine = engine;
+    public OrderController(OrderService orderService) {
         this.orderService = orderService;
     }
 
     /**
      *
      * @param req the request body of the order to be added
-     * @return returns 201 CREATED
+     * @return returns 201 CREATED with the order id, filled and leaves quantity once the order has been matched,
+     *         or 400 BAD REQUEST if the order has no side
      */
     @PostMapping("/addOrder")
-    public ResponseEntity<Void> addOrder(@RequestBody OrderRequest req) {
-        if(req == null){
-            return ResponseEntity.badRequest().build();
+    public CompletableFuture<ResponseEntity<ExecutionReport>> addOrder(@RequestBody OrderRequest req) {
+        if(req == null || req.type == null){
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
-        Order order = orderService.createOrderObject(req);
-        orderService.addOrder(order);
-        return ResponseEntity.status(201).build();
+        return orderService.submitOrder(req).thenApply(report -> ResponseEntity.status(201).body(report));
     }
 
     /**
      *
-     * @param req the request body of the order to be deleted
-     * @return returns 200 OK with the deleted order
+     * @param req the request body with the symbol and the commands to apply to its book
+     * @return returns 200 OK with the outcome of every command: order id, accepted, filled and leaves quantity
+     */
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<OrderBatch.Entry>>> submitBatch(@RequestBody BatchRequest req) {
+        if (req == null || req.symbol == null || req.commands == null || req.commands.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        for (BatchRequest.Item item : req.commands) {
+            if (item == null || item.action == null || (item.action == BatchRequest.Action.NEW && item.type == null)) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+            }
+        }
+        return orderService.submitBatch(req).thenApply(batch -> ResponseEntity.ok(batch.getEntries()));
+    }
+
+    /**
+     *
+     * @param symbol the symbol to quote
+     * @return returns 200 OK with the best bid and offer in ticks, or 404 if the symbol has no book
+     */
+    @GetMapping("/quote/{symbol}")
+    public ResponseEntity<Quote> quote(@PathVariable("symbol") String symbol) {
+        Quote quote = orderService.getQuote(symbol);
+        if (quote == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(quote);
+    }
+
+    /**
+     *
+     * @param req the request body with the id and symbol of the order to be deleted
+     * @return returns 200 OK with the order id once the order has been removed, 404 NOT FOUND if
+     *         no such order rests in the book, or 400 BAD REQUEST if the id or symbol is missing
      */
     @PostMapping("/deleteOrder")
-    public ResponseEntity<Order> deleteOrder(@RequestBody OrderRequest req) {
-        if(req == null){
-            return ResponseEntity.badRequest().build();
+    public CompletableFuture<ResponseEntity<Long>> deleteOrder(@RequestBody OrderRequest req) {
+        if(req == null || req.symbol == null || req.orderId <= 0){
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
-        Order order = orderService.createOrderObject(req);
-        orderService.deleteOrder(order);
-        return ResponseEntity.ok(order);
+        return orderService.deleteOrder(req.symbol, req.orderId)
+                .thenApply(removed -> removed ? ResponseEntity.ok(req.orderId) : ResponseEntity.<Long>notFound().build());
     }
 }
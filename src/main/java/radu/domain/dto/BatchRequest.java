@@ -0,0 +1,35 @@
+package radu.domain.dto;
+
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * DTO for submitting several commands for one symbol in a single call.
+ * Prices follow the same rules as in {@link OrderRequest}.
+ */
+public class BatchRequest {
+    public String symbol;
+    public List<Item> commands;
+
+    public enum Action {
+        NEW, CANCEL, AMEND
+    }
+
+    /**
+     * One command of the batch. NEW uses the order fields, CANCEL the {@code orderId},
+     * and AMEND the {@code orderId} with the new price and quantity.
+     */
+    public static class Item {
+        public Action action;
+        public long orderId;
+        public OrderType type;
+        public double price;
+        public long priceTicks;
+        public int quantity;
+        public Instant expiry;
+        public TimeInForce tif;
+    }
+}
@@ -1,5 +1,6 @@
 package radu.domain.dto;
 
+import radu.engine.OrderKind;
 import radu.engine.OrderType;
 import radu.engine.TimeInForce;
 
@@ -7,12 +8,25 @@ import java.time.Instant;
 
 /**
  * DTO for creating a new order via API.
+ * The price can be given either as a decimal {@code price}, converted with the symbol's
+ * tick size, or directly as {@code priceTicks}, which takes precedence when non-zero.
+ * The {@code kind} defaults to LIMIT. MARKET and STOP orders may leave the price out to get the
+ * book's default protection price, and STOP and STOP_LIMIT orders give their trigger price as
+ * {@code stopPrice} or {@code stopPriceTicks} in the same way. A non-zero
+ * {@code displayQuantity} makes it an iceberg order that shows at most that much at a time.
+ * To delete an order, only its {@code orderId} and {@code symbol} are needed.
  */
 public class OrderRequest {
+    public long orderId;
     public OrderType type;
     public String symbol;
     public double price;
+    public long priceTicks;
     public int quantity;
     public Instant expiry;
     public TimeInForce tif;
+    public OrderKind kind;
+    public double stopPrice;
+    public long stopPriceTicks;
+    public int displayQuantity;
 }
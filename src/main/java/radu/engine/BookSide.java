@@ -0,0 +1,419 @@
+package radu.engine;
+
+import java.util.AbstractQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * One side (bids or asks) of an order book, organised as a price ladder.
+ * Price levels are kept in an array sorted from worst to best price and additionally linked
+ * best-to-worst, so the top of book is O(1) and iteration never touches the array. Lookups by
+ * price go through a primitive {@link LongIndex}, so adding to an existing level neither searches
+ * nor boxes the price; the array is only binary-searched when a level is created or emptied, and
+ * as the best levels sit at its end, the levels that come and go at the touch shift the fewest
+ * entries. Nothing on this path allocates once the array has grown to the side's depth. Each
+ * level holds its orders as an intrusive FIFO queue, which makes removing a known order O(1).
+ *
+ * <p>The side still behaves as a {@link java.util.Queue} in price-time priority, so code
+ * that used to work on the old priority queues keeps working unchanged.</p>
+ *
+ * <p>With an {@link OffHeapOrderStore} attached, each level keeps only its first orders as objects
+ * and queues the rest in the store. Whenever an object leaves a level, the level's oldest stored
+ * order takes its place, so the best order is always an object.</p>
+ *
+ * <p>With a {@link DepthListener} attached, every change to a level's aggregates is reported
+ * as it happens, so market data can follow the book without walking it. The best level is
+ * also published to the book's {@link TopOfBook} whenever it changes.</p>
+ */
+public class BookSide extends AbstractQueue<Order> {
+
+    // emptied levels kept for reuse, so prices that come and go at the touch do not allocate levels
+    private static final int SPARE_LEVELS = 16;
+
+    private final OrderType type;
+    // every level of the side, sorted from worst to best price
+    private PriceLevel[] ladder = new PriceLevel[16];
+    private int levelCount;
+    private final LongIndex<PriceLevel> levelsByPrice = new LongIndex<>();
+    private final PriceLevel[] spareLevels = new PriceLevel[SPARE_LEVELS];
+    private int spareCount;
+    private PriceLevel best;
+    private int size;
+    private String symbol;
+    private DepthListener depthListener;
+    private TopOfBook topOfBook;
+    private OffHeapOrderStore store;
+    private OrderBook owner;
+    private int bookIndex;
+
+    /**
+     * Constructs an empty side of the book.
+     *
+     * @param type BUY for the bid side (highest price first), SELL for the ask side (lowest price first)
+     */
+    public BookSide(OrderType type) {
+        this.type = type;
+    }
+
+    /**
+     * Adds a resting order to the back of its price level, creating the level if needed. With a
+     * store attached, an order that joins a level whose front is full goes into the store, and
+     * is marked as stored rather than kept.
+     *
+     * @param order the order to add
+     * @return always true
+     */
+    @Override
+    public boolean offer(Order order) {
+        if (order.getType() != type) {
+            throw new IllegalArgumentException("Order " + order.getId() + " does not belong on the " + type + " side");
+        }
+        if (order.level != null) {
+            throw new IllegalStateException("Order " + order.getId() + " is already resting");
+        }
+        PriceLevel level = levelsByPrice.get(order.getPrice());
+        if (level == null) {
+            level = newLevel(order.getPrice());
+            int index = -(search(order.getPrice()) + 1);
+            PriceLevel better = index < levelCount ? ladder[index] : null;
+            insert(index, level);
+            levelsByPrice.put(order.getPrice(), level);
+            link(level, better);
+        }
+        if (store != null && (level.storedCount > 0 || level.getOrderCount() >= store.getHotOrdersPerLevel())) {
+            if (level.storedCount > 0 && order.getTimestamp() < store.getTimestamp(level.storedTail)) {
+                // older than stored orders, e.g. restored out of order: queue it among objects only
+                while (level.storedCount > 0) {
+                    owner.restoreFirst(level);
+                }
+                level.add(order);
+            }
+            else {
+                level.store(order, store, bookIndex);
+            }
+        }
+        else {
+            level.add(order);
+        }
+        size++;
+        levelChanged(level);
+        return true;
+    }
+
+    /**
+     * Removes and returns the order with the best price-time priority.
+     *
+     * @return the top order, or null if the side is empty
+     */
+    @Override
+    public Order poll() {
+        if (best == null) return null;
+        Order order = best.head;
+        remove(order);
+        return order;
+    }
+
+    /**
+     * @return the order with the best price-time priority, or null if the side is empty
+     */
+    @Override
+    public Order peek() {
+        return best == null ? null : best.head;
+    }
+
+    /**
+     * Removes a resting order in O(1) using its intrusive links.
+     *
+     * @param o the order to remove
+     * @return true if the order was resting on this side
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Order)) return false;
+        Order order = (Order) o;
+        PriceLevel level = order.level;
+        if (level == null || level.side != this) return false;
+
+        level.remove(order);
+        if (level.storedCount > 0) {
+            owner.restoreFirst(level);
+        }
+        size--;
+        removed(level);
+        return true;
+    }
+
+    /**
+     * Removes an order kept in the store in O(1) and frees its record.
+     *
+     * @param slot the slot of an order stored by this side
+     */
+    void removeStored(int slot) {
+        PriceLevel level = levelsByPrice.get(store.getPrice(slot));
+        level.removeStored(slot, store);
+        store.free(slot);
+        size--;
+        removed(level);
+    }
+
+    /**
+     * Drops a level that was just emptied, or reports the new aggregates of one that was not.
+     */
+    private void removed(PriceLevel level) {
+        if (level.isEmpty()) {
+            delete(search(level.getPrice()));
+            levelsByPrice.remove(level.getPrice());
+            unlink(level);
+            levelChanged(level);
+            if (spareCount < SPARE_LEVELS) {
+                spareLevels[spareCount++] = level;
+            }
+        }
+        else {
+            levelChanged(level);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        while (best != null) poll();
+    }
+
+    /**
+     * Iterates the resting orders in price-time priority. Orders kept in the store are handed out
+     * as copies, which the caller may keep.
+     */
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<Order>() {
+            private PriceLevel level = best;
+            private Order next = best == null ? null : best.head;
+            private int nextSlot = -1;
+            private Order last;
+            private int lastSlot = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next != null || nextSlot >= 0;
+            }
+
+            @Override
+            public Order next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                if (next != null) {
+                    last = next;
+                    lastSlot = -1;
+                    next = next.next;
+                    if (next == null) {
+                        nextSlot = level.storedHead;
+                    }
+                }
+                else {
+                    last = store.copyOf(nextSlot, owner.getSymbol());
+                    lastSlot = nextSlot;
+                    nextSlot = store.getNext(nextSlot);
+                }
+                if (next == null && nextSlot < 0) {
+                    level = level.worse;
+                    next = level == null ? null : level.head;
+                }
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) throw new IllegalStateException();
+                if (lastSlot >= 0) {
+                    removeStored(lastSlot);
+                }
+                else {
+                    boolean beforeStored = next == null && nextSlot >= 0;
+                    BookSide.this.remove(last);
+                    if (beforeStored) {
+                        // the first stored order just became an object at the back of the level
+                        next = level.tail;
+                        nextSlot = -1;
+                    }
+                }
+                last = null;
+                lastSlot = -1;
+            }
+        };
+    }
+
+    public OrderType getType() {
+        return type;
+    }
+
+    /**
+     * @return the best price level, or null if the side is empty
+     */
+    public PriceLevel getBestLevel() {
+        return best;
+    }
+
+    /**
+     * @param price the price in ticks to look up
+     * @return the level at that price, or null if nothing rests there
+     */
+    public PriceLevel getLevel(long price) {
+        return levelsByPrice.get(price);
+    }
+
+    /**
+     * Sums the resting quantity at prices no worse than a limit, using the per-level aggregates.
+     * The reserve of iceberg orders counts, since a sweep trades through it.
+     * Levels are walked best first and the walk stops as soon as {@code wanted} is reached, so the
+     * cost is proportional to the number of levels touched and nothing is allocated.
+     *
+     * @param limitPrice the worst acceptable price in ticks, from the point of view of the other side
+     * @param wanted     the quantity being looked for
+     * @return the quantity available, at least {@code wanted} if it can be filled
+     */
+    public long quantityAvailable(long limitPrice, long wanted) {
+        long available = 0;
+        for (PriceLevel level = best; level != null && available < wanted; level = level.worse) {
+            if (type == OrderType.BUY ? level.getPrice() < limitPrice : level.getPrice() > limitPrice) {
+                break;
+            }
+            available += level.getTotalQuantity() + level.getReserveQuantity();
+        }
+        return available;
+    }
+
+    /**
+     * Attaches the listener told about every level change of this side, and reports every
+     * existing level to it, best first, so it starts from the side's current state.
+     *
+     * @param symbol        the symbol of the book, passed on to the listener
+     * @param depthListener the listener, or null for none
+     */
+    void setDepthListener(String symbol, DepthListener depthListener) {
+        this.symbol = symbol;
+        this.depthListener = depthListener;
+        for (PriceLevel level = best; level != null; level = level.worse) {
+            levelChanged(level);
+        }
+    }
+
+    /**
+     * Keeps the orders queued behind the front of every level in a store. Only for an empty side.
+     *
+     * @param store     the store
+     * @param owner     the book of this side, which brings stored orders back to the front
+     * @param bookIndex the number of the book in the store
+     */
+    void setOrderStore(OffHeapOrderStore store, OrderBook owner, int bookIndex) {
+        if (size > 0) {
+            throw new IllegalStateException("Cannot attach an order store to a side with " + size + " orders");
+        }
+        this.store = store;
+        this.owner = owner;
+        this.bookIndex = bookIndex;
+    }
+
+    /**
+     * Sets the quote the best level of this side is published to.
+     *
+     * @param topOfBook the quote, or null for none
+     */
+    void setTopOfBook(TopOfBook topOfBook) {
+        this.topOfBook = topOfBook;
+        if (topOfBook != null) {
+            topOfBook.update(type, best);
+        }
+    }
+
+    /**
+     * Reports the current aggregates of a level to the depth listener, if there is one,
+     * and the best level to the top of book.
+     *
+     * @param level a level of this side, possibly just emptied
+     */
+    void levelChanged(PriceLevel level) {
+        if (depthListener != null) {
+            depthListener.onLevel(symbol, type, level.getPrice(), level.getTotalQuantity(), level.getOrderCount());
+        }
+        if (topOfBook != null) {
+            topOfBook.update(type, best);
+        }
+    }
+
+    /**
+     * @return the number of distinct price levels on this side
+     */
+    public int levelCount() {
+        return levelCount;
+    }
+
+    /**
+     * Binary-searches the ladder for a price.
+     *
+     * @param price the price in ticks
+     * @return the index of the price's level, or {@code -(insertion point + 1)}
+     */
+    private int search(long price) {
+        int low = 0;
+        int high = levelCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPrice = ladder[mid].getPrice();
+            if (midPrice == price) {
+                return mid;
+            }
+            if (type == OrderType.BUY ? midPrice > price : midPrice < price) {
+                high = mid - 1;
+            }
+            else {
+                low = mid + 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int index, PriceLevel level) {
+        if (levelCount == ladder.length) {
+            ladder = Arrays.copyOf(ladder, levelCount * 2);
+        }
+        System.arraycopy(ladder, index, ladder, index + 1, levelCount - index);
+        ladder[index] = level;
+        levelCount++;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(ladder, index + 1, ladder, index, levelCount - index - 1);
+        ladder[--levelCount] = null;
+    }
+
+    private PriceLevel newLevel(long price) {
+        if (spareCount == 0) {
+            return new PriceLevel(this, price);
+        }
+        PriceLevel level = spareLevels[--spareCount];
+        spareLevels[spareCount] = null;
+        level.reset(price);
+        return level;
+    }
+
+    private void link(PriceLevel level, PriceLevel better) {
+        level.better = better;
+        level.worse = better == null ? best : better.worse;
+        if (level.worse != null) level.worse.better = level;
+        if (better == null) best = level;
+        else better.worse = level;
+    }
+
+    private void unlink(PriceLevel level) {
+        if (level.better == null) best = level.worse;
+        else level.better.worse = level.worse;
+        if (level.worse != null) level.worse.better = level.better;
+        level.better = null;
+        level.worse = null;
+    }
+}
@@ -0,0 +1,18 @@
+package radu.engine;
+
+/**
+ * Receives the outcome of a command on the thread that applied it, as an alternative to a
+ * future for submitters that cannot afford one allocation per command.
+ */
+@FunctionalInterface
+public interface CommandListener {
+
+    /**
+     * Called once per command, while the slot still holds its fields. The slot is reused as
+     * soon as this returns, so it must not be retained.
+     *
+     * @param command the command that was applied
+     * @param success the outcome; false as well if the command failed with an exception
+     */
+    void onCommandResult(EngineCommand command, boolean success);
+}
@@ -0,0 +1,11 @@
+package radu.engine;
+
+/**
+ * The operations that can be submitted to an engine as commands.
+ * SNAPSHOT is handled by the shard that owns the engine and never reaches the books.
+ * A BATCH is journalled as the individual commands it contains, between batch markers, and
+ * replayed as those commands once its end marker shows it was journalled completely.
+ */
+public enum CommandType {
+    ADD, CANCEL, AMEND, MATCH, EXPIRE, SNAPSHOT, BATCH
+}
@@ -0,0 +1,19 @@
+package radu.engine;
+
+/**
+ * Receives every change to the aggregated price levels of an order book, on the thread that
+ * owns the book. A level is reported with its new totals each time an order joins it, leaves it
+ * or is partially filled in it, and with a quantity of zero once it is empty and gone.
+ */
+@FunctionalInterface
+public interface DepthListener {
+
+    /**
+     * @param symbol     the symbol of the book
+     * @param side       BUY for a bid level, SELL for an ask level
+     * @param price      price of the level in ticks
+     * @param quantity   total quantity resting at the level, 0 if the level was removed
+     * @param orderCount number of orders resting at the level
+     */
+    void onLevel(String symbol, OrderType side, long price, long quantity, int orderCount);
+}
@@ -0,0 +1,45 @@
+package radu.engine;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time source for the engine. All engine timestamps are plain {@code long} nanoseconds since
+ * the epoch: the wall clock is sampled once and advanced with {@link System#nanoTime()}, so
+ * reading the time is cheap, monotonic within a run and allocates nothing.
+ */
+public final class EngineClock {
+
+    private static final long BASE_EPOCH_NANOS = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    private static final long BASE_NANO_TIME = System.nanoTime();
+
+    private EngineClock() {
+    }
+
+    /**
+     * @return the current time in nanoseconds since the epoch
+     */
+    public static long epochNanos() {
+        return BASE_EPOCH_NANOS + (System.nanoTime() - BASE_NANO_TIME);
+    }
+
+    /**
+     * Converts an API timestamp to engine time.
+     *
+     * @param instant the instant to convert
+     * @return nanoseconds since the epoch
+     */
+    public static long toEpochNanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
+    }
+
+    /**
+     * Converts engine time back to an API timestamp.
+     *
+     * @param epochNanos nanoseconds since the epoch
+     * @return the corresponding instant
+     */
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+}
@@ -0,0 +1,370 @@
+package radu.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request to mutate one order book, handed from a client thread to the thread that owns the book.
+ * Commands are preallocated slots of a ring buffer: producers overwrite every field with one of
+ * the {@code set} methods, so nothing is allocated per command. New orders travel as plain fields
+ * and only become an {@link Order} on the owning thread.
+ */
+public class EngineCommand {
+
+    private CommandType type;
+    private String symbol;
+    private long orderId;
+    private OrderType side;
+    private TimeInForce tif;
+    private OrderKind kind;
+    private long price;
+    private long stopPrice;
+    private int quantity;
+    private int displayQuantity;
+    private long expiry;
+    private long timestamp;
+    private long enqueueNanos;
+    private CompletableFuture<Boolean> result;
+    private OrderBatch batch;
+    private CommandListener listener;
+    private long correlationId;
+    private CompletableFuture<ExecutionReport> report;
+    private int filledQuantity;
+    private int leavesQuantity;
+
+    /**
+     * Fills the slot with a new order.
+     *
+     * @param order  the order to add; only its fields are copied
+     * @param result completed with the outcome, may be null
+     */
+    public void setAdd(Order order, CompletableFuture<Boolean> result) {
+        setAdd(order.getId(), order.getType(), order.getSymbol(), order.getKind(), order.getPrice(), order.getStopPrice(),
+                order.getLeavesQuantity(), order.getExpiry(), order.getTif(), result);
+        this.displayQuantity = order.getDisplayQuantity();
+    }
+
+    /**
+     * Fills the slot with a new order without needing an {@link Order} instance.
+     *
+     * @param orderId  id reserved with {@link Order#nextId()}
+     * @param side     BUY or SELL
+     * @param symbol   the symbol
+     * @param price    limit price in ticks
+     * @param quantity the quantity
+     * @param expiry   expiry in epoch nanos
+     * @param tif      the time in force
+     * @param result   completed with the outcome, may be null
+     */
+    public void setAdd(long orderId, OrderType side, String symbol, long price, int quantity, long expiry,
+                       TimeInForce tif, CompletableFuture<Boolean> result) {
+        setAdd(orderId, side, symbol, OrderKind.LIMIT, price, 0, quantity, expiry, tif, result);
+    }
+
+    /**
+     * Fills the slot with a new order of any kind without needing an {@link Order} instance.
+     *
+     * @param kind      the order kind
+     * @param price     limit price in ticks, or the protection price of MARKET and STOP, 0 to derive it
+     * @param stopPrice trigger price in ticks for STOP and STOP_LIMIT, 0 otherwise
+     * @see #setAdd(long, OrderType, String, long, int, long, TimeInForce, CompletableFuture)
+     */
+    public void setAdd(long orderId, OrderType side, String symbol, OrderKind kind, long price, long stopPrice,
+                       int quantity, long expiry, TimeInForce tif, CompletableFuture<Boolean> result) {
+        set(CommandType.ADD, symbol, orderId, price, quantity, result);
+        this.side = side;
+        this.kind = kind;
+        this.stopPrice = stopPrice;
+        this.expiry = expiry;
+        this.tif = tif;
+    }
+
+    public void setCancel(String symbol, long orderId, CompletableFuture<Boolean> result) {
+        set(CommandType.CANCEL, symbol, orderId, 0, 0, result);
+    }
+
+    public void setAmend(String symbol, long orderId, long newPrice, int newQuantity, CompletableFuture<Boolean> result) {
+        set(CommandType.AMEND, symbol, orderId, newPrice, newQuantity, result);
+    }
+
+    public void setMatch(String symbol, CompletableFuture<Boolean> result) {
+        set(CommandType.MATCH, symbol, 0, 0, 0, result);
+    }
+
+    /**
+     * Fills the slot with an expiry tick for all books of the receiving shard.
+     *
+     * @param nowNanos time up to which orders are expired, in epoch nanos
+     */
+    public void setExpire(long nowNanos) {
+        set(CommandType.EXPIRE, null, 0, 0, 0, null);
+        this.expiry = nowNanos;
+    }
+
+    /**
+     * Fills the slot with a request to snapshot the books of the receiving shard.
+     *
+     * @param result completed once the books have been captured, may be null
+     */
+    public void setSnapshot(CompletableFuture<Boolean> result) {
+        set(CommandType.SNAPSHOT, null, 0, 0, 0, result);
+    }
+
+    /**
+     * Fills the slot with a batch of commands for one symbol.
+     *
+     * @param batch  the batch; the engine writes every entry's outcome into it
+     * @param result completed once the whole batch has been applied, may be null
+     */
+    public void setBatch(OrderBatch batch, CompletableFuture<Boolean> result) {
+        set(CommandType.BATCH, batch.getSymbol(), 0, 0, 0, result);
+        this.batch = batch;
+    }
+
+    private void set(CommandType type, String symbol, long orderId, long price, int quantity, CompletableFuture<Boolean> result) {
+        this.type = type;
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.price = price;
+        this.quantity = quantity;
+        this.displayQuantity = 0;
+        this.result = result;
+        this.side = null;
+        this.tif = null;
+        this.kind = null;
+        this.stopPrice = 0;
+        this.expiry = 0;
+        this.timestamp = 0;
+        this.enqueueNanos = System.nanoTime();
+        this.batch = null;
+        this.listener = null;
+        this.correlationId = 0;
+        this.report = null;
+        this.filledQuantity = 0;
+        this.leavesQuantity = 0;
+    }
+
+    /**
+     * Makes the order of an ADD command an iceberg order. Call after {@code setAdd}.
+     *
+     * @param displayQuantity largest slice the order shows at a time, 0 for an ordinary order
+     */
+    public void setDisplayQuantity(int displayQuantity) {
+        this.displayQuantity = displayQuantity;
+    }
+
+    /**
+     * Asks for the outcome to be reported to a listener. Call after one of the {@code set} methods.
+     *
+     * @param listener      told the outcome on the thread that applies the command
+     * @param correlationId opaque value handed back with the command, e.g. a client's request id
+     */
+    public void setListener(CommandListener listener, long correlationId) {
+        this.listener = listener;
+        this.correlationId = correlationId;
+    }
+
+    /**
+     * Asks for the outcome to be reported as an {@link ExecutionReport}. Call after one of the
+     * {@code set} methods. Unlike a listener, the report may be kept: it is a copy made when the
+     * command completes.
+     *
+     * @param report completed with the report on the thread that applies the command
+     */
+    public void setReport(CompletableFuture<ExecutionReport> report) {
+        this.report = report;
+    }
+
+    /**
+     * Records how much of a new or amended order traded and how much remains. Set by the engine
+     * while it applies the command.
+     */
+    void setOutcome(int filledQuantity, int leavesQuantity) {
+        this.filledQuantity = filledQuantity;
+        this.leavesQuantity = leavesQuantity;
+    }
+
+    /**
+     * Stamps the command with the time the engine applies it. ADD commands give this timestamp
+     * to the order they create, so a journalled command rebuilds the same order on replay.
+     *
+     * @param timestamp time in epoch nanos
+     */
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the slot was filled, to time its wait in the ring
+     */
+    public long getEnqueueNanos() {
+        return enqueueNanos;
+    }
+
+    /**
+     * Drops the references held by the slot once it has been applied.
+     */
+    public void clear() {
+        symbol = null;
+        result = null;
+        batch = null;
+        listener = null;
+        report = null;
+    }
+
+    /**
+     * Reports the outcome to the submitter, if it asked for one.
+     */
+    public void complete(boolean success) {
+        if (result != null) {
+            result.complete(success);
+        }
+        if (report != null) {
+            report.complete(new ExecutionReport(type, symbol, orderId, success, filledQuantity, leavesQuantity));
+        }
+        if (listener != null) {
+            listener.onCommandResult(this, success);
+        }
+    }
+
+    /**
+     * Reports a failure to the submitter, if it asked for one.
+     */
+    public void fail(Throwable cause) {
+        if (result != null) {
+            result.completeExceptionally(cause);
+        }
+        if (report != null) {
+            report.completeExceptionally(cause);
+        }
+        if (listener != null) {
+            listener.onCommandResult(this, false);
+        }
+    }
+
+    /**
+     * Builds the order described by an ADD command, with the command's timestamp.
+     *
+     * @param pool the pool the order is taken from
+     * @return an order that is not in any book yet
+     */
+    Order toOrder(OrderPool pool) {
+        Order order = pool.acquire(orderId, side, symbol, kind, price, stopPrice, quantity, timestamp, expiry, tif);
+        if (displayQuantity > 0) {
+            order.setIceberg(displayQuantity, 0);
+        }
+        return order;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * @return the side of the order to add, only set for ADD commands
+     */
+    public OrderType getSide() {
+        return side;
+    }
+
+    /**
+     * @return the time in force of the order to add, only set for ADD commands
+     */
+    public TimeInForce getTif() {
+        return tif;
+    }
+
+    /**
+     * @return the kind of the order to add, only set for ADD commands
+     */
+    public OrderKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the limit or protection price in ticks for ADD, the new price for AMEND
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the trigger price in ticks of a STOP or STOP_LIMIT order to add
+     */
+    public long getStopPrice() {
+        return stopPrice;
+    }
+
+    /**
+     * @return the order quantity for ADD, the new quantity for AMEND
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the display quantity of an iceberg order to add, 0 otherwise
+     */
+    public int getDisplayQuantity() {
+        return displayQuantity;
+    }
+
+    /**
+     * @return the expiry in epoch nanos for ADD, the current time for EXPIRE
+     */
+    public long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * @return the time the command was applied in epoch nanos, 0 until the engine stamps it
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the batch of a BATCH command
+     */
+    public OrderBatch getBatch() {
+        return batch;
+    }
+
+    /**
+     * @return the quantity a new order traded on arrival, once the command has been applied
+     */
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    /**
+     * @return the quantity a new order left resting or waiting, or an amended order's new quantity,
+     *         once the command has been applied
+     */
+    public int getLeavesQuantity() {
+        return leavesQuantity;
+    }
+
+    /**
+     * @return the value passed to {@link #setListener(CommandListener, long)}
+     */
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    @Override
+    public String toString() {
+        return "EngineCommand{" +
+                "type=" + type +
+                ", symbol=" + symbol +
+                ", orderId=" + orderId +
+                '}';
+    }
+}
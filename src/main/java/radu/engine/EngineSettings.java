@@ -0,0 +1,265 @@
+package radu.engine;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import radu.journal.JournalFactory;
+import radu.metrics.LatencyMetrics;
+import radu.pipeline.EventHandler;
+import radu.pipeline.WaitStrategy;
+import radu.pipeline.YieldingWaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How a {@link ShardedMatchingEngine}, its shards and their engines are sized and tuned, and who
+ * they report to. In the application it is built from the {@code matching.*} properties and the
+ * listener beans; elsewhere the defaults give an engine without journal or listeners, and the
+ * {@code with} methods change one setting at a time.
+ */
+@Component
+public class EngineSettings {
+
+    public static final int DEFAULT_RING_SIZE = 65536;
+    public static final int DEFAULT_TRADE_RING_SIZE = 16384;
+
+    private int shardCount;
+    private int ringSize = DEFAULT_RING_SIZE;
+    private WaitStrategy waitStrategy = new YieldingWaitStrategy();
+    private long expiryResolutionNanos = MatchingEngine.DEFAULT_EXPIRY_RESOLUTION_NANOS;
+    private int preallocatedOrders;
+    private int hotOrdersPerLevel;
+    private int tradeRingSize = DEFAULT_TRADE_RING_SIZE;
+    private JournalFactory journals;
+    private final List<EventHandler<TradeEvent>> tradeSubscribers = new ArrayList<>();
+    private final List<TradeListener> tradeListeners = new ArrayList<>();
+    private final List<RemovalListener> removalListeners = new ArrayList<>();
+    private DepthListener depthListener;
+    private LatencyMetrics latencyMetrics;
+    private EventLog eventLog;
+
+    public EngineSettings() {
+    }
+
+    /**
+     * @param shardCount             number of shards, 0 for one per available processor
+     * @param ringSize               command slots per shard, a power of two
+     * @param waitStrategy           how idle shard threads wait for commands: busy-spin, yield or park
+     * @param expiryResolutionMillis tick length of the expiry wheels and period of the expiry timer
+     * @param preallocatedOrders     orders every shard's order pool is filled with up front
+     * @param hotOrdersPerLevel      orders every price level keeps as objects before the rest are
+     *                               stored off-heap, 0 to keep every order on the heap
+     * @param journals               journal, snapshot and recovery settings of the shards
+     * @param tradeRingSize          trade slots between the shards and the trade subscribers, a power of two
+     * @param tradeSubscribers       consumers of the trade stream
+     * @param tradeListeners         called for every trade on the shard threads
+     * @param removalListeners       called for every cancelled or expired order on the shard threads
+     * @param depthListener          called for every price level change on the shard threads, if there is one
+     * @param latencyMetrics         where the shards record the latency of every stage, if anywhere
+     * @param eventLog               where the shards' books report what they do, if anywhere
+     */
+    @Autowired
+    public EngineSettings(@Value("${matching.engine.shards:0}") int shardCount,
+                          @Value("${matching.engine.ring-size:65536}") int ringSize,
+                          @Value("${matching.engine.wait-strategy:park}") String waitStrategy,
+                          @Value("${matching.expiry.resolution-ms:10}") long expiryResolutionMillis,
+                          @Value("${matching.engine.preallocated-orders:0}") int preallocatedOrders,
+                          @Value("${matching.engine.offheap.hot-orders-per-level:0}") int hotOrdersPerLevel,
+                          JournalFactory journals,
+                          @Value("${matching.trades.ring-size:16384}") int tradeRingSize,
+                          ObjectProvider<EventHandler<TradeEvent>> tradeSubscribers,
+                          ObjectProvider<TradeListener> tradeListeners,
+                          ObjectProvider<RemovalListener> removalListeners,
+                          ObjectProvider<DepthListener> depthListener,
+                          ObjectProvider<LatencyMetrics> latencyMetrics,
+                          ObjectProvider<EventLog> eventLog) {
+        this.shardCount = shardCount;
+        this.ringSize = ringSize;
+        this.waitStrategy = WaitStrategy.named(waitStrategy);
+        this.expiryResolutionNanos = TimeUnit.MILLISECONDS.toNanos(expiryResolutionMillis);
+        this.preallocatedOrders = preallocatedOrders;
+        this.hotOrdersPerLevel = hotOrdersPerLevel;
+        this.journals = journals;
+        this.tradeRingSize = tradeRingSize;
+        tradeSubscribers.orderedStream().forEach(this.tradeSubscribers::add);
+        tradeListeners.orderedStream().forEach(this.tradeListeners::add);
+        removalListeners.orderedStream().forEach(this.removalListeners::add);
+        this.depthListener = depthListener.getIfAvailable();
+        this.latencyMetrics = latencyMetrics.getIfAvailable();
+        this.eventLog = eventLog.getIfAvailable();
+    }
+
+    /**
+     * @param shardCount number of shards, 0 for one per available processor
+     */
+    public EngineSettings withShardCount(int shardCount) {
+        this.shardCount = shardCount;
+        return this;
+    }
+
+    /**
+     * @param ringSize command slots per shard, a power of two
+     */
+    public EngineSettings withRingSize(int ringSize) {
+        this.ringSize = ringSize;
+        return this;
+    }
+
+    /**
+     * @param waitStrategy how idle shard threads wait for commands
+     */
+    public EngineSettings withWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    /**
+     * @param expiryResolutionNanos tick length of the expiry wheels and period of the expiry timer
+     */
+    public EngineSettings withExpiryResolutionNanos(long expiryResolutionNanos) {
+        this.expiryResolutionNanos = expiryResolutionNanos;
+        return this;
+    }
+
+    /**
+     * @param preallocatedOrders orders every order pool is filled with up front; a pool keeps at
+     *                           least {@value MatchingEngine#DEFAULT_ORDER_POOL_CAPACITY} released
+     *                           orders for reuse either way
+     */
+    public EngineSettings withPreallocatedOrders(int preallocatedOrders) {
+        this.preallocatedOrders = preallocatedOrders;
+        return this;
+    }
+
+    /**
+     * @param hotOrdersPerLevel orders every price level keeps as objects before the ones behind
+     *                          them are stored off-heap, 0 to keep every order on the heap
+     */
+    public EngineSettings withHotOrdersPerLevel(int hotOrdersPerLevel) {
+        this.hotOrdersPerLevel = hotOrdersPerLevel;
+        return this;
+    }
+
+    /**
+     * @param tradeRingSize trade slots between the shards and the trade subscribers, a power of two
+     */
+    public EngineSettings withTradeRingSize(int tradeRingSize) {
+        this.tradeRingSize = tradeRingSize;
+        return this;
+    }
+
+    /**
+     * @param journals journal, snapshot and recovery settings of the shards, null to run without
+     */
+    public EngineSettings withJournals(JournalFactory journals) {
+        this.journals = journals;
+        return this;
+    }
+
+    /**
+     * @param subscriber a consumer of the trade stream, fed on its own thread
+     */
+    public EngineSettings withTradeSubscriber(EventHandler<TradeEvent> subscriber) {
+        tradeSubscribers.add(subscriber);
+        return this;
+    }
+
+    /**
+     * @param listener called for every trade on the shard threads
+     */
+    public EngineSettings withTradeListener(TradeListener listener) {
+        tradeListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * @param listener called for every cancelled or expired order on the shard threads
+     */
+    public EngineSettings withRemovalListener(RemovalListener listener) {
+        removalListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * @param depthListener called for every price level change on the shard threads, or null
+     */
+    public EngineSettings withDepthListener(DepthListener depthListener) {
+        this.depthListener = depthListener;
+        return this;
+    }
+
+    /**
+     * @param latencyMetrics where the shards record the latency of every stage, or null
+     */
+    public EngineSettings withLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+        return this;
+    }
+
+    /**
+     * @param eventLog where the books report what they do, or null
+     */
+    public EngineSettings withEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+        return this;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public long getExpiryResolutionNanos() {
+        return expiryResolutionNanos;
+    }
+
+    public int getPreallocatedOrders() {
+        return preallocatedOrders;
+    }
+
+    public int getHotOrdersPerLevel() {
+        return hotOrdersPerLevel;
+    }
+
+    public int getTradeRingSize() {
+        return tradeRingSize;
+    }
+
+    public JournalFactory getJournals() {
+        return journals;
+    }
+
+    public List<EventHandler<TradeEvent>> getTradeSubscribers() {
+        return tradeSubscribers;
+    }
+
+    public List<TradeListener> getTradeListeners() {
+        return tradeListeners;
+    }
+
+    public List<RemovalListener> getRemovalListeners() {
+        return removalListeners;
+    }
+
+    public DepthListener getDepthListener() {
+        return depthListener;
+    }
+
+    public LatencyMetrics getLatencyMetrics() {
+        return latencyMetrics;
+    }
+
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+}
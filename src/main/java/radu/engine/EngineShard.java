@@ -0,0 +1,319 @@
+package radu.engine;
+
+import radu.journal.Journal;
+import radu.journal.JournalFactory;
+import radu.journal.Recovery;
+import radu.journal.Snapshot;
+import radu.metrics.LatencyMetrics;
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.EventHandler;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One partition of the sharded engine. The shard owns a {@link MatchingEngine} and a dedicated
+ * thread, and is fed through a preallocated ring buffer of command slots, so its books are only
+ * ever touched by that one thread and submitting a command neither locks nor allocates.
+ * A shard with a journal writes every command and trade to it on the shard thread and applies
+ * the journal's fsync policy whenever it drains a batch. Such a shard recovers its books from its
+ * snapshot and journal when it is created, and takes a new snapshot whenever a SNAPSHOT command
+ * reaches it: the books are copied between two commands and the copy is written by the
+ * snapshot writer, so matching only pauses for the copy. Once the shard is stopped, commands
+ * submitted to it fail at once.
+ */
+public class EngineShard implements EventHandler<EngineCommand> {
+
+    private static final Logger logger = Logger.getLogger(EngineShard.class.getName());
+
+    private final int index;
+    private final MatchingEngine engine;
+    private final RingBuffer<EngineCommand> ringBuffer;
+    private final BatchEventProcessor<EngineCommand> processor;
+    private final Thread thread;
+    private final Journal journal;
+    private final Path snapshotFile;
+    private final Executor snapshotWriter;
+    private volatile boolean stopped;
+    // set once the shard thread has exited, from when on producers fail what they publish
+    private volatile boolean drained;
+
+    /**
+     * @param index          the shard number, used to name its thread and its journal files
+     * @param settings       ring size, wait strategy, engine settings and journals of the shard
+     * @param snapshotWriter runs snapshot writes off the shard thread, needed with a journal
+     */
+    public EngineShard(int index, EngineSettings settings, Executor snapshotWriter) {
+        JournalFactory journals = settings.getJournals();
+        this.index = index;
+        this.engine = new MatchingEngine(settings);
+        if (journals != null && journals.isEnabled()) {
+            this.snapshotFile = journals.snapshotFileFor(index);
+            if (journals.isRecover()) {
+                Recovery.recover(engine, snapshotFile, journals.fileFor(index));
+            }
+            this.journal = journals.open(index);
+        }
+        else {
+            this.snapshotFile = null;
+            this.journal = null;
+        }
+        this.snapshotWriter = snapshotWriter;
+        this.engine.setJournal(journal);
+        this.ringBuffer = new RingBuffer<>(settings.getRingSize(), EngineCommand::new, settings.getWaitStrategy());
+        this.processor = new BatchEventProcessor<>(ringBuffer, this);
+        this.thread = new Thread(processor, "matching-shard-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Publishes the trades of the shard's books to a stream. Must be called before {@link #start()}.
+     *
+     * @param tradeStream the stream, or null
+     */
+    public void setTradeStream(TradeStream tradeStream) {
+        engine.setTradeStream(tradeStream);
+    }
+
+    /**
+     * Adds a listener called for every trade on the shard thread. Must be called before {@link #start()}.
+     *
+     * @param listener the listener
+     */
+    public void addTradeListener(TradeListener listener) {
+        engine.addTradeListener(listener);
+    }
+
+    /**
+     * Adds a listener called on the shard thread for every order that is cancelled or expires.
+     * Must be called before {@link #start()}.
+     *
+     * @param listener the listener
+     */
+    public void addRemovalListener(RemovalListener listener) {
+        engine.addRemovalListener(listener);
+    }
+
+    /**
+     * Reports every price level change of the shard's books, starting with the levels recovered
+     * from the journal. Must be called before {@link #start()}.
+     *
+     * @param listener the listener, or null
+     */
+    public void setDepthListener(DepthListener listener) {
+        engine.setDepthListener(listener);
+    }
+
+    /**
+     * Reports what the shard's books do to an event log. Must be called before {@link #start()}.
+     *
+     * @param eventLog the log, or null
+     */
+    public void setEventLog(EventLog eventLog) {
+        engine.setEventLog(eventLog);
+    }
+
+    /**
+     * Times the stages of the commands the shard applies. Must be called before {@link #start()}.
+     *
+     * @param latencyMetrics where the latencies are recorded, or null
+     */
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        engine.setLatencyMetrics(latencyMetrics);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * The ring producers publish into. Claim a slot with {@code next()}, fill it with one of the
+     * {@code EngineCommand.set} methods and {@code publish} it.
+     *
+     * @return the shard's command ring
+     */
+    public RingBuffer<EngineCommand> getRingBuffer() {
+        return ringBuffer;
+    }
+
+    /**
+     * Looks up the best bid and offer of one of the shard's symbols. Safe from any thread.
+     *
+     * @param symbol the symbol
+     * @return the book's top of book, or null if the shard has no book for the symbol
+     */
+    public TopOfBook getTopOfBook(String symbol) {
+        return engine.getTopOfBook(symbol);
+    }
+
+    /**
+     * @return the sequence of the last command the shard thread has applied
+     */
+    public Sequence getProcessedSequence() {
+        return processor.getSequence();
+    }
+
+    /**
+     * Publishes an expiry tick, so that due orders are expired on the shard thread between commands.
+     *
+     * @param nowNanos current time in epoch nanos
+     */
+    public void tick(long nowNanos) {
+        if (stopped) return;
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setExpire(nowNanos);
+        }
+        finally {
+            publish(sequence);
+        }
+    }
+
+    @Override
+    public void onEvent(EngineCommand command, long sequence, boolean endOfBatch) {
+        try {
+            if (command.getType() == CommandType.SNAPSHOT) {
+                command.complete(snapshot());
+            }
+            else {
+                command.complete(engine.execute(command));
+            }
+        }
+        catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Command failed on shard " + index + ": " + command, e);
+            command.fail(e);
+        }
+        finally {
+            command.clear();
+        }
+        if (endOfBatch && journal != null) {
+            journal.onBatchEnd();
+        }
+    }
+
+    /**
+     * Publishes a snapshot request, so that the books are captured on the shard thread between
+     * two commands.
+     *
+     * @param result completed once the books have been captured, may be null; failed if the shard has stopped
+     */
+    public void requestSnapshot(CompletableFuture<Boolean> result) {
+        if (stopped) {
+            if (result != null) {
+                result.completeExceptionally(stoppedException());
+            }
+            return;
+        }
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setSnapshot(result);
+        }
+        finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Captures the books and hands the copy to the snapshot writer. The journal is forced first,
+     * so the snapshot never gets ahead of the records that survive a crash.
+     */
+    private boolean snapshot() {
+        if (journal == null || snapshotWriter == null) return false;
+        journal.sync();
+        Snapshot snapshot = Snapshot.capture(engine, journal.getSequence(), EngineClock.epochNanos());
+        snapshotWriter.execute(() -> {
+            try {
+                snapshot.writeTo(snapshotFile);
+            }
+            catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Snapshot of shard " + index + " failed", e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Makes a command claimed from {@link #getRingBuffer()} visible to the shard thread. Producers
+     * must publish through here rather than through the ring: one that checked
+     * {@link #isStopped()} just before the shard stopped fails its command itself, as the shard
+     * thread will not apply it any more.
+     *
+     * @param sequence the claimed sequence
+     */
+    public void publish(long sequence) {
+        ringBuffer.publish(sequence);
+        // keeps the publish from being ordered after the read of drained, which stop() writes before it drains
+        VarHandle.fullFence();
+        if (drained) {
+            failUnapplied();
+        }
+    }
+
+    /**
+     * @return true once {@link #stop()} has been called, after which no command is applied any more
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * @return a future failed the way commands submitted to a stopped shard fail
+     */
+    public <T> CompletableFuture<T> rejected() {
+        return CompletableFuture.failedFuture(stoppedException());
+    }
+
+    private CancellationException stoppedException() {
+        return new CancellationException("Shard " + index + " stopped");
+    }
+
+    /**
+     * Stops the shard thread, fails every published command that has not been applied yet and
+     * closes the journal. Also works if the thread has not started yet. Producers still waiting
+     * for a free slot are let through, so none of them blocks forever on a ring nobody drains,
+     * and a command published after this has drained the ring is failed by its producer.
+     */
+    public void stop() {
+        stopped = true;
+        processor.halt();
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drained = true;
+        failUnapplied();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Fails every published command the stopped shard thread did not apply, and moves the
+     * shard's sequence past them so producers waiting for a free slot are let through. Commands
+     * claimed but not published yet are left to their producer, who comes back here on publish.
+     */
+    private synchronized void failUnapplied() {
+        Sequence applied = processor.getSequence();
+        long next = applied.get() + 1;
+        long last = ringBuffer.getHighestPublishedSequence(next, ringBuffer.getCursor());
+        for (long sequence = next; sequence <= last; sequence++) {
+            EngineCommand command = ringBuffer.get(sequence);
+            command.fail(stoppedException());
+            command.clear();
+        }
+        applied.set(last);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
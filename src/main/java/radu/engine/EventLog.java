@@ -0,0 +1,193 @@
+package radu.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.EventHandler;
+import radu.pipeline.ParkingWaitStrategy;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous log of what the books do, for operations.
+ *
+ * <p>The matching threads never format text or touch a handler: an event is copied as a few
+ * primitive fields into a preallocated {@link LogEvent} slot of a ring buffer, which allocates
+ * nothing, and one background thread turns the events into log records in the order they were
+ * written. Each record carries the time the event happened rather than the time it was
+ * formatted. Events below the logger's level are not written at all.</p>
+ *
+ * <p>Unlike the trade stream, the log never holds back matching: when the ring is full the event
+ * is dropped and counted, and the number dropped is logged once the writer catches up.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "matching.eventlog.enabled", havingValue = "true", matchIfMissing = true)
+public class EventLog implements AutoCloseable {
+
+    public static final int DEFAULT_RING_SIZE = 16384;
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final Logger logger;
+    private final RingBuffer<LogEvent> ringBuffer;
+    private final BatchEventProcessor<LogEvent> processor;
+    private final Thread thread;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public EventLog() {
+        this(DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param ringSize event slots between the matching threads and the writer, a power of two
+     */
+    @Autowired
+    public EventLog(@Value("${matching.eventlog.ring-size:16384}") int ringSize) {
+        this(ringSize, Logger.getLogger(EventLog.class.getName()));
+    }
+
+    /**
+     * @param ringSize event slots between the matching threads and the writer, a power of two
+     * @param logger   the logger the events are written to
+     */
+    public EventLog(int ringSize, Logger logger) {
+        this.logger = logger;
+        this.ringBuffer = new RingBuffer<>(ringSize, LogEvent::new, new ParkingWaitStrategy());
+        this.processor = new BatchEventProcessor<>(ringBuffer, new Writer());
+        this.thread = new Thread(processor, "event-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @param type the type of event
+     * @return true if events of this type are written, so callers can skip gathering their fields
+     */
+    public boolean isLoggable(LogEventType type) {
+        return logger.isLoggable(type.getLevel());
+    }
+
+    /**
+     * Logs an event about an order, with the order's side, time in force, price and leaves quantity.
+     *
+     * @param type   the type of event
+     * @param symbol the symbol of the order's book
+     * @param order  the order; only its fields are copied
+     */
+    public void log(LogEventType type, String symbol, Order order) {
+        log(type, symbol, order, 0);
+    }
+
+    /**
+     * @param value a value specific to the event type
+     * @see #log(LogEventType, String, Order)
+     */
+    public void log(LogEventType type, String symbol, Order order, long value) {
+        log(type, symbol, order.getId(), order.getType(), order.getTif(), order.getPrice(), order.getLeavesQuantity(), value);
+    }
+
+    /**
+     * Logs an event. Safe from several threads; never blocks and never allocates.
+     *
+     * @param type     the type of event
+     * @param symbol   the symbol of the book, may be null
+     * @param orderId  the order the event is about, 0 for none
+     * @param side     the side of the order, may be null
+     * @param tif      the time in force, may be null
+     * @param price    price in ticks
+     * @param quantity quantity, 0 to leave both price and quantity out
+     * @param value    a value specific to the event type
+     */
+    public void log(LogEventType type, String symbol, long orderId, OrderType side, TimeInForce tif,
+                    long price, int quantity, long value) {
+        if (!logger.isLoggable(type.getLevel())) return;
+        long sequence = ringBuffer.tryNext();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        try {
+            ringBuffer.get(sequence).set(type, EngineClock.epochNanos(), symbol, orderId, side, tif, price, quantity, value);
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * @return the number of events dropped because the ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the sequence of the last event written to the logger
+     */
+    public long getWrittenSequence() {
+        return processor.getSequence().get();
+    }
+
+    /**
+     * @return the sequence of the last event logged
+     */
+    public long getCursor() {
+        return ringBuffer.getCursor();
+    }
+
+    /**
+     * Gives the writer a few seconds to write the events already logged, then stops it.
+     * Events logged afterwards are dropped once the ring fills up.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        long published = ringBuffer.getCursor();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        Sequence written = processor.getSequence();
+        while (written.get() < published && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        processor.halt();
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(DRAIN_TIMEOUT_NANOS));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Formats the events into log records, on the log's own thread.
+     */
+    private final class Writer implements EventHandler<LogEvent> {
+
+        private final StringBuilder line = new StringBuilder(128);
+        private long reportedDropped;
+
+        @Override
+        public void onEvent(LogEvent event, long sequence, boolean endOfBatch) {
+            line.setLength(0);
+            event.format(line);
+            LogRecord record = new LogRecord(event.getType().getLevel(), line.toString());
+            record.setInstant(Instant.ofEpochSecond(0, event.getTimestamp()));
+            record.setLoggerName(logger.getName());
+            logger.log(record);
+
+            if (endOfBatch && dropped.get() != reportedDropped) {
+                long total = dropped.get();
+                logger.warning("Event log fell behind: " + (total - reportedDropped) + " events dropped");
+                reportedDropped = total;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package radu.engine;
+
+/**
+ * The immutable outcome of one command, as the engine saw it when it applied the command.
+ * For a new order the filled quantity is what traded on arrival and the leaves quantity what
+ * was left resting in the book, or waiting as a stop; whatever an IOC, FOK or market order
+ * could not fill is in neither. An amended order's leaves quantity is its new quantity.
+ */
+public class ExecutionReport {
+
+    private final CommandType type;
+    private final String symbol;
+    private final long orderId;
+    private final boolean accepted;
+    private final int filledQuantity;
+    private final int leavesQuantity;
+
+    ExecutionReport(CommandType type, String symbol, long orderId, boolean accepted, int filledQuantity, int leavesQuantity) {
+        this.type = type;
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.accepted = accepted;
+        this.filledQuantity = filledQuantity;
+        this.leavesQuantity = leavesQuantity;
+    }
+
+    public CommandType getType() {
+        return type;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    /**
+     * @return false if the engine rejected the command, e.g. a cancel of an order that is not resting
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public int getLeavesQuantity() {
+        return leavesQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionReport{" +
+                "type=" + type +
+                ", symbol='" + symbol + '\'' +
+                ", orderId=" + orderId +
+                ", accepted=" + accepted +
+                ", filledQuantity=" + filledQuantity +
+                ", leavesQuantity=" + leavesQuantity +
+                '}';
+    }
+}
@@ -0,0 +1,66 @@
+package radu.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Static data for a tradable symbol. The engine only ever sees prices as a whole number
+ * of ticks; this class converts between decimal prices and ticks at the API edge.
+ */
+public class Instrument {
+
+    public static final double DEFAULT_TICK_SIZE = 0.01;
+
+    private final String symbol;
+    private final BigDecimal tickSize;
+
+    public Instrument(String symbol, double tickSize) {
+        if (tickSize <= 0) {
+            throw new IllegalArgumentException("Invalid tick size: " + tickSize);
+        }
+        this.symbol = symbol;
+        this.tickSize = BigDecimal.valueOf(tickSize);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getTickSize() {
+        return tickSize.doubleValue();
+    }
+
+    /**
+     * Converts a decimal price to ticks.
+     *
+     * @param price the decimal price
+     * @return the price as a number of ticks
+     * @throws IllegalArgumentException if the price is not a multiple of the tick size
+     */
+    public long toTicks(double price) {
+        try {
+            return BigDecimal.valueOf(price).divide(tickSize, 0, RoundingMode.UNNECESSARY).longValueExact();
+        }
+        catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price " + price + " is not a multiple of tick size " + tickSize + " for " + symbol);
+        }
+    }
+
+    /**
+     * Converts a tick price back to a decimal price.
+     *
+     * @param ticks the price in ticks
+     * @return the decimal price
+     */
+    public double toPrice(long ticks) {
+        return tickSize.multiply(BigDecimal.valueOf(ticks)).doubleValue();
+    }
+
+    @Override
+    public String toString() {
+        return "Instrument{" +
+                "symbol=" + symbol +
+                ", tickSize=" + tickSize +
+                '}';
+    }
+}
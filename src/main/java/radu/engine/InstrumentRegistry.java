@@ -0,0 +1,49 @@
+package radu.engine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the tick size of every symbol. Symbols that were never registered explicitly
+ * are created on first use with the default tick size.
+ */
+@Component
+public class InstrumentRegistry {
+
+    private final Map<String, Instrument> instruments = new ConcurrentHashMap<>();
+    private final double defaultTickSize;
+
+    public InstrumentRegistry() {
+        this(Instrument.DEFAULT_TICK_SIZE);
+    }
+
+    @Autowired
+    public InstrumentRegistry(@Value("${matching.default-tick-size:0.01}") double defaultTickSize) {
+        this.defaultTickSize = defaultTickSize;
+    }
+
+    /**
+     * Registers a symbol with its own tick size, replacing any previous definition.
+     *
+     * @param symbol   the symbol
+     * @param tickSize the minimum price increment
+     * @return the registered instrument
+     */
+    public Instrument register(String symbol, double tickSize) {
+        Instrument instrument = new Instrument(symbol, tickSize);
+        instruments.put(symbol, instrument);
+        return instrument;
+    }
+
+    /**
+     * @param symbol the symbol
+     * @return the instrument for the symbol, created with the default tick size if unknown
+     */
+    public Instrument get(String symbol) {
+        return instruments.computeIfAbsent(symbol, s -> new Instrument(s, defaultTickSize));
+    }
+}
@@ -0,0 +1,95 @@
+package radu.engine;
+
+/**
+ * One record of the {@link EventLog}: a fixed set of primitive fields and enum constants, so
+ * writing it copies a handful of words and formatting it is left to the logger's own thread.
+ * Events are preallocated slots of the log's ring buffer and are overwritten for every record.
+ */
+public class LogEvent {
+
+    private LogEventType type;
+    private long timestamp;
+    private String symbol;
+    private long orderId;
+    private OrderType side;
+    private TimeInForce tif;
+    private long price;
+    private int quantity;
+    private long value;
+
+    void set(LogEventType type, long timestamp, String symbol, long orderId, OrderType side, TimeInForce tif,
+             long price, int quantity, long value) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.symbol = symbol;
+        this.orderId = orderId;
+        this.side = side;
+        this.tif = tif;
+        this.price = price;
+        this.quantity = quantity;
+        this.value = value;
+    }
+
+    /**
+     * Writes the event as one line of text, e.g. {@code Updated order AAPL #12 BUY 5 @ 10000 GTC}.
+     *
+     * @param line the builder to append to
+     */
+    void format(StringBuilder line) {
+        line.append(type.getMessage());
+        if (symbol != null) line.append(' ').append(symbol);
+        if (orderId != 0) line.append(" #").append(orderId);
+        if (side != null) line.append(' ').append(side);
+        if (quantity != 0) line.append(' ').append(quantity).append(" @ ").append(price);
+        if (tif != null) line.append(' ').append(tif);
+        if (type == LogEventType.STOP_TRIGGERED) line.append(", last trade @ ").append(value);
+    }
+
+    public LogEventType getType() {
+        return type;
+    }
+
+    /**
+     * @return when the event happened, in epoch nanos
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the order the event is about, 0 if it is about a whole book
+     */
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public OrderType getSide() {
+        return side;
+    }
+
+    public TimeInForce getTif() {
+        return tif;
+    }
+
+    /**
+     * @return the price in ticks
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return a value specific to the event type, see {@link LogEventType}
+     */
+    public long getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,43 @@
+package radu.engine;
+
+import java.util.logging.Level;
+
+/**
+ * What a {@link LogEvent} reports, with the level it is logged at and the text it starts with.
+ */
+public enum LogEventType {
+    /** A match between the two top orders of a book, from {@link OrderBook#matchOrders()}. */
+    MATCH(Level.INFO, "Match"),
+    /** What an IOC order could not fill on arrival, discarded rather than rested. */
+    REMAINDER_DISCARDED(Level.INFO, "IOC remainder discarded"),
+    /** A FOK order discarded because the opposite side could not fill it completely. */
+    FOK_KILLED(Level.WARNING, "FOK not possible, discarding order"),
+    /** A FOK order that was filled completely. */
+    FOK_FILLED(Level.INFO, "FOK fully matched"),
+    /** A stop order reached by the last trade price; the event's value is that price. */
+    STOP_TRIGGERED(Level.INFO, "Stop triggered"),
+    /** A resting order that was amended. */
+    ORDER_UPDATED(Level.INFO, "Updated order"),
+    /** An amend of an order that is not in the book, or that cannot be amended. */
+    UPDATE_REJECTED(Level.WARNING, "Couldn't update order"),
+    /** A resting order removed because its expiry time passed. */
+    ORDER_EXPIRED(Level.INFO, "Expired order"),
+    /** A pass of {@link OrderBook#matchOrders()} over a book. */
+    MATCHING(Level.FINE, "Matching orders");
+
+    private final Level level;
+    private final String message;
+
+    LogEventType(Level level, String message) {
+        this.level = level;
+        this.message = message;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,174 @@
+package radu.engine;
+
+import java.util.function.Predicate;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to objects, for the lookups on
+ * the matching path: orders by id and price levels by price.
+ *
+ * <p>Keys and values live in two parallel arrays probed linearly, so a lookup touches one or two
+ * cache lines and never boxes a key. Keys are spread with a multiplicative (Fibonacci) hash, which
+ * keeps ids handed out round-robin over many books, or prices on a fixed tick grid, from piling up
+ * in a few slots. Removal shifts the following entries back instead of leaving tombstones, so a
+ * cancel-heavy flow never degrades the probe lengths. The table doubles once it is half full and
+ * never shrinks. Null values are not allowed. Not thread-safe.</p>
+ *
+ * @param <V> the value type
+ */
+public class LongIndex<V> {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private V[] values;
+    private int shift;
+    private int mask;
+    private int size;
+
+    public LongIndex() {
+        this(64);
+    }
+
+    /**
+     * @param expectedSize number of entries the index holds without resizing
+     */
+    public LongIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @param key the key
+     * @return the value mapped to the key, or null
+     */
+    public V get(long key) {
+        for (int index = slot(key); values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value, not null
+     * @return the previous value, or null
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value for key " + key);
+        }
+        int index = slot(key);
+        for (; values[index] != null; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                V previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @param key the key to remove
+     * @return the value that was mapped to the key, or null
+     */
+    public V remove(long key) {
+        int index = slot(key);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V removed = values[index];
+                shiftBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Removes every entry whose value matches. Meant for rare clean-ups, as it scans the whole
+     * table and collects the matching keys before removing them.
+     *
+     * @param filter which values to remove
+     * @return the number of entries removed
+     */
+    public int removeIf(Predicate<? super V> filter) {
+        long[] matched = new long[size];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && filter.test(values[i])) {
+                matched[count++] = keys[i];
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            remove(matched[i]);
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Closes the gap left at a removed slot by moving back every entry of the same probe run
+     * that would not be found past the gap any more.
+     */
+    private void shiftBack(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] == null) break;
+            int home = slot(keys[index]);
+            // the entry may move into the gap unless its home lies cyclically in (gap, index]
+            boolean stays = gap <= index ? gap < home && home <= index : gap < home || home <= index;
+            if (!stays) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = (V[]) new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        V[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] == null) continue;
+            int index = slot(oldKeys[i]);
+            while (values[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package radu.engine;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive {@code long} keys to non-negative {@code int}
+ * values, laid out like {@link LongIndex} but without any object references: the off-heap order
+ * store maps order ids to record slots with it, so the index adds nothing for the GC to trace
+ * however many orders it holds. -1 marks an empty entry. Not thread-safe.
+ */
+class LongIntIndex {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int[] values;
+    private int shift;
+    private int mask;
+    private int size;
+
+    LongIntIndex() {
+        allocate(64);
+    }
+
+    /**
+     * @param key the key
+     * @return the value mapped to the key, or -1
+     */
+    int get(long key) {
+        for (int index = slot(key); values[index] >= 0; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key   the key
+     * @param value the value, not negative
+     */
+    void put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value + " for key " + key);
+        }
+        int index = slot(key);
+        for (; values[index] >= 0; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return;
+            }
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+    }
+
+    /**
+     * @param key the key to remove
+     * @return the value that was mapped to the key, or -1
+     */
+    int remove(long key) {
+        int index = slot(key);
+        while (values[index] >= 0) {
+            if (keys[index] == key) {
+                int removed = values[index];
+                shiftBack(index);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Closes the gap left at a removed slot, see {@link LongIndex}.
+     */
+    private void shiftBack(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (values[index] < 0) break;
+            int home = slot(keys[index]);
+            boolean stays = gap <= index ? gap < home && home <= index : gap < home || home <= index;
+            if (!stays) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        values[gap] = -1;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, -1);
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] < 0) continue;
+            int index = slot(oldKeys[i]);
+            while (values[index] >= 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = oldKeys[i];
+            values[index] = oldValues[i];
+        }
+    }
+}
@@ -1,35 +1,268 @@
 package radu.engine;
 
-import org.springframework.stereotype.Component;
+import radu.journal.Journal;
+import radu.metrics.LatencyMetrics;
+import radu.metrics.LatencyStage;
+import radu.metrics.SymbolLatency;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-@Component
+/**
+ * Holds one order book per symbol and routes operations to them.
+ * The engine is single-threaded: it must only be used from one thread at a time.
+ * {@link ShardedMatchingEngine} runs several engines, each on its own thread, for concurrent callers.
+ *
+ * <p>With a {@link Journal} attached, every command passed to {@link #execute(EngineCommand)} is
+ * journalled before it is applied, and every trade after it executes. Trades are then passed to
+ * the synchronous trade listeners and published to the {@link TradeStream}, if there is one.</p>
+ *
+ * <p>Orders built from commands are taken from the engine's {@link OrderPool} and recycled once
+ * their book is done with them. With the pool filled up front and fewer live orders than its
+ * size, applying commands allocates no orders at all.</p>
+ *
+ * <p>With an {@link OffHeapOrderStore}, every book keeps only the front of each price level as
+ * order objects and the orders queued behind them off-heap, so very deep books cost the GC little
+ * more than their price levels.</p>
+ *
+ * <p>With {@link LatencyMetrics} attached, the time every command waited in the ring and the time
+ * spent matching, inserting into the book, publishing trades and journalling are recorded per
+ * symbol and time in force. Replayed commands are not timed.</p>
+ */
 public class MatchingEngine {
+    public static final long DEFAULT_EXPIRY_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    public static final int DEFAULT_ORDER_POOL_CAPACITY = 4096;
+
     private final Map<String, OrderBook> books = new HashMap<>();
+    // written by the engine's thread when a book is created, read by any thread
+    private final Map<String, TopOfBook> topOfBooks = new ConcurrentHashMap<>();
+    private final TimingWheel expiryWheel;
+    private final OrderPool orderPool;
+    private final OffHeapOrderStore orderStore;
+    private final TradeListener tradeListener = this::onTrade;
+    private final RemovalListener removalListener = this::onOrderRemoved;
+    private Journal journal;
+    private TradeStream tradeStream;
+    private TradeListener[] tradeListeners = new TradeListener[0];
+    private RemovalListener[] removalListeners = new RemovalListener[0];
+    private DepthListener depthListener;
+    private EventLog eventLog;
+    private LatencyMetrics latencyMetrics;
+    private final Map<String, SymbolLatency> latencies = new HashMap<>();
+    // recorders and time in force of the command being executed, null while none is or when not timing
+    private SymbolLatency latency;
+    private TimeInForce tif;
+    // slot the entries of a batch are applied through, only used by the engine's thread
+    private final EngineCommand batchCommand = new EngineCommand();
+
+    public MatchingEngine() {
+        this(new EngineSettings());
+    }
+
+    /**
+     * Uses the expiry resolution, order pool and off-heap store settings; the others are for the
+     * shards that own engines.
+     *
+     * @param settings the engine's settings
+     */
+    public MatchingEngine(EngineSettings settings) {
+        long expiryResolutionNanos = settings.getExpiryResolutionNanos();
+        int preallocatedOrders = settings.getPreallocatedOrders();
+        int hotOrdersPerLevel = settings.getHotOrdersPerLevel();
+        this.expiryWheel = new TimingWheel(expiryResolutionNanos, EngineClock.epochNanos(), this::expireOrder);
+        this.orderPool = new OrderPool(Math.max(DEFAULT_ORDER_POOL_CAPACITY, preallocatedOrders), preallocatedOrders);
+        this.orderStore = hotOrdersPerLevel > 0 ? new OffHeapOrderStore(hotOrdersPerLevel, orderPool) : null;
+    }
 
     public void addOrderBook(String symbol, OrderBook newOrderBook) {
         OrderBook orderBook = books.get(symbol);
         if (orderBook == null) {
             books.put(symbol, newOrderBook);
+            topOfBooks.put(symbol, newOrderBook.getTopOfBook());
         }
     }
 
+    /**
+     * Submits an order to the book of its symbol. The order is matched on arrival and only
+     * a GTC residual rests; see {@link OrderBook#processOrder(Order)}.
+     *
+     * @param symbol the symbol
+     * @param order  the incoming order
+     */
     public void addOrder(String symbol, Order order) {
         OrderBook orderBook = books.get(symbol);
         if (orderBook == null) {
-            addOrderBook(symbol, new OrderBook());
+            addOrderBook(symbol, newOrderBook(symbol));
             orderBook = books.get(symbol);
         }
-        orderBook.addOrder(order);
+        if (latency == null) {
+            orderBook.processOrder(order);
+        }
+        else {
+            // read first: once matched, the order may be back in the pool and handed out again
+            TimeInForce orderTif = order.getTif();
+            long start = System.nanoTime();
+            orderBook.processOrder(order);
+            latency.record(LatencyStage.MATCH, orderTif, System.nanoTime() - start);
+        }
         // books.computeIfAbsent(symbol, k -> new com.engine.OrderBook()).addOrder(order);
     }
 
-    public void cancelOrder(String symbol, long orderId) {
+    private OrderBook newOrderBook(String symbol) {
+        OrderBook orderBook = new OrderBook(symbol, expiryWheel);
+        if (orderStore != null) {
+            orderBook.setOrderStore(orderStore);
+        }
+        orderBook.setTradeListener(tradeListener);
+        orderBook.setRemovalListener(removalListener);
+        orderBook.setDepthListener(depthListener);
+        orderBook.setEventLog(eventLog);
+        if (latencyMetrics != null) {
+            orderBook.setLatency(latencyFor(symbol));
+        }
+        return orderBook;
+    }
+
+    private SymbolLatency latencyFor(String symbol) {
+        SymbolLatency symbolLatency = latencies.get(symbol);
+        if (symbolLatency == null) {
+            symbolLatency = latencyMetrics.forSymbol(symbol);
+            latencies.put(symbol, symbolLatency);
+        }
+        return symbolLatency;
+    }
+
+    /**
+     * Attaches the journal commands and trades are written to. Must be set before the first command.
+     *
+     * @param journal the journal, or null to stop journalling
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Sets the stream every trade of every book is published to.
+     *
+     * @param tradeStream the stream, or null to publish nothing
+     */
+    public void setTradeStream(TradeStream tradeStream) {
+        this.tradeStream = tradeStream;
+    }
+
+    /**
+     * Adds a listener called for every trade on the engine's thread, while the command that
+     * caused it is still being applied. It must be quick and must not block.
+     *
+     * @param listener the listener
+     */
+    public void addTradeListener(TradeListener listener) {
+        TradeListener[] listeners = Arrays.copyOf(tradeListeners, tradeListeners.length + 1);
+        listeners[tradeListeners.length] = listener;
+        tradeListeners = listeners;
+    }
+
+    /**
+     * Adds a listener called on the engine's thread for every order a cancel command removes and
+     * every order that expires. It must be quick and must not block.
+     *
+     * @param listener the listener
+     */
+    public void addRemovalListener(RemovalListener listener) {
+        RemovalListener[] listeners = Arrays.copyOf(removalListeners, removalListeners.length + 1);
+        listeners[removalListeners.length] = listener;
+        removalListeners = listeners;
+    }
+
+    /**
+     * Sets the listener told about every price level change of every book, on the engine's thread.
+     * The levels of the books that already exist are reported to it right away.
+     *
+     * @param depthListener the listener, or null for none
+     */
+    public void setDepthListener(DepthListener depthListener) {
+        this.depthListener = depthListener;
+        for (OrderBook orderBook : books.values()) {
+            orderBook.setDepthListener(depthListener);
+        }
+    }
+
+    /**
+     * Sets the log every book reports its amends, expiries, triggered stops and discarded orders to.
+     *
+     * @param eventLog the log, or null for none
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+        for (OrderBook orderBook : books.values()) {
+            orderBook.setEventLog(eventLog);
+        }
+    }
+
+    /**
+     * Times the stages of the commands executed from now on. The books that already exist are
+     * timed as well.
+     *
+     * @param latencyMetrics where the latencies are recorded, or null to stop timing
+     */
+    public void setLatencyMetrics(LatencyMetrics latencyMetrics) {
+        this.latencyMetrics = latencyMetrics;
+        latencies.clear();
+        for (OrderBook orderBook : books.values()) {
+            orderBook.setLatency(latencyMetrics == null ? null : latencyFor(orderBook.getSymbol()));
+        }
+    }
+
+    private void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        if (latency != null) {
+            onTimedTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+            return;
+        }
+        if (journal != null) {
+            journal.onTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+        }
+        publishTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+    }
+
+    private void onTimedTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        long start = System.nanoTime();
+        if (journal != null) {
+            journal.onTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+            long journalled = System.nanoTime();
+            latency.record(LatencyStage.PERSIST, tif, journalled - start);
+            start = journalled;
+        }
+        publishTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+        latency.record(LatencyStage.TRADE_PUBLISH, tif, System.nanoTime() - start);
+    }
+
+    private void publishTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        for (TradeListener listener : tradeListeners) {
+            listener.onTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+        }
+        if (tradeStream != null) {
+            tradeStream.onTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+        }
+    }
+
+    public boolean cancelOrder(String symbol, long orderId) {
         OrderBook orderBook = books.get(symbol);
-        if (orderBook != null) {
-            orderBook.cancelOrder(orderId);
+        if (orderBook != null && orderBook.cancelOrder(orderId)) {
+            if (removalListeners.length > 0) {
+                onOrderRemoved(symbol, orderId, false, EngineClock.epochNanos());
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void onOrderRemoved(String symbol, long orderId, boolean expired, long timestamp) {
+        for (RemovalListener listener : removalListeners) {
+            listener.onOrderRemoved(symbol, orderId, expired, timestamp);
         }
     }
 
@@ -40,6 +273,239 @@ public class MatchingEngine {
         }
     }
 
+    /**
+     * Applies a command to the book of its symbol. The command is stamped with the current time,
+     * which becomes the timestamp of a new or re-queued order, and journalled first if a journal
+     * is attached. Expiry ticks are only journalled while some order could expire.
+     *
+     * @param command the command to apply
+     * @return the outcome of the operation; ADD, MATCH, EXPIRE and BATCH always succeed
+     */
+    public boolean execute(EngineCommand command) {
+        if (latencyMetrics != null && command.getSymbol() != null) {
+            latency = latencyFor(command.getSymbol());
+            tif = command.getTif();
+            latency.record(LatencyStage.ENQUEUE, tif, System.nanoTime() - command.getEnqueueNanos());
+        }
+        try {
+            if (command.getType() == CommandType.BATCH) {
+                execute(command.getBatch());
+                return true;
+            }
+            stamp(command);
+            return replay(command);
+        }
+        finally {
+            latency = null;
+            tif = null;
+        }
+    }
+
+    /**
+     * Applies the entries of a batch in order, back to back, with no other command in between.
+     * Every entry is stamped and journalled as a command of its own, so replaying the journal
+     * rebuilds the same book, and its outcome is written back into the entry. The entries are
+     * enclosed in batch markers in the journal, so recovery replays a batch completely or not at
+     * all. A new order is matched on arrival like any other. Entries are not rolled back: one that
+     * fails is reported as failed and neither undoes the entries before it nor stops the ones after.
+     *
+     * @param batch the batch to apply
+     */
+    public void execute(OrderBatch batch) {
+        EngineCommand command = batchCommand;
+        SymbolLatency batchLatency = latencyMetrics == null ? null : latencyFor(batch.getSymbol());
+        int size = batch.getEntries().size();
+        if (journal != null) {
+            journal.beginBatch(batch.getSymbol(), size);
+        }
+        for (OrderBatch.Entry entry : batch.getEntries()) {
+            entry.toCommand(batch.getSymbol(), command);
+            latency = batchLatency;
+            tif = command.getTif();
+            try {
+                stamp(command);
+                switch (command.getType()) {
+                    case ADD:
+                    case AMEND:
+                        boolean applied = replay(command);
+                        entry.setResult(applied, command.getFilledQuantity(), command.getLeavesQuantity());
+                        break;
+                    default:
+                        entry.setResult(replay(command), 0, 0);
+                        break;
+                }
+            }
+            catch (RuntimeException e) {
+                entry.setResult(false, 0, 0);
+            }
+            finally {
+                command.clear();
+                latency = null;
+                tif = null;
+            }
+        }
+        if (journal != null) {
+            journal.endBatch(batch.getSymbol(), size);
+        }
+    }
+
+    private void stamp(EngineCommand command) {
+        command.setTimestamp(EngineClock.epochNanos());
+        if (journal != null && (command.getType() != CommandType.EXPIRE || expiryWheel.size() > 0
+                || (orderStore != null && orderStore.getExpiringCount() > 0))) {
+            if (latency == null) {
+                journal.appendCommand(command);
+            }
+            else {
+                long start = System.nanoTime();
+                journal.appendCommand(command);
+                latency.record(LatencyStage.PERSIST, tif, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Applies a command exactly as stamped, without journalling it. Replaying the commands
+     * of a journal in order rebuilds the books they built. The filled and leaves quantity of a
+     * new or amended order are written back into the command.
+     *
+     * @param command the command to apply
+     * @return the outcome of the operation
+     */
+    public boolean replay(EngineCommand command) {
+        switch (command.getType()) {
+            case ADD:
+                // the book keeps the outcome: triggered stops may reuse the released order's object
+                OrderBook book = add(command);
+                command.setOutcome(book.getLastFilledQuantity(), book.getLastLeavesQuantity());
+                return true;
+            case CANCEL:
+                return cancelOrder(command.getSymbol(), command.getOrderId());
+            case AMEND:
+                OrderBook orderBook = books.get(command.getSymbol());
+                boolean amended = orderBook != null && orderBook.updateOrder(command.getOrderId(), command.getPrice(),
+                        command.getQuantity(), command.getTimestamp());
+                if (amended) {
+                    command.setOutcome(orderBook.getLastFilledQuantity(), orderBook.getLastLeavesQuantity());
+                }
+                else {
+                    command.setOutcome(0, 0);
+                }
+                return amended;
+            case MATCH:
+                match(command.getSymbol());
+                return true;
+            case EXPIRE:
+                expireOrders(command.getExpiry());
+                return true;
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + command.getType());
+        }
+    }
+
+    private OrderBook add(EngineCommand command) {
+        Order.advanceNextId(command.getOrderId() + 1);
+        Order order = command.toOrder(orderPool);
+        addOrder(command.getSymbol(), order);
+        return books.get(command.getSymbol());
+    }
+
+    /**
+     * Expires every order of every book whose expiry time is before the given time.
+     *
+     * @param nowNanos current time in epoch nanos
+     * @return the number of orders that expired
+     */
+    public int expireOrders(long nowNanos) {
+        int expired = expiryWheel.advance(nowNanos);
+        if (orderStore != null) {
+            expired += orderStore.expire(nowNanos);
+        }
+        return expired;
+    }
+
+    /**
+     * Puts an order straight into its book as a resting order, or a waiting stop order, without
+     * matching it. Used to load snapshots: orders must be restored best price first and, within a
+     * price, in time priority, which keeps every insertion at the back of its level.
+     *
+     * @param order a resting or waiting order captured earlier
+     */
+    public void restoreOrder(Order order) {
+        OrderBook orderBook = books.get(order.getSymbol());
+        if (orderBook == null) {
+            addOrderBook(order.getSymbol(), newOrderBook(order.getSymbol()));
+            orderBook = books.get(order.getSymbol());
+        }
+        orderBook.addOrder(order);
+    }
+
+    /**
+     * Sets the last trade price of a book, creating the book if needed. Used to load snapshots,
+     * so that restored stop orders trigger on the same price as before.
+     *
+     * @param symbol         the symbol
+     * @param lastTradePrice the price in ticks, 0 for none
+     */
+    public void restoreLastTradePrice(String symbol, long lastTradePrice) {
+        OrderBook orderBook = books.get(symbol);
+        if (orderBook == null) {
+            addOrderBook(symbol, newOrderBook(symbol));
+            orderBook = books.get(symbol);
+        }
+        orderBook.setLastTradePrice(lastTradePrice);
+    }
+
+    /**
+     * Sets the time of the shared expiry wheel before anything has been added, so that
+     * replayed commands expire orders on their recorded times rather than the current one.
+     *
+     * @param nowNanos time in epoch nanos
+     */
+    public void resetExpiryClock(long nowNanos) {
+        expiryWheel.reset(nowNanos);
+    }
+
+    /**
+     * Looks up the best bid and offer of a symbol. Unlike the books themselves, this may be
+     * called from any thread while the engine runs.
+     *
+     * @param symbol the symbol
+     * @return the book's top of book, or null if the engine has no book for the symbol
+     */
+    public TopOfBook getTopOfBook(String symbol) {
+        return topOfBooks.get(symbol);
+    }
+
+    /**
+     * @return the pool orders built from commands come from, only to be used on the engine's thread
+     */
+    public OrderPool getOrderPool() {
+        return orderPool;
+    }
+
+    /**
+     * @return the store deep price levels keep their orders in, only to be used on the engine's
+     *         thread, or null if every order is kept on the heap
+     */
+    public OffHeapOrderStore getOrderStore() {
+        return orderStore;
+    }
+
+    /**
+     * @return a read-only view of the books, keyed by symbol
+     */
+    public Map<String, OrderBook> getBooks() {
+        return Collections.unmodifiableMap(books);
+    }
+
+    private void expireOrder(Order order) {
+        OrderBook orderBook = books.get(order.getSymbol());
+        if (orderBook != null) {
+            orderBook.expireOrder(order);
+        }
+    }
+
     public void printOrderBook(String symbol) {
         OrderBook orderBook = books.get(symbol);
         if (orderBook != null) {
@@ -54,11 +520,10 @@ public class MatchingEngine {
         }
     }
 
-    public boolean updateOrder(String symbol, long orderId, double newPrice, int newQuantity) {
+    public boolean updateOrder(String symbol, long orderId, long newPrice, int newQuantity) {
         OrderBook orderBook = books.get(symbol);
         if(orderBook != null) {
-            orderBook.updateOrder(orderId, newPrice, newQuantity);
-            return true;
+            return orderBook.updateOrder(orderId, newPrice, newQuantity);
         }
         return false;
     }
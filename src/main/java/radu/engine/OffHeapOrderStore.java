@@ -0,0 +1,385 @@
+package radu.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Resting orders kept outside the Java heap, for books too deep to hold every order as an object.
+ *
+ * <p>Every price level of a book attached to the store keeps only its first
+ * {@link #getHotOrdersPerLevel()} orders as {@link Order} objects. The ones queued behind them are
+ * written into fixed-width records in direct buffers, and the level links those records in FIFO
+ * order by slot index. Whenever an object order leaves the front of its level, the oldest record
+ * is turned back into an object from the engine's {@link OrderPool}, so matching only ever sees
+ * objects and is unchanged. The level's aggregates count both kinds, so depth, quotes and
+ * fill-or-kill checks see the whole queue.</p>
+ *
+ * <p>The store keeps its own id index from order id to slot and its own expiry heap, both in
+ * primitive arrays. The GC therefore never traces a stored order, and the heap cost of a deep book
+ * grows with its number of price levels rather than its number of orders. Records are allocated
+ * a chunk at a time and freed slots are reused; the memory is never given back.</p>
+ *
+ * <p>One store serves all books of one engine and, like them, is only used by the engine's thread.</p>
+ */
+public class OffHeapOrderStore {
+
+    // record layout, RECORD_LENGTH bytes per slot
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int TIMESTAMP = 16;
+    private static final int EXPIRY = 24;
+    private static final int QUANTITY = 32;
+    private static final int DISPLAY = 36;
+    private static final int RESERVE = 40;
+    private static final int NEXT = 44;
+    private static final int PREV = 48;
+    private static final int HEAP_INDEX = 52;
+    private static final int BOOK = 56;
+    private static final int SIDE = 60;
+    private static final int TIF = 61;
+    static final int RECORD_LENGTH = 64;
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+    private static final OrderType[] SIDES = OrderType.values();
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+
+    private final int hotOrdersPerLevel;
+    private final OrderPool pool;
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int chunkCount;
+    private int highWater;
+    private int freeHead = -1;
+    private int size;
+    private final LongIntIndex slotsById = new LongIntIndex();
+    // slots of the orders that can expire, a binary min-heap on their expiry
+    private int[] expiryHeap = new int[1024];
+    private int expiringCount;
+    private OrderBook[] books = new OrderBook[8];
+    private int bookCount;
+
+    /**
+     * Creates a store whose orders come back as plain objects rather than pooled ones.
+     *
+     * @param hotOrdersPerLevel orders every level keeps as objects, at least 1
+     */
+    public OffHeapOrderStore(int hotOrdersPerLevel) {
+        this(hotOrdersPerLevel, null);
+    }
+
+    /**
+     * @param hotOrdersPerLevel orders every level keeps as objects, at least 1
+     * @param pool              where orders brought back to the front of a level come from, or null
+     */
+    public OffHeapOrderStore(int hotOrdersPerLevel, OrderPool pool) {
+        if (hotOrdersPerLevel < 1) {
+            throw new IllegalArgumentException("Invalid hot orders per level: " + hotOrdersPerLevel);
+        }
+        this.hotOrdersPerLevel = hotOrdersPerLevel;
+        this.pool = pool;
+    }
+
+    /**
+     * @return how many orders every level keeps as objects before it stores the rest here
+     */
+    public int getHotOrdersPerLevel() {
+        return hotOrdersPerLevel;
+    }
+
+    /**
+     * @return the number of orders stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes of direct memory allocated for records, in use or free
+     */
+    public long getAllocatedBytes() {
+        return (long) chunkCount * CHUNK_SLOTS * RECORD_LENGTH;
+    }
+
+    /**
+     * @return the number of stored orders that have an expiry time
+     */
+    int getExpiringCount() {
+        return expiringCount;
+    }
+
+    /**
+     * Lets a book keep orders in the store.
+     *
+     * @param book the book
+     * @return the number the book's records are tagged with
+     */
+    int register(OrderBook book) {
+        if (bookCount == books.length) {
+            books = Arrays.copyOf(books, bookCount * 2);
+        }
+        books[bookCount] = book;
+        return bookCount++;
+    }
+
+    /**
+     * Writes a resting order into a free record. The record is not linked into any level yet.
+     *
+     * @param order an order whose iceberg slice has already been split off
+     * @param book  the number of the order's book
+     * @return the slot of the record
+     */
+    int store(Order order, int book) {
+        int slot = allocate();
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + ID, order.getId());
+        chunk.putLong(offset + PRICE, order.getPrice());
+        chunk.putLong(offset + TIMESTAMP, order.getTimestamp());
+        chunk.putLong(offset + EXPIRY, order.getExpiry());
+        chunk.putInt(offset + QUANTITY, order.getQuantity());
+        chunk.putInt(offset + DISPLAY, order.getDisplayQuantity());
+        chunk.putInt(offset + RESERVE, order.getReserveQuantity());
+        chunk.putInt(offset + NEXT, -1);
+        chunk.putInt(offset + PREV, -1);
+        chunk.putInt(offset + HEAP_INDEX, -1);
+        chunk.putInt(offset + BOOK, book);
+        chunk.put(offset + SIDE, (byte) order.getType().ordinal());
+        chunk.put(offset + TIF, (byte) order.getTif().ordinal());
+        slotsById.put(order.getId(), slot);
+        if (order.getExpiry() != Long.MAX_VALUE) {
+            heapAdd(slot);
+        }
+        size++;
+        return slot;
+    }
+
+    /**
+     * Frees the record of an order that has left the store, either for good or to become an
+     * object again. It must no longer be linked into a level.
+     *
+     * @param slot the slot
+     */
+    void free(int slot) {
+        slotsById.remove(getId(slot));
+        int heapIndex = chunk(slot).getInt(offset(slot) + HEAP_INDEX);
+        if (heapIndex >= 0) {
+            heapRemove(heapIndex);
+        }
+        setNext(slot, freeHead);
+        freeHead = slot;
+        size--;
+    }
+
+    /**
+     * @param orderId the id of an order
+     * @return the slot of the order's record, or -1 if it is not stored here
+     */
+    int find(long orderId) {
+        return slotsById.get(orderId);
+    }
+
+    /**
+     * Builds an object for a stored order, with all of its fields, from the pool if there is one.
+     * The record is left as it is.
+     *
+     * @param slot   the slot
+     * @param symbol the symbol of the order's book
+     * @return an order that is neither resting nor scheduled
+     */
+    Order toOrder(int slot, String symbol) {
+        return toOrder(slot, symbol, pool);
+    }
+
+    /**
+     * Builds a copy of a stored order that is never pooled, for callers that may keep it.
+     *
+     * @param slot   the slot
+     * @param symbol the symbol of the order's book
+     * @return a copy of the order
+     */
+    Order copyOf(int slot, String symbol) {
+        return toOrder(slot, symbol, null);
+    }
+
+    private Order toOrder(int slot, String symbol, OrderPool pool) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        long id = chunk.getLong(offset + ID);
+        OrderType side = SIDES[chunk.get(offset + SIDE)];
+        long price = chunk.getLong(offset + PRICE);
+        int quantity = chunk.getInt(offset + QUANTITY);
+        long timestamp = chunk.getLong(offset + TIMESTAMP);
+        long expiry = chunk.getLong(offset + EXPIRY);
+        TimeInForce tif = TIFS[chunk.get(offset + TIF)];
+        Order order = pool != null
+                ? pool.acquire(id, side, symbol, OrderKind.LIMIT, price, 0, quantity, timestamp, expiry, tif)
+                : new Order(id, side, symbol, OrderKind.LIMIT, price, 0, quantity, timestamp, expiry, tif);
+        int display = chunk.getInt(offset + DISPLAY);
+        if (display > 0) {
+            order.setIceberg(display, chunk.getInt(offset + RESERVE));
+        }
+        return order;
+    }
+
+    /**
+     * Expires every stored order whose expiry time is before the given time, through its book.
+     *
+     * @param nowNanos current time in epoch nanos
+     * @return the number of orders that expired
+     */
+    int expire(long nowNanos) {
+        int expired = 0;
+        while (expiringCount > 0 && getExpiry(expiryHeap[0]) <= nowNanos) {
+            int slot = expiryHeap[0];
+            books[getBook(slot)].expireStored(slot);
+            expired++;
+        }
+        return expired;
+    }
+
+    long getId(int slot) {
+        return chunk(slot).getLong(offset(slot) + ID);
+    }
+
+    long getPrice(int slot) {
+        return chunk(slot).getLong(offset(slot) + PRICE);
+    }
+
+    long getTimestamp(int slot) {
+        return chunk(slot).getLong(offset(slot) + TIMESTAMP);
+    }
+
+    long getExpiry(int slot) {
+        return chunk(slot).getLong(offset(slot) + EXPIRY);
+    }
+
+    int getQuantity(int slot) {
+        return chunk(slot).getInt(offset(slot) + QUANTITY);
+    }
+
+    void setQuantity(int slot, int quantity) {
+        chunk(slot).putInt(offset(slot) + QUANTITY, quantity);
+    }
+
+    int getReserveQuantity(int slot) {
+        return chunk(slot).getInt(offset(slot) + RESERVE);
+    }
+
+    void setReserveQuantity(int slot, int reserveQuantity) {
+        chunk(slot).putInt(offset(slot) + RESERVE, reserveQuantity);
+    }
+
+    OrderType getSide(int slot) {
+        return SIDES[chunk(slot).get(offset(slot) + SIDE)];
+    }
+
+    TimeInForce getTif(int slot) {
+        return TIFS[chunk(slot).get(offset(slot) + TIF)];
+    }
+
+    int getBook(int slot) {
+        return chunk(slot).getInt(offset(slot) + BOOK);
+    }
+
+    /**
+     * @return the next record of the same level, or -1
+     */
+    int getNext(int slot) {
+        return chunk(slot).getInt(offset(slot) + NEXT);
+    }
+
+    void setNext(int slot, int next) {
+        chunk(slot).putInt(offset(slot) + NEXT, next);
+    }
+
+    /**
+     * @return the previous record of the same level, or -1
+     */
+    int getPrev(int slot) {
+        return chunk(slot).getInt(offset(slot) + PREV);
+    }
+
+    void setPrev(int slot, int prev) {
+        chunk(slot).putInt(offset(slot) + PREV, prev);
+    }
+
+    private int allocate() {
+        if (freeHead >= 0) {
+            int slot = freeHead;
+            freeHead = getNext(slot);
+            return slot;
+        }
+        if (highWater == chunkCount * CHUNK_SLOTS) {
+            if (chunkCount == chunks.length) {
+                if ((long) chunks.length * 2 * CHUNK_SLOTS > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Off-heap order store is full: " + size + " orders");
+                }
+                chunks = Arrays.copyOf(chunks, chunks.length * 2);
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SLOTS * RECORD_LENGTH).order(ByteOrder.nativeOrder());
+        }
+        return highWater++;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private static int offset(int slot) {
+        return (slot & CHUNK_MASK) * RECORD_LENGTH;
+    }
+
+    private void heapAdd(int slot) {
+        if (expiringCount == expiryHeap.length) {
+            expiryHeap = Arrays.copyOf(expiryHeap, expiringCount * 2);
+        }
+        siftUp(expiringCount++, slot);
+    }
+
+    private void heapRemove(int index) {
+        int slot = expiryHeap[index];
+        chunk(slot).putInt(offset(slot) + HEAP_INDEX, -1);
+        int last = expiryHeap[--expiringCount];
+        if (index == expiringCount) return;
+        if (index > 0 && getExpiry(last) < getExpiry(expiryHeap[(index - 1) >>> 1])) {
+            siftUp(index, last);
+        }
+        else {
+            siftDown(index, last);
+        }
+    }
+
+    private void siftUp(int index, int slot) {
+        long expiry = getExpiry(slot);
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (getExpiry(expiryHeap[parent]) <= expiry) break;
+            place(index, expiryHeap[parent]);
+            index = parent;
+        }
+        place(index, slot);
+    }
+
+    private void siftDown(int index, int slot) {
+        long expiry = getExpiry(slot);
+        int half = expiringCount >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < expiringCount && getExpiry(expiryHeap[right]) < getExpiry(expiryHeap[child])) {
+                child = right;
+            }
+            if (expiry <= getExpiry(expiryHeap[child])) break;
+            place(index, expiryHeap[child]);
+            index = child;
+        }
+        place(index, slot);
+    }
+
+    private void place(int index, int slot) {
+        expiryHeap[index] = slot;
+        chunk(slot).putInt(offset(slot) + HEAP_INDEX, index);
+    }
+}
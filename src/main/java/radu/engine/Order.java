@@ -1,20 +1,57 @@
 package radu.engine;
 
-import java.time.Instant;
 import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An order. Prices are whole ticks of the symbol's tick size and all times are
+ * nanoseconds since the epoch (see {@link EngineClock}), so an order is a handful of
+ * primitives plus its intrusive book links. Orders are limit orders unless built with
+ * another {@link OrderKind}. Orders the engine creates itself come from an
+ * {@link OrderPool} and are reused once their book releases them.
+ *
+ * <p>An iceberg order has a display quantity. It trades its full size on arrival, but once it
+ * rests only a slice of at most the display quantity is shown as {@link #getQuantity()}; the rest
+ * is held back as reserve and refills the slice each time it is used up.</p>
+ */
 public class Order {
     private static final AtomicLong ID_GENERATOR = new AtomicLong(1); //  why atomic long
 
-    private final long id;
-    private final OrderType type;
-    private final String symbol;
-    private final double price;
+    private long id;
+    private OrderType type;
+    private String symbol;
+    private long price;
+    // the quantity shown in the book; for an iceberg order, the current slice
     private int quantity;
-    private final Instant timestamp;
-    private final Instant expiry;
-    private final TimeInForce tif;
+    private int displayQuantity;
+    private int reserveQuantity;
+    private long timestamp;
+    private long expiry;
+    private TimeInForce tif;
+    private OrderKind kind = OrderKind.LIMIT;
+    private long stopPrice;
+    // the pool this order goes back to once its book is done with it, null if it is not pooled
+    private final OrderPool pool;
+
+    // intrusive links into the price level this order rests in, null while not resting
+    PriceLevel level;
+    Order prev;
+    Order next;
+
+    // intrusive links into the expiry timing wheel, timerSlot is -1 while not scheduled
+    Order timerPrev;
+    Order timerNext;
+    int timerSlot = -1;
+    long timerTick;
+
+    // the trigger level of a stop order waiting in its book's trigger index, which also links
+    // it through prev/next; null while not waiting
+    StopTriggers.Level stopLevel;
+
+    // set when the book wrote this order into its off-heap store instead of keeping the object;
+    // the object is then no longer part of the book
+    boolean stored;
 
-    public Order(OrderType type, String symbol, double price, int quantity, Instant expiry, TimeInForce tif) {
+    public Order(OrderType type, String symbol, long price, int quantity, long expiry, TimeInForce tif) {
         this.expiry = expiry;
         this.tif = tif;
         this.id = ID_GENERATOR.getAndIncrement();
@@ -22,10 +59,11 @@ public class Order {
         this.symbol = symbol;
         this.price = price;
         this.quantity = quantity;
-        this.timestamp = Instant.now();
+        this.timestamp = EngineClock.epochNanos();
+        this.pool = null;
     }
 
-    public Order(long id, OrderType type, String symbol, double price, int quantity, Instant timestamp, Instant expiry, TimeInForce tif) {
+    public Order(long id, OrderType type, String symbol, long price, int quantity, long timestamp, long expiry, TimeInForce tif) {
         this.id = id;
         this.type = type;
         this.symbol = symbol;
@@ -34,19 +72,159 @@ public class Order {
         this.timestamp = timestamp;
         this.expiry = expiry;
         this.tif = tif;
+        this.pool = null;
+    }
+
+    /**
+     * Creates an order of any kind.
+     *
+     * @param price     the limit price for LIMIT and STOP_LIMIT, the protection price for MARKET and
+     *                  STOP, 0 to let the book derive it
+     * @param stopPrice the last trade price that triggers a STOP or STOP_LIMIT order, ignored otherwise
+     */
+    public Order(long id, OrderType type, String symbol, OrderKind kind, long price, long stopPrice, int quantity,
+                 long timestamp, long expiry, TimeInForce tif) {
+        this(id, type, symbol, price, quantity, timestamp, expiry, tif);
+        this.kind = kind;
+        this.stopPrice = stopPrice;
+    }
+
+    Order(OrderPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Sets every field of a pooled order that is being reused.
+     */
+    void init(long id, OrderType type, String symbol, OrderKind kind, long price, long stopPrice, int quantity,
+              long timestamp, long expiry, TimeInForce tif) {
+        this.id = id;
+        this.kind = kind;
+        this.stopPrice = stopPrice;
+        this.type = type;
+        this.symbol = symbol;
+        this.price = price;
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+        this.expiry = expiry;
+        this.tif = tif;
+        this.displayQuantity = 0;
+        this.reserveQuantity = 0;
+        this.stored = false;
+    }
+
+    /**
+     * Makes this an iceberg order. Only for orders that are not in a book yet.
+     *
+     * @param displayQuantity largest slice shown at a time, 0 for an ordinary order
+     * @param reserveQuantity quantity already held back on top of {@link #getQuantity()}; 0 for a
+     *                        new order, which splits its slice off when it first rests
+     */
+    public void setIceberg(int displayQuantity, int reserveQuantity) {
+        if (displayQuantity < 0 || reserveQuantity < 0 || (displayQuantity == 0 && reserveQuantity > 0)) {
+            throw new IllegalArgumentException("Invalid iceberg quantities: " + displayQuantity + "/" + reserveQuantity);
+        }
+        if (level != null || stopLevel != null) {
+            throw new IllegalStateException("Order " + id + " is already in the book");
+        }
+        this.displayQuantity = displayQuantity;
+        this.reserveQuantity = reserveQuantity;
+    }
+
+    /**
+     * Hands a pooled order back to its pool once its book no longer holds it. Does nothing
+     * for an order that was not taken from a pool.
+     */
+    void release() {
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * Reserves an order id without creating an order, for callers that submit orders as plain fields.
+     *
+     * @return a new unique order id
+     */
+    public static long nextId() {
+        return ID_GENERATOR.getAndIncrement();
+    }
+
+    /**
+     * @return the id the next order will get, i.e. the high-water mark of ids handed out so far
+     */
+    public static long peekNextId() {
+        return ID_GENERATOR.get();
+    }
+
+    /**
+     * Moves the id generator forward so that no id below the given one is handed out again.
+     * Used after recovery, so that new orders never reuse the id of a recovered one.
+     *
+     * @param nextId the lowest id new orders may get
+     */
+    public static void advanceNextId(long nextId) {
+        ID_GENERATOR.accumulateAndGet(nextId, Math::max);
+    }
+
+    public OrderKind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the trigger price in ticks of a STOP or STOP_LIMIT order
+     */
+    public long getStopPrice() {
+        return stopPrice;
+    }
+
+    /**
+     * @return true for a STOP or STOP_LIMIT order that has not been triggered yet
+     */
+    public boolean isStop() {
+        return kind == OrderKind.STOP || kind == OrderKind.STOP_LIMIT;
     }
 
     public TimeInForce getTif() {
         return tif;
     }
-    public Instant getExpiry() {
+    public long getExpiry() {
         return expiry;
     }
 
+    /**
+     * @return the quantity shown in the book: the current slice of a resting iceberg order,
+     *         otherwise the whole remaining quantity
+     */
     public int getQuantity() {
         return quantity;
     }
 
+    /**
+     * @return the largest slice an iceberg order shows, 0 for an ordinary order
+     */
+    public int getDisplayQuantity() {
+        return displayQuantity;
+    }
+
+    /**
+     * @return the quantity an iceberg order holds back behind its current slice
+     */
+    public int getReserveQuantity() {
+        return reserveQuantity;
+    }
+
+    /**
+     * @return the whole remaining quantity, shown and held back
+     */
+    public int getLeavesQuantity() {
+        return quantity + reserveQuantity;
+    }
+
+    public boolean isIceberg() {
+        return displayQuantity > 0;
+    }
+
     public long getId() {
         return id;
     }
@@ -59,11 +237,11 @@ public class Order {
         return symbol;
     }
 
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
-    public Instant getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
@@ -72,6 +250,75 @@ public class Order {
             throw new IllegalArgumentException("Invalid quantity: " + amount);
         }
         this.quantity -= amount;
+        if (level != null) {
+            level.reduceQuantity(amount);
+        }
+    }
+
+    /**
+     * Takes quantity out of the reserve of an iceberg order, leaving its shown slice alone.
+     *
+     * @param amount quantity to remove, at most the reserve
+     */
+    void reduceReserve(int amount) {
+        if (amount > reserveQuantity || amount < 0) {
+            throw new IllegalArgumentException("Invalid quantity: " + amount);
+        }
+        reserveQuantity -= amount;
+        if (level != null) {
+            level.reduceReserve(amount);
+        }
+    }
+
+    /**
+     * Splits the slice of an iceberg order off its quantity before it starts resting.
+     */
+    void show() {
+        if (displayQuantity > 0 && quantity > displayQuantity) {
+            reserveQuantity += quantity - displayQuantity;
+            quantity = displayQuantity;
+        }
+    }
+
+    /**
+     * Refills the used-up slice of an iceberg order from its reserve. The new slice takes its
+     * time priority from the given time; the order's level moves it to the back.
+     */
+    void replenish(long timestamp) {
+        quantity = Math.min(displayQuantity, reserveQuantity);
+        reserveQuantity -= quantity;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Changes price, quantity and time priority of an order that is not currently resting.
+     * Only the order book calls this, after taking the order out of its price level. The new
+     * quantity of an iceberg order is its whole quantity, split again when it rests.
+     */
+    void amend(long price, int quantity, long timestamp) {
+        if (level != null) {
+            throw new IllegalStateException("Order " + id + " must be removed from the book before it is amended");
+        }
+        this.price = price;
+        this.quantity = quantity;
+        this.reserveQuantity = 0;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Turns a stop order whose stop price was reached into the order it stands for: a MARKET order
+     * for STOP, a LIMIT order for STOP_LIMIT. It takes its time priority from the trigger.
+     */
+    void trigger(long timestamp) {
+        kind = kind == OrderKind.STOP ? OrderKind.MARKET : OrderKind.LIMIT;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Sets the protection price of a MARKET order that arrived without one.
+     */
+    void protect(long price) {
+        this.price = price;
     }
 
     @Override
@@ -79,8 +326,10 @@ public class Order {
         return "com.engine.Order{" +
                 "id=" + id +
                 ", type=" + type +
+                ", kind=" + kind +
                 ", price=" + price +
                 ", quantity=" + quantity +
+                (displayQuantity > 0 ? ", reserve=" + reserveQuantity : "") +
                 ", timestamp=" + timestamp +
                 '}';
     }
@@ -0,0 +1,179 @@
+package radu.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list of new, cancel and amend commands for one symbol, applied together by the thread that
+ * owns the symbol's book. The batch travels through the shard's ring as a single command, so it
+ * costs one hand-off and one completion however many entries it has, and no other command is
+ * applied to the book in the middle of it. The journal marks where a batch begins and ends, so
+ * recovery replays a batch completely or not at all. Entries are applied in order; each one
+ * succeeds or fails on its own, without undoing the others, and the engine writes its outcome
+ * back into the entry.
+ *
+ * <p>New orders get their ids when they are added to the batch, so the caller can refer to them
+ * before the batch is applied. A batch may only be submitted once.</p>
+ */
+public class OrderBatch {
+
+    private final String symbol;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public OrderBatch(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Adds a new order to the batch.
+     *
+     * @param side     BUY or SELL
+     * @param price    limit price in ticks
+     * @param quantity the quantity
+     * @param expiry   expiry in epoch nanos
+     * @param tif      the time in force
+     * @return the entry, carrying the id reserved for the order
+     */
+    public Entry add(OrderType side, long price, int quantity, long expiry, TimeInForce tif) {
+        Entry entry = new Entry(CommandType.ADD, Order.nextId(), side, price, quantity, expiry, tif);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Adds the cancellation of a resting order to the batch.
+     *
+     * @param orderId the ID of the order to cancel
+     * @return the entry
+     */
+    public Entry cancel(long orderId) {
+        Entry entry = new Entry(CommandType.CANCEL, orderId, null, 0, 0, 0, null);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Adds an amendment of a resting order to the batch.
+     *
+     * @param orderId     the ID of the order to amend
+     * @param newPrice    the new price in ticks
+     * @param newQuantity the new quantity
+     * @return the entry
+     */
+    public Entry amend(long orderId, long newPrice, int newQuantity) {
+        Entry entry = new Entry(CommandType.AMEND, orderId, null, newPrice, newQuantity, 0, null);
+        entries.add(entry);
+        return entry;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the entries in the order they are applied
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * One command of a batch and, once the batch has been applied, its outcome.
+     */
+    public static class Entry {
+
+        private final CommandType type;
+        private final long orderId;
+        private final OrderType side;
+        private final long price;
+        private final int quantity;
+        private final long expiry;
+        private final TimeInForce tif;
+        private boolean accepted;
+        private int filledQuantity;
+        private int leavesQuantity;
+
+        Entry(CommandType type, long orderId, OrderType side, long price, int quantity, long expiry, TimeInForce tif) {
+            this.type = type;
+            this.orderId = orderId;
+            this.side = side;
+            this.price = price;
+            this.quantity = quantity;
+            this.expiry = expiry;
+            this.tif = tif;
+        }
+
+        /**
+         * Fills a command slot with this entry.
+         */
+        void toCommand(String symbol, EngineCommand command) {
+            switch (type) {
+                case ADD:
+                    command.setAdd(orderId, side, symbol, price, quantity, expiry, tif, null);
+                    break;
+                case CANCEL:
+                    command.setCancel(symbol, orderId, null);
+                    break;
+                case AMEND:
+                    command.setAmend(symbol, orderId, price, quantity, null);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected batch entry: " + type);
+            }
+        }
+
+        void setResult(boolean accepted, int filledQuantity, int leavesQuantity) {
+            this.accepted = accepted;
+            this.filledQuantity = filledQuantity;
+            this.leavesQuantity = leavesQuantity;
+        }
+
+        /**
+         * @return ADD, CANCEL or AMEND
+         */
+        public CommandType getType() {
+            return type;
+        }
+
+        public long getOrderId() {
+            return orderId;
+        }
+
+        /**
+         * @return true if the command was applied; a cancel or amend of an unknown order is not
+         */
+        public boolean isAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return the quantity a new order traded on arrival, 0 for cancels and amends
+         */
+        public int getFilledQuantity() {
+            return filledQuantity;
+        }
+
+        /**
+         * @return the quantity left resting in the book after the command
+         */
+        public int getLeavesQuantity() {
+            return leavesQuantity;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "type=" + type +
+                    ", orderId=" + orderId +
+                    ", accepted=" + accepted +
+                    ", filledQuantity=" + filledQuantity +
+                    ", leavesQuantity=" + leavesQuantity +
+                    '}';
+        }
+    }
+}
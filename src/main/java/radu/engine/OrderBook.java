@@ -1,85 +1,355 @@
 package radu.engine;
 
 import lombok.Getter;
+import radu.metrics.LatencyStage;
+import radu.metrics.SymbolLatency;
 import radu.matching.FOKMatcher;
 import radu.matching.GTCMatcher;
 import radu.matching.IOCMatcher;
 import radu.matching.OrderMatchingStrategy;
 
-import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 
 /**
  * Represents an order book that handles the addition, com.matching, expiration,
  * updating, and cancellation of buy and sell orders for a given security.
- * It supports GTC, FOK, and IOC order types, and maintains trade history.
+ * It supports GTC, FOK, and IOC order types, and keeps a bounded tail of its recent trades.
+ * Besides limit orders it takes market orders, which sweep the opposite side down to a protection
+ * price, and stop orders, which wait in a trigger index until the last trade price reaches them
+ * and then match as part of the same command as the trade that triggered them.
+ * Trades and changes to the aggregated price levels can be followed through listeners, and the
+ * best bid and offer can be read from any thread through its {@link TopOfBook}.
+ * With an {@link OffHeapOrderStore} attached, orders queued behind the front of their price level
+ * are kept off-heap; they can be cancelled, amended and expire like any other order.
  */
 public class OrderBook {
 
     private static final Logger logger = Logger.getLogger(OrderBook.class.getName());
+    private static final long DEFAULT_EXPIRY_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    public static final int RECENT_TRADES = 1024;
+    /**
+     * How far past the best opposite price a market order without a protection price may trade,
+     * in basis points of that price.
+     */
+    public static final int DEFAULT_MARKET_PROTECTION_BPS = 500;
     /**
      * -- GETTER --
-     *  Gets buy orders PQ
+     *  Gets the buy side of the book, best bid first. Only the thread that owns the book may
+     *  use it; other threads read the best bid from {@link #getTopOfBook()}.
      *
      * @return buy orders
      */
     @Getter
-    private final PriorityQueue<Order> buyOrders;
+    private final BookSide buyOrders;
     /**
      * -- GETTER --
-     *  Gets sell orders PQ
+     *  Gets the sell side of the book, best ask first. Only the thread that owns the book may
+     *  use it; other threads read the best ask from {@link #getTopOfBook()}.
      *
      * @return sell orders
      */
     @Getter
-    private final PriorityQueue<Order> sellOrders;
-    private final HashMap<Long, Order> mapOrders = new HashMap<>();
-    private final List<Trade> tradeHistory = new ArrayList<>();
-    private final PriorityQueue<Order> orderExpiration;
+    private final BookSide sellOrders;
+    private final LongIndex<Order> mapOrders = new LongIndex<>();
+    private final StopTriggers stops = new StopTriggers();
+    private final RecentTrades recentTrades = new RecentTrades(RECENT_TRADES);
+    private long lastTradePrice;
+    private int marketProtectionBps = DEFAULT_MARKET_PROTECTION_BPS;
+    private final TimingWheel expiryWheel;
+    private final String symbol;
+    private final TopOfBook topOfBook;
+    private TradeListener tradeListener;
+    private RemovalListener removalListener;
+    private EventLog eventLog;
+    private SymbolLatency latency;
+    private OffHeapOrderStore orderStore;
+    private int storeIndex;
+    // what the last new or amended order traded and left resting, read before triggered stops reuse its object
+    private int lastFilledQuantity;
+    private int lastLeavesQuantity;
     private final List<OrderMatchingStrategy> strategies = List.of(
             new FOKMatcher(),
             new IOCMatcher(),
             new GTCMatcher()
     );
+    private final Map<TimeInForce, OrderMatchingStrategy> strategiesByTif = new EnumMap<>(TimeInForce.class);
 
     /**
-     * Constructs a new empty com.engine.OrderBook.
-     * Initializes the priority queues for buy and sell orders and expiration tracking.
+     * Constructs a new empty com.engine.OrderBook with its own expiry wheel.
+     * Initializes the price ladders for buy and sell orders and expiration tracking.
      */
     public OrderBook() {
-        buyOrders = new PriorityQueue<>((o1, o2) -> {
-            int priceCompare = Double.compare(o2.getPrice(), o1.getPrice()); // higher price first
-            return priceCompare != 0 ? priceCompare : o1.getTimestamp().compareTo(o2.getTimestamp());
-        });
+        this(null);
+    }
 
-        // lower price first
-        sellOrders = new PriorityQueue<>(Comparator.comparingDouble(Order::getPrice).thenComparing(Order::getTimestamp));
+    /**
+     * Constructs a new empty com.engine.OrderBook that schedules expiries on a wheel shared
+     * with the other books of the same thread. The wheel's owner routes expired orders back
+     * to {@link #expireOrder(Order)}.
+     *
+     * @param expiryWheel the shared wheel, or null for a wheel owned by this book
+     */
+    public OrderBook(TimingWheel expiryWheel) {
+        this(null, expiryWheel);
+    }
 
-        orderExpiration = new PriorityQueue<>(Comparator.comparing(Order::getExpiry));
+    /**
+     * Constructs a new empty com.engine.OrderBook for a symbol, scheduling expiries on the given wheel.
+     *
+     * @param symbol      the symbol traded in this book, passed on to the trade listener
+     * @param expiryWheel the shared wheel, or null for a wheel owned by this book
+     */
+    public OrderBook(String symbol, TimingWheel expiryWheel) {
+        this.symbol = symbol;
+        buyOrders = new BookSide(OrderType.BUY); // higher price first
+        sellOrders = new BookSide(OrderType.SELL); // lower price first
+        topOfBook = new TopOfBook(symbol);
+        buyOrders.setTopOfBook(topOfBook);
+        sellOrders.setTopOfBook(topOfBook);
 
+        this.expiryWheel = expiryWheel != null
+                ? expiryWheel
+                : new TimingWheel(DEFAULT_EXPIRY_RESOLUTION_NANOS, EngineClock.epochNanos(), this::expireOrder);
+
+        for (OrderMatchingStrategy strategy : strategies) {
+            strategiesByTif.put(strategy.getTimeInForce(), strategy);
+        }
     }
 
     /**
-     * Adds an order to the order book.
+     * Adds an order to the order book. A stop order that has not been triggered goes into the
+     * trigger index instead of onto its side.
      *
      * @param order the order to add
-     * @throws IllegalArgumentException if the order type is invalid
+     * @throws IllegalArgumentException if the order type is invalid or the order is a market order
      */
     public void addOrder(Order order) {
-        orderExpiration.add(order);
-        if(order.getType() == OrderType.BUY) {
+        if (latency == null) {
+            insert(order);
+            return;
+        }
+        long start = System.nanoTime();
+        insert(order);
+        latency.record(LatencyStage.BOOK_INSERT, order.getTif(), System.nanoTime() - start);
+    }
+
+    private void insert(Order order) {
+        if (order.getKind() == OrderKind.MARKET) {
+            throw new IllegalArgumentException("Market order " + order.getId() + " cannot rest in the book");
+        }
+        if (order.isStop()) {
+            stops.add(order);
+        }
+        else if(order.getType() == OrderType.BUY) {
             buyOrders.add(order);
-            mapOrders.put(order.getId(), order);
         }
         else if(order.getType() == OrderType.SELL) {
             sellOrders.add(order);
-            mapOrders.put(order.getId(), order);
         }
         else {
             throw new IllegalArgumentException("Invalid order type");
         }
+        // a stored order is indexed and scheduled by the store
+        if (!order.stored) {
+            expiryWheel.schedule(order);
+            mapOrders.put(order.getId(), order);
+        }
+    }
+
+    /**
+     * Submits an order with arrival-time matching: the incoming order immediately trades
+     * against the opposite side, and only a GTC residual is left resting in the book.
+     * The TIF rules of the incoming order decide what happens to any unfilled quantity; a market
+     * order never rests, so a GTC market order is treated as IOC.
+     * A pooled order that does not end up resting goes back to its pool straight away.
+     *
+     * <p>A stop order whose stop price the last trade has not reached waits in the trigger index;
+     * otherwise it is triggered on arrival. Every stop triggered by the trades of this order is
+     * matched before this method returns, in trigger order, and may in turn trigger more.</p>
+     *
+     * <p>What the order traded and left resting is kept for {@link #getLastFilledQuantity()} and
+     * {@link #getLastLeavesQuantity()}, as a released order may be handed out again by then.</p>
+     *
+     * @param order the incoming order
+     * @throws IllegalArgumentException if the order has no valid side, time in force or stop
+     *                                  price, before anything in the book has changed
+     */
+    public void processOrder(Order order) {
+        if (order.getType() != OrderType.BUY && order.getType() != OrderType.SELL) {
+            throw new IllegalArgumentException("Invalid order type: " + order.getType());
+        }
+        if (!strategiesByTif.containsKey(order.getTif())) {
+            throw new IllegalArgumentException("Invalid time in force: " + order.getTif());
+        }
+        if (order.isStop()) {
+            if (order.getStopPrice() <= 0) {
+                throw new IllegalArgumentException("Invalid stop price: " + order.getStopPrice());
+            }
+            if (!isTriggered(order)) {
+                addOrder(order);
+                lastFilledQuantity = 0;
+                lastLeavesQuantity = order.getLeavesQuantity();
+                return;
+            }
+            order.trigger(order.getTimestamp());
+        }
+        long timestamp = order.getTimestamp();
+        int quantity = order.getLeavesQuantity();
+        match(order);
+        settled(order, quantity);
+        triggerStops(timestamp);
+    }
+
+    /**
+     * Records what an order that has just been matched traded and left resting. Must be called
+     * before anything else can take an order from the pool, which may hand out this one again.
+     *
+     * @param order    the order, resting, stored or already released
+     * @param quantity its leaves quantity before it was matched
+     */
+    private void settled(Order order, int quantity) {
+        lastFilledQuantity = quantity - order.getLeavesQuantity();
+        lastLeavesQuantity = order.level != null || order.stored ? order.getLeavesQuantity() : 0;
+    }
+
+    private void match(Order order) {
+        TimeInForce tif = order.getTif();
+        if (order.getKind() == OrderKind.MARKET) {
+            if (order.getPrice() <= 0) {
+                order.protect(protectionPrice(order.getType()));
+            }
+            if (tif == TimeInForce.GTC) {
+                tif = TimeInForce.IOC;
+            }
+        }
+        strategiesByTif.get(tif).matchIncoming(this, order);
+        if (order.level == null) {
+            order.release();
+        }
+    }
+
+    /**
+     * Derives the worst price a market order without one of its own may trade at, from the best
+     * price it can currently trade against.
+     *
+     * @param type the side of the market order
+     * @return the protection price; one that trades with nothing if the opposite side is empty
+     */
+    private long protectionPrice(OrderType type) {
+        BookSide opposite = type == OrderType.BUY ? sellOrders : buyOrders;
+        Order best = opposite.peek();
+        if (best == null) {
+            return type == OrderType.BUY ? 0 : Long.MAX_VALUE;
+        }
+        long band = best.getPrice() * marketProtectionBps / 10_000;
+        return type == OrderType.BUY ? best.getPrice() + band : Math.max(1, best.getPrice() - band);
+    }
+
+    /**
+     * @return true if the last trade price has reached the order's stop price
+     */
+    private boolean isTriggered(Order stop) {
+        if (lastTradePrice == 0) return false;
+        return stop.getType() == OrderType.BUY
+                ? lastTradePrice >= stop.getStopPrice()
+                : lastTradePrice <= stop.getStopPrice();
+    }
+
+    /**
+     * Matches every waiting stop the last trade price has reached. Each triggered stop may trade
+     * and move the last price further, so the index is asked again after every one; it only ever
+     * looks at the first stop price of each side. Nothing is triggered before the first trade.
+     *
+     * @param timestamp the time priority triggered stops get, the time of the triggering command
+     */
+    private void triggerStops(long timestamp) {
+        if (stops.isEmpty() || lastTradePrice == 0) return;
+        Order stop;
+        while ((stop = stops.nextTriggered(lastTradePrice)) != null) {
+            stops.remove(stop);
+            mapOrders.remove(stop.getId());
+            expiryWheel.cancel(stop);
+            stop.trigger(timestamp);
+            if (eventLog != null) {
+                eventLog.log(LogEventType.STOP_TRIGGERED, symbol, stop, lastTradePrice);
+            }
+            match(stop);
+        }
+    }
+
+    /**
+     * Trades an incoming order against the opposite side, best price first, for as long as
+     * prices cross and it has quantity left. Trades execute at the resting order's price, and
+     * fully filled resting orders are removed from the book; an iceberg order trades one slice at
+     * a time, see {@link #afterFill(Order, long)}.
+     *
+     * @param incoming the aggressive order, not resting in the book
+     * @return the quantity filled
+     */
+    public int sweep(Order incoming) {
+        boolean isBuy = incoming.getType() == OrderType.BUY;
+        BookSide opposite = isBuy ? sellOrders : buyOrders;
+        int filled = 0;
+        Order resting;
+        while (incoming.getQuantity() > 0 && (resting = opposite.peek()) != null && crosses(incoming, resting)) {
+            int quantity = Math.min(incoming.getQuantity(), resting.getQuantity());
+            incoming.reduceQuantity(quantity);
+            resting.reduceQuantity(quantity);
+
+            if (isBuy) recordTrade(incoming.getId(), resting.getId(), resting.getPrice(), quantity);
+            else recordTrade(resting.getId(), incoming.getId(), resting.getPrice(), quantity);
+
+            afterFill(resting, incoming.getTimestamp());
+            filled += quantity;
+        }
+        return filled;
+    }
+
+    /**
+     * Settles a resting order after a fill. An iceberg order whose slice is used up refills it
+     * from its reserve and goes to the back of its price level, with the given time priority; the
+     * level itself stays where it is. If orders of the level are kept in the store, the refilled
+     * order is stored behind them. An order with nothing left leaves the book.
+     *
+     * @param resting   an order of this book that was just filled
+     * @param timestamp the time priority a refilled slice gets, the time of the fill
+     * @return true if the order is still resting
+     */
+    public boolean afterFill(Order resting, long timestamp) {
+        if (resting.getQuantity() > 0) return true;
+        if (resting.getReserveQuantity() > 0 && resting.level != null) {
+            if (resting.level.storedCount == 0) {
+                resting.replenish(timestamp);
+                resting.level.requeue(resting);
+                return true;
+            }
+            // taken out with an empty slice and stored with the new one, so the aggregates move the slice
+            BookSide side = resting.getType() == OrderType.BUY ? buyOrders : sellOrders;
+            side.remove(resting);
+            resting.replenish(timestamp);
+            side.add(resting);
+            mapOrders.remove(resting.getId());
+            expiryWheel.cancel(resting);
+            resting.release();
+            return true;
+        }
+        cancelOrder(resting.getId());
+        return false;
+    }
+
+    /**
+     * @param incoming an aggressive order
+     * @param resting  an order on the opposite side
+     * @return true if the incoming order's limit allows trading at the resting order's price
+     */
+    public boolean crosses(Order incoming, Order resting) {
+        return incoming.getType() == OrderType.BUY
+                ? incoming.getPrice() >= resting.getPrice()
+                : incoming.getPrice() <= resting.getPrice();
     }
 
     /**
@@ -100,7 +370,9 @@ public class OrderBook {
      * the best sell order price, following TIF (Time-In-Force) constraints.
      */
     public void matchOrders() {
-        logger.info("Matching Orders");
+        if (eventLog != null) {
+            eventLog.log(LogEventType.MATCHING, symbol, 0, null, null, 0, 0, 0);
+        }
         while (!buyOrders.isEmpty() && !sellOrders.isEmpty()) {
             Order buy = buyOrders.peek();
             Order sell = sellOrders.peek();
@@ -114,117 +386,414 @@ public class OrderBook {
                 }
             }
         }
+        triggerStops(EngineClock.epochNanos());
     }
 
-    public void recordTrade(long buyId, long sellId, double price, int quantity) {
-        System.out.println("Matched order: BUY " + quantity + " @ " + price +
-                " between com.engine.Order#" + mapOrders.get(buyId).getId() + " and com.engine.Order#" + mapOrders.get(sellId).getId());
-        tradeHistory.add(new Trade(buyId, sellId, price, quantity));
+    /**
+     * Records a trade in the recent trades and hands it to the trade listener.
+     * Nothing is allocated; the listener decides what to do with the trade.
+     */
+    public void recordTrade(long buyId, long sellId, long price, int quantity) {
+        long timestamp = EngineClock.epochNanos();
+        lastTradePrice = price;
+        recentTrades.add(buyId, sellId, price, quantity, timestamp);
+        if (tradeListener != null) {
+            tradeListener.onTrade(symbol, buyId, sellId, price, quantity, timestamp);
+        }
     }
 
     /**
-     * Cancels an order by ID.
+     * Registers the listener told about every trade this book executes, replacing any previous one.
+     *
+     * @param tradeListener the listener, or null for none
+     */
+    public void setTradeListener(TradeListener tradeListener) {
+        this.tradeListener = tradeListener;
+    }
+
+    /**
+     * Registers the listener told about every order of this book that expires, replacing any
+     * previous one. Cancels are reported by the engine, as the book also cancels orders itself.
+     *
+     * @param removalListener the listener, or null for none
+     */
+    public void setRemovalListener(RemovalListener removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Registers the listener told about every change to the price levels of both sides,
+     * replacing any previous one. The levels already in the book are reported to it right away.
+     *
+     * @param depthListener the listener, or null for none
+     */
+    public void setDepthListener(DepthListener depthListener) {
+        buyOrders.setDepthListener(symbol, depthListener);
+        sellOrders.setDepthListener(symbol, depthListener);
+    }
+
+    /**
+     * Sets the log the book reports amends, expiries, triggered stops and matches of
+     * {@link #matchOrders()} to. Nothing is formatted on the book's thread.
+     *
+     * @param eventLog the log, or null to report nothing
+     */
+    public void setEventLog(EventLog eventLog) {
+        this.eventLog = eventLog;
+    }
+
+    /**
+     * @return the log the book and its matching strategies report to, or null
+     */
+    public EventLog getEventLog() {
+        return eventLog;
+    }
+
+    /**
+     * Sets the histograms the time taken to put orders into the book is recorded in.
+     *
+     * @param latency the symbol's latency recorders, or null to record nothing
+     */
+    public void setLatency(SymbolLatency latency) {
+        this.latency = latency;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the price in ticks of the last trade of this book, 0 before the first one
+     */
+    public long getLastTradePrice() {
+        return lastTradePrice;
+    }
+
+    /**
+     * Sets the last trade price stop orders are triggered against. Used to restore a snapshot.
+     *
+     * @param lastTradePrice the price in ticks, 0 for none
+     */
+    public void setLastTradePrice(long lastTradePrice) {
+        this.lastTradePrice = lastTradePrice;
+    }
+
+    /**
+     * Sets how far past the best opposite price a market order without a protection price may trade.
+     *
+     * @param marketProtectionBps basis points of the best opposite price
+     */
+    public void setMarketProtectionBps(int marketProtectionBps) {
+        if (marketProtectionBps < 0) {
+            throw new IllegalArgumentException("Invalid market protection: " + marketProtectionBps);
+        }
+        this.marketProtectionBps = marketProtectionBps;
+    }
+
+    /**
+     * @return the number of stop orders waiting to be triggered
+     */
+    public int getStopCount() {
+        return stops.size();
+    }
+
+    /**
+     * Hands every waiting stop order to an action: buy stops, then sell stops, each in the order
+     * they would trigger. The action must not change the book.
+     *
+     * @param action the action
+     */
+    public void forEachStop(Consumer<Order> action) {
+        stops.forEach(action);
+    }
+
+    /**
+     * Keeps the orders queued behind the first {@link OffHeapOrderStore#getHotOrdersPerLevel()}
+     * orders of every price level in a store. Only for a book that has no orders yet.
+     *
+     * @param orderStore the store, shared with the other books of the same thread
+     */
+    public void setOrderStore(OffHeapOrderStore orderStore) {
+        int index = orderStore.register(this);
+        buyOrders.setOrderStore(orderStore, this, index);
+        sellOrders.setOrderStore(orderStore, this, index);
+        this.orderStore = orderStore;
+        this.storeIndex = index;
+    }
+
+    /**
+     * Turns the oldest stored order of a level into an object at the back of the level's objects.
+     * Called by the sides whenever an object leaves a level that has stored orders.
+     *
+     * @param level a level of this book with stored orders
+     */
+    void restoreFirst(PriceLevel level) {
+        int slot = level.storedHead;
+        Order order = orderStore.toOrder(slot, symbol);
+        level.restoreFirst(order, orderStore);
+        orderStore.free(slot);
+        mapOrders.put(order.getId(), order);
+        expiryWheel.schedule(order);
+    }
+
+    /**
+     * Removes a stored order whose expiry time has passed. Called by the store.
+     *
+     * @param slot the slot of the expired order
+     */
+    void expireStored(int slot) {
+        long orderId = orderStore.getId(slot);
+        if (eventLog != null) {
+            eventLog.log(LogEventType.ORDER_EXPIRED, symbol, orderId, orderStore.getSide(slot),
+                    orderStore.getTif(slot), orderStore.getPrice(slot),
+                    orderStore.getQuantity(slot) + orderStore.getReserveQuantity(slot), 0);
+        }
+        sideOf(orderStore.getSide(slot)).removeStored(slot);
+        if (removalListener != null) {
+            removalListener.onOrderRemoved(symbol, orderId, true, EngineClock.epochNanos());
+        }
+    }
+
+    /**
+     * @param orderId the id of an order
+     * @return the slot of the order if it is stored for this book, otherwise -1
+     */
+    private int findStored(long orderId) {
+        if (orderStore == null) return -1;
+        int slot = orderStore.find(orderId);
+        return slot >= 0 && orderStore.getBook(slot) == storeIndex ? slot : -1;
+    }
+
+    private BookSide sideOf(OrderType type) {
+        return type == OrderType.BUY ? buyOrders : sellOrders;
+    }
+
+    /**
+     * @return the best bid and offer of this book, readable from any thread
+     */
+    public TopOfBook getTopOfBook() {
+        return topOfBook;
+    }
+
+    /**
+     * Cancels an order by ID. The order is found through a primitive id index, and removal from
+     * the price ladder and the expiry wheel is O(1), so cancelling never boxes or scans.
+     * This is also how filled and expired orders leave the book; a pooled order goes back
+     * to its pool, and keeps its fields until it is reused. A stop order waiting to be
+     * triggered is taken out of the trigger index, and an order kept in the store is found
+     * through the store's own index and its record freed.
      *
      * @param orderId the ID of the order to cancel
      * @return true if the order was found and canceled, false otherwise
      */
     public boolean cancelOrder(long orderId) {
-        Order order = mapOrders.get(orderId);
+        Order order = mapOrders.remove(orderId);
         if(order != null) {
-            if(order.getType() == OrderType.BUY) {
+            if(order.stopLevel != null) {
+                stops.remove(order);
+            }
+            else if(order.getType() == OrderType.BUY) {
                 buyOrders.remove(order);
             }
             else {
                 sellOrders.remove(order);
             }
-            mapOrders.remove(orderId);
-            orderExpiration.remove(order);
+            expiryWheel.cancel(order);
+            order.release();
             return true;
         }
-        else {
-            return false;
+        int slot = findStored(orderId);
+        if (slot >= 0) {
+            sideOf(orderStore.getSide(slot)).removeStored(slot);
+            return true;
         }
+        return false;
     }
 
     /**
-     * Prints all trades that have occurred in the order book.
+     * Prints the most recent trades of the order book, oldest first.
      */
     public void printTradeHistory() {
         System.out.println("com.engine.Trade history: ");
-        for(Trade trade : tradeHistory) {
-            logger.fine("Trade: " + trade);
+        for (int i = 0; i < recentTrades.size(); i++) {
+            logger.fine("Trade: " + recentTrades.get(i));
         }
     }
 
     /**
-     * Updates the price and quantity of an existing order.
+     * @return the last {@value #RECENT_TRADES} trades of this book
+     */
+    public RecentTrades getRecentTrades() {
+        return recentTrades;
+    }
+
+    /**
+     * Amends the price and quantity of an existing order in place.
+     * Reducing the quantity at the same price keeps the order's time priority and is O(1).
+     * A price change or a quantity increase takes the order out of the book and submits it again
+     * like a new order, so a new price that crosses the other side trades at once, stops its trades
+     * trigger are matched, and only what is left rests at the back of its new price level.
+     * For an iceberg order the new quantity is its whole quantity, and a reduction comes out of
+     * the reserve first.
+     * A stop order that has not been triggered cannot be amended; cancel and resubmit it instead.
+     *
+     * @param orderId     the ID of the order to update
+     * @param newPrice    the new price in ticks
+     * @param newQuantity the new quantity
+     * @return true if the update was successful, false otherwise
+     */
+    public boolean updateOrder(long orderId, long newPrice, int newQuantity) {
+        return updateOrder(orderId, newPrice, newQuantity, EngineClock.epochNanos());
+    }
+
+    /**
+     * Amends an order like {@link #updateOrder(long, long, int)}, giving it the supplied
+     * timestamp if it loses its time priority.
      *
      * @param orderId     the ID of the order to update
-     * @param newPrice    the new price
+     * @param newPrice    the new price in ticks
      * @param newQuantity the new quantity
+     * @param timestamp   the new timestamp in epoch nanos
      * @return true if the update was successful, false otherwise
      */
-    public boolean updateOrder(long orderId, double newPrice, int newQuantity) {
-        Order updateOrder = mapOrders.get(orderId);
-        // copy pq to insert elements so we can add them back while we search for our orderId
-        PriorityQueue<Order> pq;
-        if(updateOrder.getType() == OrderType.BUY) {
-            pq = new PriorityQueue<>(buyOrders.comparator());
+    public boolean updateOrder(long orderId, long newPrice, int newQuantity, long timestamp) {
+        Order order = mapOrders.get(orderId);
+        if (order == null && newQuantity > 0) {
+            int slot = findStored(orderId);
+            if (slot >= 0) {
+                return updateStored(slot, newPrice, newQuantity, timestamp);
+            }
         }
-        else {
-            pq = new PriorityQueue<>(sellOrders.comparator());
+        if (order == null || newQuantity <= 0 || order.stopLevel != null) {
+            if (eventLog != null) {
+                eventLog.log(LogEventType.UPDATE_REJECTED, symbol, orderId, null, null, newPrice, newQuantity, 0);
+            }
+            return false;
         }
-        boolean found = false;
-        if(updateOrder != null){
-            Order newOrder = new Order(orderId, updateOrder.getType(), updateOrder.getSymbol(), newPrice,
-                    newQuantity, Instant.now(), updateOrder.getExpiry(), updateOrder.getTif());
-            OrderType type = updateOrder.getType();
-            mapOrders.replace(orderId, updateOrder, newOrder);
 
-            orderExpiration.remove(updateOrder);
-            orderExpiration.add(newOrder);
+        if (newPrice == order.getPrice() && newQuantity <= order.getLeavesQuantity()) {
+            int reduction = order.getLeavesQuantity() - newQuantity;
+            int fromReserve = Math.min(reduction, order.getReserveQuantity());
+            if (fromReserve > 0) {
+                order.reduceReserve(fromReserve);
+            }
+            if (reduction > fromReserve) {
+                order.reduceQuantity(reduction - fromReserve);
+            }
+        }
+        else {
+            sideOf(order.getType()).remove(order);
+            mapOrders.remove(orderId);
+            expiryWheel.cancel(order);
+            order.amend(newPrice, newQuantity, timestamp);
+            if (eventLog != null) {
+                eventLog.log(LogEventType.ORDER_UPDATED, symbol, order);
+            }
+            rematch(order, timestamp);
+            return true;
+        }
+        if (eventLog != null) {
+            eventLog.log(LogEventType.ORDER_UPDATED, symbol, order);
+        }
+        lastFilledQuantity = 0;
+        lastLeavesQuantity = newQuantity;
+        return true;
+    }
 
-            PriorityQueue<Order> sameTypeOrders;
-            if(type.equals(OrderType.BUY)) {
-                sameTypeOrders = buyOrders;
+    /**
+     * Amends a stored order. A reduction at the same price is applied to its record and keeps its
+     * place; otherwise it leaves the store and is added again like an amended object.
+     */
+    private boolean updateStored(int slot, long newPrice, int newQuantity, long timestamp) {
+        BookSide side = sideOf(orderStore.getSide(slot));
+        int quantity = orderStore.getQuantity(slot);
+        int reserve = orderStore.getReserveQuantity(slot);
+        if (newPrice == orderStore.getPrice(slot) && newQuantity <= quantity + reserve) {
+            int reduction = quantity + reserve - newQuantity;
+            int fromReserve = Math.min(reduction, reserve);
+            PriceLevel level = side.getLevel(newPrice);
+            if (fromReserve > 0) {
+                orderStore.setReserveQuantity(slot, reserve - fromReserve);
+                level.reduceReserve(fromReserve);
             }
-            else {
-                sameTypeOrders = sellOrders;
-            }
-
-            // go through the queue until you find the order to update
-            while(!found){
-                    Order current = sameTypeOrders.poll();
-                    if(current.getId() == orderId){
-                        pq.add(newOrder);
-                        found = true;
-                    }
-                    else {
-                        pq.add(current);
-                    }
-                }
-            // reinsert into the original priority queue
-            while(!pq.isEmpty()){
-                sameTypeOrders.add(pq.poll());
+            if (reduction > fromReserve) {
+                orderStore.setQuantity(slot, quantity - (reduction - fromReserve));
+                level.reduceQuantity(reduction - fromReserve);
+            }
+            if (eventLog != null) {
+                eventLog.log(LogEventType.ORDER_UPDATED, symbol, orderStore.getId(slot), side.getType(),
+                        orderStore.getTif(slot), newPrice, newQuantity, 0);
             }
-            logger.info("Updated order: " + newOrder);
+            lastFilledQuantity = 0;
+            lastLeavesQuantity = newQuantity;
             return true;
         }
-        logger.warning("Couldn't update order: " + orderId);
-        return false;
+        Order order = orderStore.toOrder(slot, symbol);
+        side.removeStored(slot);
+        order.amend(newPrice, newQuantity, timestamp);
+        if (eventLog != null) {
+            eventLog.log(LogEventType.ORDER_UPDATED, symbol, order);
+        }
+        rematch(order, timestamp);
+        return true;
+    }
+
+    /**
+     * Submits an amended order that has left the book through the arrival path, so a price that
+     * now crosses the other side trades instead of leaving the book crossed.
+     *
+     * @param order     the amended order, neither resting nor scheduled
+     * @param timestamp the time of the amend, given to the stops it triggers
+     */
+    private void rematch(Order order, long timestamp) {
+        int quantity = order.getLeavesQuantity();
+        match(order);
+        settled(order, quantity);
+        triggerStops(timestamp);
+    }
+
+    /**
+     * @return the quantity the last new order, or the last successfully amended one, traded on arrival
+     */
+    public int getLastFilledQuantity() {
+        return lastFilledQuantity;
+    }
+
+    /**
+     * @return the quantity the last new or successfully amended order left resting in the book or,
+     *         for a stop that was not triggered, in the trigger index
+     */
+    public int getLastLeavesQuantity() {
+        return lastLeavesQuantity;
     }
 
     /**
-     * Removes all orders that have expired based on their expiry timestamp.
+     * Removes all orders that have expired based on their expiry timestamp, by advancing
+     * the expiry wheel this book schedules on. For a shared wheel this expires the due orders
+     * of every book on it, and the same for the order store.
      */
     public void purgeExpiredOrders() {
-        while(!orderExpiration.isEmpty()) {
-            if(orderExpiration.peek().getExpiry().isBefore(Instant.now())) {
-                Order expiredOrder = orderExpiration.poll();
-                cancelOrder(expiredOrder.getId());
+        long now = EngineClock.epochNanos();
+        expiryWheel.advance(now);
+        if (orderStore != null) {
+            orderStore.expire(now);
+        }
+    }
 
-                logger.info("Expired Order: " + expiredOrder);
-            }
+    /**
+     * Removes an order whose expiry time has passed. Called by the expiry wheel.
+     *
+     * @param order the expired order
+     */
+    public void expireOrder(Order order) {
+        long orderId = order.getId();
+        boolean resting = mapOrders.get(orderId) == order;
+        if (eventLog != null && resting) {
+            eventLog.log(LogEventType.ORDER_EXPIRED, symbol, order);
+        }
+        cancelOrder(orderId);
+        if (removalListener != null && resting) {
+            removalListener.onOrderRemoved(symbol, orderId, true, EngineClock.epochNanos());
         }
     }
 }
@@ -0,0 +1,17 @@
+package radu.engine;
+
+/**
+ * How an order's prices are interpreted.
+ *
+ * <ul>
+ *   <li>LIMIT trades at its price or better.</li>
+ *   <li>MARKET sweeps the opposite side and never rests. Its price is a protection price, the worst
+ *   it may trade at; without one the book derives it from the best opposite price.</li>
+ *   <li>STOP waits in the book's trigger index until the last trade price reaches its stop price,
+ *   then goes in as a MARKET order.</li>
+ *   <li>STOP_LIMIT waits like STOP, then goes in as a LIMIT order at its price.</li>
+ * </ul>
+ */
+public enum OrderKind {
+    LIMIT, MARKET, STOP, STOP_LIMIT
+}
@@ -0,0 +1,88 @@
+package radu.engine;
+
+/**
+ * A free list of orders owned by one engine thread.
+ *
+ * <p>Orders the engine builds from commands are taken from the pool, and go back to it as soon
+ * as their book is done with them: when they are fully filled, cancelled or expired, or when
+ * an incoming order leaves nothing to rest. The pool can be filled up front, so that once the
+ * number of live orders stays below its size, creating an order allocates nothing. An empty
+ * pool falls back to allocating, and orders released into a full pool are left to the GC.</p>
+ *
+ * <p>Only orders taken from a pool are ever recycled; orders created with a constructor belong to
+ * their creator. A recycled order must not be used by anyone who kept a reference to it, which is
+ * why the engine only pools the orders it creates itself. The pool is not thread-safe.</p>
+ */
+public class OrderPool {
+
+    private final Order[] free;
+    private int size;
+    private long allocated;
+
+    /**
+     * @param capacity    most orders kept for reuse
+     * @param preallocate orders created right away, at most {@code capacity}
+     */
+    public OrderPool(int capacity, int preallocate) {
+        if (capacity < 0 || preallocate < 0 || preallocate > capacity) {
+            throw new IllegalArgumentException("Invalid pool size: " + preallocate + " of " + capacity);
+        }
+        this.free = new Order[capacity];
+        for (int i = 0; i < preallocate; i++) {
+            free[size++] = newOrder();
+        }
+    }
+
+    /**
+     * Takes an order from the pool, or allocates one if it is empty, and sets all its fields.
+     *
+     * @return an order that is neither resting nor scheduled
+     */
+    public Order acquire(long id, OrderType type, String symbol, long price, int quantity, long timestamp,
+                         long expiry, TimeInForce tif) {
+        return acquire(id, type, symbol, OrderKind.LIMIT, price, 0, quantity, timestamp, expiry, tif);
+    }
+
+    /**
+     * Takes an order of any kind from the pool, or allocates one if it is empty, and sets all its fields.
+     *
+     * @return an order that is neither resting nor scheduled
+     */
+    public Order acquire(long id, OrderType type, String symbol, OrderKind kind, long price, long stopPrice,
+                         int quantity, long timestamp, long expiry, TimeInForce tif) {
+        Order order = size > 0 ? free[--size] : newOrder();
+        free[size] = null;
+        order.init(id, type, symbol, kind, price, stopPrice, quantity, timestamp, expiry, tif);
+        return order;
+    }
+
+    /**
+     * Returns an order to the pool. Its fields keep their values until it is acquired again.
+     *
+     * @param order an order of this pool that is no longer resting nor scheduled
+     */
+    void release(Order order) {
+        if (size < free.length) {
+            free[size++] = order;
+        }
+    }
+
+    private Order newOrder() {
+        allocated++;
+        return new Order(this);
+    }
+
+    /**
+     * @return the number of orders ready for reuse
+     */
+    public int available() {
+        return size;
+    }
+
+    /**
+     * @return the number of orders this pool has ever allocated, including the preallocated ones
+     */
+    public long getAllocated() {
+        return allocated;
+    }
+}
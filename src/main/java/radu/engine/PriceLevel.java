@@ -0,0 +1,250 @@
+package radu.engine;
+
+/**
+ * A single price level on one side of the order book.
+ * Resting orders at this price form an intrusive FIFO queue (each order carries its own
+ * prev/next links), and the level keeps aggregate quantity and order count so depth
+ * can be read without walking the orders. Iceberg orders count towards the aggregate with
+ * their shown slice only; what they hold back is kept in a separate reserve total.
+ *
+ * <p>On a side with an {@link OffHeapOrderStore}, only the front of the queue is made of order
+ * objects; the orders behind them are records of the store, linked by slot, and count towards
+ * the aggregates like the others.</p>
+ */
+public class PriceLevel {
+
+    final BookSide side;
+    private long price;
+    private long totalQuantity;
+    private long reserveQuantity;
+    private int orderCount;
+
+    Order head;
+    Order tail;
+
+    // orders kept in the side's off-heap store, queued behind the objects; slots, -1 while none
+    int storedHead = -1;
+    int storedTail = -1;
+    int storedCount;
+
+    // neighbouring levels on the same side, closer to and further from the top of book
+    PriceLevel better;
+    PriceLevel worse;
+
+    PriceLevel(BookSide side, long price) {
+        this.side = side;
+        this.price = price;
+    }
+
+    /**
+     * Reuses an empty level for another price of the same side.
+     */
+    void reset(long price) {
+        this.price = price;
+        this.totalQuantity = 0;
+        this.reserveQuantity = 0;
+        this.orderCount = 0;
+        this.storedHead = -1;
+        this.storedTail = -1;
+        this.storedCount = 0;
+    }
+
+    /**
+     * Links an order into the queue in timestamp order. New orders always arrive with the
+     * latest timestamp, so the scan from the tail stops immediately in the common case.
+     * An iceberg order is split into its shown slice and its reserve here.
+     *
+     * @param order the order to link
+     */
+    void add(Order order) {
+        order.show();
+        Order after = tail;
+        while (after != null && after.getTimestamp() > order.getTimestamp()) {
+            after = after.prev;
+        }
+        order.prev = after;
+        order.next = after == null ? head : after.next;
+        if (order.next != null) order.next.prev = order;
+        else tail = order;
+        if (after != null) after.next = order;
+        else head = order;
+
+        order.level = this;
+        totalQuantity += order.getQuantity();
+        reserveQuantity += order.getReserveQuantity();
+        orderCount++;
+    }
+
+    /**
+     * Queues an order behind every other order of the level as a record of the store. The object
+     * itself is not kept; it is marked as stored.
+     *
+     * @param order the order to queue, with the latest timestamp of the level
+     * @param store the store of the level's side
+     * @param book  the number of the book in the store
+     */
+    void store(Order order, OffHeapOrderStore store, int book) {
+        order.show();
+        int slot = store.store(order, book);
+        store.setPrev(slot, storedTail);
+        if (storedTail >= 0) store.setNext(storedTail, slot);
+        else storedHead = slot;
+        storedTail = slot;
+        order.stored = true;
+        totalQuantity += order.getQuantity();
+        reserveQuantity += order.getReserveQuantity();
+        orderCount++;
+        storedCount++;
+    }
+
+    /**
+     * Unlinks a stored order in O(1).
+     *
+     * @param slot  the slot of an order stored in this level
+     * @param store the store of the level's side
+     */
+    void removeStored(int slot, OffHeapOrderStore store) {
+        int prev = store.getPrev(slot);
+        int next = store.getNext(slot);
+        if (prev >= 0) store.setNext(prev, next);
+        else storedHead = next;
+        if (next >= 0) store.setPrev(next, prev);
+        else storedTail = prev;
+        totalQuantity -= store.getQuantity(slot);
+        reserveQuantity -= store.getReserveQuantity(slot);
+        orderCount--;
+        storedCount--;
+    }
+
+    /**
+     * Moves the oldest stored order to the back of the objects, as the given object. The
+     * aggregates do not change.
+     *
+     * @param order the object built from the record at {@link #storedHead}
+     * @param store the store of the level's side
+     */
+    void restoreFirst(Order order, OffHeapOrderStore store) {
+        int slot = storedHead;
+        storedHead = store.getNext(slot);
+        if (storedHead >= 0) store.setPrev(storedHead, -1);
+        else storedTail = -1;
+        storedCount--;
+
+        order.prev = tail;
+        order.next = null;
+        if (tail != null) tail.next = order;
+        else head = order;
+        tail = order;
+        order.level = this;
+    }
+
+    /**
+     * Unlinks an order from the queue in O(1).
+     *
+     * @param order the order to unlink, must be resting in this level
+     */
+    void remove(Order order) {
+        if (order.prev != null) order.prev.next = order.next;
+        else head = order.next;
+        if (order.next != null) order.next.prev = order.prev;
+        else tail = order.prev;
+
+        order.prev = null;
+        order.next = null;
+        order.level = null;
+        totalQuantity -= order.getQuantity();
+        reserveQuantity -= order.getReserveQuantity();
+        orderCount--;
+    }
+
+    /**
+     * Moves an iceberg order whose slice was just refilled from its reserve to the back of the
+     * queue. Only links change: the level stays where it is in the ladder.
+     *
+     * @param order an order of this level that has just been replenished
+     */
+    void requeue(Order order) {
+        if (order != tail) {
+            if (order.prev != null) order.prev.next = order.next;
+            else head = order.next;
+            order.next.prev = order.prev;
+
+            order.prev = tail;
+            order.next = null;
+            tail.next = order;
+            tail = order;
+        }
+        totalQuantity += order.getQuantity();
+        reserveQuantity -= order.getQuantity();
+        side.levelChanged(this);
+    }
+
+    /**
+     * Keeps the aggregate in line when a resting order is partially filled.
+     *
+     * @param amount quantity removed from one of the orders in this level
+     */
+    void reduceQuantity(int amount) {
+        totalQuantity -= amount;
+        side.levelChanged(this);
+    }
+
+    /**
+     * Keeps the reserve total in line when an iceberg order's reserve is reduced. The shown
+     * quantity does not change, so nothing is reported.
+     *
+     * @param amount quantity removed from the reserve of one of the orders in this level
+     */
+    void reduceReserve(int amount) {
+        reserveQuantity -= amount;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the sum of the quantities of all orders resting at this price
+     */
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * @return the quantity iceberg orders at this price hold back, not shown in the book
+     */
+    public long getReserveQuantity() {
+        return reserveQuantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * @return the number of orders of this level kept in the side's off-heap store
+     */
+    public int getStoredCount() {
+        return storedCount;
+    }
+
+    /**
+     * @return the order with time priority at this price
+     */
+    public Order getFirst() {
+        return head;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceLevel{" +
+                "price=" + price +
+                ", totalQuantity=" + totalQuantity +
+                ", orderCount=" + orderCount +
+                '}';
+    }
+}
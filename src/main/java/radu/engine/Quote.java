@@ -0,0 +1,74 @@
+package radu.engine;
+
+/**
+ * An immutable best bid and offer of one book, as read from its {@link TopOfBook}.
+ * Prices are in ticks; an empty side has a price, quantity and order count of zero.
+ */
+public class Quote {
+
+    private final String symbol;
+    private final long sequence;
+    private final long bidPrice;
+    private final long bidQuantity;
+    private final int bidOrderCount;
+    private final long askPrice;
+    private final long askQuantity;
+    private final int askOrderCount;
+
+    Quote(String symbol, long sequence, long bidPrice, long bidQuantity, int bidOrderCount,
+          long askPrice, long askQuantity, int askOrderCount) {
+        this.symbol = symbol;
+        this.sequence = sequence;
+        this.bidPrice = bidPrice;
+        this.bidQuantity = bidQuantity;
+        this.bidOrderCount = bidOrderCount;
+        this.askPrice = askPrice;
+        this.askQuantity = askQuantity;
+        this.askOrderCount = askOrderCount;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the number of top of book changes before this quote, increasing with every change
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getBidPrice() {
+        return bidPrice;
+    }
+
+    public long getBidQuantity() {
+        return bidQuantity;
+    }
+
+    public int getBidOrderCount() {
+        return bidOrderCount;
+    }
+
+    public long getAskPrice() {
+        return askPrice;
+    }
+
+    public long getAskQuantity() {
+        return askQuantity;
+    }
+
+    public int getAskOrderCount() {
+        return askOrderCount;
+    }
+
+    @Override
+    public String toString() {
+        return "Quote{" +
+                "symbol=" + symbol +
+                ", sequence=" + sequence +
+                ", bid=" + bidQuantity + "@" + bidPrice +
+                ", ask=" + askQuantity + "@" + askPrice +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package radu.engine;
+
+/**
+ * Bounded in-memory tail of the trades of one order book. The trades are kept in preallocated
+ * primitive arrays used as a ring, so recording a trade allocates nothing and the oldest trade
+ * is overwritten once the capacity is reached. Not thread-safe; it belongs to the book's thread.
+ */
+public class RecentTrades {
+
+    private final long[] buyOrderIds;
+    private final long[] sellOrderIds;
+    private final long[] prices;
+    private final int[] quantities;
+    private final long[] timestamps;
+    private long count;
+
+    /**
+     * @param capacity number of most recent trades kept
+     */
+    public RecentTrades(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        buyOrderIds = new long[capacity];
+        sellOrderIds = new long[capacity];
+        prices = new long[capacity];
+        quantities = new int[capacity];
+        timestamps = new long[capacity];
+    }
+
+    void add(long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        int index = (int) (count++ % prices.length);
+        buyOrderIds[index] = buyOrderId;
+        sellOrderIds[index] = sellOrderId;
+        prices[index] = price;
+        quantities[index] = quantity;
+        timestamps[index] = timestamp;
+    }
+
+    /**
+     * @return the number of trades kept, at most the capacity
+     */
+    public int size() {
+        return (int) Math.min(count, prices.length);
+    }
+
+    /**
+     * @return the number of trades recorded since the book was created
+     */
+    public long getTotalCount() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return prices.length;
+    }
+
+    /**
+     * Copies one of the kept trades.
+     *
+     * @param i position from the oldest kept trade, 0 to size() - 1
+     * @return the trade
+     */
+    public Trade get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException("Trade " + i + " of " + size());
+        }
+        int index = (int) ((count - size() + i) % prices.length);
+        return new Trade(buyOrderIds[index], sellOrderIds[index], prices[index], quantities[index], timestamps[index]);
+    }
+}
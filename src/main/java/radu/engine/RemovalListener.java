@@ -0,0 +1,19 @@
+package radu.engine;
+
+/**
+ * Told when a resting or waiting order leaves its book without trading, on the thread that owns
+ * the book: because a cancel command removed it, or because its expiry time passed. Orders
+ * that are filled, and the unfilled rest of IOC and FOK orders, are not reported here; their
+ * trades and command results tell that already.
+ */
+@FunctionalInterface
+public interface RemovalListener {
+
+    /**
+     * @param symbol    the symbol of the book
+     * @param orderId   the order that was removed
+     * @param expired   true if its expiry time passed, false if it was cancelled
+     * @param timestamp when it was removed, in epoch nanos
+     */
+    void onOrderRemoved(String symbol, long orderId, boolean expired, long timestamp);
+}
@@ -0,0 +1,267 @@
+package radu.engine;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import radu.journal.JournalFactory;
+import radu.metrics.LatencyMetrics;
+import radu.pipeline.EventHandler;
+import radu.pipeline.ParkingWaitStrategy;
+import radu.pipeline.RingBuffer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-safe engine that partitions symbols over a fixed number of shards.
+ * Every symbol hashes to exactly one shard, and each shard applies its commands on its own
+ * thread, so order books are mutated single-threaded without any locking while different
+ * symbols are matched in parallel. Commands reach a shard through its lock-free ring buffer,
+ * and callers get the outcome of each command as a future. A timer publishes an expiry tick to
+ * every shard once per expiry resolution, so orders expire on the thread that owns their book.
+ * When journalling is enabled each shard appends its commands and trades to its own journal,
+ * rebuilds its books from its snapshot and journal on start, and is snapshotted periodically.
+ * Trades of all shards are published to one {@link TradeStream}, which feeds every
+ * {@code EventHandler<TradeEvent>} bean on its own thread. {@link TradeListener} beans are
+ * called synchronously on the shard threads instead, for consumers that must see a trade
+ * before the result of the command that caused it. {@link RemovalListener} beans hear about
+ * cancelled and expired orders the same way, and a {@link DepthListener} bean about every price
+ * level change. With a {@link LatencyMetrics} bean the shards time
+ * every stage of the commands they apply, and with an {@link EventLog} bean they report what
+ * their books do to it without formatting anything on the shard threads.
+ */
+@Component
+public class ShardedMatchingEngine implements AutoCloseable {
+
+    private final EngineShard[] shards;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService snapshotWriter;
+    private final TradeStream tradeStream;
+
+    /**
+     * @param settings sizes, journals and listeners of the engine and its shards
+     */
+    public ShardedMatchingEngine(EngineSettings settings) {
+        JournalFactory journals = settings.getJournals();
+        List<EventHandler<TradeEvent>> tradeSubscribers = settings.getTradeSubscribers();
+        long expiryResolutionNanos = settings.getExpiryResolutionNanos();
+        int count = settings.getShardCount() > 0 ? settings.getShardCount() : Runtime.getRuntime().availableProcessors();
+        boolean journalled = journals != null && journals.isEnabled();
+        this.snapshotWriter = journalled ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "matching-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.tradeStream = tradeSubscribers.isEmpty() ? null : new TradeStream(settings.getTradeRingSize(), new ParkingWaitStrategy());
+        for (EventHandler<TradeEvent> subscriber : tradeSubscribers) {
+            tradeStream.subscribe(subscriber.getClass().getSimpleName(), subscriber);
+        }
+        if (tradeStream != null) {
+            tradeStream.start();
+        }
+        this.shards = new EngineShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new EngineShard(i, settings, snapshotWriter);
+            shards[i].setTradeStream(tradeStream);
+            for (TradeListener listener : settings.getTradeListeners()) {
+                shards[i].addTradeListener(listener);
+            }
+            for (RemovalListener listener : settings.getRemovalListeners()) {
+                shards[i].addRemovalListener(listener);
+            }
+            shards[i].setDepthListener(settings.getDepthListener());
+            shards[i].setLatencyMetrics(settings.getLatencyMetrics());
+            shards[i].setEventLog(settings.getEventLog());
+            shards[i].start();
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "matching-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(this::tick, expiryResolutionNanos, expiryResolutionNanos, TimeUnit.NANOSECONDS);
+        if (journalled && journals.getSnapshotIntervalMillis() > 0) {
+            long interval = journals.getSnapshotIntervalMillis();
+            timer.scheduleAtFixedRate(this::snapshot, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void tick() {
+        long now = EngineClock.epochNanos();
+        for (EngineShard shard : shards) {
+            shard.tick(now);
+        }
+    }
+
+    /**
+     * Asks every shard to snapshot its books. Each shard captures its books between two commands
+     * and the copies are written to disk in the background.
+     *
+     * @return completes once every shard has captured its books
+     */
+    public CompletableFuture<Void> snapshot() {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            shards[i].requestSnapshot(result);
+            results[i] = result;
+        }
+        return CompletableFuture.allOf(results);
+    }
+
+    public CompletableFuture<Boolean> addOrder(Order order) {
+        EngineShard shard = shardFor(order.getSymbol());
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setAdd(order, result);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return result;
+    }
+
+    /**
+     * Hands a new order to the shard that owns its symbol without waiting for it to be applied.
+     * The caller only waits while the shard's ring is full; the report completes on the shard thread.
+     *
+     * @param order the order to add; only its fields are copied
+     * @return completes with what the order traded on arrival and what it left in the book
+     */
+    public CompletableFuture<ExecutionReport> submitOrder(Order order) {
+        EngineShard shard = shardFor(order.getSymbol());
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<ExecutionReport> report = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            EngineCommand command = ring.get(sequence);
+            command.setAdd(order, null);
+            command.setReport(report);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return report;
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(String symbol, long orderId) {
+        EngineShard shard = shardFor(symbol);
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setCancel(symbol, orderId, result);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return result;
+    }
+
+    public CompletableFuture<Boolean> updateOrder(String symbol, long orderId, long newPrice, int newQuantity) {
+        EngineShard shard = shardFor(symbol);
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setAmend(symbol, orderId, newPrice, newQuantity, result);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return result;
+    }
+
+    /**
+     * Hands a batch of commands for one symbol to the shard that owns it, as a single command.
+     *
+     * @param batch the batch to apply
+     * @return completes with the batch, its entries filled in, once the whole batch has been applied
+     */
+    public CompletableFuture<OrderBatch> submitBatch(OrderBatch batch) {
+        EngineShard shard = shardFor(batch.getSymbol());
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setBatch(batch, result);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return result.thenApply(applied -> batch);
+    }
+
+    public CompletableFuture<Boolean> match(String symbol) {
+        EngineShard shard = shardFor(symbol);
+        if (shard.isStopped()) return shard.rejected();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setMatch(symbol, result);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+        return result;
+    }
+
+    /**
+     * Gives direct access to the shard owning a symbol, for producers that publish into its
+     * ring themselves and do not need a future per command.
+     *
+     * @param symbol the symbol
+     * @return the shard whose thread owns the symbol's book
+     */
+    public EngineShard shardFor(String symbol) {
+        return shards[Math.floorMod(symbol.hashCode(), shards.length)];
+    }
+
+    /**
+     * Reads the best bid and offer of a symbol without going through the shard's ring.
+     *
+     * @param symbol the symbol
+     * @return the current quote, or null if no order was ever submitted for the symbol
+     */
+    public Quote getQuote(String symbol) {
+        TopOfBook topOfBook = shardFor(symbol).getTopOfBook(symbol);
+        return topOfBook == null ? null : topOfBook.get();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        for (EngineShard shard : shards) {
+            shard.stop();
+        }
+        if (tradeStream != null) {
+            tradeStream.close();
+        }
+        if (snapshotWriter != null) {
+            // let snapshots already captured reach the disk
+            snapshotWriter.shutdown();
+            try {
+                snapshotWriter.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
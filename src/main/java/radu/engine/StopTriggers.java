@@ -0,0 +1,194 @@
+package radu.engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * The stop orders of one book waiting for the last trade price to reach their stop price.
+ *
+ * <p>Buy stops trigger when the price trades up to them and sell stops when it trades down to
+ * them, so each side is kept as a ladder like a {@link BookSide}: an array of stop prices sorted
+ * with the next one to trigger at its end, binary-searched by primitive price, so triggering
+ * the next stop price shifts nothing and no price is boxed. Stops at the same price wait in
+ * arrival order, linked through the order's own book links, which are free while it is not
+ * resting. After a trade the book only has to look at the next stop price of each side: if that
+ * one is not crossed by the new last price, none behind it is.</p>
+ *
+ * <p>Not thread-safe; owned by the book's thread like the book itself.</p>
+ */
+class StopTriggers {
+
+    /**
+     * The stops waiting at one stop price, oldest first.
+     */
+    static final class Level {
+        final long stopPrice;
+        Order head;
+        Order tail;
+
+        Level(long stopPrice) {
+            this.stopPrice = stopPrice;
+        }
+    }
+
+    // lowest stop price at the end: the first buy stop a rising price reaches
+    private final Ladder buyStops = new Ladder(OrderType.BUY);
+    // highest stop price at the end: the first sell stop a falling price reaches
+    private final Ladder sellStops = new Ladder(OrderType.SELL);
+    private int size;
+
+    /**
+     * Puts a stop order at the back of its stop price.
+     *
+     * @param order an untriggered stop order that is not resting
+     */
+    void add(Order order) {
+        if (order.stopLevel != null || order.level != null) {
+            throw new IllegalStateException("Order " + order.getId() + " is already in the book");
+        }
+        Level level = (order.getType() == OrderType.BUY ? buyStops : sellStops).levelFor(order.getStopPrice());
+        order.prev = level.tail;
+        order.next = null;
+        if (level.tail != null) level.tail.next = order;
+        else level.head = order;
+        level.tail = order;
+        order.stopLevel = level;
+        size++;
+    }
+
+    /**
+     * Takes a stop order out of the index.
+     *
+     * @param order the order
+     * @return true if the order was waiting here
+     */
+    boolean remove(Order order) {
+        Level level = order.stopLevel;
+        if (level == null) return false;
+
+        if (order.prev != null) order.prev.next = order.next;
+        else level.head = order.next;
+        if (order.next != null) order.next.prev = order.prev;
+        else level.tail = order.prev;
+        order.prev = null;
+        order.next = null;
+        order.stopLevel = null;
+        size--;
+
+        if (level.head == null) {
+            (order.getType() == OrderType.BUY ? buyStops : sellStops).remove(level);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next stop order that a trade at the given price triggers. Only the first stop
+     * price of each side is looked at.
+     *
+     * @param lastPrice the last trade price in ticks, 0 if nothing has traded yet
+     * @return the oldest stop at the first crossed stop price, or null if nothing is triggered
+     */
+    Order nextTriggered(long lastPrice) {
+        if (lastPrice == 0) return null;
+        Level next = buyStops.next();
+        if (next != null && next.stopPrice <= lastPrice) {
+            return next.head;
+        }
+        next = sellStops.next();
+        if (next != null && next.stopPrice >= lastPrice) {
+            return next.head;
+        }
+        return null;
+    }
+
+    /**
+     * Hands every waiting stop to an action, buy stops before sell stops, each side in trigger order.
+     */
+    void forEach(Consumer<Order> action) {
+        buyStops.forEach(action);
+        sellStops.forEach(action);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The stop prices of one side, sorted so the next one to trigger is last.
+     */
+    private static final class Ladder {
+        private final OrderType type;
+        private Level[] levels = new Level[8];
+        private int count;
+
+        Ladder(OrderType type) {
+            this.type = type;
+        }
+
+        /**
+         * @return the level of a stop price, created if the price has no stops yet
+         */
+        Level levelFor(long stopPrice) {
+            int index = search(stopPrice);
+            if (index >= 0) return levels[index];
+            index = -(index + 1);
+            if (count == levels.length) {
+                levels = Arrays.copyOf(levels, count * 2);
+            }
+            System.arraycopy(levels, index, levels, index + 1, count - index);
+            Level level = new Level(stopPrice);
+            levels[index] = level;
+            count++;
+            return level;
+        }
+
+        void remove(Level level) {
+            int index = search(level.stopPrice);
+            if (index < 0) return;
+            System.arraycopy(levels, index + 1, levels, index, count - index - 1);
+            levels[--count] = null;
+        }
+
+        /**
+         * @return the level that triggers first, or null if the side has no stops
+         */
+        Level next() {
+            return count == 0 ? null : levels[count - 1];
+        }
+
+        void forEach(Consumer<Order> action) {
+            for (int i = count - 1; i >= 0; i--) {
+                for (Order order = levels[i].head; order != null; order = order.next) action.accept(order);
+            }
+        }
+
+        /**
+         * Binary-searches the ladder for a stop price.
+         *
+         * @return the index of the price's level, or {@code -(insertion point + 1)}
+         */
+        private int search(long stopPrice) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midPrice = levels[mid].stopPrice;
+                if (midPrice == stopPrice) {
+                    return mid;
+                }
+                // buy stops fall towards the end, sell stops rise towards it
+                if (type == OrderType.BUY ? midPrice < stopPrice : midPrice > stopPrice) {
+                    high = mid - 1;
+                }
+                else {
+                    low = mid + 1;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package radu.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns ASCII symbol bytes read from a buffer into shared {@code String} instances.
+ * A symbol seen before is found by hashing its bytes and comparing them in place, so decoding
+ * a known symbol allocates nothing. Other bytes are refused, as they would not decode to the
+ * same characters. Not thread-safe; each decoding thread keeps its own table.
+ */
+public class SymbolTable {
+
+    private String[] table = new String[64];
+    private int size;
+
+    /**
+     * @param buffer the buffer holding the symbol
+     * @param offset absolute index of the first byte
+     * @param length number of bytes
+     * @return the shared string for those bytes
+     * @throws IllegalArgumentException if a byte is not ASCII
+     */
+    public String intern(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(offset + i);
+            if (b < 0) {
+                throw new IllegalArgumentException("Symbol byte " + (b & 0xFF) + " is not ASCII");
+            }
+            hash = 31 * hash + b;
+        }
+        int mask = table.length - 1;
+        int index = mix(hash) & mask;
+        String candidate;
+        while ((candidate = table[index]) != null) {
+            if (matches(candidate, buffer, offset, length)) {
+                return candidate;
+            }
+            index = (index + 1) & mask;
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        String symbol = new String(bytes, StandardCharsets.US_ASCII);
+        table[index] = symbol;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+        return symbol;
+    }
+
+    private static boolean matches(String candidate, ByteBuffer buffer, int offset, int length) {
+        if (candidate.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (candidate.charAt(i) != buffer.get(offset + i)) return false;
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String symbol : old) {
+            if (symbol == null) continue;
+            int index = mix(symbol.hashCode()) & mask;
+            while (table[index] != null) {
+                index = (index + 1) & mask;
+            }
+            table[index] = symbol;
+        }
+    }
+
+    // String.hashCode over ASCII equals the byte hash above, so both paths agree
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
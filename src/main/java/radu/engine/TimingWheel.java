@@ -0,0 +1,183 @@
+package radu.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel that expires orders at their expiry time.
+ *
+ * <p>Time is cut into ticks of a configurable resolution. Level 0 has one slot per tick for the
+ * next {@value #SLOTS} ticks, and every level above covers {@value #SLOTS} times the span of the
+ * one below. An order is linked into the slot that matches its expiry tick through intrusive
+ * links it carries itself, so scheduling and cancelling are O(1) and allocate nothing. When
+ * level 0 wraps around, the due slot of the level above is cascaded down.</p>
+ *
+ * <p>The wheel is not thread-safe. It is meant to be shared by all books owned by one thread
+ * and advanced by that thread, so expiry runs in batches between commands and never contends
+ * with matching.</p>
+ */
+public class TimingWheel {
+
+    static final int SLOT_BITS = 6;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 6;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long resolutionNanos;
+    private final Consumer<Order> onExpired;
+    private final Order[] slots = new Order[LEVELS * SLOTS];
+    private long nextTick;
+    private int size;
+
+    /**
+     * @param resolutionNanos length of one tick; orders expire at most one tick late
+     * @param startNanos      current time in epoch nanos
+     * @param onExpired       called on the advancing thread for every order that expires
+     */
+    public TimingWheel(long resolutionNanos, long startNanos, Consumer<Order> onExpired) {
+        if (resolutionNanos <= 0) {
+            throw new IllegalArgumentException("Invalid resolution: " + resolutionNanos);
+        }
+        this.resolutionNanos = resolutionNanos;
+        this.onExpired = onExpired;
+        this.nextTick = startNanos / resolutionNanos;
+    }
+
+    /**
+     * Schedules an order to expire at its expiry time, rescheduling it if it already was.
+     * Orders that are already past their expiry go out on the next advance.
+     *
+     * @param order the order to schedule
+     */
+    public void schedule(Order order) {
+        cancel(order);
+        long expiryTick = order.getExpiry() / resolutionNanos;
+        if (expiryTick * resolutionNanos < order.getExpiry()) {
+            expiryTick++;
+        }
+        place(order, Math.max(expiryTick, nextTick));
+        size++;
+    }
+
+    /**
+     * Removes an order from the wheel.
+     *
+     * @param order the order to remove
+     * @return true if the order was scheduled
+     */
+    public boolean cancel(Order order) {
+        int slot = order.timerSlot;
+        if (slot < 0) return false;
+
+        if (order.timerPrev != null) order.timerPrev.timerNext = order.timerNext;
+        else slots[slot] = order.timerNext;
+        if (order.timerNext != null) order.timerNext.timerPrev = order.timerPrev;
+
+        order.timerPrev = null;
+        order.timerNext = null;
+        order.timerSlot = -1;
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to the given time and hands the orders that expired to the callback.
+     *
+     * @param nowNanos current time in epoch nanos
+     * @return the number of orders that expired
+     */
+    public int advance(long nowNanos) {
+        long nowTick = nowNanos / resolutionNanos;
+        int expired = 0;
+        while (nextTick <= nowTick) {
+            if (size == 0) {
+                nextTick = nowTick + 1;
+                break;
+            }
+            long tick = nextTick;
+            if ((tick & SLOT_MASK) == 0) {
+                cascade(tick);
+            }
+            nextTick = tick + 1;
+
+            int slot = (int) (tick & SLOT_MASK);
+            Order order;
+            while ((order = slots[slot]) != null) {
+                cancel(order);
+                if (order.getExpiry() > nowNanos) {
+                    // clamped beyond the wheel's range, or rounded up into this tick early
+                    schedule(order);
+                    continue;
+                }
+                onExpired.accept(order);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Moves the wheel's clock to the given time. Only allowed while nothing is scheduled;
+     * recovery uses it to run the wheel on the recorded time of the commands it replays.
+     *
+     * @param nowNanos the new current time in epoch nanos
+     */
+    public void reset(long nowNanos) {
+        if (size != 0) {
+            throw new IllegalStateException("Cannot reset a wheel with " + size + " scheduled orders");
+        }
+        nextTick = nowNanos / resolutionNanos;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getResolutionNanos() {
+        return resolutionNanos;
+    }
+
+    /**
+     * Moves the orders of every higher-level slot that becomes due at this tick one level down.
+     * Higher levels go first so nothing they release lands in a slot that was already emptied.
+     */
+    private void cascade(long tick) {
+        int top = 1;
+        while (top < LEVELS - 1 && ((tick >>> (SLOT_BITS * top)) & SLOT_MASK) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            int slot = level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Order order = slots[slot];
+            slots[slot] = null;
+            while (order != null) {
+                Order next = order.timerNext;
+                order.timerPrev = null;
+                order.timerNext = null;
+                long expiryTick = Math.max(order.timerTick, tick);
+                place(order, expiryTick);
+                order = next;
+            }
+        }
+    }
+
+    private void place(Order order, long expiryTick) {
+        long delta = expiryTick - nextTick;
+        if (delta > MAX_DELTA) {
+            delta = MAX_DELTA;
+            expiryTick = nextTick + MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = level * SLOTS + (int) ((expiryTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        order.timerTick = expiryTick;
+        order.timerSlot = slot;
+        order.timerPrev = null;
+        order.timerNext = slots[slot];
+        if (order.timerNext != null) order.timerNext.timerPrev = order;
+        slots[slot] = order;
+    }
+}
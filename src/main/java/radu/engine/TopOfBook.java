@@ -0,0 +1,102 @@
+package radu.engine;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The best bid and offer of one order book, published for readers on other threads.
+ *
+ * <p>The book's own thread is the only writer. It updates the quote under a sequence lock: the
+ * version is made odd, the fields are written and the version is made even again, with fences
+ * in between, so an update is a handful of plain stores and never waits for a reader. A reader
+ * copies the fields and retries if the version was odd or changed while it copied, so it always
+ * gets a consistent quote without locking, allocating on the writer's side or slowing matching.</p>
+ */
+public class TopOfBook {
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(TopOfBook.class, "version", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String symbol;
+    private long version;
+    private long bidPrice;
+    private long bidQuantity;
+    private int bidOrderCount;
+    private long askPrice;
+    private long askQuantity;
+    private int askOrderCount;
+
+    public TopOfBook(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Publishes the best level of one side if it differs from the quote. Called by the owning thread only.
+     *
+     * @param side the side whose best level may have changed
+     * @param best the best level of that side, or null if it is empty
+     */
+    void update(OrderType side, PriceLevel best) {
+        long price = best == null ? 0 : best.getPrice();
+        long quantity = best == null ? 0 : best.getTotalQuantity();
+        int orderCount = best == null ? 0 : best.getOrderCount();
+        if (side == OrderType.BUY) {
+            if (price == bidPrice && quantity == bidQuantity && orderCount == bidOrderCount) return;
+        }
+        else if (price == askPrice && quantity == askQuantity && orderCount == askOrderCount) {
+            return;
+        }
+
+        long v = version;
+        VERSION.setOpaque(this, v + 1);
+        VarHandle.storeStoreFence();
+        if (side == OrderType.BUY) {
+            bidPrice = price;
+            bidQuantity = quantity;
+            bidOrderCount = orderCount;
+        }
+        else {
+            askPrice = price;
+            askQuantity = quantity;
+            askOrderCount = orderCount;
+        }
+        VERSION.setRelease(this, v + 2);
+    }
+
+    /**
+     * Reads the current quote. Safe from any thread and lock-free; it only spins for the few
+     * nanoseconds an update is in progress.
+     *
+     * @return a consistent copy of the best bid and offer
+     */
+    public Quote get() {
+        while (true) {
+            long v = (long) VERSION.getAcquire(this);
+            if ((v & 1) == 0) {
+                long bp = bidPrice;
+                long bq = bidQuantity;
+                int bc = bidOrderCount;
+                long ap = askPrice;
+                long aq = askQuantity;
+                int ac = askOrderCount;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(this) == v) {
+                    return new Quote(symbol, v >>> 1, bp, bq, bc, ap, aq, ac);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+}
@@ -1,34 +1,46 @@
 package radu.engine;
 
-import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Represents a trade executed between a buy order and a sell order.
- * Stores the IDs of the involved orders, the trade price, quantity, and timestamp.
+ * Stores the IDs of the involved orders, the trade price in ticks, quantity, and timestamp.
  */
 public class Trade {
 
     private final long buyOrderId;
     private final long sellOrderId;
-    private final double price;
+    private final long price;
     private final int quantity;
-    private final Instant timestamp;
+    private final long timestamp;
 
     /**
      * Constructs a Trade object with the given details.
      *
      * @param buyOrderId  ID of the buy order
      * @param sellOrderId ID of the sell order
-     * @param price       execution price
+     * @param price       execution price in ticks
      * @param quantity    quantity traded
      */
-    public Trade(long buyOrderId, long sellOrderId, double price, int quantity) {
+    public Trade(long buyOrderId, long sellOrderId, long price, int quantity) {
+        this(buyOrderId, sellOrderId, price, quantity, EngineClock.epochNanos());
+    }
+
+    /**
+     * Constructs a Trade object with the given details and execution time.
+     *
+     * @param buyOrderId  ID of the buy order
+     * @param sellOrderId ID of the sell order
+     * @param price       execution price in ticks
+     * @param quantity    quantity traded
+     * @param timestamp   execution time in epoch nanos
+     */
+    public Trade(long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
         this.buyOrderId = buyOrderId;
         this.sellOrderId = sellOrderId;
         this.price = price;
         this.quantity = quantity;
-        this.timestamp = Instant.now();
+        this.timestamp = timestamp;
     }
 
     /**
@@ -46,9 +58,9 @@ public class Trade {
     }
 
     /**
-     * @return the price at which the trade was executed
+     * @return the price in ticks at which the trade was executed
      */
-    public double getPrice() {
+    public long getPrice() {
         return price;
     }
 
@@ -60,9 +72,9 @@ public class Trade {
     }
 
     /**
-     * @return the timestamp of the trade
+     * @return the timestamp of the trade in nanoseconds since the epoch
      */
-    public Instant getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
 
@@ -75,12 +87,12 @@ public class Trade {
     @Override
     public String toString() {
         return String.format(
-                "Trade[BUY#%d, SELL#%d, Qty=%d @ %.2f, Time=%s]",
+                "Trade[BUY#%d, SELL#%d, Qty=%d @ %d ticks, Time=%s]",
                 buyOrderId,
                 sellOrderId,
                 quantity,
                 price,
-                DateTimeFormatter.ISO_INSTANT.format(timestamp)
+                DateTimeFormatter.ISO_INSTANT.format(EngineClock.toInstant(timestamp))
         );
     }
 }
@@ -0,0 +1,73 @@
+package radu.engine;
+
+/**
+ * A trade as it travels through a {@link TradeStream}. Events are preallocated slots of the
+ * stream's ring buffer and are overwritten for every trade, so subscribers must copy what they
+ * need before returning and never keep a reference to the event.
+ */
+public class TradeEvent {
+
+    private String symbol;
+    private long buyOrderId;
+    private long sellOrderId;
+    private long price;
+    private int quantity;
+    private long timestamp;
+
+    void set(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        this.symbol = symbol;
+        this.buyOrderId = buyOrderId;
+        this.sellOrderId = sellOrderId;
+        this.price = price;
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public long getBuyOrderId() {
+        return buyOrderId;
+    }
+
+    public long getSellOrderId() {
+        return sellOrderId;
+    }
+
+    /**
+     * @return the execution price in ticks
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return the execution time in epoch nanos
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return a copy of the event that may be retained
+     */
+    public Trade toTrade() {
+        return new Trade(buyOrderId, sellOrderId, price, quantity, timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "TradeEvent{" +
+                "symbol=" + symbol +
+                ", buyOrderId=" + buyOrderId +
+                ", sellOrderId=" + sellOrderId +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -0,0 +1,19 @@
+package radu.engine;
+
+/**
+ * Receives every trade an order book executes, on the thread that owns the book.
+ * Trade details are passed as primitives so reporting a trade allocates nothing.
+ */
+@FunctionalInterface
+public interface TradeListener {
+
+    /**
+     * @param symbol      the symbol traded
+     * @param buyOrderId  ID of the buy order
+     * @param sellOrderId ID of the sell order
+     * @param price       execution price in ticks
+     * @param quantity    quantity traded
+     * @param timestamp   execution time in epoch nanos
+     */
+    void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp);
+}
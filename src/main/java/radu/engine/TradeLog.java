@@ -0,0 +1,26 @@
+package radu.engine;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import radu.pipeline.EventHandler;
+
+/**
+ * Trade stream subscriber that prints every trade to the console, off the matching threads.
+ * Enabled with {@code matching.trades.log=true}, for debugging only: the trade stream waits for
+ * its slowest subscriber, so once the ring is full matching runs no faster than the console.
+ */
+@Component
+@ConditionalOnProperty(name = "matching.trades.log", havingValue = "true")
+public class TradeLog implements EventHandler<TradeEvent> {
+
+    private final StringBuilder line = new StringBuilder(128);
+
+    @Override
+    public void onEvent(TradeEvent event, long sequence, boolean endOfBatch) {
+        line.setLength(0);
+        line.append("Matched order: BUY ").append(event.getQuantity()).append(" @ ").append(event.getPrice())
+                .append(" between com.engine.Order#").append(event.getBuyOrderId())
+                .append(" and com.engine.Order#").append(event.getSellOrderId());
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,112 @@
+package radu.engine;
+
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.EventHandler;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+import radu.pipeline.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans trades out from the matching threads to any number of subscribers.
+ *
+ * <p>Trades are written into the preallocated {@link TradeEvent} slots of a bounded ring buffer,
+ * so publishing one allocates nothing and never retains it. Every subscriber runs on its own
+ * thread and sees every trade in publication order. A subscriber that falls a whole ring behind
+ * holds back the matching threads, so a slow consumer applies backpressure instead of making
+ * the stream grow without bound.</p>
+ *
+ * <p>Subscribers must be added before {@link #start()}. Publishing is safe from several threads.</p>
+ */
+public class TradeStream implements TradeListener, AutoCloseable {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final RingBuffer<TradeEvent> ringBuffer;
+    private final List<BatchEventProcessor<TradeEvent>> processors = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private boolean started;
+
+    /**
+     * @param bufferSize   number of trade slots, a power of two
+     * @param waitStrategy how idle subscriber threads wait for trades
+     */
+    public TradeStream(int bufferSize, WaitStrategy waitStrategy) {
+        this.ringBuffer = new RingBuffer<>(bufferSize, TradeEvent::new, waitStrategy);
+    }
+
+    /**
+     * Adds a subscriber that will run on its own thread.
+     *
+     * @param name    name of the subscriber, used for its thread
+     * @param handler receives every trade
+     */
+    public void subscribe(String name, EventHandler<TradeEvent> handler) {
+        if (started) {
+            throw new IllegalStateException("Subscribers must be added before the stream starts");
+        }
+        BatchEventProcessor<TradeEvent> processor = new BatchEventProcessor<>(ringBuffer, handler);
+        Thread thread = new Thread(processor, "trades-" + name);
+        thread.setDaemon(true);
+        processors.add(processor);
+        threads.add(thread);
+    }
+
+    public void start() {
+        started = true;
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    @Override
+    public void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        if (processors.isEmpty()) return;
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).set(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * @return the sequence of the last trade published
+     */
+    public long getCursor() {
+        return ringBuffer.getCursor();
+    }
+
+    public int getSubscriberCount() {
+        return processors.size();
+    }
+
+    /**
+     * Gives the subscribers a few seconds to handle the trades already published, then stops them.
+     */
+    @Override
+    public void close() {
+        long published = ringBuffer.getCursor();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        for (BatchEventProcessor<TradeEvent> processor : processors) {
+            Sequence handled = processor.getSequence();
+            while (handled.get() < published && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            processor.halt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(DRAIN_TIMEOUT_NANOS));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package radu.gateway;
+
+/**
+ * What an execution report tells the client about one of its orders.
+ */
+public enum ExecType {
+    /** The order was accepted; any fills it got on arrival follow as FILL reports. */
+    NEW(1),
+    /** The message was invalid and nothing was submitted. */
+    REJECTED(2),
+    /** The order left the book, through the session's own cancel or one from outside the gateway. */
+    CANCELED(3),
+    /** The order was not found, e.g. because it was filled or expired. */
+    CANCEL_REJECTED(4),
+    AMENDED(5),
+    AMEND_REJECTED(6),
+    /** Part or all of the order traded; quantity is the fill and leaves what is still open. */
+    FILL(7),
+    /** The order's expiry time passed and it left the book. */
+    EXPIRED(8);
+
+    private static final ExecType[] BY_CODE = new ExecType[9];
+
+    static {
+        for (ExecType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    ExecType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    public static ExecType fromCode(byte code) {
+        if (code <= 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+            throw new IllegalArgumentException("Unknown exec type: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,385 @@
+package radu.gateway;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import radu.engine.CommandType;
+import radu.engine.EngineClock;
+import radu.engine.EngineCommand;
+import radu.engine.LongIndex;
+import radu.engine.RemovalListener;
+import radu.engine.TimeInForce;
+import radu.engine.TradeListener;
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.EventHandler;
+import radu.pipeline.ParkingWaitStrategy;
+import radu.pipeline.RingBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Produces the execution reports of gateway orders and writes them to their sessions.
+ *
+ * <p>Everything that affects a gateway order goes through one ring: the session announces a new
+ * order or an amend before submitting it, the shard threads publish command results and the fills they
+ * execute, and a single writer thread keeps the state of every open order, encodes the reports
+ * into the session buffers and flushes them once per batch. A shard publishes the fills of a
+ * command before its result, so a client always sees NEW, then FILLs, then the end of an
+ * IOC or FOK order, in that order.</p>
+ *
+ * <p>Fills arrive as a {@link TradeListener} called on the shard threads, and cancels and expiries
+ * as a {@link RemovalListener}, so an order cancelled from outside the gateway, or one that
+ * expires, is reported and forgotten as well. Events of orders that did not come through the
+ * gateway are ignored by the writer.</p>
+ *
+ * <p>The writer keeps its open orders in a {@link LongIndex} and recycles their entries, so
+ * following an order allocates nothing once the writer has seen as many open orders at once.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "matching.gateway.enabled", havingValue = "true")
+public class ExecutionReports implements TradeListener, RemovalListener, AutoCloseable {
+
+    private final RingBuffer<ReportEvent> ringBuffer;
+    private final BatchEventProcessor<ReportEvent> processor;
+    private final Thread thread;
+
+    public ExecutionReports(@Value("${matching.gateway.report-ring-size:65536}") int ringSize) {
+        this.ringBuffer = new RingBuffer<>(ringSize, ReportEvent::new, new ParkingWaitStrategy());
+        this.processor = new BatchEventProcessor<>(ringBuffer, new Writer());
+        this.thread = new Thread(processor, "gateway-reports");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Announces a new order of a session. Must be published before the order's command.
+     */
+    void track(GatewaySession session, long clientOrderId, long orderId, long price, int quantity, TimeInForce tif) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = ReportEvent.Kind.TRACK;
+            event.session = session;
+            event.clientOrderId = clientOrderId;
+            event.orderId = orderId;
+            event.price = price;
+            event.quantity = quantity;
+            event.tif = tif;
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Announces a cancel or amend of an open order. Must be published before its command, as
+     * the order may trade or leave the book before the command's result is reported.
+     */
+    void pending(GatewaySession session, long orderId, CommandType commandType) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = ReportEvent.Kind.PENDING;
+            event.session = session;
+            event.orderId = orderId;
+            event.commandType = commandType;
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Reports the outcome of a session's command. Called on the shard thread.
+     */
+    void result(GatewaySession session, EngineCommand command, boolean success) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = ReportEvent.Kind.RESULT;
+            event.session = session;
+            event.commandType = command.getType();
+            event.success = success;
+            event.clientOrderId = command.getCorrelationId();
+            event.orderId = command.getOrderId();
+            event.price = command.getPrice();
+            event.quantity = command.getQuantity();
+            event.leaves = command.getLeavesQuantity();
+            event.timestamp = command.getTimestamp();
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Rejects a message that could not be submitted.
+     */
+    void reject(GatewaySession session, long clientOrderId, long orderId) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = ReportEvent.Kind.REJECT;
+            event.session = session;
+            event.clientOrderId = clientOrderId;
+            event.orderId = orderId;
+            event.timestamp = EngineClock.epochNanos();
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Tells the writer that a session is gone.
+     */
+    void closed(GatewaySession session) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = ReportEvent.Kind.CLOSED;
+            event.session = session;
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    @Override
+    public void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        long hi = ringBuffer.next(2);
+        long lo = hi - 1;
+        try {
+            fill(ringBuffer.get(lo), buyOrderId, price, quantity, timestamp);
+            fill(ringBuffer.get(hi), sellOrderId, price, quantity, timestamp);
+        }
+        finally {
+            ringBuffer.publish(lo, hi);
+        }
+    }
+
+    @Override
+    public void onOrderRemoved(String symbol, long orderId, boolean expired, long timestamp) {
+        long sequence = ringBuffer.next();
+        try {
+            ReportEvent event = ringBuffer.get(sequence);
+            event.kind = expired ? ReportEvent.Kind.EXPIRED : ReportEvent.Kind.CANCELED;
+            event.orderId = orderId;
+            event.timestamp = timestamp;
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    private static void fill(ReportEvent event, long orderId, long price, int quantity, long timestamp) {
+        event.kind = ReportEvent.Kind.FILL;
+        event.orderId = orderId;
+        event.price = price;
+        event.quantity = quantity;
+        event.timestamp = timestamp;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        processor.halt();
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * State of an open gateway order, only touched by the writer thread. Entries are reused for
+     * later orders once their order is done.
+     */
+    private static final class OpenOrder {
+        GatewaySession session;
+        long clientOrderId;
+        TimeInForce tif;
+        long price;
+        int leaves;
+        // cancels and amends submitted and not yet reported; an amend's fills arrive before its result
+        int amending;
+        int cancelling;
+        boolean newSent;
+        boolean accepted;
+
+        void init(GatewaySession session, long clientOrderId, long price, int leaves, TimeInForce tif) {
+            this.session = session;
+            this.clientOrderId = clientOrderId;
+            this.price = price;
+            this.leaves = leaves;
+            this.tif = tif;
+            this.amending = 0;
+            this.cancelling = 0;
+            this.newSent = false;
+            this.accepted = false;
+        }
+    }
+
+    private static final class Writer implements EventHandler<ReportEvent> {
+
+        private final LongIndex<OpenOrder> orders = new LongIndex<>(1024);
+        private final List<OpenOrder> free = new ArrayList<>();
+        private final List<GatewaySession> dirty = new ArrayList<>();
+
+        @Override
+        public void onEvent(ReportEvent event, long sequence, boolean endOfBatch) {
+            switch (event.kind) {
+                case TRACK:
+                    OpenOrder tracked = free.isEmpty() ? new OpenOrder() : free.remove(free.size() - 1);
+                    tracked.init(event.session, event.clientOrderId, event.price, event.quantity, event.tif);
+                    orders.put(event.orderId, tracked);
+                    break;
+                case PENDING:
+                    onPending(event);
+                    break;
+                case FILL:
+                    onFill(event);
+                    break;
+                case CANCELED:
+                    onCanceled(event);
+                    break;
+                case EXPIRED:
+                    OpenOrder expired = orders.get(event.orderId);
+                    if (expired == null) break;
+                    send(expired.session, expired.clientOrderId, event.orderId, ExecType.EXPIRED, expired.price, 0, 0, event.timestamp);
+                    done(event.orderId);
+                    break;
+                case RESULT:
+                    onResult(event);
+                    break;
+                case REJECT:
+                    send(event.session, event.clientOrderId, event.orderId, ExecType.REJECTED, 0, 0, 0, event.timestamp);
+                    break;
+                case CLOSED:
+                    forget(event.session);
+                    break;
+                default:
+                    break;
+            }
+            event.clear();
+            if (endOfBatch) {
+                for (int i = 0; i < dirty.size(); i++) {
+                    GatewaySession session = dirty.get(i);
+                    session.flush();
+                    if (!session.isOpen()) {
+                        forget(session);
+                    }
+                }
+                dirty.clear();
+            }
+        }
+
+        private void onPending(ReportEvent event) {
+            OpenOrder order = orders.get(event.orderId);
+            if (order == null || order.session != event.session) return;
+            if (event.commandType == CommandType.AMEND) order.amending++;
+            else order.cancelling++;
+        }
+
+        private void onCanceled(ReportEvent event) {
+            OpenOrder order = orders.get(event.orderId);
+            if (order == null) return;
+            // the session's own cancel is answered with its result; anyone else's is reported here
+            if (order.cancelling == 0) {
+                send(order.session, order.clientOrderId, event.orderId, ExecType.CANCELED, order.price, 0, 0, event.timestamp);
+            }
+            done(event.orderId);
+        }
+
+        private void onFill(ReportEvent event) {
+            OpenOrder order = orders.get(event.orderId);
+            if (order == null) return;
+            sendNew(event.orderId, order, event.timestamp);
+            // until an amend that trades is reported, its fills are counted against the old quantity
+            order.leaves = Math.max(0, order.leaves - event.quantity);
+            send(order.session, order.clientOrderId, event.orderId, ExecType.FILL, event.price, event.quantity, order.leaves, event.timestamp);
+            if (order.leaves == 0 && order.accepted && order.amending == 0) {
+                done(event.orderId);
+            }
+        }
+
+        private void onResult(ReportEvent event) {
+            long orderId = event.orderId;
+            OpenOrder order = orders.get(orderId);
+            switch (event.commandType) {
+                case ADD:
+                    if (order == null) return;
+                    if (!event.success) {
+                        done(orderId);
+                        send(order.session, order.clientOrderId, orderId, ExecType.REJECTED, order.price, 0, 0, event.timestamp);
+                        return;
+                    }
+                    sendNew(orderId, order, event.timestamp);
+                    order.accepted = true;
+                    if (order.tif != TimeInForce.GTC && order.leaves > 0) {
+                        // the unfilled rest of an IOC or FOK order does not rest
+                        send(order.session, order.clientOrderId, orderId, ExecType.CANCELED, order.price, 0, 0, event.timestamp);
+                        order.leaves = 0;
+                    }
+                    if (order.leaves == 0) {
+                        done(orderId);
+                    }
+                    break;
+                case CANCEL:
+                    if (order != null && order.session == event.session) {
+                        order.cancelling--;
+                    }
+                    send(event.session, event.clientOrderId, orderId, event.success ? ExecType.CANCELED : ExecType.CANCEL_REJECTED,
+                            0, 0, 0, event.timestamp);
+                    break;
+                case AMEND:
+                    if (order != null && order.session == event.session) {
+                        order.amending--;
+                        if (event.success) {
+                            order.price = event.price;
+                            order.leaves = event.leaves;
+                        }
+                        if (order.leaves == 0 && order.amending == 0) {
+                            done(orderId);
+                        }
+                    }
+                    send(event.session, event.clientOrderId, orderId, event.success ? ExecType.AMENDED : ExecType.AMEND_REJECTED,
+                            event.price, event.quantity, event.success ? event.leaves : 0, event.timestamp);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void done(long orderId) {
+            OpenOrder order = orders.remove(orderId);
+            if (order != null) {
+                order.session = null;
+                free.add(order);
+            }
+        }
+
+        private void sendNew(long orderId, OpenOrder order, long timestamp) {
+            if (order.newSent) return;
+            order.newSent = true;
+            send(order.session, order.clientOrderId, orderId, ExecType.NEW, order.price, order.leaves, order.leaves, timestamp);
+        }
+
+        private void send(GatewaySession session, long clientOrderId, long orderId, ExecType execType, long price,
+                          int quantity, int leaves, long timestamp) {
+            if (!session.isOpen()) return;
+            if (!session.isDirty()) {
+                session.setDirty(true);
+                dirty.add(session);
+            }
+            session.writeReport(clientOrderId, orderId, execType, price, quantity, leaves, timestamp);
+        }
+
+        private void forget(GatewaySession session) {
+            orders.removeIf(order -> order.session == session);
+        }
+    }
+}
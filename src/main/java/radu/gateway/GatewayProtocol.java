@@ -0,0 +1,211 @@
+package radu.gateway;
+
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-layout binary messages of the order entry gateway. Every field sits at a fixed offset,
+ * so messages are read and written in place with absolute gets and puts and never parsed.
+ *
+ * <pre>
+ * header (all messages):  short length (whole message), short templateId
+ *
+ * NEW_ORDER (1)           long clientOrderId, byte side, byte tif, char[8] symbol,
+ *                         long price (ticks), int quantity, long expiry (epoch nanos, 0 = default)
+ * CANCEL (2)              long clientOrderId, long orderId, char[8] symbol
+ * AMEND (3)               long clientOrderId, long orderId, char[8] symbol, long price, int quantity
+ * EXECUTION_REPORT (101)  long clientOrderId, long orderId, byte execType, long price,
+ *                         int quantity, int leavesQuantity, long timestamp (epoch nanos)
+ * </pre>
+ *
+ * Integers are little-endian. Symbols are ASCII, padded with zeros. Sides are 1 = buy, 2 = sell
+ * and times in force 1 = GTC, 2 = IOC, 3 = FOK.
+ */
+public final class GatewayProtocol {
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final int HEADER_LENGTH = 4;
+    public static final int SYMBOL_LENGTH = 8;
+
+    public static final short NEW_ORDER = 1;
+    public static final short CANCEL = 2;
+    public static final short AMEND = 3;
+    public static final short EXECUTION_REPORT = 101;
+
+    public static final int NEW_ORDER_LENGTH = 42;
+    public static final int CANCEL_LENGTH = 28;
+    public static final int AMEND_LENGTH = 40;
+    public static final int EXECUTION_REPORT_LENGTH = 45;
+    public static final int MAX_MESSAGE_LENGTH = EXECUTION_REPORT_LENGTH;
+
+    // offsets from the start of a message
+    static final int LENGTH = 0;
+    static final int TEMPLATE_ID = 2;
+    static final int CLIENT_ORDER_ID = 4;
+    static final int NEW_SIDE = 12;
+    static final int NEW_TIF = 13;
+    static final int NEW_SYMBOL = 14;
+    static final int NEW_PRICE = 22;
+    static final int NEW_QUANTITY = 30;
+    static final int NEW_EXPIRY = 34;
+    static final int ORDER_ID = 12;
+    static final int ORDER_SYMBOL = 20;
+    static final int AMEND_PRICE = 28;
+    static final int AMEND_QUANTITY = 36;
+    static final int REPORT_ORDER_ID = 12;
+    static final int REPORT_EXEC_TYPE = 20;
+    static final int REPORT_PRICE = 21;
+    static final int REPORT_QUANTITY = 29;
+    static final int REPORT_LEAVES = 33;
+    static final int REPORT_TIMESTAMP = 37;
+
+    private static final OrderType[] SIDES = {null, OrderType.BUY, OrderType.SELL};
+    private static final TimeInForce[] TIFS = {null, TimeInForce.GTC, TimeInForce.IOC, TimeInForce.FOK};
+
+    private GatewayProtocol() {
+    }
+
+    /**
+     * @param code the wire code
+     * @return the side, or null for an invalid code
+     */
+    static OrderType side(byte code) {
+        return code > 0 && code < SIDES.length ? SIDES[code] : null;
+    }
+
+    static byte sideCode(OrderType side) {
+        return (byte) (side.ordinal() + 1);
+    }
+
+    /**
+     * @param code the wire code
+     * @return the time in force, or null for an invalid code
+     */
+    static TimeInForce tif(byte code) {
+        return code > 0 && code < TIFS.length ? TIFS[code] : null;
+    }
+
+    static byte tifCode(TimeInForce tif) {
+        return (byte) (tif.ordinal() + 1);
+    }
+
+    /**
+     * Writes a NEW_ORDER message at the buffer's position and advances it.
+     */
+    public static void putNewOrder(ByteBuffer buffer, long clientOrderId, OrderType side, TimeInForce tif, String symbol,
+                                   long price, int quantity, long expiry) {
+        int start = putHeader(buffer, NEW_ORDER_LENGTH, NEW_ORDER);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+        buffer.put(start + NEW_SIDE, sideCode(side));
+        buffer.put(start + NEW_TIF, tifCode(tif));
+        putSymbol(buffer, start + NEW_SYMBOL, symbol);
+        buffer.putLong(start + NEW_PRICE, price);
+        buffer.putInt(start + NEW_QUANTITY, quantity);
+        buffer.putLong(start + NEW_EXPIRY, expiry);
+        buffer.position(start + NEW_ORDER_LENGTH);
+    }
+
+    /**
+     * Writes a CANCEL message at the buffer's position and advances it.
+     */
+    public static void putCancel(ByteBuffer buffer, long clientOrderId, long orderId, String symbol) {
+        int start = putHeader(buffer, CANCEL_LENGTH, CANCEL);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+        buffer.putLong(start + ORDER_ID, orderId);
+        putSymbol(buffer, start + ORDER_SYMBOL, symbol);
+        buffer.position(start + CANCEL_LENGTH);
+    }
+
+    /**
+     * Writes an AMEND message at the buffer's position and advances it.
+     */
+    public static void putAmend(ByteBuffer buffer, long clientOrderId, long orderId, String symbol, long price, int quantity) {
+        int start = putHeader(buffer, AMEND_LENGTH, AMEND);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+        buffer.putLong(start + ORDER_ID, orderId);
+        putSymbol(buffer, start + ORDER_SYMBOL, symbol);
+        buffer.putLong(start + AMEND_PRICE, price);
+        buffer.putInt(start + AMEND_QUANTITY, quantity);
+        buffer.position(start + AMEND_LENGTH);
+    }
+
+    /**
+     * Writes an EXECUTION_REPORT message at the buffer's position and advances it.
+     */
+    static void putExecutionReport(ByteBuffer buffer, long clientOrderId, long orderId, ExecType execType, long price,
+                                   int quantity, int leavesQuantity, long timestamp) {
+        int start = putHeader(buffer, EXECUTION_REPORT_LENGTH, EXECUTION_REPORT);
+        buffer.putLong(start + CLIENT_ORDER_ID, clientOrderId);
+        buffer.putLong(start + REPORT_ORDER_ID, orderId);
+        buffer.put(start + REPORT_EXEC_TYPE, execType.code());
+        buffer.putLong(start + REPORT_PRICE, price);
+        buffer.putInt(start + REPORT_QUANTITY, quantity);
+        buffer.putInt(start + REPORT_LEAVES, leavesQuantity);
+        buffer.putLong(start + REPORT_TIMESTAMP, timestamp);
+        buffer.position(start + EXECUTION_REPORT_LENGTH);
+    }
+
+    public static long reportClientOrderId(ByteBuffer buffer, int start) {
+        return buffer.getLong(start + CLIENT_ORDER_ID);
+    }
+
+    public static long reportOrderId(ByteBuffer buffer, int start) {
+        return buffer.getLong(start + REPORT_ORDER_ID);
+    }
+
+    public static ExecType reportExecType(ByteBuffer buffer, int start) {
+        return ExecType.fromCode(buffer.get(start + REPORT_EXEC_TYPE));
+    }
+
+    public static long reportPrice(ByteBuffer buffer, int start) {
+        return buffer.getLong(start + REPORT_PRICE);
+    }
+
+    public static int reportQuantity(ByteBuffer buffer, int start) {
+        return buffer.getInt(start + REPORT_QUANTITY);
+    }
+
+    public static int reportLeavesQuantity(ByteBuffer buffer, int start) {
+        return buffer.getInt(start + REPORT_LEAVES);
+    }
+
+    private static int putHeader(ByteBuffer buffer, int length, short templateId) {
+        int start = buffer.position();
+        buffer.putShort(start + LENGTH, (short) length);
+        buffer.putShort(start + TEMPLATE_ID, templateId);
+        return start;
+    }
+
+    private static void putSymbol(ByteBuffer buffer, int offset, String symbol) {
+        if (symbol.length() > SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Symbol longer than " + SYMBOL_LENGTH + " characters: " + symbol);
+        }
+        for (int i = 0; i < SYMBOL_LENGTH; i++) {
+            buffer.put(offset + i, i < symbol.length() ? (byte) symbol.charAt(i) : 0);
+        }
+    }
+
+    /**
+     * @return the length of the zero-padded symbol at the offset
+     */
+    static int symbolLength(ByteBuffer buffer, int offset) {
+        int length = 0;
+        while (length < SYMBOL_LENGTH && buffer.get(offset + length) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return true if every byte of the symbol at the offset is ASCII
+     */
+    static boolean isAscii(ByteBuffer buffer, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) < 0) return false;
+        }
+        return true;
+    }
+}
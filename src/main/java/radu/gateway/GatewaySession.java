@@ -0,0 +1,312 @@
+package radu.gateway;
+
+import radu.engine.CommandListener;
+import radu.engine.CommandType;
+import radu.engine.EngineClock;
+import radu.engine.EngineCommand;
+import radu.engine.EngineShard;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.SymbolTable;
+import radu.engine.TimeInForce;
+import radu.metrics.LatencyMetrics;
+import radu.metrics.LatencyStage;
+import radu.pipeline.RingBuffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One client connection of the {@link OrderGateway}.
+ *
+ * <p>Inbound messages are decoded in place from the session's receive buffer straight into the
+ * command slots of the shard that owns the symbol; the only object created per new order is
+ * the book's own {@code Order}, on the shard thread. Execution reports are encoded into the
+ * send buffer by the {@link ExecutionReports} writer thread, which is the only thread that
+ * touches it.</p>
+ */
+class GatewaySession implements CommandListener {
+
+    private static final Logger logger = Logger.getLogger(GatewaySession.class.getName());
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final SocketChannel channel;
+    private final ShardedMatchingEngine engine;
+    private final ExecutionReports reports;
+    private final LatencyMetrics latencyMetrics;
+    private final SymbolTable symbols = new SymbolTable();
+    private final ByteBuffer inbound = ByteBuffer.allocateDirect(BUFFER_SIZE).order(GatewayProtocol.BYTE_ORDER);
+    private final ByteBuffer outbound = ByteBuffer.allocateDirect(BUFFER_SIZE).order(GatewayProtocol.BYTE_ORDER);
+    private volatile boolean open = true;
+    private boolean dirty;
+    // when decoding of the current message started, if decoding is timed
+    private long decodeStart;
+
+    GatewaySession(SocketChannel channel, ShardedMatchingEngine engine, ExecutionReports reports) {
+        this(channel, engine, reports, null);
+    }
+
+    GatewaySession(SocketChannel channel, ShardedMatchingEngine engine, ExecutionReports reports,
+                   LatencyMetrics latencyMetrics) {
+        this.channel = channel;
+        this.engine = engine;
+        this.reports = reports;
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    /**
+     * Reads what the client sent and submits every complete message. Called on the IO thread.
+     *
+     * @return false once the session is closed
+     */
+    boolean onReadable() {
+        try {
+            if (channel.read(inbound) < 0) {
+                close();
+                return false;
+            }
+        }
+        catch (IOException e) {
+            close();
+            return false;
+        }
+
+        inbound.flip();
+        while (inbound.remaining() >= GatewayProtocol.HEADER_LENGTH) {
+            int start = inbound.position();
+            int length = inbound.getShort(start + GatewayProtocol.LENGTH);
+            if (length < GatewayProtocol.HEADER_LENGTH || length > BUFFER_SIZE) {
+                logger.warning("Closing gateway session " + this + ": invalid message length " + length);
+                close();
+                return false;
+            }
+            if (inbound.remaining() < length) break;
+            if (!onMessage(start, length)) {
+                close();
+                return false;
+            }
+            inbound.position(start + length);
+        }
+        inbound.compact();
+        return true;
+    }
+
+    private boolean onMessage(int start, int length) {
+        if (latencyMetrics != null) {
+            decodeStart = System.nanoTime();
+        }
+        short templateId = inbound.getShort(start + GatewayProtocol.TEMPLATE_ID);
+        switch (templateId) {
+            case GatewayProtocol.NEW_ORDER:
+                if (length < GatewayProtocol.NEW_ORDER_LENGTH) return false;
+                onNewOrder(start);
+                return true;
+            case GatewayProtocol.CANCEL:
+                if (length < GatewayProtocol.CANCEL_LENGTH) return false;
+                onCancel(start);
+                return true;
+            case GatewayProtocol.AMEND:
+                if (length < GatewayProtocol.AMEND_LENGTH) return false;
+                onAmend(start);
+                return true;
+            default:
+                logger.warning("Closing gateway session " + this + ": unknown template " + templateId);
+                return false;
+        }
+    }
+
+    private void onNewOrder(int start) {
+        long clientOrderId = inbound.getLong(start + GatewayProtocol.CLIENT_ORDER_ID);
+        OrderType side = GatewayProtocol.side(inbound.get(start + GatewayProtocol.NEW_SIDE));
+        TimeInForce tif = GatewayProtocol.tif(inbound.get(start + GatewayProtocol.NEW_TIF));
+        long price = inbound.getLong(start + GatewayProtocol.NEW_PRICE);
+        int quantity = inbound.getInt(start + GatewayProtocol.NEW_QUANTITY);
+        long expiry = inbound.getLong(start + GatewayProtocol.NEW_EXPIRY);
+        int symbolLength = GatewayProtocol.symbolLength(inbound, start + GatewayProtocol.NEW_SYMBOL);
+        if (side == null || tif == null || quantity <= 0 || price <= 0 || symbolLength == 0
+                || !GatewayProtocol.isAscii(inbound, start + GatewayProtocol.NEW_SYMBOL, symbolLength)) {
+            reports.reject(this, clientOrderId, 0);
+            return;
+        }
+        String symbol = symbols.intern(inbound, start + GatewayProtocol.NEW_SYMBOL, symbolLength);
+        if (expiry == 0) {
+            expiry = EngineClock.epochNanos() + DEFAULT_EXPIRY_NANOS;
+        }
+
+        EngineShard shard = engine.shardFor(symbol);
+        if (shard.isStopped()) {
+            reports.reject(this, clientOrderId, 0);
+            return;
+        }
+        long orderId = Order.nextId();
+        reports.track(this, clientOrderId, orderId, price, quantity, tif);
+        decoded(symbol, tif);
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            EngineCommand command = ring.get(sequence);
+            command.setAdd(orderId, side, symbol, price, quantity, expiry, tif, null);
+            command.setListener(this, clientOrderId);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+    }
+
+    private void onCancel(int start) {
+        long clientOrderId = inbound.getLong(start + GatewayProtocol.CLIENT_ORDER_ID);
+        long orderId = inbound.getLong(start + GatewayProtocol.ORDER_ID);
+        int symbolLength = GatewayProtocol.symbolLength(inbound, start + GatewayProtocol.ORDER_SYMBOL);
+        if (symbolLength == 0 || !GatewayProtocol.isAscii(inbound, start + GatewayProtocol.ORDER_SYMBOL, symbolLength)) {
+            reports.reject(this, clientOrderId, orderId);
+            return;
+        }
+        String symbol = symbols.intern(inbound, start + GatewayProtocol.ORDER_SYMBOL, symbolLength);
+        EngineShard shard = engine.shardFor(symbol);
+        if (shard.isStopped()) {
+            reports.reject(this, clientOrderId, orderId);
+            return;
+        }
+        reports.pending(this, orderId, CommandType.CANCEL);
+        decoded(symbol, null);
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            EngineCommand command = ring.get(sequence);
+            command.setCancel(symbol, orderId, null);
+            command.setListener(this, clientOrderId);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+    }
+
+    private void onAmend(int start) {
+        long clientOrderId = inbound.getLong(start + GatewayProtocol.CLIENT_ORDER_ID);
+        long orderId = inbound.getLong(start + GatewayProtocol.ORDER_ID);
+        long price = inbound.getLong(start + GatewayProtocol.AMEND_PRICE);
+        int quantity = inbound.getInt(start + GatewayProtocol.AMEND_QUANTITY);
+        int symbolLength = GatewayProtocol.symbolLength(inbound, start + GatewayProtocol.ORDER_SYMBOL);
+        if (symbolLength == 0 || quantity <= 0 || price <= 0
+                || !GatewayProtocol.isAscii(inbound, start + GatewayProtocol.ORDER_SYMBOL, symbolLength)) {
+            reports.reject(this, clientOrderId, orderId);
+            return;
+        }
+        String symbol = symbols.intern(inbound, start + GatewayProtocol.ORDER_SYMBOL, symbolLength);
+        EngineShard shard = engine.shardFor(symbol);
+        if (shard.isStopped()) {
+            reports.reject(this, clientOrderId, orderId);
+            return;
+        }
+        reports.pending(this, orderId, CommandType.AMEND);
+        decoded(symbol, null);
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        try {
+            EngineCommand command = ring.get(sequence);
+            command.setAmend(symbol, orderId, price, quantity, null);
+            command.setListener(this, clientOrderId);
+        }
+        finally {
+            shard.publish(sequence);
+        }
+    }
+
+    private void decoded(String symbol, TimeInForce tif) {
+        if (latencyMetrics != null) {
+            latencyMetrics.forSymbol(symbol).record(LatencyStage.DECODE, tif, System.nanoTime() - decodeStart);
+        }
+    }
+
+    @Override
+    public void onCommandResult(EngineCommand command, boolean success) {
+        reports.result(this, command, success);
+    }
+
+    /**
+     * Encodes an execution report into the send buffer. Called on the report writer thread;
+     * a client that lets the buffer fill up is disconnected.
+     */
+    void writeReport(long clientOrderId, long orderId, ExecType execType, long price, int quantity, int leaves, long timestamp) {
+        if (outbound.remaining() < GatewayProtocol.EXECUTION_REPORT_LENGTH) {
+            flush();
+            if (outbound.remaining() < GatewayProtocol.EXECUTION_REPORT_LENGTH) {
+                logger.warning("Closing gateway session " + this + ": client is not reading its execution reports");
+                disconnect();
+                return;
+            }
+        }
+        GatewayProtocol.putExecutionReport(outbound, clientOrderId, orderId, execType, price, quantity, leaves, timestamp);
+    }
+
+    /**
+     * Writes as much of the send buffer as the socket takes. Called on the report writer thread.
+     */
+    void flush() {
+        dirty = false;
+        if (!open) return;
+        outbound.flip();
+        try {
+            channel.write(outbound);
+        }
+        catch (IOException e) {
+            disconnect();
+        }
+        outbound.compact();
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes the connection from the IO thread and tells the report writer to forget its orders.
+     */
+    void close() {
+        if (disconnect()) {
+            reports.closed(this);
+        }
+    }
+
+    /**
+     * Closes the connection without going through the report ring, for the writer thread itself,
+     * which forgets the session's orders directly.
+     *
+     * @return true if the session was open
+     */
+    boolean disconnect() {
+        if (!open) return false;
+        open = false;
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Error closing gateway session", e);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return "GatewaySession{" + channel.getRemoteAddress() + '}';
+        }
+        catch (IOException e) {
+            return "GatewaySession{closed}";
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package radu.gateway;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import radu.engine.ShardedMatchingEngine;
+import radu.metrics.LatencyMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Low-latency order entry over TCP, next to the REST API. Clients send fixed-layout binary
+ * messages (see {@link GatewayProtocol}) and receive execution reports for their orders.
+ *
+ * <p>One IO thread multiplexes every connection with a selector and decodes messages directly
+ * into the ring buffers of the engine shards, so an order goes from the socket to its shard
+ * without JSON, servlet threads or intermediate objects. Execution reports are written back by
+ * {@link ExecutionReports}. The gateway does not authenticate clients; it is meant for a
+ * trusted network.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "matching.gateway.enabled", havingValue = "true")
+public class OrderGateway implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(OrderGateway.class.getName());
+
+    private final ShardedMatchingEngine engine;
+    private final ExecutionReports reports;
+    private final LatencyMetrics latencyMetrics;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param engine  the engine orders are submitted to
+     * @param reports writes the execution reports
+     * @param port    TCP port to listen on, 0 for any free port
+     */
+    public OrderGateway(ShardedMatchingEngine engine, ExecutionReports reports, int port) {
+        this(engine, reports, port, (LatencyMetrics) null);
+    }
+
+    /**
+     * @param engine         the engine orders are submitted to
+     * @param reports        writes the execution reports
+     * @param port           TCP port to listen on, 0 for any free port
+     * @param latencyMetrics where the time taken to decode messages is recorded, if anywhere
+     */
+    @Autowired
+    public OrderGateway(ShardedMatchingEngine engine, ExecutionReports reports,
+                        @Value("${matching.gateway.port:9001}") int port,
+                        ObjectProvider<LatencyMetrics> latencyMetrics) {
+        this(engine, reports, port, latencyMetrics.getIfAvailable());
+    }
+
+    private OrderGateway(ShardedMatchingEngine engine, ExecutionReports reports, int port,
+                         LatencyMetrics latencyMetrics) {
+        this.engine = engine;
+        this.reports = reports;
+        this.latencyMetrics = latencyMetrics;
+        try {
+            this.selector = Selector.open();
+            this.server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot open order gateway on port " + port, e);
+        }
+        this.thread = new Thread(this::run, "gateway-io");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        logger.info("Order gateway listening on port " + getPort());
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else if (key.isReadable()) {
+                        GatewaySession session = (GatewaySession) key.attachment();
+                        if (!session.onReadable()) {
+                            key.cancel();
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.log(Level.SEVERE, "Order gateway stopped", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        GatewaySession session = new GatewaySession(channel, engine, reports, latencyMetrics);
+        channel.register(selector, SelectionKey.OP_READ, session);
+        logger.info("Gateway session opened: " + session);
+    }
+
+    /**
+     * @return the port the gateway listens on
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join();
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof GatewaySession) {
+                    ((GatewaySession) key.attachment()).close();
+                }
+            }
+            server.close();
+            selector.close();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            logger.log(Level.FINE, "Error closing order gateway", e);
+        }
+    }
+}
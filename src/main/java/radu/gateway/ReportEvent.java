@@ -0,0 +1,48 @@
+package radu.gateway;
+
+import radu.engine.CommandType;
+import radu.engine.TimeInForce;
+
+/**
+ * Slot of the execution report ring. Producers describe what happened in engine terms and
+ * the writer thread turns it into execution reports for the owning session.
+ */
+final class ReportEvent {
+
+    enum Kind {
+        /** A new order is about to be submitted; published before the command so it precedes its fills. */
+        TRACK,
+        /** A cancel or amend of an open order is about to be submitted; published before the command. */
+        PENDING,
+        /** The engine applied a command of a session. */
+        RESULT,
+        /** A trade hit the order in {@code orderId}. */
+        FILL,
+        /** A cancel command removed the order in {@code orderId}, whoever sent it. */
+        CANCELED,
+        /** The order in {@code orderId} expired. */
+        EXPIRED,
+        /** The message could not be submitted. */
+        REJECT,
+        /** The session is gone; forget its orders. */
+        CLOSED
+    }
+
+    Kind kind;
+    GatewaySession session;
+    CommandType commandType;
+    boolean success;
+    long clientOrderId;
+    long orderId;
+    long price;
+    int quantity;
+    int leaves;
+    long timestamp;
+    TimeInForce tif;
+
+    void clear() {
+        session = null;
+        commandType = null;
+        tif = null;
+    }
+}
@@ -0,0 +1,14 @@
+package radu.journal;
+
+/**
+ * When the journal forces its writes to disk. Forcing less often groups more records per
+ * fsync, at the cost of losing the records written since the last one if the machine fails.
+ */
+public enum FsyncPolicy {
+    /** Never force explicitly and leave write-back to the operating system. */
+    NONE,
+    /** Force when at least the configured number of milliseconds passed since the last force. */
+    INTERVAL,
+    /** Force once the configured number of records has been written since the last force. */
+    RECORDS
+}
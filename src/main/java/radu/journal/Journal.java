@@ -0,0 +1,306 @@
+package radu.journal;
+
+import radu.engine.EngineCommand;
+import radu.engine.TradeListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of engine commands and trades, written through a memory-mapped file.
+ *
+ * <p>Each record is length-prefixed and CRC32C-checked (see {@link JournalRecord}), so a record
+ * torn by a crash is detected and the journal ends cleanly before it. Appending copies a few
+ * dozen bytes into the mapping and allocates nothing; how often the mapping is forced to disk
+ * is decided by the {@link FsyncPolicy}.</p>
+ *
+ * <p>The commands of a batch are written between {@link #beginBatch} and {@link #endBatch}
+ * markers. Reopening a journal that ends inside a batch cuts the unfinished batch off, just as
+ * recovery ignores it, so a batch is either in the journal completely or not at all.</p>
+ *
+ * <p>A journal has a single writer: the engine thread that owns it.</p>
+ */
+public class Journal implements TradeListener, AutoCloseable {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncEvery;
+    private final ByteBuffer scratch = ByteBuffer.allocate(JournalRecord.MAX_PAYLOAD_LENGTH);
+    private final CRC32C crc = new CRC32C();
+
+    private MappedByteBuffer mapped;
+    private long mappedOffset;
+    private long sequence;
+    private int unsyncedRecords;
+    private long lastSyncNanos = System.nanoTime();
+
+    /**
+     * Opens a journal for appending, creating it if needed. An existing journal is scanned and
+     * new records are appended after its last valid record.
+     *
+     * @param file        the journal file
+     * @param fsyncPolicy when to force writes to disk
+     * @param fsyncEvery  milliseconds for INTERVAL, records for RECORDS, ignored for NONE
+     */
+    public Journal(Path file, FsyncPolicy fsyncPolicy, long fsyncEvery) {
+        this(file, fsyncPolicy, fsyncEvery, DEFAULT_SEGMENT_SIZE);
+    }
+
+    Journal(Path file, FsyncPolicy fsyncPolicy, long fsyncEvery, int segmentSize) {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncEvery = fsyncPolicy == FsyncPolicy.INTERVAL ? TimeUnit.MILLISECONDS.toNanos(fsyncEvery) : fsyncEvery;
+        this.segmentSize = segmentSize;
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            long end = 0;
+            if (Files.exists(file)) {
+                try (JournalReader reader = new JournalReader(file)) {
+                    long batchStart = -1;
+                    long batchSequence = 0;
+                    long offset = reader.getEndOffset();
+                    while (reader.next()) {
+                        if (reader.isBatchBegin()) {
+                            batchStart = offset;
+                            batchSequence = sequence;
+                        }
+                        else if (reader.isBatchEnd()) {
+                            batchStart = -1;
+                        }
+                        sequence = reader.getSequence();
+                        offset = reader.getEndOffset();
+                    }
+                    end = offset;
+                    if (batchStart >= 0) {
+                        // a batch the crash interrupted: recovery skips it, so it must not stay in the journal
+                        end = batchStart;
+                        sequence = batchSequence;
+                    }
+                }
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(end);
+            // cut off anything after the last valid record, such as a torn write
+            mapped.putInt(mapped.position(), 0);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + file, e);
+        }
+    }
+
+    /**
+     * Appends a command before it is applied. The command must already carry the timestamp the
+     * engine applies it with, so that replaying the journal rebuilds identical books.
+     *
+     * @param command the command
+     * @return the sequence number of the record
+     */
+    public long appendCommand(EngineCommand command) {
+        ByteBuffer buffer = begin(JournalRecord.COMMAND);
+        buffer.put((byte) command.getType().ordinal());
+        putSymbol(buffer, command.getSymbol());
+        buffer.putLong(command.getOrderId());
+        buffer.put(command.getSide() == null ? -1 : (byte) command.getSide().ordinal());
+        buffer.put(command.getTif() == null ? -1 : (byte) command.getTif().ordinal());
+        buffer.putLong(command.getPrice());
+        buffer.putInt(command.getQuantity());
+        buffer.putLong(command.getExpiry());
+        buffer.putLong(command.getTimestamp());
+        buffer.put(command.getKind() == null ? -1 : (byte) command.getKind().ordinal());
+        buffer.putLong(command.getStopPrice());
+        buffer.putInt(command.getDisplayQuantity());
+        return commit();
+    }
+
+    /**
+     * Marks the start of a batch. Every command appended until {@link #endBatch} belongs to it.
+     *
+     * @param symbol     the symbol of the batch
+     * @param entryCount the number of commands in the batch
+     * @return the sequence number of the record
+     */
+    public long beginBatch(String symbol, int entryCount) {
+        ByteBuffer buffer = begin(JournalRecord.BATCH_BEGIN);
+        putSymbol(buffer, symbol);
+        buffer.putInt(entryCount);
+        return commit();
+    }
+
+    /**
+     * Marks the end of the batch started by the last {@link #beginBatch}, making it part of the
+     * journal that recovery replays.
+     *
+     * @param symbol     the symbol of the batch
+     * @param entryCount the number of commands in the batch
+     * @return the sequence number of the record
+     */
+    public long endBatch(String symbol, int entryCount) {
+        ByteBuffer buffer = begin(JournalRecord.BATCH_END);
+        putSymbol(buffer, symbol);
+        buffer.putInt(entryCount);
+        return commit();
+    }
+
+    /**
+     * Appends a trade.
+     *
+     * @return the sequence number of the record
+     */
+    public long appendTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        ByteBuffer buffer = begin(JournalRecord.TRADE);
+        putSymbol(buffer, symbol);
+        buffer.putLong(buyOrderId);
+        buffer.putLong(sellOrderId);
+        buffer.putLong(price);
+        buffer.putInt(quantity);
+        buffer.putLong(timestamp);
+        return commit();
+    }
+
+    @Override
+    public void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        appendTrade(symbol, buyOrderId, sellOrderId, price, quantity, timestamp);
+    }
+
+    /**
+     * Applies the fsync policy at the end of a batch of commands. Call this from the writer
+     * when it runs out of work so that an interval policy is honoured during quiet periods too.
+     */
+    public void onBatchEnd() {
+        maybeSync();
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public void sync() {
+        mapped.force();
+        unsyncedRecords = 0;
+        lastSyncNanos = System.nanoTime();
+    }
+
+    /**
+     * @return the sequence number of the last record written
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        sync();
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal " + file, e);
+        }
+    }
+
+    private ByteBuffer begin(byte recordType) {
+        scratch.clear();
+        scratch.put(recordType);
+        scratch.putLong(sequence + 1);
+        return scratch;
+    }
+
+    private long commit() {
+        scratch.flip();
+        int length = scratch.remaining();
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+
+        if (mapped.remaining() < JournalRecord.HEADER_LENGTH + length + 4) {
+            remap();
+        }
+        mapped.putInt(length);
+        mapped.putInt((int) crc.getValue());
+        mapped.put(scratch);
+        mapped.putInt(mapped.position(), 0);
+
+        sequence++;
+        unsyncedRecords++;
+        if (fsyncPolicy == FsyncPolicy.RECORDS) {
+            maybeSync();
+        }
+        return sequence;
+    }
+
+    private void maybeSync() {
+        if (unsyncedRecords == 0) return;
+        switch (fsyncPolicy) {
+            case RECORDS:
+                if (unsyncedRecords >= fsyncEvery) sync();
+                break;
+            case INTERVAL:
+                if (System.nanoTime() - lastSyncNanos >= fsyncEvery) sync();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes a symbol as US-ASCII, one byte per character. Anything else is rejected rather than
+     * written as bytes that would replay as a different symbol.
+     *
+     * @throws IllegalArgumentException if the symbol is too long or not ASCII
+     */
+    private static void putSymbol(ByteBuffer buffer, String symbol) {
+        if (symbol == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        int length = symbol.length();
+        if (length > JournalRecord.MAX_SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("Symbol too long for the journal: " + symbol);
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) > 0x7F) {
+                throw new IllegalArgumentException("Symbol is not US-ASCII, cannot be journalled: " + symbol);
+            }
+        }
+        buffer.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) symbol.charAt(i));
+        }
+    }
+
+    private void remap() {
+        if (fsyncPolicy != FsyncPolicy.NONE && unsyncedRecords > 0) {
+            sync();
+        }
+        MappedByteBuffer previous = mapped;
+        try {
+            map(mappedOffset + mapped.position());
+            // at most one segment stays mapped, instead of every segment until the next GC
+            Mappings.release(previous);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot extend journal " + file, e);
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        mappedOffset = offset;
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, offset, segmentSize);
+    }
+}
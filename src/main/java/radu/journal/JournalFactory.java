@@ -0,0 +1,84 @@
+package radu.journal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Opens the journal of each engine shard according to the {@code matching.journal} settings.
+ * Every shard writes its own journal and snapshot files, so journalling never needs to
+ * synchronise shard threads.
+ */
+@Component
+public class JournalFactory {
+
+    private final boolean enabled;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncEvery;
+    private final boolean recover;
+    private final long snapshotIntervalMillis;
+
+    /**
+     * @param enabled    whether shards journal at all
+     * @param directory  directory the journal files live in
+     * @param fsync      fsync policy: none, interval or records
+     * @param fsyncEvery milliseconds for the interval policy, records for the records policy
+     * @param recover    whether shards rebuild their books from snapshot and journal on start
+     * @param snapshotIntervalMillis how often shards snapshot their books, 0 to never
+     */
+    public JournalFactory(@Value("${matching.journal.enabled:true}") boolean enabled,
+                          @Value("${matching.journal.dir:journal}") String directory,
+                          @Value("${matching.journal.fsync:interval}") String fsync,
+                          @Value("${matching.journal.fsync-every:10}") long fsyncEvery,
+                          @Value("${matching.journal.recover:true}") boolean recover,
+                          @Value("${matching.journal.snapshot-interval-ms:60000}") long snapshotIntervalMillis) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.fsyncPolicy = FsyncPolicy.valueOf(fsync.trim().toUpperCase(Locale.ROOT));
+        this.fsyncEvery = fsyncEvery;
+        this.recover = recover;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    /**
+     * Opens the journal of a shard, appending to it if it already exists.
+     *
+     * @param shard the shard number
+     * @return the journal, or null if journalling is disabled
+     */
+    public Journal open(int shard) {
+        return enabled ? new Journal(fileFor(shard), fsyncPolicy, fsyncEvery) : null;
+    }
+
+    /**
+     * @param shard the shard number
+     * @return the journal file of that shard
+     */
+    public Path fileFor(int shard) {
+        return directory.resolve("shard-" + shard + ".journal");
+    }
+
+    /**
+     * @param shard the shard number
+     * @return the snapshot file of that shard
+     */
+    public Path snapshotFileFor(int shard) {
+        return directory.resolve("shard-" + shard + ".snapshot");
+    }
+
+    public boolean isRecover() {
+        return recover;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
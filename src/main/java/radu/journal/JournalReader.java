@@ -0,0 +1,298 @@
+package radu.journal;
+
+import radu.engine.CommandType;
+import radu.engine.EngineCommand;
+import radu.engine.OrderKind;
+import radu.engine.OrderType;
+import radu.engine.SymbolTable;
+import radu.engine.TimeInForce;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a journal front to back. The reader is a flyweight: {@link #next()} moves it onto the
+ * next record and the getters decode that record in place, so scanning allocates nothing but
+ * the first occurrence of each symbol. Reading stops at the first record that is missing,
+ * truncated or fails its checksum, which is where a crash left the journal.
+ */
+public class JournalReader implements AutoCloseable {
+
+    private static final int WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+    private static final OrderKind[] KINDS = OrderKind.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final CRC32C crc = new CRC32C();
+    private final SymbolTable symbols = new SymbolTable();
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private long endOffset;
+    private int recordStart;
+    private int bodyStart;
+    private int recordEnd;
+    private byte recordType;
+    private String symbol;
+
+    public JournalReader(Path file) {
+        this.file = file;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+            map(0);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal " + file, e);
+        }
+    }
+
+    /**
+     * Moves to the next valid record.
+     *
+     * @return false at the end of the journal
+     */
+    public boolean next() {
+        long position = endOffset;
+        if (position + JournalRecord.HEADER_LENGTH > fileSize) return false;
+        if (position - windowOffset + JournalRecord.HEADER_LENGTH + JournalRecord.MAX_PAYLOAD_LENGTH > window.capacity()
+                && windowOffset + window.capacity() < fileSize) {
+            remap(position);
+        }
+        int start = (int) (position - windowOffset);
+        if (start + JournalRecord.HEADER_LENGTH > window.capacity()) return false;
+
+        int length = window.getInt(start);
+        if (length <= 0 || length > JournalRecord.MAX_PAYLOAD_LENGTH
+                || start + JournalRecord.HEADER_LENGTH + length > window.capacity()) {
+            return false;
+        }
+        int payload = start + JournalRecord.HEADER_LENGTH;
+        crc.reset();
+        window.limit(payload + length).position(payload);
+        crc.update(window);
+        window.clear();
+        if ((int) crc.getValue() != window.getInt(start + 4)) return false;
+
+        recordStart = payload;
+        recordEnd = payload + length;
+        recordType = window.get(payload);
+        if (recordType == JournalRecord.COMMAND) {
+            bodyStart = payload + 1 + 8 + 1;
+        }
+        else if (recordType == JournalRecord.TRADE || recordType == JournalRecord.BATCH_BEGIN
+                || recordType == JournalRecord.BATCH_END) {
+            bodyStart = payload + 1 + 8;
+        }
+        else {
+            return false;
+        }
+        int symbolLength = window.get(bodyStart);
+        symbol = symbolLength == 0 ? null : symbols.intern(window, bodyStart + 1, symbolLength);
+        bodyStart += 1 + symbolLength;
+        endOffset = position + JournalRecord.HEADER_LENGTH + length;
+        return true;
+    }
+
+    public boolean isCommand() {
+        return recordType == JournalRecord.COMMAND;
+    }
+
+    public boolean isTrade() {
+        return recordType == JournalRecord.TRADE;
+    }
+
+    public boolean isBatchBegin() {
+        return recordType == JournalRecord.BATCH_BEGIN;
+    }
+
+    public boolean isBatchEnd() {
+        return recordType == JournalRecord.BATCH_END;
+    }
+
+    /**
+     * @return the number of commands in the batch the current BATCH_BEGIN or BATCH_END record marks
+     */
+    public int getBatchSize() {
+        return window.getInt(bodyStart);
+    }
+
+    public long getSequence() {
+        return window.getLong(recordStart + 1);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the type of the current command record
+     */
+    public CommandType getCommandType() {
+        return COMMAND_TYPES[window.get(recordStart + 1 + 8)];
+    }
+
+    /**
+     * @return the order ID of the current command record
+     */
+    public long getOrderId() {
+        return window.getLong(bodyStart);
+    }
+
+    /**
+     * @return the side of the current ADD record, null for other commands
+     */
+    public OrderType getSide() {
+        byte ordinal = window.get(bodyStart + 8);
+        return ordinal < 0 ? null : ORDER_TYPES[ordinal];
+    }
+
+    /**
+     * @return the time in force of the current ADD record, null for other commands
+     */
+    public TimeInForce getTif() {
+        byte ordinal = window.get(bodyStart + 9);
+        return ordinal < 0 ? null : TIFS[ordinal];
+    }
+
+    /**
+     * @return the price in ticks of the current record
+     */
+    public long getPrice() {
+        return window.getLong(bodyStart + (isCommand() ? 10 : 16));
+    }
+
+    /**
+     * @return the quantity of the current record
+     */
+    public int getQuantity() {
+        return window.getInt(bodyStart + (isCommand() ? 18 : 24));
+    }
+
+    /**
+     * @return the expiry of an ADD record, or the time of an EXPIRE record, in epoch nanos
+     */
+    public long getExpiry() {
+        return window.getLong(bodyStart + 22);
+    }
+
+    /**
+     * @return the time the command was applied or the trade executed, in epoch nanos
+     */
+    public long getTimestamp() {
+        return window.getLong(bodyStart + (isCommand() ? 30 : 28));
+    }
+
+    /**
+     * @return the kind of the current ADD record, LIMIT for records written before kinds existed,
+     *         null for other commands
+     */
+    public OrderKind getKind() {
+        if (bodyStart + 39 > recordEnd) {
+            return getCommandType() == CommandType.ADD ? OrderKind.LIMIT : null;
+        }
+        byte ordinal = window.get(bodyStart + 38);
+        return ordinal < 0 ? null : KINDS[ordinal];
+    }
+
+    /**
+     * @return the stop price in ticks of the current ADD record, 0 if it has none
+     */
+    public long getStopPrice() {
+        return bodyStart + 47 > recordEnd ? 0 : window.getLong(bodyStart + 39);
+    }
+
+    /**
+     * @return the display quantity of the current ADD record, 0 if it is not an iceberg order
+     */
+    public int getDisplayQuantity() {
+        return bodyStart + 51 > recordEnd ? 0 : window.getInt(bodyStart + 47);
+    }
+
+    /**
+     * @return the buy order ID of the current trade record
+     */
+    public long getBuyOrderId() {
+        return window.getLong(bodyStart);
+    }
+
+    /**
+     * @return the sell order ID of the current trade record
+     */
+    public long getSellOrderId() {
+        return window.getLong(bodyStart + 8);
+    }
+
+    /**
+     * Copies the current command record into a command slot, ready to be applied again.
+     *
+     * @param command the slot to fill
+     */
+    public void readCommand(EngineCommand command) {
+        CommandType type = getCommandType();
+        switch (type) {
+            case ADD:
+                command.setAdd(getOrderId(), getSide(), symbol, getKind(), getPrice(), getStopPrice(), getQuantity(),
+                        getExpiry(), getTif(), null);
+                command.setDisplayQuantity(getDisplayQuantity());
+                break;
+            case CANCEL:
+                command.setCancel(symbol, getOrderId(), null);
+                break;
+            case AMEND:
+                command.setAmend(symbol, getOrderId(), getPrice(), getQuantity(), null);
+                break;
+            case MATCH:
+                command.setMatch(symbol, null);
+                break;
+            case EXPIRE:
+                command.setExpire(getExpiry());
+                break;
+            default:
+                throw new IllegalStateException("Unknown command type: " + type);
+        }
+        command.setTimestamp(getTimestamp());
+    }
+
+    /**
+     * @return the file offset just after the last record read
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot close journal " + file, e);
+        }
+    }
+
+    private void remap(long offset) {
+        MappedByteBuffer previous = window;
+        try {
+            map(offset);
+            Mappings.release(previous);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal " + file, e);
+        }
+    }
+
+    private void map(long offset) throws IOException {
+        windowOffset = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+    }
+}
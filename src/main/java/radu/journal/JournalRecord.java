@@ -0,0 +1,39 @@
+package radu.journal;
+
+/**
+ * Binary layout of journal records.
+ *
+ * <pre>
+ * int   length      payload length in bytes, 0 marks the end of the journal
+ * int   crc         CRC32C of the payload
+ * payload:
+ *   byte  type        COMMAND, TRADE, BATCH_BEGIN or BATCH_END
+ *   long  sequence    position of the record in the journal, starting at 1
+ *   COMMAND: byte commandType, symbol, long orderId, byte side, byte tif,
+ *            long price, int quantity, long expiry, long timestamp, byte kind, long stopPrice,
+ *            int displayQuantity
+ *   TRADE:   symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp
+ *   BATCH_BEGIN, BATCH_END: symbol, int entryCount
+ * </pre>
+ *
+ * The commands of a batch, and the trades they cause, are enclosed in a BATCH_BEGIN and a
+ * BATCH_END record. A batch whose BATCH_END never made it to disk is dropped as a whole.
+ *
+ * Symbols are written as one length byte followed by US-ASCII characters; other symbols cannot be journalled. Enums are written as
+ * their ordinal, -1 when absent. Fields were added at the end of commands over time; a record
+ * that ends before one of them is read with its default: LIMIT, no stop price, not an iceberg.
+ */
+final class JournalRecord {
+
+    static final byte COMMAND = 1;
+    static final byte TRADE = 2;
+    static final byte BATCH_BEGIN = 3;
+    static final byte BATCH_END = 4;
+
+    static final int HEADER_LENGTH = 8;
+    static final int MAX_SYMBOL_LENGTH = 64;
+    static final int MAX_PAYLOAD_LENGTH = 1 + 8 + 1 + 1 + MAX_SYMBOL_LENGTH + 8 + 1 + 1 + 8 + 4 + 8 + 8 + 1 + 8 + 4;
+
+    private JournalRecord() {
+    }
+}
@@ -0,0 +1,57 @@
+package radu.journal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Releases memory mappings as soon as the journal is done with them. A {@link MappedByteBuffer}
+ * is otherwise only unmapped when the garbage collector gets to it, so a journal that moves
+ * through many segments between collections would keep all of them mapped. Where the runtime
+ * does not allow it, mappings are left to the collector as before.
+ */
+final class Mappings {
+
+    private static final Logger logger = Logger.getLogger(Mappings.class.getName());
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            // looked up reflectively: sun.misc.Unsafe lives in jdk.unsupported and is not part of the platform API
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", java.nio.ByteBuffer.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Mappings cannot be released explicitly, leaving them to the garbage collector", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private Mappings() {
+    }
+
+    /**
+     * Unmaps a buffer right away. Nothing may touch the buffer, or any view of it, afterwards.
+     *
+     * @param buffer the mapping to release, may be null
+     */
+    static void release(MappedByteBuffer buffer) {
+        if (buffer == null || INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Cannot release a mapping, leaving it to the garbage collector", e);
+        }
+    }
+}
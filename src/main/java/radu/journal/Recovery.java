@@ -0,0 +1,123 @@
+package radu.journal;
+
+import radu.engine.EngineCommand;
+import radu.engine.MatchingEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Rebuilds an engine after a restart: the latest snapshot is loaded, then every command the
+ * journal recorded after the snapshot's sequence is replayed with its recorded timestamp.
+ * Trades are not replayed; the replayed commands execute them again. The commands of a batch
+ * are only replayed once the batch's end marker has been read, so a batch the crash interrupted
+ * leaves no trace in the recovered books.
+ */
+public final class Recovery {
+
+    private static final Logger logger = Logger.getLogger(Recovery.class.getName());
+
+    private Recovery() {
+    }
+
+    /**
+     * Recovers an engine that has no books yet.
+     *
+     * @param engine       the engine to rebuild, without a journal attached
+     * @param snapshotFile the snapshot to start from, may not exist
+     * @param journalFile  the journal to replay, may not exist
+     * @return the last journal sequence reflected in the engine
+     */
+    public static long recover(MatchingEngine engine, Path snapshotFile, Path journalFile) {
+        long start = System.nanoTime();
+        long sequence = 0;
+        long restored = 0;
+        boolean clockSet = false;
+
+        Snapshot snapshot = Snapshot.read(snapshotFile);
+        if (snapshot != null) {
+            restored = snapshot.restore(engine);
+            sequence = snapshot.getSequence();
+            clockSet = true;
+        }
+
+        long replayed = 0;
+        if (Files.exists(journalFile)) {
+            EngineCommand command = new EngineCommand();
+            // commands of the open batch, held back until its end marker shows it is complete
+            List<EngineCommand> batch = new ArrayList<>();
+            boolean inBatch = false;
+            int batchSize = 0;
+            long batchSequence = 0;
+            try (JournalReader reader = new JournalReader(journalFile)) {
+                while (reader.next()) {
+                    if (reader.getSequence() <= sequence) continue;
+                    if (reader.isBatchBegin()) {
+                        batchSequence = sequence;
+                        sequence = reader.getSequence();
+                        inBatch = true;
+                        batchSize = 0;
+                        continue;
+                    }
+                    sequence = reader.getSequence();
+                    if (reader.isBatchEnd()) {
+                        if (!clockSet && batchSize > 0) {
+                            engine.resetExpiryClock(batch.get(0).getTimestamp());
+                            clockSet = true;
+                        }
+                        for (int i = 0; i < batchSize; i++) {
+                            replay(engine, batch.get(i));
+                        }
+                        replayed += batchSize;
+                        inBatch = false;
+                        continue;
+                    }
+                    if (!reader.isCommand()) continue;
+
+                    if (inBatch) {
+                        if (batchSize == batch.size()) {
+                            batch.add(new EngineCommand());
+                        }
+                        reader.readCommand(batch.get(batchSize++));
+                        continue;
+                    }
+                    reader.readCommand(command);
+                    if (!clockSet) {
+                        engine.resetExpiryClock(command.getTimestamp());
+                        clockSet = true;
+                    }
+                    replay(engine, command);
+                    replayed++;
+                }
+            }
+            if (inBatch) {
+                sequence = batchSequence;
+                logger.warning("Dropped a batch of " + batchSize + " commands the journal " + journalFile
+                        + " ends in the middle of");
+            }
+        }
+
+        if (restored > 0 || replayed > 0) {
+            logger.info("Recovered " + restored + " orders from " + snapshotFile + " and replayed " + replayed
+                    + " commands from " + journalFile + " in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+        return sequence;
+    }
+
+    private static void replay(MatchingEngine engine, EngineCommand command) {
+        try {
+            engine.replay(command);
+        }
+        catch (RuntimeException e) {
+            // the command failed the same way when it was first applied
+            logger.log(Level.FINE, "Replayed command failed: " + command, e);
+        }
+        command.clear();
+    }
+}
@@ -0,0 +1,285 @@
+package radu.journal;
+
+import radu.engine.BookSide;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderKind;
+import radu.engine.OrderType;
+import radu.engine.SymbolTable;
+import radu.engine.TimeInForce;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * A binary image of every book of one engine at a journal sequence number.
+ *
+ * <p>The image is captured on the engine thread, between two commands, into a heap buffer; the
+ * books are walked once and each resting order becomes a fixed-size record. Writing the image to
+ * disk and forcing it happens later on any thread, so the engine only pauses for the copy.
+ * Loading it back restores every order in price-time order, which rebuilds the levels, the FIFO
+ * queues, the id map and the expiry wheel exactly as they were. Stop orders waiting to be
+ * triggered are kept with the last trade price of their book, which decides when they trigger.</p>
+ *
+ * <pre>
+ * int  magic, int version
+ * long sequence       last journal record reflected in the image
+ * long timestamp      engine time of the capture, in epoch nanos
+ * long nextOrderId    high-water mark of the order id generator
+ * int  bookCount
+ * per book: symbol, long lastTradePrice, then per side (bids, then asks): int orderCount,
+ *           orders best first, then int stopCount, stops in trigger order
+ * per order: long id, long price, int quantity, long timestamp, long expiry, byte tif,
+ *            int displayQuantity, int reserveQuantity
+ * per stop:  byte side, byte kind, long stopPrice, then the fields of an order
+ * int  crc            CRC32C of everything before it
+ * </pre>
+ *
+ * Version 1 images, written before stop orders existed, have no last trade price and no stops;
+ * orders in images before version 3 have no display and reserve quantity.
+ */
+public class Snapshot {
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int VERSION = 3;
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final int ORDER_LENGTH = 8 + 8 + 4 + 8 + 8 + 1 + 4 + 4;
+    private static final int STOP_LENGTH = 1 + 1 + 8 + ORDER_LENGTH;
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+    private static final OrderKind[] KINDS = OrderKind.values();
+
+    private final ByteBuffer image;
+    private final long sequence;
+    private final long timestamp;
+
+    private Snapshot(ByteBuffer image) {
+        this.image = image;
+        this.sequence = image.getLong(8);
+        this.timestamp = image.getLong(16);
+    }
+
+    /**
+     * Captures the books of an engine. Must run on the engine's thread.
+     *
+     * @param engine    the engine
+     * @param sequence  the last journal sequence applied to the books
+     * @param timestamp the current engine time in epoch nanos
+     * @return the snapshot, ready to be written from another thread
+     */
+    public static Snapshot capture(MatchingEngine engine, long sequence, long timestamp) {
+        long length = HEADER_LENGTH + 4;
+        for (Map.Entry<String, OrderBook> entry : engine.getBooks().entrySet()) {
+            OrderBook book = entry.getValue();
+            length += 1 + entry.getKey().length() + 8 + 4 + 4 + 4
+                    + (long) ORDER_LENGTH * (book.getBuyOrders().size() + book.getSellOrders().size())
+                    + (long) STOP_LENGTH * book.getStopCount();
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Books too large for a single snapshot: " + length + " bytes");
+        }
+
+        ByteBuffer image = ByteBuffer.allocate((int) length);
+        image.putInt(MAGIC);
+        image.putInt(VERSION);
+        image.putLong(sequence);
+        image.putLong(timestamp);
+        image.putLong(Order.peekNextId());
+        image.putInt(engine.getBooks().size());
+        for (Map.Entry<String, OrderBook> entry : engine.getBooks().entrySet()) {
+            OrderBook book = entry.getValue();
+            String symbol = entry.getKey();
+            image.put((byte) symbol.length());
+            for (int i = 0; i < symbol.length(); i++) {
+                image.put((byte) symbol.charAt(i));
+            }
+            image.putLong(book.getLastTradePrice());
+            putSide(image, book.getBuyOrders());
+            putSide(image, book.getSellOrders());
+            image.putInt(book.getStopCount());
+            book.forEachStop(stop -> {
+                image.put((byte) stop.getType().ordinal());
+                image.put((byte) stop.getKind().ordinal());
+                image.putLong(stop.getStopPrice());
+                putOrder(image, stop);
+            });
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(image.array(), 0, image.position());
+        image.putInt((int) crc.getValue());
+        image.flip();
+        return new Snapshot(image);
+    }
+
+    private static void putSide(ByteBuffer image, BookSide side) {
+        image.putInt(side.size());
+        for (Order order : side) {
+            putOrder(image, order);
+        }
+    }
+
+    private static void putOrder(ByteBuffer image, Order order) {
+        image.putLong(order.getId());
+        image.putLong(order.getPrice());
+        image.putInt(order.getQuantity());
+        image.putLong(order.getTimestamp());
+        image.putLong(order.getExpiry());
+        image.put((byte) order.getTif().ordinal());
+        image.putInt(order.getDisplayQuantity());
+        image.putInt(order.getReserveQuantity());
+    }
+
+    /**
+     * Writes the snapshot and forces it to disk. The image goes to a temporary file first and
+     * is then moved over the target, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param file the snapshot file
+     */
+    public void writeTo(Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = image.duplicate();
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Reads a snapshot and verifies its checksum.
+     *
+     * @param file the snapshot file
+     * @return the snapshot, or null if there is none
+     * @throws IllegalStateException if the file is not a valid snapshot
+     */
+    public static Snapshot read(Path file) {
+        if (!Files.exists(file)) return null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + 4) {
+                throw new IllegalStateException("Snapshot " + file + " is truncated");
+            }
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            crc.update(image.duplicate().limit((int) size - 4));
+            if (image.getInt(0) != MAGIC || image.getInt(4) < 1 || image.getInt(4) > VERSION
+                    || (int) crc.getValue() != image.getInt((int) size - 4)) {
+                throw new IllegalStateException("Snapshot " + file + " is corrupt");
+            }
+            return new Snapshot(image);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot read snapshot " + file, e);
+        }
+    }
+
+    /**
+     * Loads the snapshot into an engine that has no books yet.
+     *
+     * @param engine the engine to restore
+     * @return the number of orders restored
+     */
+    public long restore(MatchingEngine engine) {
+        engine.resetExpiryClock(timestamp);
+        Order.advanceNextId(image.getLong(24));
+
+        SymbolTable symbols = new SymbolTable();
+        ByteBuffer data = image.duplicate();
+        data.position(HEADER_LENGTH);
+        int bookCount = image.getInt(HEADER_LENGTH - 4);
+        int version = image.getInt(4);
+        boolean hasStops = version >= 2;
+        boolean hasIcebergs = version >= 3;
+        long restored = 0;
+        for (int b = 0; b < bookCount; b++) {
+            int symbolLength = data.get();
+            String symbol = symbols.intern(data, data.position(), symbolLength);
+            data.position(data.position() + symbolLength);
+            if (hasStops) {
+                engine.restoreLastTradePrice(symbol, data.getLong());
+            }
+            restored += restoreSide(engine, data, symbol, OrderType.BUY, hasIcebergs);
+            restored += restoreSide(engine, data, symbol, OrderType.SELL, hasIcebergs);
+            if (hasStops) {
+                restored += restoreStops(engine, data, symbol, hasIcebergs);
+            }
+        }
+        return restored;
+    }
+
+    private static int restoreStops(MatchingEngine engine, ByteBuffer data, String symbol, boolean hasIcebergs) {
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            OrderType side = ORDER_TYPES[data.get()];
+            OrderKind kind = KINDS[data.get()];
+            long stopPrice = data.getLong();
+            long id = data.getLong();
+            long price = data.getLong();
+            int quantity = data.getInt();
+            long timestamp = data.getLong();
+            long expiry = data.getLong();
+            TimeInForce tif = TIFS[data.get()];
+            Order order = new Order(id, side, symbol, kind, price, stopPrice, quantity, timestamp, expiry, tif);
+            if (hasIcebergs) {
+                order.setIceberg(data.getInt(), data.getInt());
+            }
+            engine.restoreOrder(order);
+        }
+        return count;
+    }
+
+    private static int restoreSide(MatchingEngine engine, ByteBuffer data, String symbol, OrderType side,
+                                   boolean hasIcebergs) {
+        int count = data.getInt();
+        for (int i = 0; i < count; i++) {
+            long id = data.getLong();
+            long price = data.getLong();
+            int quantity = data.getInt();
+            long timestamp = data.getLong();
+            long expiry = data.getLong();
+            TimeInForce tif = TIFS[data.get()];
+            Order order = new Order(id, side, symbol, price, quantity, timestamp, expiry, tif);
+            if (hasIcebergs) {
+                // the slice is restored as it was, so the order does not split again when it rests
+                order.setIceberg(data.getInt(), data.getInt());
+            }
+            engine.restoreOrder(order);
+        }
+        return count;
+    }
+
+    /**
+     * @return the last journal sequence reflected in the snapshot
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the engine time of the capture in epoch nanos
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
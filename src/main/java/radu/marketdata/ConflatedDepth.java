@@ -0,0 +1,115 @@
+package radu.marketdata;
+
+import radu.engine.OrderType;
+import radu.pipeline.EventHandler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Market data subscriber that keeps its own copy of the depth of every symbol from the
+ * incremental updates and publishes a top-N {@link DepthSnapshot} per symbol.
+ *
+ * <p>The copy is only touched by the subscriber thread. At the end of every batch it builds
+ * new snapshots for the symbols that changed and swaps them into a concurrent map, so readers
+ * on any thread get a consistent, immutable view without locking anything or touching the
+ * live book, and a reader that polls rarely simply sees the latest state.</p>
+ */
+class ConflatedDepth implements EventHandler<MarketDataEvent> {
+
+    private final int depth;
+    private final Map<String, SymbolDepth> symbols = new HashMap<>();
+    private final List<SymbolDepth> dirty = new ArrayList<>();
+    private final Map<String, DepthSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param depth number of levels per side kept in the snapshots
+     */
+    ConflatedDepth(int depth) {
+        if (depth <= 0) {
+            throw new IllegalArgumentException("Invalid depth: " + depth);
+        }
+        this.depth = depth;
+    }
+
+    @Override
+    public void onEvent(MarketDataEvent event, long sequence, boolean endOfBatch) {
+        SymbolDepth symbolDepth = symbols.get(event.getSymbol());
+        if (symbolDepth == null) {
+            symbolDepth = new SymbolDepth(event.getSymbol());
+            symbols.put(event.getSymbol(), symbolDepth);
+        }
+        if (event.getKind() == MarketDataEvent.Kind.LEVEL) {
+            symbolDepth.onLevel(event.getSide(), event.getPrice(), event.getQuantity(), event.getOrderCount());
+        }
+        else {
+            symbolDepth.lastTradePrice = event.getPrice();
+            symbolDepth.lastTradeQuantity = (int) event.getQuantity();
+        }
+        symbolDepth.sequence = sequence;
+        if (!symbolDepth.dirty) {
+            symbolDepth.dirty = true;
+            dirty.add(symbolDepth);
+        }
+
+        if (endOfBatch) {
+            for (int i = 0; i < dirty.size(); i++) {
+                SymbolDepth changed = dirty.get(i);
+                changed.dirty = false;
+                snapshots.put(changed.symbol, changed.snapshot(depth));
+            }
+            dirty.clear();
+        }
+    }
+
+    /**
+     * @param symbol the symbol
+     * @return the latest snapshot of the symbol, or null if it never had any update
+     */
+    DepthSnapshot getSnapshot(String symbol) {
+        return snapshots.get(symbol);
+    }
+
+    private static final class SymbolDepth {
+        final String symbol;
+        final TreeMap<Long, DepthSnapshot.Level> bids = new TreeMap<>(Comparator.reverseOrder());
+        final TreeMap<Long, DepthSnapshot.Level> asks = new TreeMap<>();
+        long sequence;
+        long lastTradePrice;
+        int lastTradeQuantity;
+        boolean dirty;
+
+        SymbolDepth(String symbol) {
+            this.symbol = symbol;
+        }
+
+        void onLevel(OrderType side, long price, long quantity, int orderCount) {
+            TreeMap<Long, DepthSnapshot.Level> levels = side == OrderType.BUY ? bids : asks;
+            if (quantity == 0) {
+                levels.remove(price);
+            }
+            else {
+                levels.put(price, new DepthSnapshot.Level(price, quantity, orderCount));
+            }
+        }
+
+        DepthSnapshot snapshot(int depth) {
+            return new DepthSnapshot(symbol, sequence, top(bids, depth), top(asks, depth), lastTradePrice, lastTradeQuantity);
+        }
+
+        private static List<DepthSnapshot.Level> top(TreeMap<Long, DepthSnapshot.Level> levels, int depth) {
+            List<DepthSnapshot.Level> top = new ArrayList<>(Math.min(depth, levels.size()));
+            Iterator<DepthSnapshot.Level> it = levels.values().iterator();
+            while (it.hasNext() && top.size() < depth) {
+                top.add(it.next());
+            }
+            return top;
+        }
+    }
+}
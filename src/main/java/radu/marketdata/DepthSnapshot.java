@@ -0,0 +1,110 @@
+package radu.marketdata;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable view of the top price levels of one symbol, as of one market data sequence number.
+ * Snapshots are conflated: a reader gets the latest one, whatever updates happened in between.
+ * Applying the incremental updates with a higher sequence number brings it up to date.
+ */
+public class DepthSnapshot {
+
+    private final String symbol;
+    private final long sequence;
+    private final List<Level> bids;
+    private final List<Level> asks;
+    private final long lastTradePrice;
+    private final int lastTradeQuantity;
+
+    DepthSnapshot(String symbol, long sequence, List<Level> bids, List<Level> asks, long lastTradePrice, int lastTradeQuantity) {
+        this.symbol = symbol;
+        this.sequence = sequence;
+        this.bids = Collections.unmodifiableList(bids);
+        this.asks = Collections.unmodifiableList(asks);
+        this.lastTradePrice = lastTradePrice;
+        this.lastTradeQuantity = lastTradeQuantity;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the sequence number of the last update included
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the top bid levels, best first
+     */
+    public List<Level> getBids() {
+        return bids;
+    }
+
+    /**
+     * @return the top ask levels, best first
+     */
+    public List<Level> getAsks() {
+        return asks;
+    }
+
+    /**
+     * @return the price of the last trade in ticks, 0 if there was none
+     */
+    public long getLastTradePrice() {
+        return lastTradePrice;
+    }
+
+    public int getLastTradeQuantity() {
+        return lastTradeQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthSnapshot{" +
+                "symbol=" + symbol +
+                ", sequence=" + sequence +
+                ", bids=" + bids +
+                ", asks=" + asks +
+                '}';
+    }
+
+    /**
+     * One aggregated price level.
+     */
+    public static class Level {
+
+        private final long price;
+        private final long quantity;
+        private final int orderCount;
+
+        Level(long price, long quantity, int orderCount) {
+            this.price = price;
+            this.quantity = quantity;
+            this.orderCount = orderCount;
+        }
+
+        /**
+         * @return the price in ticks
+         */
+        public long getPrice() {
+            return price;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public int getOrderCount() {
+            return orderCount;
+        }
+
+        @Override
+        public String toString() {
+            return quantity + "@" + price + "(" + orderCount + ")";
+        }
+    }
+}
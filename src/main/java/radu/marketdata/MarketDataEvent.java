@@ -0,0 +1,99 @@
+package radu.marketdata;
+
+import radu.engine.OrderType;
+
+/**
+ * One incremental market data update: a price level that changed or a trade. Events are
+ * preallocated slots of the {@link MarketDataPublisher} ring and are overwritten for every
+ * update, so subscribers must copy what they need before returning. The ring sequence a
+ * subscriber receives with the event is the update's sequence number; it increases by one
+ * for every update of every symbol.
+ */
+public class MarketDataEvent {
+
+    public enum Kind {
+        /** A price level was added, changed or, with a quantity of zero, deleted. */
+        LEVEL,
+        TRADE
+    }
+
+    private Kind kind;
+    private String symbol;
+    private OrderType side;
+    private long price;
+    private long quantity;
+    private int orderCount;
+    private long timestamp;
+
+    void setLevel(String symbol, OrderType side, long price, long quantity, int orderCount) {
+        this.kind = Kind.LEVEL;
+        this.symbol = symbol;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.orderCount = orderCount;
+        this.timestamp = 0;
+    }
+
+    void setTrade(String symbol, long price, int quantity, long timestamp) {
+        this.kind = Kind.TRADE;
+        this.symbol = symbol;
+        this.side = null;
+        this.price = price;
+        this.quantity = quantity;
+        this.orderCount = 0;
+        this.timestamp = timestamp;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return BUY for a bid level, SELL for an ask level, null for a trade
+     */
+    public OrderType getSide() {
+        return side;
+    }
+
+    /**
+     * @return the level or trade price in ticks
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * @return the total quantity of the level, 0 once it is deleted, or the quantity traded
+     */
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    /**
+     * @return the execution time of a trade in epoch nanos, 0 for a level
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "MarketDataEvent{" +
+                "kind=" + kind +
+                ", symbol=" + symbol +
+                ", side=" + side +
+                ", price=" + price +
+                ", quantity=" + quantity +
+                ", orderCount=" + orderCount +
+                '}';
+    }
+}
@@ -0,0 +1,153 @@
+package radu.marketdata;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import radu.engine.DepthListener;
+import radu.engine.OrderType;
+import radu.engine.TradeListener;
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.EventHandler;
+import radu.pipeline.ParkingWaitStrategy;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes incremental L2 market data for every book of the engine.
+ *
+ * <p>The publisher is attached to the shards as a {@link DepthListener} and a {@link TradeListener},
+ * so every level change and trade is written into a preallocated {@link MarketDataEvent} slot on
+ * the shard thread, in the order it happened, without allocating or copying the book. Each
+ * subscriber runs on its own thread and sees every update with its sequence number. The
+ * publisher always runs a {@link ConflatedDepth} subscriber, which serves the latest top-N
+ * {@link DepthSnapshot} of a symbol to readers that only poll.</p>
+ *
+ * <p>Like the trade stream, a subscriber that falls a whole ring behind holds back matching.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "matching.marketdata.enabled", havingValue = "true")
+public class MarketDataPublisher implements DepthListener, TradeListener, AutoCloseable {
+
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final RingBuffer<MarketDataEvent> ringBuffer;
+    private final ConflatedDepth conflatedDepth;
+    private final List<BatchEventProcessor<MarketDataEvent>> processors = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean closed;
+
+    public MarketDataPublisher(int ringSize, int depth) {
+        this(ringSize, depth, Collections.emptyList());
+    }
+
+    /**
+     * @param ringSize    update slots between the matching threads and the subscribers, a power of two
+     * @param depth       number of levels per side in the conflated snapshots
+     * @param subscribers consumers of the incremental updates, besides the conflated depth
+     */
+    public MarketDataPublisher(int ringSize, int depth, List<EventHandler<MarketDataEvent>> subscribers) {
+        this.ringBuffer = new RingBuffer<>(ringSize, MarketDataEvent::new, new ParkingWaitStrategy());
+        this.conflatedDepth = new ConflatedDepth(depth);
+        subscribe("depth", conflatedDepth);
+        for (EventHandler<MarketDataEvent> subscriber : subscribers) {
+            subscribe(subscriber.getClass().getSimpleName(), subscriber);
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    @Autowired
+    public MarketDataPublisher(@Value("${matching.marketdata.ring-size:65536}") int ringSize,
+                               @Value("${matching.marketdata.depth:10}") int depth,
+                               ObjectProvider<EventHandler<MarketDataEvent>> subscribers) {
+        this(ringSize, depth, subscribers.orderedStream().collect(Collectors.toList()));
+    }
+
+    private void subscribe(String name, EventHandler<MarketDataEvent> handler) {
+        BatchEventProcessor<MarketDataEvent> processor = new BatchEventProcessor<>(ringBuffer, handler);
+        Thread thread = new Thread(processor, "marketdata-" + name);
+        thread.setDaemon(true);
+        processors.add(processor);
+        threads.add(thread);
+    }
+
+    @Override
+    public void onLevel(String symbol, OrderType side, long price, long quantity, int orderCount) {
+        if (closed) return;
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setLevel(symbol, side, price, quantity, orderCount);
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    @Override
+    public void onTrade(String symbol, long buyOrderId, long sellOrderId, long price, int quantity, long timestamp) {
+        if (closed) return;
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setTrade(symbol, price, quantity, timestamp);
+        }
+        finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    /**
+     * Reads the latest conflated depth of a symbol. Safe from any thread; never blocks the engine.
+     *
+     * @param symbol the symbol
+     * @return the top levels of both sides, or null if the symbol never had a resting order or trade
+     */
+    public DepthSnapshot getSnapshot(String symbol) {
+        return conflatedDepth.getSnapshot(symbol);
+    }
+
+    /**
+     * @return the sequence number of the last update published
+     */
+    public long getCursor() {
+        return ringBuffer.getCursor();
+    }
+
+    /**
+     * Stops publishing, gives the subscribers a few seconds to handle what was already published,
+     * then stops them. Updates that arrive afterwards are dropped, so a shard still running
+     * never waits on a subscriber that is gone.
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        closed = true;
+        long published = ringBuffer.getCursor();
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        for (BatchEventProcessor<MarketDataEvent> processor : processors) {
+            Sequence handled = processor.getSequence();
+            while (handled.get() < published && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            processor.halt();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(DRAIN_TIMEOUT_NANOS));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
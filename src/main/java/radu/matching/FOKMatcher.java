@@ -1,23 +1,19 @@
 package radu.matching;
 
+import radu.engine.BookSide;
+import radu.engine.EventLog;
+import radu.engine.LogEventType;
 import radu.engine.Order;
 import radu.engine.OrderBook;
 import radu.engine.OrderType;
 import radu.engine.TimeInForce;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.PriorityQueue;
-import java.util.logging.Logger;
-
 /**
  * Handles Fill-Or-Kill (FOK) order com.matching logic.
  * FOK orders are fully matched immediately or discarded entirely.
  */
 public class FOKMatcher implements OrderMatchingStrategy{
 
-    private static final Logger logger = Logger.getLogger(FOKMatcher.class.getName());
-
     @Override
     public boolean canHandle(Order buy, Order sell) {
         return buy.getTif() == TimeInForce.FOK || sell.getTif() == TimeInForce.FOK;
@@ -25,6 +21,7 @@ public class FOKMatcher implements OrderMatchingStrategy{
 
     /**
      * Attempts to fully match a Fill-or-Kill (FOK) order. If not fully matched, the order is canceled.
+     * Feasibility is decided from the counter side's per-level quantities before any fill happens.
      *
      * @param orderBook order book we work on
      */
@@ -37,59 +34,55 @@ public class FOKMatcher implements OrderMatchingStrategy{
 
         Order fokOrder = (topBuy.getTif() == TimeInForce.FOK) ? topBuy : topSell;
         boolean isBuyFOK = fokOrder.getType() == OrderType.BUY;
+        BookSide counterQueue = isBuyFOK ? orderBook.getSellOrders() : orderBook.getBuyOrders();
 
-        PriorityQueue<Order> counterQueue = isBuyFOK
-                ? new PriorityQueue<>(orderBook.getSellOrders())  // clone to avoid modifying original
-                : new PriorityQueue<>(orderBook.getBuyOrders());
-
-        List<Order> candidates = new ArrayList<>();
-        int totalAvailable = 0;
-
-        // Scan com.matching candidates
-        for (Order o : counterQueue) {
-            boolean priceOk = isBuyFOK
-                    ? fokOrder.getPrice() >= o.getPrice()
-                    : fokOrder.getPrice() <= o.getPrice();
-
-            if (!priceOk) break;
-
-            candidates.add(o);
-            totalAvailable += o.getQuantity();
-
-            if (totalAvailable >= fokOrder.getQuantity()) break;
-        }
-
-        if (totalAvailable < fokOrder.getQuantity()) {
-            logger.warning("FOK not possible, discarding order: " + fokOrder);
+        EventLog eventLog = orderBook.getEventLog();
+        if (counterQueue.quantityAvailable(fokOrder.getPrice(), fokOrder.getQuantity()) < fokOrder.getQuantity()) {
+            if (eventLog != null) {
+                eventLog.log(LogEventType.FOK_KILLED, orderBook.getSymbol(), fokOrder);
+            }
             orderBook.cancelOrder(fokOrder.getId());
             return;
         }
 
-        // Remove from live queues
-        Order main = isBuyFOK ? orderBook.getBuyOrders().poll() : orderBook.getSellOrders().poll();
-        PriorityQueue<Order> liveCounterQueue = isBuyFOK ? orderBook.getSellOrders() : orderBook.getBuyOrders();
-        for (Order c : candidates) liveCounterQueue.remove(c);
-
-        int remaining = fokOrder.getQuantity();
-        for (Order counter : candidates) {
-            int tradeQty = Math.min(remaining, counter.getQuantity());
-
-            long buyId = isBuyFOK ? main.getId() : counter.getId();
-            long sellId = isBuyFOK ? counter.getId() : main.getId();
+        // take the FOK out of the book and let it trade as the aggressor
+        BookSide fokQueue = isBuyFOK ? orderBook.getBuyOrders() : orderBook.getSellOrders();
+        fokQueue.remove(fokOrder);
+        int filled = orderBook.sweep(fokOrder);
+        if (eventLog != null) {
+            eventLog.log(LogEventType.FOK_FILLED, orderBook.getSymbol(), fokOrder.getId(), fokOrder.getType(),
+                    TimeInForce.FOK, fokOrder.getPrice(), filled, 0);
+        }
+        orderBook.cancelOrder(fokOrder.getId());
+    }
 
-            orderBook.recordTrade(buyId, sellId, counter.getPrice(), tradeQty);
-            logger.info("FOK partial fill: " + tradeQty + " units @ " + counter.getPrice());
+    @Override
+    public TimeInForce getTimeInForce() {
+        return TimeInForce.FOK;
+    }
 
-            remaining -= tradeQty;
-            counter.reduceQuantity(tradeQty);
+    /**
+     * Fills an incoming FOK order completely if the opposite side holds enough quantity at
+     * acceptable prices, otherwise discards it without trading.
+     *
+     * @param orderBook order book we work on
+     * @param incoming  the order being submitted
+     */
+    @Override
+    public void matchIncoming(OrderBook orderBook, Order incoming) {
+        BookSide counterQueue = incoming.getType() == OrderType.BUY ? orderBook.getSellOrders() : orderBook.getBuyOrders();
 
-            if (counter.getQuantity() > 0) {
-                orderBook.addOrder(counter); // re-add partially matched
+        EventLog eventLog = orderBook.getEventLog();
+        if (counterQueue.quantityAvailable(incoming.getPrice(), incoming.getQuantity()) < incoming.getQuantity()) {
+            if (eventLog != null) {
+                eventLog.log(LogEventType.FOK_KILLED, orderBook.getSymbol(), incoming);
             }
-
-            if (remaining == 0) break;
+            return;
+        }
+        int filled = orderBook.sweep(incoming);
+        if (eventLog != null) {
+            eventLog.log(LogEventType.FOK_FILLED, orderBook.getSymbol(), incoming.getId(), incoming.getType(),
+                    TimeInForce.FOK, incoming.getPrice(), filled, 0);
         }
-
-        logger.info("FOK fully matched: " + fokOrder);
     }
 }
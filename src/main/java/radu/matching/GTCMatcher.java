@@ -1,19 +1,18 @@
 package radu.matching;
 
+import radu.engine.EngineClock;
+import radu.engine.EventLog;
+import radu.engine.LogEventType;
 import radu.engine.Order;
 import radu.engine.OrderBook;
 import radu.engine.TimeInForce;
 
-import java.util.logging.Logger;
-
 /**
  * Handles Good-Till-Cancel (GTC) order com.matching logic.
  * GTC orders are partially matched if needed and remaining quantity is kept in the order book.
  */
 public class GTCMatcher implements OrderMatchingStrategy {
 
-    private static final Logger logger = Logger.getLogger(GTCMatcher.class.getName());
-
     /**
      * Determines if this strategy should handle the given orders.
      *
@@ -28,14 +27,15 @@ public class GTCMatcher implements OrderMatchingStrategy {
 
     /**
      * Matches a Good-Till-Cancel (GTC) order with the given order book.
-     * Remaining unmatched quantity stays in the order book.
+     * Both top orders are filled where they rest, so a partially filled order keeps its place
+     * without leaving its price level; remaining unmatched quantity stays in the order book.
      *
      * @param orderBook order book we work on
      */
     @Override
     public void match(OrderBook orderBook) {
-        Order buyOrder = orderBook.getBuyOrders().poll();
-        Order sellOrder = orderBook.getSellOrders().poll();
+        Order buyOrder = orderBook.getBuyOrders().peek();
+        Order sellOrder = orderBook.getSellOrders().peek();
         assert buyOrder != null;
         assert sellOrder != null;
         int minQuantity = Math.min(buyOrder.getQuantity(), sellOrder.getQuantity());
@@ -44,13 +44,33 @@ public class GTCMatcher implements OrderMatchingStrategy {
         sellOrder.reduceQuantity(minQuantity);
 
         orderBook.recordTrade(buyOrder.getId(), sellOrder.getId(), sellOrder.getPrice(), minQuantity);
-        logger.info("GTC match: " + minQuantity + " units @ " + sellOrder.getPrice());
+        EventLog eventLog = orderBook.getEventLog();
+        if (eventLog != null) {
+            eventLog.log(LogEventType.MATCH, orderBook.getSymbol(), 0, null, TimeInForce.GTC, sellOrder.getPrice(), minQuantity, 0);
+        }
+
+        long now = EngineClock.epochNanos();
+        orderBook.afterFill(buyOrder, now);
+        orderBook.afterFill(sellOrder, now);
+    }
 
-        if (buyOrder.getQuantity() > 0) orderBook.addOrder(buyOrder);
-        else orderBook.cancelOrder(buyOrder.getId());
+    @Override
+    public TimeInForce getTimeInForce() {
+        return TimeInForce.GTC;
+    }
 
-        if (sellOrder.getQuantity() > 0) orderBook.addOrder(sellOrder);
-        else orderBook.cancelOrder(sellOrder.getId());
+    /**
+     * Fills an incoming GTC order against the opposite side and rests whatever is left.
+     *
+     * @param orderBook order book we work on
+     * @param incoming  the order being submitted
+     */
+    @Override
+    public void matchIncoming(OrderBook orderBook, Order incoming) {
+        orderBook.sweep(incoming);
+        if (incoming.getQuantity() > 0) {
+            orderBook.addOrder(incoming);
+        }
     }
 }
 
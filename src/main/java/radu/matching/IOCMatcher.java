@@ -1,20 +1,17 @@
 package radu.matching;
 
+import radu.engine.EventLog;
+import radu.engine.LogEventType;
 import radu.engine.Order;
 import radu.engine.OrderBook;
 import radu.engine.TimeInForce;
 
-import java.util.logging.Logger;
-
-
 /**
  * Handles Immediate-Or-Cancel (IOC) order com.matching logic.
  * IOC orders are matched instantly for whatever is available, and remaining quantity is discarded.
  */
 public class IOCMatcher implements OrderMatchingStrategy {
 
-    private static final Logger logger = Logger.getLogger(IOCMatcher.class.getName());
-
     /**
      * Determines if this strategy should handle the given orders.
      *
@@ -46,10 +43,33 @@ public class IOCMatcher implements OrderMatchingStrategy {
         sellOrder.reduceQuantity(minQuantity);
 
         orderBook.recordTrade(buyOrder.getId(), sellOrder.getId(), sellOrder.getPrice(), minQuantity);
-        logger.info("IOC match: " + minQuantity + " units @ " + sellOrder.getPrice());
+        EventLog eventLog = orderBook.getEventLog();
+        if (eventLog != null) {
+            eventLog.log(LogEventType.MATCH, orderBook.getSymbol(), 0, null, TimeInForce.IOC, sellOrder.getPrice(), minQuantity, 0);
+        }
 
         orderBook.cancelOrder(buyOrder.getId());
         orderBook.cancelOrder(sellOrder.getId());
 
     }
+
+    @Override
+    public TimeInForce getTimeInForce() {
+        return TimeInForce.IOC;
+    }
+
+    /**
+     * Fills an incoming IOC order for whatever is available; the rest is never placed in the book.
+     *
+     * @param orderBook the order book we work on
+     * @param incoming  the order being submitted
+     */
+    @Override
+    public void matchIncoming(OrderBook orderBook, Order incoming) {
+        orderBook.sweep(incoming);
+        EventLog eventLog = orderBook.getEventLog();
+        if (incoming.getQuantity() > 0 && eventLog != null) {
+            eventLog.log(LogEventType.REMAINDER_DISCARDED, orderBook.getSymbol(), incoming);
+        }
+    }
 }
@@ -2,8 +2,23 @@ package radu.matching;
 
 import radu.engine.Order;
 import radu.engine.OrderBook;
+import radu.engine.TimeInForce;
 
 public interface OrderMatchingStrategy {
     boolean canHandle(Order buy, Order sell);
     void match(OrderBook orderBook);
+
+    /**
+     * @return the time in force of the incoming orders this strategy handles on arrival
+     */
+    TimeInForce getTimeInForce();
+
+    /**
+     * Matches an order on arrival against the opposite side of the book, applying this
+     * strategy's time-in-force rules to the incoming order.
+     *
+     * @param orderBook order book we work on
+     * @param incoming  the order being submitted, not yet resting in the book
+     */
+    void matchIncoming(OrderBook orderBook, Order incoming);
 }
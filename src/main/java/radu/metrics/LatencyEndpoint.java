@@ -0,0 +1,29 @@
+package radu.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * Actuator endpoint listing the latency percentiles of the last sampled interval, at
+ * {@code /actuator/latency}. The same values are published as {@code matching.latency} gauges.
+ */
+@Component
+@ConditionalOnBean(LatencyMetrics.class)
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private final LatencyMetrics metrics;
+
+    public LatencyEndpoint(LatencyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Collection<LatencyMetrics.Summary> latency() {
+        return metrics.getSummaries();
+    }
+}
@@ -0,0 +1,245 @@
+package radu.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Latency histograms of every stage an order goes through, per symbol and time in force.
+ *
+ * <p>The stages are timed where they happen, from the gateway and REST threads to the shard
+ * threads, into the wait-free HdrHistogram recorders of a {@link SymbolLatency}; recording
+ * neither locks nor allocates, so the matching path is not slowed down by being measured.
+ * A sampler thread ends the current interval of every recorder once per sampling interval,
+ * publishes the percentiles of the interval that ended as Micrometer gauges, and optionally
+ * logs them.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "matching.latency.enabled", havingValue = "true", matchIfMissing = true)
+public class LatencyMetrics implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(LatencyMetrics.class.getName());
+
+    public static final String METER_NAME = "matching.latency";
+    private static final double[] PERCENTILES = {50.0, 99.0, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.99", "0.999"};
+
+    private final Map<String, SymbolLatency> symbols = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final boolean log;
+    private final ScheduledExecutorService sampler;
+
+    /**
+     * Creates histograms that are only sampled when {@link #sample()} is called.
+     */
+    public LatencyMetrics() {
+        this.registry = null;
+        this.log = false;
+        this.sampler = null;
+    }
+
+    /**
+     * @param intervalMillis how often the histograms are sampled, 0 to only sample on demand
+     * @param log            whether every sample is logged
+     * @param registry       the registry the percentiles are published to, if there is one
+     */
+    @Autowired
+    public LatencyMetrics(@Value("${matching.latency.interval-ms:10000}") long intervalMillis,
+                          @Value("${matching.latency.log:false}") boolean log,
+                          ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry.getIfAvailable();
+        this.log = log;
+        if (intervalMillis > 0) {
+            this.sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "matching-latency-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sampler.scheduleAtFixedRate(this::sample, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        else {
+            this.sampler = null;
+        }
+    }
+
+    /**
+     * Gets the recorders of a symbol. Callers on a hot path keep the result rather than
+     * looking it up for every command.
+     *
+     * @param symbol the symbol
+     * @return the recorders of the symbol, created on first use
+     */
+    public SymbolLatency forSymbol(String symbol) {
+        return symbols.computeIfAbsent(symbol, SymbolLatency::new);
+    }
+
+    /**
+     * Ends the current interval of every recorder, publishes the interval that ended and logs the
+     * recorders that saw any values in it, if asked to. Called by the sampler thread; calling it from elsewhere as well splits the
+     * intervals between the callers.
+     */
+    public synchronized void sample() {
+        List<StageRecorder> sampled = new ArrayList<>();
+        for (SymbolLatency latency : symbols.values()) {
+            latency.forEach(recorder -> {
+                if (recorder.sample().getTotalCount() > 0) {
+                    sampled.add(recorder);
+                }
+                register(recorder);
+            });
+        }
+        if (log && !sampled.isEmpty()) {
+            log(sampled);
+        }
+    }
+
+    private void register(StageRecorder recorder) {
+        if (registry == null || recorder.registered) return;
+        Tags tags = Tags.of("stage", recorder.getStage().name().toLowerCase(),
+                "symbol", recorder.getSymbol(),
+                "tif", recorder.getTif() == null ? "none" : recorder.getTif().name());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            double percentile = PERCENTILES[i];
+            TimeGauge.builder(METER_NAME, recorder, TimeUnit.NANOSECONDS,
+                            r -> r.getLastInterval().getValueAtPercentile(percentile))
+                    .tags(tags.and("quantile", QUANTILES[i]))
+                    .register(registry);
+        }
+        TimeGauge.builder(METER_NAME, recorder, TimeUnit.NANOSECONDS, r -> r.getLastInterval().getMaxValue())
+                .tags(tags.and("quantile", "max"))
+                .register(registry);
+        Gauge.builder(METER_NAME + ".count", recorder, StageRecorder::getTotalCount)
+                .tags(tags)
+                .register(registry);
+        recorder.registered = true;
+    }
+
+    private void log(List<StageRecorder> sampled) {
+        sampled.sort(Comparator.comparing(StageRecorder::getSymbol).thenComparing(StageRecorder::getStage));
+        StringBuilder dump = new StringBuilder("Latency (us) over the last interval:");
+        for (StageRecorder recorder : sampled) {
+            Histogram interval = recorder.getLastInterval();
+            dump.append(String.format("%n  %-8s %-13s %-4s n=%-8d p50=%-9.1f p99=%-9.1f p99.9=%-9.1f max=%.1f",
+                    recorder.getSymbol(), recorder.getStage(), recorder.getTif() == null ? "-" : recorder.getTif(),
+                    interval.getTotalCount(), micros(interval.getValueAtPercentile(50.0)),
+                    micros(interval.getValueAtPercentile(99.0)), micros(interval.getValueAtPercentile(99.9)),
+                    micros(interval.getMaxValue())));
+        }
+        logger.info(dump.toString());
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    /**
+     * Describes the last complete interval of every recorder that has one.
+     *
+     * @return one summary per symbol, stage and time in force, in no particular order
+     */
+    public Collection<Summary> getSummaries() {
+        List<Summary> summaries = new ArrayList<>();
+        for (SymbolLatency latency : symbols.values()) {
+            latency.forEach(recorder -> summaries.add(new Summary(recorder)));
+        }
+        return summaries;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    /**
+     * Percentiles of one stage for one symbol and time in force over the last sampled interval,
+     * in nanoseconds.
+     */
+    public static final class Summary {
+        private final String symbol;
+        private final LatencyStage stage;
+        private final String tif;
+        private final long count;
+        private final long totalCount;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Summary(StageRecorder recorder) {
+            Histogram interval = recorder.getLastInterval();
+            this.symbol = recorder.getSymbol();
+            this.stage = recorder.getStage();
+            this.tif = recorder.getTif() == null ? "none" : recorder.getTif().name();
+            this.count = interval.getTotalCount();
+            this.totalCount = recorder.getTotalCount();
+            this.p50 = interval.getValueAtPercentile(50.0);
+            this.p99 = interval.getValueAtPercentile(99.0);
+            this.p999 = interval.getValueAtPercentile(99.9);
+            this.max = interval.getMaxValue();
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+        public LatencyStage getStage() {
+            return stage;
+        }
+
+        public String getTif() {
+            return tif;
+        }
+
+        /**
+         * @return the number of values recorded in the last interval
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the number of values recorded in all sampled intervals
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+}
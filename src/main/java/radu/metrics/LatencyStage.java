@@ -0,0 +1,35 @@
+package radu.metrics;
+
+/**
+ * The stages of an order's life that are timed. Stages from ENQUEUE on run on the shard thread
+ * that owns the order's book; DECODE and SERVICE run on the gateway and web threads that accept it.
+ */
+public enum LatencyStage {
+    /** Decoding a binary gateway message into a command, on the gateway thread. */
+    DECODE(false),
+    /** Turning a REST request into an order and handing it to its shard, on the web thread. */
+    SERVICE(false),
+    /** Waiting in the shard's command ring, from filling the slot to the shard thread picking it up. */
+    ENQUEUE(true),
+    /** Putting a residual or a waiting stop order into the book. */
+    BOOK_INSERT(true),
+    /** Matching an incoming order on arrival, including its trades and the insert of any residual. */
+    MATCH(true),
+    /** Handing one trade to the synchronous trade listeners and the trade stream. */
+    TRADE_PUBLISH(true),
+    /** Appending a command or a trade to the journal. */
+    PERSIST(true);
+
+    private final boolean engineThread;
+
+    LatencyStage(boolean engineThread) {
+        this.engineThread = engineThread;
+    }
+
+    /**
+     * @return true if the stage is only ever timed on the single thread that owns the book
+     */
+    public boolean isEngineThread() {
+        return engineThread;
+    }
+}
@@ -0,0 +1,95 @@
+package radu.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SingleWriterRecorder;
+import radu.engine.TimeInForce;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies of one stage for one symbol and time in force.
+ *
+ * <p>Values go into an HdrHistogram recorder, which is wait-free for writers: a stage timed on
+ * the shard thread uses a single-writer recorder, the others a recorder that any number of threads
+ * may write to. The sampler swaps out the interval histogram periodically and publishes it, so
+ * readers never touch a histogram that is being written.</p>
+ */
+final class StageRecorder {
+
+    // values above this are recorded as this; 2 significant digits keep every histogram small
+    static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final String symbol;
+    private final LatencyStage stage;
+    private final TimeInForce tif;
+    private final SingleWriterRecorder singleWriter;
+    private final Recorder multiWriter;
+    private volatile Histogram lastInterval;
+    private volatile long totalCount;
+    boolean registered;
+
+    StageRecorder(String symbol, LatencyStage stage, TimeInForce tif) {
+        this.symbol = symbol;
+        this.stage = stage;
+        this.tif = tif;
+        if (stage.isEngineThread()) {
+            this.singleWriter = new SingleWriterRecorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+            this.multiWriter = null;
+        }
+        else {
+            this.singleWriter = null;
+            this.multiWriter = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+        }
+        this.lastInterval = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    }
+
+    void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, HIGHEST_TRACKABLE_NANOS);
+        if (singleWriter != null) {
+            singleWriter.recordValue(value);
+        }
+        else {
+            multiWriter.recordValue(value);
+        }
+    }
+
+    /**
+     * Ends the current interval and publishes what was recorded in it. Only the sampler calls this.
+     *
+     * @return the histogram of the interval that just ended
+     */
+    Histogram sample() {
+        Histogram interval = singleWriter != null ? singleWriter.getIntervalHistogram() : multiWriter.getIntervalHistogram();
+        totalCount += interval.getTotalCount();
+        lastInterval = interval;
+        return interval;
+    }
+
+    /**
+     * @return the latencies of the last complete interval; must not be modified
+     */
+    Histogram getLastInterval() {
+        return lastInterval;
+    }
+
+    long getTotalCount() {
+        return totalCount;
+    }
+
+    String getSymbol() {
+        return symbol;
+    }
+
+    LatencyStage getStage() {
+        return stage;
+    }
+
+    /**
+     * @return the time in force, null for commands that have none
+     */
+    TimeInForce getTif() {
+        return tif;
+    }
+}
@@ -0,0 +1,61 @@
+package radu.metrics;
+
+import radu.engine.TimeInForce;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * The latency recorders of one symbol, one per stage and time in force.
+ *
+ * <p>Recording is an array lookup and a wait-free histogram update: no lock, no allocation.
+ * A recorder is only created the first time its stage and time in force is seen.</p>
+ */
+public final class SymbolLatency {
+
+    private static final TimeInForce[] TIFS = TimeInForce.values();
+    // one slot per time in force, plus one for commands without one such as cancels
+    private static final int TIF_SLOTS = TIFS.length + 1;
+
+    private final String symbol;
+    private final AtomicReferenceArray<StageRecorder> recorders =
+            new AtomicReferenceArray<>(LatencyStage.values().length * TIF_SLOTS);
+
+    SymbolLatency(String symbol) {
+        this.symbol = symbol;
+    }
+
+    /**
+     * Records how long a stage took.
+     *
+     * @param stage the stage
+     * @param tif   the time in force of the order, null if the command has none
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(LatencyStage stage, TimeInForce tif, long nanos) {
+        int index = stage.ordinal() * TIF_SLOTS + (tif == null ? TIFS.length : tif.ordinal());
+        StageRecorder recorder = recorders.get(index);
+        if (recorder == null) {
+            recorder = create(index, stage, tif);
+        }
+        recorder.record(nanos);
+    }
+
+    private StageRecorder create(int index, LatencyStage stage, TimeInForce tif) {
+        StageRecorder recorder = new StageRecorder(symbol, stage, tif);
+        return recorders.compareAndSet(index, null, recorder) ? recorder : recorders.get(index);
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    void forEach(Consumer<StageRecorder> action) {
+        for (int i = 0; i < recorders.length(); i++) {
+            StageRecorder recorder = recorders.get(i);
+            if (recorder != null) {
+                action.accept(recorder);
+            }
+        }
+    }
+}
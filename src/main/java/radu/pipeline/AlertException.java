@@ -0,0 +1,16 @@
+package radu.pipeline;
+
+/**
+ * Thrown to a consumer waiting on a {@link SequenceBarrier} when it has been asked to stop.
+ * A single preallocated instance is used, so raising it costs nothing.
+ */
+public final class AlertException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final AlertException INSTANCE = new AlertException();
+
+    private AlertException() {
+        super("Alerted", null, false, false);
+    }
+}
@@ -0,0 +1,92 @@
+package radu.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs an {@link EventHandler} over a ring buffer. Each wait returns every event published
+ * since the last one, and the processor hands them to the handler back to back before
+ * publishing its own progress once per batch, so a burst costs one handoff instead of one per event.
+ * A processor runs once: halting it, even before its thread has started, is final.
+ *
+ * @param <E> the slot type
+ */
+public class BatchEventProcessor<E> implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(BatchEventProcessor.class.getName());
+
+    private static final int IDLE = 0;
+    private static final int RUNNING = 1;
+    private static final int HALTED = 2;
+
+    private final RingBuffer<E> ringBuffer;
+    private final SequenceBarrier barrier;
+    private final EventHandler<? super E> handler;
+    private final Sequence sequence = new Sequence();
+    private final AtomicInteger state = new AtomicInteger(IDLE);
+
+    public BatchEventProcessor(RingBuffer<E> ringBuffer, EventHandler<? super E> handler) {
+        this.ringBuffer = ringBuffer;
+        this.barrier = ringBuffer.newBarrier();
+        this.handler = handler;
+        ringBuffer.addGatingSequences(sequence);
+    }
+
+    /**
+     * @return the sequence of the last event this processor has fully handled
+     */
+    public Sequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Handles events until halted. Returns at once if the processor was halted before it started.
+     *
+     * @throws IllegalStateException if the processor is already running
+     */
+    @Override
+    public void run() {
+        if (!state.compareAndSet(IDLE, RUNNING)) {
+            if (state.get() == HALTED) return;
+            throw new IllegalStateException("Processor is already running");
+        }
+        barrier.clearAlert();
+        // a halt between the state change and clearAlert() lost its alert, but not its state
+        if (state.get() == HALTED) return;
+        long next = sequence.get() + 1;
+        while (true) {
+            try {
+                long available = barrier.waitFor(next);
+                while (next <= available) {
+                    E event = ringBuffer.get(next);
+                    try {
+                        handler.onEvent(event, next, next == available);
+                    }
+                    catch (RuntimeException e) {
+                        logger.log(Level.SEVERE, "Event handler failed at sequence " + next, e);
+                    }
+                    next++;
+                }
+                sequence.set(available);
+            }
+            catch (AlertException e) {
+                if (state.get() == HALTED) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Asks the processor to stop after the batch it is handling.
+     */
+    public void halt() {
+        state.set(HALTED);
+        barrier.alert();
+    }
+
+    public boolean isRunning() {
+        return state.get() == RUNNING;
+    }
+}
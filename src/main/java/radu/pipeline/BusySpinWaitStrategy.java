@@ -0,0 +1,18 @@
+package radu.pipeline;
+
+/**
+ * Spins on the cursor without ever giving up the CPU. Lowest latency, but it burns a core
+ * per consumer, so it only makes sense when consumers are pinned to isolated cores.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, SequenceBarrier barrier) throws AlertException {
+        long available;
+        while ((available = cursor.get()) < sequence) {
+            barrier.checkAlert();
+            Thread.onSpinWait();
+        }
+        return available;
+    }
+}
@@ -0,0 +1,20 @@
+package radu.pipeline;
+
+/**
+ * Consumes events from a ring buffer on a {@link BatchEventProcessor} thread.
+ *
+ * @param <E> the slot type
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    /**
+     * Called for every published event, in sequence order. The slot is reused once the
+     * handler returns, so it must not be retained.
+     *
+     * @param event      the slot
+     * @param sequence   its sequence
+     * @param endOfBatch true for the last event currently available, a good point to flush
+     */
+    void onEvent(E event, long sequence, boolean endOfBatch);
+}
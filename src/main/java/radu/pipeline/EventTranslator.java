@@ -0,0 +1,18 @@
+package radu.pipeline;
+
+/**
+ * Copies data into a claimed ring buffer slot.
+ *
+ * @param <E> the slot type
+ * @param <A> the type of the data being published
+ */
+@FunctionalInterface
+public interface EventTranslator<E, A> {
+
+    /**
+     * @param event    the slot to fill
+     * @param sequence the sequence the slot was claimed at
+     * @param arg      the data to copy
+     */
+    void translateTo(E event, long sequence, A arg);
+}
@@ -0,0 +1,48 @@
+package radu.pipeline;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks for a short, fixed time between checks. Idle consumers use
+ * almost no CPU, at the cost of up to one park interval of wake-up latency after a quiet period.
+ */
+public class ParkingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long DEFAULT_PARK_NANOS = 50_000;
+
+    private final long parkNanos;
+
+    public ParkingWaitStrategy() {
+        this(DEFAULT_PARK_NANOS);
+    }
+
+    /**
+     * @param parkNanos how long to park between checks once spinning and yielding gave nothing
+     */
+    public ParkingWaitStrategy(long parkNanos) {
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, SequenceBarrier barrier) throws AlertException {
+        long available;
+        int counter = SPIN_TRIES + YIELD_TRIES;
+        while ((available = cursor.get()) < sequence) {
+            barrier.checkAlert();
+            if (counter > YIELD_TRIES) {
+                counter--;
+                Thread.onSpinWait();
+            }
+            else if (counter > 0) {
+                counter--;
+                Thread.yield();
+            }
+            else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+        return available;
+    }
+}
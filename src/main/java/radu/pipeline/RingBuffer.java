@@ -0,0 +1,246 @@
+package radu.pipeline;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Preallocated ring of mutable event slots shared by any number of producers and a set of consumers.
+ *
+ * <p>Producers claim a sequence with {@link #next()}, fill the slot returned by {@link #get(long)}
+ * and make it visible with {@link #publish(long)}. Claiming is a single CAS on the cursor and never
+ * takes a lock. A producer only waits when the ring is full, that is when the slowest consumer
+ * (a gating sequence) is a whole ring behind, which gives natural backpressure.</p>
+ *
+ * <p>Because several producers can publish out of order, each slot has an availability flag
+ * holding the lap number it was last published on; consumers use it to find the highest
+ * contiguous published sequence.</p>
+ *
+ * @param <E> the slot type
+ */
+public class RingBuffer<E> {
+
+    private final Object[] entries;
+    private final int bufferSize;
+    private final int indexMask;
+    private final int indexShift;
+    private final AtomicIntegerArray availableBuffer;
+    private final WaitStrategy waitStrategy;
+
+    private final Sequence cursor = new Sequence();
+    private final Sequence gatingSequenceCache = new Sequence();
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+
+    /**
+     * @param bufferSize   number of slots, must be a power of two
+     * @param factory      creates the slots up front
+     * @param waitStrategy how consumers wait for new events
+     */
+    public RingBuffer(int bufferSize, Supplier<E> factory, WaitStrategy waitStrategy) {
+        if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a power of 2: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+        this.waitStrategy = waitStrategy;
+        this.entries = new Object[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            entries[i] = factory.get();
+        }
+        this.availableBuffer = new AtomicIntegerArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            availableBuffer.set(i, -1);
+        }
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full.
+     *
+     * @return the claimed sequence
+     */
+    public long next() {
+        return next(1);
+    }
+
+    /**
+     * Claims a batch of consecutive slots, waiting while the ring is full.
+     *
+     * @param n number of slots to claim
+     * @return the highest claimed sequence
+     */
+    public long next(int n) {
+        if (n < 1 || n > bufferSize) {
+            throw new IllegalArgumentException("Invalid batch size: " + n);
+        }
+        long current;
+        long next;
+        while (true) {
+            current = cursor.get();
+            next = current + n;
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = minimumSequence(current);
+                if (wrapPoint > gatingSequence) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+                gatingSequenceCache.set(gatingSequence);
+            }
+            else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Claims the next slot if one is free, without waiting. For producers that would rather drop
+     * what they publish than be held back by a slow consumer.
+     *
+     * @return the claimed sequence, or -1 if the ring is full
+     */
+    public long tryNext() {
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = minimumSequence(current);
+                if (wrapPoint > gatingSequence) {
+                    return -1;
+                }
+                gatingSequenceCache.set(gatingSequence);
+            }
+            else if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * @param sequence a claimed or published sequence
+     * @return the slot for that sequence
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & indexMask];
+    }
+
+    /**
+     * Makes a filled slot visible to consumers.
+     *
+     * @param sequence the claimed sequence
+     */
+    public void publish(long sequence) {
+        setAvailable(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * Makes a batch of filled slots visible to consumers.
+     *
+     * @param lo the lowest claimed sequence of the batch
+     * @param hi the highest claimed sequence of the batch
+     */
+    public void publish(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            setAvailable(sequence);
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    /**
+     * Claims one slot, lets the translator fill it and publishes it.
+     * Passing the argument explicitly lets callers use a non-capturing translator, so nothing is allocated.
+     *
+     * @param translator copies the argument into the slot
+     * @param arg        the data to publish
+     * @param <A>        the argument type
+     */
+    public <A> void publishEvent(EventTranslator<E, A> translator, A arg) {
+        long sequence = next();
+        try {
+            translator.translateTo(get(sequence), sequence, arg);
+        }
+        finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Registers consumer sequences that producers must not overtake.
+     *
+     * @param sequences the consumer sequences
+     */
+    public synchronized void addGatingSequences(Sequence... sequences) {
+        Sequence[] current = gatingSequences;
+        Sequence[] updated = Arrays.copyOf(current, current.length + sequences.length);
+        long cursorValue = cursor.get();
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i].set(cursorValue);
+            updated[current.length + i] = sequences[i];
+        }
+        gatingSequences = updated;
+    }
+
+    /**
+     * @return a barrier consumers use to wait for published events
+     */
+    public SequenceBarrier newBarrier() {
+        return new SequenceBarrier(this, waitStrategy, cursor);
+    }
+
+    /**
+     * Finds the highest sequence up to {@code available} such that every sequence from
+     * {@code lowerBound} to it has been published.
+     *
+     * @return that sequence, or {@code lowerBound - 1} if {@code lowerBound} itself is not published
+     */
+    public long getHighestPublishedSequence(long lowerBound, long available) {
+        for (long sequence = lowerBound; sequence <= available; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return available;
+    }
+
+    /**
+     * @return the highest claimed sequence
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of free slots left before producers have to wait
+     */
+    public long remainingCapacity() {
+        long produced = cursor.get();
+        return bufferSize - (produced - minimumSequence(produced));
+    }
+
+    private void setAvailable(long sequence) {
+        availableBuffer.lazySet((int) sequence & indexMask, (int) (sequence >>> indexShift));
+    }
+
+    private boolean isAvailable(long sequence) {
+        return availableBuffer.get((int) sequence & indexMask) == (int) (sequence >>> indexShift);
+    }
+
+    private long minimumSequence(long minimum) {
+        for (Sequence sequence : gatingSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
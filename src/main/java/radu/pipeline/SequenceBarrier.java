@@ -0,0 +1,55 @@
+package radu.pipeline;
+
+/**
+ * What a consumer waits on: tells it up to which sequence it may read, and lets it be woken
+ * up with an alert when it has to stop.
+ */
+public class SequenceBarrier {
+
+    private final RingBuffer<?> ringBuffer;
+    private final WaitStrategy waitStrategy;
+    private final Sequence cursor;
+    private volatile boolean alerted;
+
+    SequenceBarrier(RingBuffer<?> ringBuffer, WaitStrategy waitStrategy, Sequence cursor) {
+        this.ringBuffer = ringBuffer;
+        this.waitStrategy = waitStrategy;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Waits until the given sequence is published.
+     *
+     * @param sequence the next sequence the consumer wants
+     * @return the highest published sequence, possibly below {@code sequence} if producers
+     * claimed it but have not published it yet
+     * @throws AlertException if the barrier was alerted
+     */
+    public long waitFor(long sequence) throws AlertException {
+        checkAlert();
+        long available = waitStrategy.waitFor(sequence, cursor, this);
+        if (available < sequence) {
+            return available;
+        }
+        return ringBuffer.getHighestPublishedSequence(sequence, available);
+    }
+
+    public void alert() {
+        alerted = true;
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    public void clearAlert() {
+        alerted = false;
+    }
+
+    public boolean isAlerted() {
+        return alerted;
+    }
+
+    public void checkAlert() throws AlertException {
+        if (alerted) {
+            throw AlertException.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package radu.pipeline;
+
+/**
+ * Decides how a consumer waits for the next sequence to be published.
+ * The choice trades CPU usage against wake-up latency.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Waits until the cursor has reached at least the given sequence.
+     *
+     * @param sequence the sequence the consumer wants to read
+     * @param cursor   the producer cursor
+     * @param barrier  checked for alerts while waiting
+     * @return the cursor value seen, at least {@code sequence}
+     * @throws AlertException if the barrier was alerted while waiting
+     */
+    long waitFor(long sequence, Sequence cursor, SequenceBarrier barrier) throws AlertException;
+
+    /**
+     * Called by producers after publishing, for strategies that block consumers.
+     */
+    default void signalAllWhenBlocking() {
+    }
+
+    /**
+     * Looks up a strategy by its configuration name.
+     *
+     * @param name one of {@code busy-spin}, {@code yield} or {@code park}
+     * @return a new strategy instance
+     */
+    static WaitStrategy named(String name) {
+        switch (name) {
+            case "busy-spin":
+                return new BusySpinWaitStrategy();
+            case "yield":
+                return new YieldingWaitStrategy();
+            case "park":
+                return new ParkingWaitStrategy();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        }
+    }
+}
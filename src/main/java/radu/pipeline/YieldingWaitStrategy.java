@@ -0,0 +1,27 @@
+package radu.pipeline;
+
+/**
+ * Spins for a short while and then yields the CPU between checks. Close to busy-spin latency
+ * while leaving room for other threads when there are more threads than cores.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+
+    private static final int SPIN_TRIES = 100;
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, SequenceBarrier barrier) throws AlertException {
+        long available;
+        int counter = SPIN_TRIES;
+        while ((available = cursor.get()) < sequence) {
+            barrier.checkAlert();
+            if (counter > 0) {
+                counter--;
+                Thread.onSpinWait();
+            }
+            else {
+                Thread.yield();
+            }
+        }
+        return available;
+    }
+}
@@ -1,60 +1,151 @@
 package radu.service;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import radu.domain.dto.BatchRequest;
 import radu.domain.dto.OrderRequest;
-import radu.domain.repositories.BuyOrderRepo;
-import radu.domain.repositories.SellOrderRepo;
-import radu.engine.MatchingEngine;
+import radu.engine.EngineClock;
+import radu.engine.ExecutionReport;
+import radu.engine.Instrument;
+import radu.engine.InstrumentRegistry;
 import radu.engine.Order;
-import radu.engine.OrderBook;
-import radu.engine.OrderType;
+import radu.engine.OrderBatch;
+import radu.engine.OrderKind;
+import radu.engine.Quote;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.TimeInForce;
+import radu.metrics.LatencyMetrics;
+import radu.metrics.LatencyStage;
 
-import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class OrderService {
 
-    BuyOrderRepo buyOrderRepo;
-    SellOrderRepo sellOrderRepo;
-    MatchingEngine matchingEngine;
+    private static final long DEFAULT_EXPIRY_NANOS = TimeUnit.SECONDS.toNanos(60);
 
-    @Autowired
-    public OrderService(BuyOrderRepo buyOrderRepo, SellOrderRepo sellOrderRepo, MatchingEngine matchingEngine) {
-        this.buyOrderRepo = buyOrderRepo;
-        this.sellOrderRepo = sellOrderRepo;
+    ShardedMatchingEngine matchingEngine;
+    InstrumentRegistry instruments;
+    LatencyMetrics latencyMetrics;
+
+    public OrderService(ShardedMatchingEngine matchingEngine, InstrumentRegistry instruments) {
         this.matchingEngine = matchingEngine;
+        this.instruments = instruments;
     }
 
-    public void addOrder(Order order) {
-        matchingEngine.addOrder(order.getSymbol(), order);
-        if(order.getType() == OrderType.BUY) {
-            buyOrderRepo.save(order);
-        }
-        else {
-            sellOrderRepo.save(order);
+    @Autowired
+    public OrderService(ShardedMatchingEngine matchingEngine, InstrumentRegistry instruments,
+                        ObjectProvider<LatencyMetrics> latencyMetrics) {
+        this(matchingEngine, instruments);
+        this.latencyMetrics = latencyMetrics.getIfAvailable();
+    }
+
+    /**
+     * Converts an API request into an engine order and hands it to the shard that owns its symbol,
+     * without waiting for the shard to apply it, so the calling thread is free again as soon as the
+     * order is in the shard's ring. The time taken up to that point is recorded as the SERVICE stage.
+     *
+     * @param req the order request
+     * @return completes on the shard thread with what the order traded and left in the book
+     */
+    public CompletableFuture<ExecutionReport> submitOrder(OrderRequest req) {
+        long start = System.nanoTime();
+        Order order = createOrderObject(req);
+        CompletableFuture<ExecutionReport> result = matchingEngine.submitOrder(order);
+        if (latencyMetrics != null) {
+            latencyMetrics.forSymbol(order.getSymbol()).record(LatencyStage.SERVICE, order.getTif(), System.nanoTime() - start);
         }
+        return result;
+    }
+
+    /**
+     * Hands the order to the shard that owns its symbol, which journals it before applying it.
+     *
+     * @param order the order to add
+     * @return completes once the order has been applied to its book
+     */
+    public CompletableFuture<Boolean> addOrder(Order order) {
+        return matchingEngine.addOrder(order);
     }
 
+    /**
+     * Converts an API request into an engine order. This is the only place where decimal
+     * prices and {@code Instant}s are turned into ticks and engine nanos.
+     *
+     * @param req the order request
+     * @return the order, priced in ticks
+     */
     public Order createOrderObject(OrderRequest req) {
-        return new Order(
+        Instrument instrument = instruments.get(req.symbol);
+        OrderKind kind = req.kind != null ? req.kind : OrderKind.LIMIT;
+        Order order = new Order(
+                Order.nextId(),
                 req.type,
-                req.symbol,
-                req.price,
+                instrument.getSymbol(), // shared instance instead of the one parsed from the request
+                kind,
+                req.priceTicks != 0 ? req.priceTicks : instrument.toTicks(req.price),
+                req.stopPriceTicks != 0 ? req.stopPriceTicks : instrument.toTicks(req.stopPrice),
                 req.quantity,
-                req.expiry != null ? req.expiry : Instant.now().plusSeconds(60),
-                req.tif
+                EngineClock.epochNanos(),
+                req.expiry != null ? EngineClock.toEpochNanos(req.expiry) : EngineClock.epochNanos() + DEFAULT_EXPIRY_NANOS,
+                // a market order never rests, so it needs no time in force
+                req.tif == null && kind == OrderKind.MARKET ? TimeInForce.IOC : req.tif
         );
+        if (req.displayQuantity > 0) {
+            order.setIceberg(req.displayQuantity, 0);
+        }
+        return order;
     }
 
-    public Order deleteOrder(Order order) {
-        matchingEngine.cancelOrder(order.getSymbol(), order.getId());
-        if(order.getType() == OrderType.BUY) {
-            buyOrderRepo.delete(order);
+    /**
+     * Converts a batch request into an engine batch and hands it to the shard that owns the
+     * symbol, which applies its commands back to back with no other command in between.
+     *
+     * @param req the batch request
+     * @return completes with the outcome of every command, in request order
+     */
+    public CompletableFuture<OrderBatch> submitBatch(BatchRequest req) {
+        Instrument instrument = instruments.get(req.symbol);
+        OrderBatch batch = new OrderBatch(instrument.getSymbol());
+        for (BatchRequest.Item item : req.commands) {
+            long priceTicks = item.priceTicks != 0 ? item.priceTicks : instrument.toTicks(item.price);
+            switch (item.action) {
+                case NEW:
+                    batch.add(item.type, priceTicks, item.quantity,
+                            item.expiry != null ? EngineClock.toEpochNanos(item.expiry) : EngineClock.epochNanos() + DEFAULT_EXPIRY_NANOS,
+                            item.tif);
+                    break;
+                case CANCEL:
+                    batch.cancel(item.orderId);
+                    break;
+                case AMEND:
+                    batch.amend(item.orderId, priceTicks, item.quantity);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown batch action: " + item.action);
+            }
         }
-        else {
-            sellOrderRepo.delete(order);
-        }
-        return order;
+        return matchingEngine.submitBatch(batch);
+    }
+
+    /**
+     * @param symbol the symbol
+     * @return the best bid and offer of the symbol, or null if it has no book
+     */
+    public Quote getQuote(String symbol) {
+        return matchingEngine.getQuote(symbol);
+    }
+
+    /**
+     * Hands the cancel to the shard that owns the symbol, without waiting for it to be applied.
+     *
+     * @param symbol  the symbol of the order
+     * @param orderId the order to cancel
+     * @return completes on the shard thread with true if the order was found and removed
+     */
+    public CompletableFuture<Boolean> deleteOrder(String symbol, long orderId) {
+        return matchingEngine.cancelOrder(symbol, orderId);
     }
 }
@@ -0,0 +1,108 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineClock;
+import radu.engine.EventLog;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the asynchronous event log of the books.
+ */
+public class EventLogTest {
+
+    /**
+     * Logger that keeps every record it is handed, at the given level, and the name of the
+     * thread that handed it over.
+     */
+    private static Logger capturing(List<LogRecord> records, List<String> threads, Level level) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.setLevel(level);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+                threads.add(Thread.currentThread().getName());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return logger;
+    }
+
+    /**
+     * Tests that what a book reports reaches the logger as text on the log's own thread, in
+     * order and stamped with the time it happened.
+     */
+    @Test
+    void testEventsAreFormattedOffTheBookThread() {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        EventLog eventLog = new EventLog(64, capturing(records, threads, Level.INFO));
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setEventLog(eventLog);
+
+        long before = EngineClock.epochNanos();
+        Order resting = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.processOrder(resting);
+        assertTrue(ob.updateOrder(resting.getId(), 10000, 3));
+        assertFalse(ob.updateOrder(12345, 10000, 3));
+        ob.processOrder(new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.FOK));
+        ob.processOrder(new Order(OrderType.BUY, "AAPL", 10000, 4, TestTimes.inSeconds(60), TimeInForce.IOC));
+        eventLog.close();
+
+        assertEquals(4, records.size());
+        assertEquals("Updated order AAPL #" + resting.getId() + " SELL 3 @ 10000 GTC", records.get(0).getMessage());
+        assertEquals("Couldn't update order AAPL #12345 3 @ 10000", records.get(1).getMessage());
+        assertEquals(Level.WARNING, records.get(1).getLevel());
+        assertTrue(records.get(2).getMessage().startsWith("FOK not possible, discarding order AAPL"));
+        assertTrue(records.get(3).getMessage().startsWith("IOC remainder discarded AAPL"));
+        assertTrue(records.get(3).getMessage().contains(" 1 @ 10000 IOC"));
+        assertEquals(List.of("event-log"), threads.stream().distinct().collect(Collectors.toList()));
+        for (LogRecord record : records) {
+            long nanos = TimeUnit.SECONDS.toNanos(record.getInstant().getEpochSecond()) + record.getInstant().getNano();
+            assertTrue(nanos >= before);
+        }
+    }
+
+    /**
+     * Tests that events below the logger's level are not written to the ring at all.
+     */
+    @Test
+    void testEventsBelowLevelAreSkipped() {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        EventLog eventLog = new EventLog(64, capturing(records, new CopyOnWriteArrayList<>(), Level.WARNING));
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setEventLog(eventLog);
+
+        Order resting = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.processOrder(resting);
+        ob.updateOrder(resting.getId(), 10000, 3);
+        ob.matchOrders();
+        assertEquals(-1, eventLog.getCursor());
+
+        ob.updateOrder(12345, 10000, 3);
+        eventLog.close();
+        assertEquals(0, eventLog.getCursor());
+        assertEquals(1, records.size());
+        assertEquals(0, eventLog.getDroppedCount());
+    }
+}
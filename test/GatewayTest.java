@@ -0,0 +1,233 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineClock;
+import radu.engine.EngineSettings;
+import radu.engine.OrderType;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.TimeInForce;
+import radu.gateway.ExecType;
+import radu.gateway.ExecutionReports;
+import radu.gateway.GatewayProtocol;
+import radu.gateway.OrderGateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests of the binary order entry gateway over a real socket.
+ */
+public class GatewayTest {
+
+    private ExecutionReports reports;
+    private ShardedMatchingEngine engine;
+    private OrderGateway gateway;
+    private SocketChannel client;
+    private final ByteBuffer out = ByteBuffer.allocate(1024).order(GatewayProtocol.BYTE_ORDER);
+    private final ByteBuffer in = ByteBuffer.allocate(GatewayProtocol.EXECUTION_REPORT_LENGTH).order(GatewayProtocol.BYTE_ORDER);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        reports = new ExecutionReports(1024);
+        engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(2).withRingSize(1024).withTradeListener(reports)
+                .withRemovalListener(reports));
+        gateway = new OrderGateway(engine, reports, 0);
+        client = SocketChannel.open(new InetSocketAddress("localhost", gateway.getPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        gateway.close();
+        engine.close();
+        reports.close();
+    }
+
+    private void send() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            client.write(out);
+        }
+        out.clear();
+    }
+
+    private ByteBuffer receive() throws IOException {
+        in.clear();
+        while (in.hasRemaining()) {
+            if (client.read(in) < 0) fail("Gateway closed the connection");
+        }
+        return in;
+    }
+
+    private ByteBuffer expect(long clientOrderId, ExecType execType) throws IOException {
+        ByteBuffer report = receive();
+        assertEquals(clientOrderId, GatewayProtocol.reportClientOrderId(report, 0));
+        assertEquals(execType, GatewayProtocol.reportExecType(report, 0));
+        return report;
+    }
+
+    /**
+     * Tests that a resting order is acknowledged, filled by a crossing order and reported
+     * to both clients in order: NEW before FILL, and the fill leaves the right remainder.
+     */
+    @Test
+    void testNewOrderIsAcknowledgedAndFilled() throws IOException {
+        GatewayProtocol.putNewOrder(out, 1, OrderType.SELL, TimeInForce.GTC, "AAPL", 15000, 10, TestTimes.inSeconds(60));
+        send();
+        ByteBuffer ack = expect(1, ExecType.NEW);
+        long sellId = GatewayProtocol.reportOrderId(ack, 0);
+        assertEquals(10, GatewayProtocol.reportLeavesQuantity(ack, 0));
+
+        GatewayProtocol.putNewOrder(out, 2, OrderType.BUY, TimeInForce.IOC, "AAPL", 15000, 4, TestTimes.inSeconds(60));
+        send();
+        // fills of both sides come in trade order: the buyer first, then the resting seller
+        expect(2, ExecType.NEW);
+        ByteBuffer buyFill = expect(2, ExecType.FILL);
+        assertEquals(15000, GatewayProtocol.reportPrice(buyFill, 0));
+        assertEquals(4, GatewayProtocol.reportQuantity(buyFill, 0));
+        assertEquals(0, GatewayProtocol.reportLeavesQuantity(buyFill, 0));
+        ByteBuffer sellFill = expect(1, ExecType.FILL);
+        assertEquals(sellId, GatewayProtocol.reportOrderId(sellFill, 0));
+        assertEquals(6, GatewayProtocol.reportLeavesQuantity(sellFill, 0));
+    }
+
+    /**
+     * Tests that the unfilled rest of an IOC order is reported as canceled.
+     */
+    @Test
+    void testIocRemainderIsCanceled() throws IOException {
+        GatewayProtocol.putNewOrder(out, 1, OrderType.SELL, TimeInForce.GTC, "MSFT", 20000, 3, TestTimes.inSeconds(60));
+        GatewayProtocol.putNewOrder(out, 2, OrderType.BUY, TimeInForce.IOC, "MSFT", 20000, 5, TestTimes.inSeconds(60));
+        send();
+        expect(1, ExecType.NEW);
+        expect(2, ExecType.NEW);
+        expect(2, ExecType.FILL);
+        expect(1, ExecType.FILL);
+        ByteBuffer canceled = expect(2, ExecType.CANCELED);
+        assertEquals(0, GatewayProtocol.reportLeavesQuantity(canceled, 0));
+    }
+
+    /**
+     * Tests amending and cancelling a resting order, and that cancelling it again is rejected.
+     */
+    @Test
+    void testAmendAndCancel() throws IOException {
+        GatewayProtocol.putNewOrder(out, 1, OrderType.BUY, TimeInForce.GTC, "GOOG", 10000, 10, TestTimes.inSeconds(60));
+        send();
+        long orderId = GatewayProtocol.reportOrderId(expect(1, ExecType.NEW), 0);
+
+        GatewayProtocol.putAmend(out, 2, orderId, "GOOG", 10100, 7);
+        send();
+        ByteBuffer amended = expect(2, ExecType.AMENDED);
+        assertEquals(10100, GatewayProtocol.reportPrice(amended, 0));
+        assertEquals(7, GatewayProtocol.reportLeavesQuantity(amended, 0));
+
+        GatewayProtocol.putCancel(out, 3, orderId, "GOOG");
+        GatewayProtocol.putCancel(out, 4, orderId, "GOOG");
+        send();
+        assertEquals(orderId, GatewayProtocol.reportOrderId(expect(3, ExecType.CANCELED), 0));
+        expect(4, ExecType.CANCEL_REJECTED);
+    }
+
+    /**
+     * Tests that an amend that trades reports what is left after its fills, and that the order
+     * is still reported on afterwards when its fills used up the quantity it had before.
+     */
+    @Test
+    void testCrossingAmendReportsItsLeaves() throws IOException {
+        GatewayProtocol.putNewOrder(out, 1, OrderType.SELL, TimeInForce.GTC, "IBM", 10100, 5, TestTimes.inSeconds(60));
+        GatewayProtocol.putNewOrder(out, 2, OrderType.BUY, TimeInForce.GTC, "IBM", 10000, 5, TestTimes.inSeconds(60));
+        send();
+        expect(1, ExecType.NEW);
+        long buyId = GatewayProtocol.reportOrderId(expect(2, ExecType.NEW), 0);
+
+        GatewayProtocol.putAmend(out, 3, buyId, "IBM", 10100, 8);
+        send();
+        expect(2, ExecType.FILL);
+        expect(1, ExecType.FILL);
+        ByteBuffer amended = expect(3, ExecType.AMENDED);
+        assertEquals(8, GatewayProtocol.reportQuantity(amended, 0));
+        assertEquals(3, GatewayProtocol.reportLeavesQuantity(amended, 0));
+
+        GatewayProtocol.putNewOrder(out, 4, OrderType.SELL, TimeInForce.IOC, "IBM", 10100, 3, TestTimes.inSeconds(60));
+        send();
+        // the buyer's fill comes first, and the seller's NEW only with its own fill
+        ByteBuffer fill = expect(2, ExecType.FILL);
+        assertEquals(buyId, GatewayProtocol.reportOrderId(fill, 0));
+        assertEquals(3, GatewayProtocol.reportQuantity(fill, 0));
+        assertEquals(0, GatewayProtocol.reportLeavesQuantity(fill, 0));
+        expect(4, ExecType.NEW);
+        expect(4, ExecType.FILL);
+    }
+
+    /**
+     * Tests that an order cancelled from outside the gateway is reported to its session once,
+     * and that the session's own cancel afterwards is rejected.
+     */
+    @Test
+    void testOutsideCancelIsReported() throws Exception {
+        GatewayProtocol.putNewOrder(out, 1, OrderType.BUY, TimeInForce.GTC, "ORCL", 9000, 10, TestTimes.inSeconds(60));
+        send();
+        long orderId = GatewayProtocol.reportOrderId(expect(1, ExecType.NEW), 0);
+
+        assertTrue(engine.cancelOrder("ORCL", orderId).get(5, TimeUnit.SECONDS));
+        ByteBuffer canceled = expect(1, ExecType.CANCELED);
+        assertEquals(orderId, GatewayProtocol.reportOrderId(canceled, 0));
+        assertEquals(0, GatewayProtocol.reportLeavesQuantity(canceled, 0));
+
+        GatewayProtocol.putCancel(out, 2, orderId, "ORCL");
+        send();
+        expect(2, ExecType.CANCEL_REJECTED);
+    }
+
+    /**
+     * Tests that a resting order whose expiry time passes is reported as expired.
+     */
+    @Test
+    void testExpiredOrderIsReported() throws IOException {
+        long expiry = EngineClock.epochNanos() + TimeUnit.MILLISECONDS.toNanos(100);
+        GatewayProtocol.putNewOrder(out, 1, OrderType.SELL, TimeInForce.GTC, "INTC", 3000, 10, expiry);
+        send();
+        long orderId = GatewayProtocol.reportOrderId(expect(1, ExecType.NEW), 0);
+
+        ByteBuffer expired = expect(1, ExecType.EXPIRED);
+        assertEquals(orderId, GatewayProtocol.reportOrderId(expired, 0));
+        assertEquals(0, GatewayProtocol.reportLeavesQuantity(expired, 0));
+
+        GatewayProtocol.putCancel(out, 2, orderId, "INTC");
+        send();
+        expect(2, ExecType.CANCEL_REJECTED);
+    }
+
+    /**
+     * Tests that an invalid order is rejected without reaching the engine.
+     */
+    @Test
+    void testInvalidOrderIsRejected() throws IOException {
+        GatewayProtocol.putNewOrder(out, 9, OrderType.BUY, TimeInForce.GTC, "AAPL", 15000, 0, TestTimes.inSeconds(60));
+        send();
+        expect(9, ExecType.REJECTED);
+    }
+
+    /**
+     * Tests that symbols with bytes outside ASCII are rejected before they are decoded, so a
+     * client cannot grow the session's symbol table by sending them.
+     */
+    @Test
+    void testNonAsciiSymbolIsRejected() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            GatewayProtocol.putNewOrder(out, 10 + i, OrderType.BUY, TimeInForce.GTC, "\u00c4\u00c4", 15000, 10, TestTimes.inSeconds(60));
+        }
+        GatewayProtocol.putCancel(out, 13, 1, "\u00c4\u00c4");
+        GatewayProtocol.putAmend(out, 14, 1, "\u00c4\u00c4", 15000, 5);
+        send();
+        for (int i = 0; i < 5; i++) {
+            expect(10 + i, ExecType.REJECTED);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.PriceLevel;
+import radu.engine.TimeInForce;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for iceberg orders: shown slices, replenishment at the back of the level and
+ * hidden reserve.
+ */
+public class IcebergOrderTest {
+
+    private static Order limit(OrderType side, long price, int quantity, TimeInForce tif) {
+        return new Order(side, "AAPL", price, quantity, TestTimes.inSeconds(60), tif);
+    }
+
+    private static Order iceberg(OrderType side, long price, int quantity, int displayQuantity) {
+        Order order = limit(side, price, quantity, TimeInForce.GTC);
+        order.setIceberg(displayQuantity, 0);
+        return order;
+    }
+
+    /**
+     * Tests that a resting iceberg shows only its slice, both in its level's aggregate and to
+     * the depth listener, and keeps the rest as reserve.
+     */
+    @Test
+    void testRestingIcebergShowsOnlyItsSlice() {
+        List<Long> depth = new ArrayList<>();
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setDepthListener((symbol, side, price, quantity, orderCount) -> depth.add(quantity));
+
+        Order order = iceberg(OrderType.SELL, 10000, 100, 10);
+        ob.processOrder(order);
+
+        PriceLevel level = ob.getSellOrders().getLevel(10000);
+        assertEquals(10, order.getQuantity());
+        assertEquals(90, order.getReserveQuantity());
+        assertEquals(100, order.getLeavesQuantity());
+        assertEquals(10, level.getTotalQuantity());
+        assertEquals(90, level.getReserveQuantity());
+        assertEquals(List.of(10L), depth);
+        assertEquals(10, ob.getTopOfBook().get().getAskQuantity());
+    }
+
+    /**
+     * Tests that a used-up slice is refilled from the reserve at the back of its level, behind
+     * an order that arrived later, without the level leaving the ladder.
+     */
+    @Test
+    void testReplenishedSliceGoesToBackOfLevel() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setTradeListener((symbol, buyId, sellId, price, quantity, timestamp) -> trades.add(sellId + "x" + quantity));
+
+        Order iceberg = iceberg(OrderType.SELL, 10000, 25, 10);
+        Order later = limit(OrderType.SELL, 10000, 5, TimeInForce.GTC);
+        ob.processOrder(iceberg);
+        ob.processOrder(later);
+        PriceLevel level = ob.getSellOrders().getLevel(10000);
+
+        ob.processOrder(limit(OrderType.BUY, 10000, 10, TimeInForce.IOC));
+        assertSame(level, ob.getSellOrders().getLevel(10000));
+        assertSame(later, level.getFirst(), "The refilled slice must lose its time priority");
+        assertEquals(15, level.getTotalQuantity());
+        assertEquals(5, level.getReserveQuantity());
+
+        ob.processOrder(limit(OrderType.BUY, 10000, 30, TimeInForce.IOC));
+        assertEquals(List.of(iceberg.getId() + "x10", later.getId() + "x5", iceberg.getId() + "x10",
+                iceberg.getId() + "x5"), trades);
+        assertTrue(ob.getSellOrders().isEmpty());
+        assertFalse(ob.cancelOrder(iceberg.getId()));
+    }
+
+    /**
+     * Tests that hidden reserve counts for fill-or-kill feasibility and that a partially matched
+     * GTC order in {@code matchOrders} refills without leaving the book.
+     */
+    @Test
+    void testReserveIsTradable() {
+        OrderBook ob = new OrderBook();
+        ob.processOrder(iceberg(OrderType.SELL, 10000, 30, 10));
+
+        Order fok = limit(OrderType.BUY, 10000, 25, TimeInForce.FOK);
+        ob.processOrder(fok);
+        assertEquals(0, fok.getQuantity());
+        assertEquals(5, ob.getSellOrders().peek().getLeavesQuantity());
+
+        Order restingIceberg = iceberg(OrderType.BUY, 9000, 20, 4);
+        ob.addOrder(restingIceberg);
+        ob.addOrder(limit(OrderType.SELL, 9000, 6, TimeInForce.GTC));
+        ob.matchOrders();
+        assertEquals(14, restingIceberg.getLeavesQuantity());
+        assertSame(restingIceberg, ob.getBuyOrders().peek());
+    }
+
+    /**
+     * Tests that reducing an iceberg takes from the reserve first and keeps its priority,
+     * while a price change splits it again at the back of the new level.
+     */
+    @Test
+    void testAmendIceberg() {
+        OrderBook ob = new OrderBook();
+        Order iceberg = iceberg(OrderType.BUY, 10000, 50, 10);
+        Order other = limit(OrderType.BUY, 10000, 5, TimeInForce.GTC);
+        ob.addOrder(iceberg);
+        ob.addOrder(other);
+
+        assertTrue(ob.updateOrder(iceberg.getId(), 10000, 15));
+        assertSame(iceberg, ob.getBuyOrders().peek());
+        assertEquals(10, iceberg.getQuantity());
+        assertEquals(5, iceberg.getReserveQuantity());
+        assertEquals(5, ob.getBuyOrders().getLevel(10000).getReserveQuantity());
+
+        assertTrue(ob.updateOrder(iceberg.getId(), 10000, 8));
+        assertEquals(8, iceberg.getQuantity());
+        assertEquals(0, ob.getBuyOrders().getLevel(10000).getReserveQuantity());
+
+        assertTrue(ob.updateOrder(iceberg.getId(), 10100, 40));
+        assertEquals(10, iceberg.getQuantity());
+        assertEquals(30, ob.getBuyOrders().getLevel(10100).getReserveQuantity());
+    }
+}
@@ -0,0 +1,377 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import radu.engine.CommandType;
+import radu.engine.EngineClock;
+import radu.engine.EngineCommand;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderBatch;
+import radu.engine.OrderBook;
+import radu.engine.OrderKind;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.journal.FsyncPolicy;
+import radu.journal.Journal;
+import radu.journal.JournalReader;
+import radu.journal.Recovery;
+import radu.journal.Snapshot;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the memory-mapped command and trade journal.
+ */
+public class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static EngineCommand add(long id, OrderType side, long price, int quantity) {
+        EngineCommand command = new EngineCommand();
+        command.setAdd(id, side, "AAPL", price, quantity,
+                EngineClock.epochNanos() + TimeUnit.MINUTES.toNanos(1), TimeInForce.GTC, null);
+        return command;
+    }
+
+    /**
+     * Tests that commands executed by an engine and the trades they cause are read back
+     * with every field intact and in order.
+     */
+    @Test
+    void testCommandsAndTradesRoundTrip() {
+        Path file = dir.resolve("shard-0.journal");
+        MatchingEngine engine = new MatchingEngine();
+        try (Journal journal = new Journal(file, FsyncPolicy.RECORDS, 1)) {
+            engine.setJournal(journal);
+            engine.execute(add(1, OrderType.SELL, 15000, 5));
+            engine.execute(add(2, OrderType.BUY, 15100, 3));
+            EngineCommand cancel = new EngineCommand();
+            cancel.setCancel("AAPL", 1, null);
+            engine.execute(cancel);
+            assertEquals(4, journal.getSequence());
+        }
+
+        try (JournalReader reader = new JournalReader(file)) {
+            assertTrue(reader.next());
+            assertTrue(reader.isCommand());
+            assertEquals(1, reader.getSequence());
+            assertEquals(CommandType.ADD, reader.getCommandType());
+            assertEquals("AAPL", reader.getSymbol());
+            assertEquals(1, reader.getOrderId());
+            assertEquals(OrderType.SELL, reader.getSide());
+            assertEquals(TimeInForce.GTC, reader.getTif());
+            assertEquals(15000, reader.getPrice());
+            assertEquals(5, reader.getQuantity());
+
+            assertTrue(reader.next());
+            assertEquals(CommandType.ADD, reader.getCommandType());
+            String symbol = reader.getSymbol();
+
+            assertTrue(reader.next());
+            assertTrue(reader.isTrade());
+            assertSame(symbol, reader.getSymbol(), "Known symbols must be decoded without allocating");
+            assertEquals(2, reader.getBuyOrderId());
+            assertEquals(1, reader.getSellOrderId());
+            assertEquals(15000, reader.getPrice());
+            assertEquals(3, reader.getQuantity());
+
+            assertTrue(reader.next());
+            assertEquals(CommandType.CANCEL, reader.getCommandType());
+            assertEquals(1, reader.getOrderId());
+            assertNull(reader.getSide());
+
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a record corrupted by a torn write ends the journal, and that reopening
+     * appends after the last valid record with the sequence continuing from it.
+     */
+    @Test
+    void testTornTailIsDroppedOnReopen() throws Exception {
+        Path file = dir.resolve("shard-0.journal");
+        long secondRecord;
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            journal.appendCommand(add(1, OrderType.BUY, 15000, 5));
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            assertTrue(reader.next());
+            secondRecord = reader.getEndOffset();
+        }
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            journal.appendCommand(add(2, OrderType.BUY, 15000, 5));
+        }
+        // flip one payload byte of the second record
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(secondRecord + 20);
+            int b = raw.read();
+            raw.seek(secondRecord + 20);
+            raw.write(b ^ 0xFF);
+        }
+
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            assertEquals(1, journal.getSequence());
+            journal.appendCommand(add(3, OrderType.SELL, 15100, 7));
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            assertTrue(reader.next());
+            assertEquals(1, reader.getOrderId());
+            assertTrue(reader.next());
+            assertEquals(2, reader.getSequence());
+            assertEquals(3, reader.getOrderId());
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a batch whose end marker never reached the journal is dropped as a whole: recovery
+     * replays none of its commands, and reopening the journal cuts it off so new records follow
+     * the last complete command.
+     */
+    @Test
+    void testTornBatchIsDroppedAsAWhole() throws Exception {
+        Path file = dir.resolve("shard-0.journal");
+        long base = Order.nextId();
+        MatchingEngine engine = new MatchingEngine();
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            engine.setJournal(journal);
+            engine.execute(add(base, OrderType.SELL, 15000, 5));
+            OrderBatch batch = new OrderBatch("AAPL");
+            batch.add(OrderType.BUY, 15000, 3, EngineClock.epochNanos() + TimeUnit.SECONDS.toNanos(60), TimeInForce.GTC);
+            batch.add(OrderType.SELL, 15100, 4, EngineClock.epochNanos() + TimeUnit.SECONDS.toNanos(60), TimeInForce.GTC);
+            EngineCommand batchCommand = new EngineCommand();
+            batchCommand.setBatch(batch, null);
+            engine.execute(batchCommand);
+        }
+
+        long batchEnd = -1;
+        try (JournalReader reader = new JournalReader(file)) {
+            long offset = reader.getEndOffset();
+            while (reader.next()) {
+                if (reader.isBatchEnd()) {
+                    assertEquals(2, reader.getBatchSize());
+                    batchEnd = offset;
+                }
+                offset = reader.getEndOffset();
+            }
+        }
+        assertTrue(batchEnd > 0);
+        // the crash hit before the end marker was written
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(batchEnd);
+            raw.writeInt(0);
+        }
+
+        MatchingEngine recovered = new MatchingEngine();
+        assertEquals(1, Recovery.recover(recovered, dir.resolve("missing.snapshot"), file));
+        assertEquals(1, describe(recovered).size());
+        assertEquals(base, recovered.getBooks().get("AAPL").getSellOrders().peek().getId());
+        assertEquals(5, recovered.getBooks().get("AAPL").getSellOrders().peek().getQuantity());
+        assertTrue(recovered.getBooks().get("AAPL").getBuyOrders().isEmpty());
+
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            assertEquals(1, journal.getSequence());
+            journal.appendCommand(add(base + 10, OrderType.BUY, 14900, 2));
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            assertTrue(reader.next());
+            assertEquals(base, reader.getOrderId());
+            assertTrue(reader.next());
+            assertTrue(reader.isCommand());
+            assertEquals(2, reader.getSequence());
+            assertEquals(base + 10, reader.getOrderId());
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a symbol the journal cannot store byte for byte is rejected before the command
+     * is applied, instead of being journalled as a different symbol.
+     */
+    @Test
+    void testNonAsciiSymbolIsRejected() {
+        MatchingEngine engine = new MatchingEngine();
+        try (Journal journal = new Journal(dir.resolve("shard-0.journal"), FsyncPolicy.NONE, 0)) {
+            engine.setJournal(journal);
+            EngineCommand command = new EngineCommand();
+            command.setAdd(Order.nextId(), OrderType.BUY, "ÄPFEL", 15000, 5,
+                    EngineClock.epochNanos() + TimeUnit.MINUTES.toNanos(1), TimeInForce.GTC, null);
+            assertThrows(IllegalArgumentException.class, () -> engine.execute(command));
+            assertEquals(0, journal.getSequence());
+            assertNull(engine.getBooks().get("ÄPFEL"));
+        }
+    }
+
+    /**
+     * Tests that a journal longer than one mapped segment is written and read back intact, with
+     * the previous segments released along the way.
+     */
+    @Test
+    void testJournalSpansSegments() {
+        Path file = dir.resolve("shard-0.journal");
+        int records = 1_000_000;
+        EngineCommand cancel = new EngineCommand();
+        try (Journal journal = new Journal(file, FsyncPolicy.NONE, 0)) {
+            for (int i = 1; i <= records; i++) {
+                cancel.setCancel("AAPL", i, null);
+                journal.appendCommand(cancel);
+            }
+        }
+        try (JournalReader reader = new JournalReader(file)) {
+            for (int i = 1; i <= records; i++) {
+                assertTrue(reader.next());
+                assertEquals(i, reader.getOrderId());
+            }
+            assertFalse(reader.next());
+            assertTrue(reader.getEndOffset() > 64L * 1024 * 1024, "the records did not fill a segment");
+        }
+    }
+
+    private static List<String> describe(MatchingEngine engine) {
+        List<String> orders = new ArrayList<>();
+        for (OrderBook book : engine.getBooks().values()) {
+            for (Order order : book.getBuyOrders()) orders.add(order.toString());
+            for (Order order : book.getSellOrders()) orders.add(order.toString());
+            book.forEachStop(stop -> orders.add("stop " + stop.getStopPrice() + " " + stop));
+        }
+        return orders;
+    }
+
+    /**
+     * Tests that loading a snapshot and replaying the journal after it rebuilds the books
+     * with the same orders in the same price-time priority, including an amend that lost
+     * its priority, and keeps new order ids above the recovered ones.
+     */
+    @Test
+    void testRecoveryFromSnapshotAndJournal() {
+        Path journalFile = dir.resolve("shard-0.journal");
+        Path snapshotFile = dir.resolve("shard-0.snapshot");
+        MatchingEngine engine = new MatchingEngine();
+        long base = Order.nextId();
+        try (Journal journal = new Journal(journalFile, FsyncPolicy.NONE, 0)) {
+            engine.setJournal(journal);
+            for (int i = 0; i < 20; i++) {
+                engine.execute(add(base + i, i % 2 == 0 ? OrderType.BUY : OrderType.SELL, i % 2 == 0 ? 15000 - i : 15100 + i, 10));
+            }
+            Snapshot.capture(engine, journal.getSequence(), EngineClock.epochNanos()).writeTo(snapshotFile);
+
+            EngineCommand amend = new EngineCommand();
+            amend.setAmend("AAPL", base + 2, 15000, 20, null);
+            engine.execute(amend);
+            engine.execute(add(base + 20, OrderType.SELL, 14999, 15)); // trades with two bids
+            EngineCommand cancel = new EngineCommand();
+            cancel.setCancel("AAPL", base + 3, null);
+            engine.execute(cancel);
+
+            // a batch is journalled as its individual commands, between batch markers
+            OrderBatch batch = new OrderBatch("AAPL");
+            batch.cancel(base + 5);
+            batch.add(OrderType.BUY, 15200, 12, EngineClock.epochNanos() + TimeUnit.SECONDS.toNanos(60), TimeInForce.GTC);
+            EngineCommand batchCommand = new EngineCommand();
+            batchCommand.setBatch(batch, null);
+            engine.execute(batchCommand);
+        }
+
+        MatchingEngine recovered = new MatchingEngine();
+        long sequence = Recovery.recover(recovered, snapshotFile, journalFile);
+
+        assertEquals(describe(engine), describe(recovered));
+        assertTrue(sequence > 20);
+        assertTrue(Order.nextId() > base + 20);
+
+        // the journal only is enough as well
+        MatchingEngine replayed = new MatchingEngine();
+        Recovery.recover(replayed, dir.resolve("missing.snapshot"), journalFile);
+        assertEquals(describe(engine), describe(replayed));
+    }
+
+    /**
+     * Tests that stop orders survive recovery: waiting stops and the last trade price are kept
+     * in the snapshot, and a stop triggered by a journalled trade triggers again on replay.
+     */
+    @Test
+    void testRecoveryWithStopOrders() {
+        Path journalFile = dir.resolve("shard-0.journal");
+        Path snapshotFile = dir.resolve("shard-0.snapshot");
+        MatchingEngine engine = new MatchingEngine();
+        long base = Order.nextId();
+        long expiry = EngineClock.epochNanos() + TimeUnit.MINUTES.toNanos(1);
+        try (Journal journal = new Journal(journalFile, FsyncPolicy.NONE, 0)) {
+            engine.setJournal(journal);
+            engine.execute(add(base, OrderType.SELL, 15000, 5));
+            engine.execute(add(base + 1, OrderType.BUY, 15000, 2)); // last trade 15000
+            engine.execute(add(base + 2, OrderType.SELL, 15200, 5));
+            EngineCommand stop = new EngineCommand();
+            stop.setAdd(base + 3, OrderType.BUY, "AAPL", OrderKind.STOP_LIMIT, 15300, 15100, 4, expiry, TimeInForce.GTC, null);
+            engine.execute(stop);
+            stop.setAdd(base + 4, OrderType.SELL, "AAPL", OrderKind.STOP, 0, 14000, 4, expiry, TimeInForce.GTC, null);
+            engine.execute(stop);
+            assertEquals(2, engine.getBooks().get("AAPL").getStopCount());
+            Snapshot.capture(engine, journal.getSequence(), EngineClock.epochNanos()).writeTo(snapshotFile);
+
+            engine.execute(add(base + 5, OrderType.BUY, 15200, 4)); // takes 15000 x3, then 15200 x1
+            assertEquals(1, engine.getBooks().get("AAPL").getStopCount());
+        }
+
+        try (JournalReader reader = new JournalReader(journalFile)) {
+            boolean found = false;
+            while (reader.next()) {
+                if (reader.isCommand() && reader.getOrderId() == base + 3) {
+                    assertEquals(OrderKind.STOP_LIMIT, reader.getKind());
+                    assertEquals(15100, reader.getStopPrice());
+                    found = true;
+                }
+            }
+            assertTrue(found);
+        }
+
+        MatchingEngine recovered = new MatchingEngine();
+        Recovery.recover(recovered, snapshotFile, journalFile);
+        assertEquals(describe(engine), describe(recovered));
+        assertEquals(15200, recovered.getBooks().get("AAPL").getLastTradePrice());
+
+        MatchingEngine replayed = new MatchingEngine();
+        Recovery.recover(replayed, dir.resolve("missing.snapshot"), journalFile);
+        assertEquals(describe(engine), describe(replayed));
+    }
+
+    /**
+     * Tests that an iceberg order is recovered with its current slice and reserve from a
+     * snapshot, and with the same replenishments from the journal.
+     */
+    @Test
+    void testRecoveryWithIcebergOrders() {
+        Path journalFile = dir.resolve("shard-0.journal");
+        Path snapshotFile = dir.resolve("shard-0.snapshot");
+        MatchingEngine engine = new MatchingEngine();
+        long base = Order.nextId();
+        try (Journal journal = new Journal(journalFile, FsyncPolicy.NONE, 0)) {
+            engine.setJournal(journal);
+            EngineCommand iceberg = add(base, OrderType.SELL, 15000, 50);
+            iceberg.setDisplayQuantity(10);
+            engine.execute(iceberg);
+            engine.execute(add(base + 1, OrderType.SELL, 15000, 5));
+            engine.execute(add(base + 2, OrderType.BUY, 15000, 13)); // refills the slice, 3 taken from the next
+            Snapshot.capture(engine, journal.getSequence(), EngineClock.epochNanos()).writeTo(snapshotFile);
+            engine.execute(add(base + 3, OrderType.BUY, 15000, 12));
+        }
+        Order order = engine.getBooks().get("AAPL").getSellOrders().peek();
+        assertEquals(base, order.getId());
+        assertEquals(30, order.getLeavesQuantity());
+
+        MatchingEngine recovered = new MatchingEngine();
+        Recovery.recover(recovered, snapshotFile, journalFile);
+        assertEquals(describe(engine), describe(recovered));
+
+        MatchingEngine replayed = new MatchingEngine();
+        Recovery.recover(replayed, dir.resolve("missing.snapshot"), journalFile);
+        assertEquals(describe(engine), describe(replayed));
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineCommand;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.metrics.LatencyMetrics;
+import radu.metrics.LatencyStage;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the latency histograms recorded by the engine.
+ */
+public class LatencyMetricsTest {
+
+    private static LatencyMetrics.Summary find(Collection<LatencyMetrics.Summary> summaries, String symbol,
+                                               LatencyStage stage, String tif) {
+        return summaries.stream()
+                .filter(s -> s.getSymbol().equals(symbol) && s.getStage() == stage && s.getTif().equals(tif))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Tests that executing commands records every engine stage per symbol and time in force,
+     * and that a sample only covers what was recorded since the previous one.
+     */
+    @Test
+    void testEngineStagesAreRecorded() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        MatchingEngine engine = new MatchingEngine();
+        engine.setLatencyMetrics(metrics);
+
+        EngineCommand command = new EngineCommand();
+        command.setAdd(Order.nextId(), OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC, null);
+        engine.execute(command);
+        command.setAdd(Order.nextId(), OrderType.BUY, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.IOC, null);
+        engine.execute(command);
+        command.setCancel("AAPL", 42, null);
+        engine.execute(command);
+
+        metrics.sample();
+        Collection<LatencyMetrics.Summary> summaries = metrics.getSummaries();
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.ENQUEUE, "GTC").getCount());
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.ENQUEUE, "IOC").getCount());
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.ENQUEUE, "none").getCount());
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.BOOK_INSERT, "GTC").getCount());
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.MATCH, "IOC").getCount());
+        assertEquals(1, find(summaries, "AAPL", LatencyStage.TRADE_PUBLISH, "IOC").getCount());
+        assertNull(find(summaries, "AAPL", LatencyStage.BOOK_INSERT, "IOC"), "An IOC order never rests");
+        assertNull(find(summaries, "AAPL", LatencyStage.PERSIST, "GTC"), "Nothing is journalled");
+
+        metrics.sample();
+        LatencyMetrics.Summary enqueue = find(metrics.getSummaries(), "AAPL", LatencyStage.ENQUEUE, "GTC");
+        assertEquals(0, enqueue.getCount());
+        assertEquals(1, enqueue.getTotalCount());
+    }
+
+    /**
+     * Tests that percentiles come out of the recorded values and that values beyond the
+     * trackable range are clamped rather than rejected.
+     */
+    @Test
+    void testPercentilesAndClamping() {
+        LatencyMetrics metrics = new LatencyMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.forSymbol("MSFT").record(LatencyStage.SERVICE, TimeInForce.GTC, i * 1000L);
+        }
+        metrics.forSymbol("MSFT").record(LatencyStage.SERVICE, TimeInForce.FOK, TimeUnit.MINUTES.toNanos(5));
+        metrics.sample();
+
+        LatencyMetrics.Summary gtc = find(metrics.getSummaries(), "MSFT", LatencyStage.SERVICE, "GTC");
+        assertEquals(100, gtc.getCount());
+        assertEquals(50_000, gtc.getP50(), 1_000);
+        assertEquals(99_000, gtc.getP99(), 1_000);
+        assertEquals(100_000, gtc.getMax(), 1_000);
+        LatencyMetrics.Summary fok = find(metrics.getSummaries(), "MSFT", LatencyStage.SERVICE, "FOK");
+        assertTrue(fok.getMax() >= TimeUnit.SECONDS.toNanos(9) && fok.getMax() <= TimeUnit.SECONDS.toNanos(11));
+    }
+}
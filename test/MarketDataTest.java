@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.marketdata.DepthSnapshot;
+import radu.marketdata.MarketDataEvent;
+import radu.marketdata.MarketDataPublisher;
+import radu.pipeline.EventHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the incremental market data and the conflated depth snapshots.
+ */
+public class MarketDataTest {
+
+    private static MatchingEngine engineWith(MarketDataPublisher publisher) {
+        MatchingEngine engine = new MatchingEngine();
+        engine.setDepthListener(publisher);
+        engine.addTradeListener(publisher);
+        return engine;
+    }
+
+    /**
+     * Waits until the conflated depth of a symbol includes every update published so far.
+     */
+    private static DepthSnapshot awaitSnapshot(MarketDataPublisher publisher, String symbol) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            DepthSnapshot snapshot = publisher.getSnapshot(symbol);
+            if (snapshot != null && snapshot.getSequence() == publisher.getCursor()) {
+                return snapshot;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        throw new AssertionError("Depth of " + symbol + " did not catch up");
+    }
+
+    /**
+     * Tests that resting orders are aggregated per price level, best first, on both sides.
+     */
+    @Test
+    void testSnapshotAggregatesLevels() {
+        try (MarketDataPublisher publisher = new MarketDataPublisher(1024, 2)) {
+            MatchingEngine engine = engineWith(publisher);
+            engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 9900, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+            engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 9900, 7, TestTimes.inSeconds(60), TimeInForce.GTC));
+            engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 9950, 1, TestTimes.inSeconds(60), TimeInForce.GTC));
+            engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 9800, 4, TestTimes.inSeconds(60), TimeInForce.GTC));
+            engine.addOrder("AAPL", new Order(OrderType.SELL, "AAPL", 10000, 3, TestTimes.inSeconds(60), TimeInForce.GTC));
+
+            DepthSnapshot snapshot = awaitSnapshot(publisher, "AAPL");
+            assertEquals(2, snapshot.getBids().size(), "only the top 2 levels are kept");
+            assertEquals(9950, snapshot.getBids().get(0).getPrice());
+            assertEquals(9900, snapshot.getBids().get(1).getPrice());
+            assertEquals(12, snapshot.getBids().get(1).getQuantity());
+            assertEquals(2, snapshot.getBids().get(1).getOrderCount());
+            assertEquals(1, snapshot.getAsks().size());
+            assertEquals(10000, snapshot.getAsks().get(0).getPrice());
+            assertNull(publisher.getSnapshot("MSFT"));
+        }
+    }
+
+    /**
+     * Tests that trades, partial fills, cancels and amends are reflected in the depth.
+     */
+    @Test
+    void testSnapshotFollowsTradesAndCancels() {
+        try (MarketDataPublisher publisher = new MarketDataPublisher(1024, 5)) {
+            MatchingEngine engine = engineWith(publisher);
+            Order sell = new Order(OrderType.SELL, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+            Order other = new Order(OrderType.SELL, "AAPL", 10100, 2, TestTimes.inSeconds(60), TimeInForce.GTC);
+            engine.addOrder("AAPL", sell);
+            engine.addOrder("AAPL", other);
+            engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 10000, 4, TestTimes.inSeconds(60), TimeInForce.IOC));
+
+            DepthSnapshot snapshot = awaitSnapshot(publisher, "AAPL");
+            assertEquals(10000, snapshot.getLastTradePrice());
+            assertEquals(4, snapshot.getLastTradeQuantity());
+            assertEquals(6, snapshot.getAsks().get(0).getQuantity());
+            assertTrue(snapshot.getBids().isEmpty(), "the IOC order never rests");
+
+            engine.cancelOrder("AAPL", sell.getId());
+            engine.updateOrder("AAPL", other.getId(), 10200, 3);
+            snapshot = awaitSnapshot(publisher, "AAPL");
+            assertEquals(1, snapshot.getAsks().size());
+            assertEquals(10200, snapshot.getAsks().get(0).getPrice());
+            assertEquals(3, snapshot.getAsks().get(0).getQuantity());
+        }
+    }
+
+    /**
+     * Tests that subscribers get every update in order with consecutive sequence numbers,
+     * and that books which already exist are reported when the publisher is attached.
+     */
+    @Test
+    void testIncrementalUpdates() {
+        MatchingEngine engine = new MatchingEngine();
+        engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 9900, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+
+        List<String> updates = Collections.synchronizedList(new ArrayList<>());
+        List<Long> sequences = Collections.synchronizedList(new ArrayList<>());
+        EventHandler<MarketDataEvent> recorder = (event, sequence, endOfBatch) -> {
+            updates.add(event.getKind() + " " + event.getSide() + " " + event.getQuantity() + "@" + event.getPrice());
+            sequences.add(sequence);
+        };
+        MarketDataPublisher publisher = new MarketDataPublisher(8, 5, Collections.singletonList(recorder));
+        engine.setDepthListener(publisher);
+        engine.addTradeListener(publisher);
+        Order sell = new Order(OrderType.SELL, "AAPL", 9900, 2, TestTimes.inSeconds(60), TimeInForce.GTC);
+        engine.addOrder("AAPL", sell);
+        publisher.close();
+
+        assertEquals(List.of(
+                "LEVEL BUY 5@9900",
+                "LEVEL BUY 3@9900",
+                "TRADE null 2@9900"), updates);
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i, sequences.get(i));
+        }
+    }
+}
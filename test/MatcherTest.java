@@ -4,8 +4,6 @@ import radu.engine.OrderType;
 import radu.engine.TimeInForce;
 import org.junit.jupiter.api.Test;
 
-import java.time.Instant;
-
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -21,9 +19,9 @@ public class MatcherTest {
     void testFOKFullMatch() {
         OrderBook ob = new OrderBook();
 
-        Order sell1 = new Order(OrderType.SELL, "AAPL", 100.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order sell2 = new Order(OrderType.SELL, "AAPL", 100.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order buyFOK = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.FOK);
+        Order sell1 = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell2 = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order buyFOK = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.FOK);
 
         ob.addOrder(sell1);
         ob.addOrder(sell2);
@@ -43,8 +41,8 @@ public class MatcherTest {
     void testIOCPartialMatchAndCancel() {
         OrderBook ob = new OrderBook();
 
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order buyIOC = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.IOC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order buyIOC = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.IOC);
 
         ob.addOrder(sell);
         ob.addOrder(buyIOC);
@@ -63,8 +61,8 @@ public class MatcherTest {
     void testGTCPartialMatchLeavesRemaining() {
         OrderBook ob = new OrderBook();
 
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 6, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order buy = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 6, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order buy = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
 
         ob.addOrder(sell);
         ob.addOrder(buy);
@@ -75,4 +73,76 @@ public class MatcherTest {
         assertTrue(buy.getQuantity() > 0);
         assertEquals(4, buy.getQuantity());
     }
+
+    /**
+     * Tests that an incoming GTC order sweeps the opposite side on arrival, level by level,
+     * and only its residual rests in the book at its own limit price.
+     */
+    @Test
+    void testIncomingGTCSweepsAndRestsResidual() {
+        OrderBook ob = new OrderBook();
+
+        Order sell1 = new Order(OrderType.SELL, "AAPL", 10000, 3, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell2 = new Order(OrderType.SELL, "AAPL", 10100, 3, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell3 = new Order(OrderType.SELL, "AAPL", 10300, 3, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(sell1);
+        ob.addOrder(sell2);
+        ob.addOrder(sell3);
+
+        Order buy = new Order(OrderType.BUY, "AAPL", 10200, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.processOrder(buy);
+
+        assertEquals(0, sell1.getQuantity());
+        assertEquals(0, sell2.getQuantity());
+        assertEquals(3, sell3.getQuantity());
+        assertSame(buy, ob.getBuyOrders().peek());
+        assertEquals(4, buy.getQuantity());
+        assertEquals(10200, buy.getPrice());
+    }
+
+    /**
+     * Tests that IOC semantics apply to the incoming order: it takes what is available
+     * and its remainder never rests, while the resting order is untouched by the TIF rules.
+     */
+    @Test
+    void testIncomingIOCNeverRests() {
+        OrderBook ob = new OrderBook();
+
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(sell);
+
+        Order buyIOC = new Order(OrderType.BUY, "AAPL", 10000, 8, TestTimes.inSeconds(60), TimeInForce.IOC);
+        ob.processOrder(buyIOC);
+
+        assertEquals(0, sell.getQuantity());
+        assertEquals(3, buyIOC.getQuantity());
+        assertTrue(ob.getBuyOrders().isEmpty());
+        assertTrue(ob.getSellOrders().isEmpty());
+    }
+
+    /**
+     * Tests that an incoming FOK order that cannot be filled completely does not trade at all.
+     */
+    @Test
+    void testIncomingFOKKilledWithoutTrading() {
+        OrderBook ob = new OrderBook();
+
+        Order sell1 = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell2 = new Order(OrderType.SELL, "AAPL", 10200, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(sell1);
+        ob.addOrder(sell2);
+
+        Order buyFOK = new Order(OrderType.BUY, "AAPL", 10100, 8, TestTimes.inSeconds(60), TimeInForce.FOK);
+        ob.processOrder(buyFOK);
+
+        assertEquals(5, sell1.getQuantity());
+        assertEquals(5, sell2.getQuantity());
+        assertTrue(ob.getBuyOrders().isEmpty());
+
+        Order buyFOK2 = new Order(OrderType.BUY, "AAPL", 10200, 8, TestTimes.inSeconds(60), TimeInForce.FOK);
+        ob.processOrder(buyFOK2);
+
+        assertEquals(0, buyFOK2.getQuantity());
+        assertEquals(2, sell2.getQuantity());
+    }
 }
@@ -1,13 +1,34 @@
 
 import org.junit.jupiter.api.Test;
+import radu.engine.EngineCommand;
+import radu.engine.EngineSettings;
+import radu.engine.EngineShard;
 import radu.engine.MatchingEngine;
+import radu.engine.ExecutionReport;
+import radu.engine.Instrument;
+import radu.engine.InstrumentRegistry;
 import radu.engine.Order;
+import radu.engine.OrderBatch;
+import radu.engine.OrderPool;
 import radu.engine.OrderType;
+import radu.engine.ShardedMatchingEngine;
 import radu.engine.TimeInForce;
+import radu.pipeline.RingBuffer;
 
-import java.time.Instant;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * Unit tests for the MatchingEngine which manages symbol-based order books.
@@ -21,8 +42,8 @@ public class MatchingEngineTest {
     void testAddAndMatchOrdersBySymbol() {
         MatchingEngine engine = new MatchingEngine();
 
-        Order buy = new Order(OrderType.BUY, "AAPL", 150.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order sell = new Order(OrderType.SELL, "AAPL", 150.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order buy = new Order(OrderType.BUY, "AAPL", 15000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 15000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
 
         engine.addOrder("AAPL", buy);
         engine.addOrder("AAPL", sell);
@@ -42,7 +63,7 @@ public class MatchingEngineTest {
     void testCancelOrderBySymbol() {
         MatchingEngine engine = new MatchingEngine();
 
-        Order order = new Order(OrderType.SELL, "TSLA", 700.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order order = new Order(OrderType.SELL, "TSLA", 70000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
         engine.addOrder("TSLA", order);
 
         assertDoesNotThrow(() -> engine.cancelOrder("TSLA", order.getId()));
@@ -55,10 +76,10 @@ public class MatchingEngineTest {
     void testUpdateOrderBySymbol() {
         MatchingEngine engine = new MatchingEngine();
 
-        Order order = new Order(OrderType.BUY, "GOOG", 2500.0, 8, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order order = new Order(OrderType.BUY, "GOOG", 250000, 8, TestTimes.inSeconds(60), TimeInForce.GTC);
         engine.addOrder("GOOG", order);
 
-        boolean result = engine.updateOrder("GOOG", order.getId(), 2550.0, 12);
+        boolean result = engine.updateOrder("GOOG", order.getId(), 255000, 12);
         assertTrue(result);
     }
 
@@ -69,7 +90,7 @@ public class MatchingEngineTest {
     void testPrintMethods() {
         MatchingEngine engine = new MatchingEngine();
 
-        Order order = new Order(OrderType.SELL, "NFLX", 500.0, 4, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order order = new Order(OrderType.SELL, "NFLX", 50000, 4, TestTimes.inSeconds(60), TimeInForce.GTC);
         engine.addOrder("NFLX", order);
 
         assertDoesNotThrow(() -> {
@@ -77,4 +98,241 @@ public class MatchingEngineTest {
             engine.printTradeHistory("NFLX");
         });
     }
+
+    /**
+     * Tests that decimal prices are converted to ticks with the symbol's tick size
+     * and that off-tick prices are rejected.
+     */
+    @Test
+    void testTickConversion() {
+        InstrumentRegistry instruments = new InstrumentRegistry();
+        Instrument aapl = instruments.get("AAPL");
+        Instrument es = instruments.register("ES", 0.25);
+
+        assertEquals(10005, aapl.toTicks(100.05));
+        assertEquals(100.05, aapl.toPrice(10005));
+        assertEquals(20002, es.toTicks(5000.5));
+        assertThrows(IllegalArgumentException.class, () -> es.toTicks(5000.1));
+    }
+
+    /**
+     * Tests that the sharded engine applies commands submitted from several threads
+     * and reports their outcome through the returned futures.
+     */
+    @Test
+    void testShardedEngineConcurrentSubmit() throws Exception {
+        try (ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(4).withRingSize(1024))) {
+            String[] symbols = {"AAPL", "TSLA", "GOOG", "NFLX", "MSFT"};
+            ExecutorService clients = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> cancels = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final String symbol = symbols[i % symbols.length];
+                final long price = 10000 + i;
+                cancels.add(clients.submit(() -> {
+                    Order order = new Order(OrderType.BUY, symbol, price, 1, TestTimes.inSeconds(60), TimeInForce.GTC);
+                    engine.addOrder(order).join();
+                    return engine.cancelOrder(symbol, order.getId()).join();
+                }));
+            }
+            for (Future<Boolean> cancel : cancels) {
+                assertTrue(cancel.get(10, TimeUnit.SECONDS));
+            }
+            clients.shutdown();
+
+            assertFalse(engine.cancelOrder("AAPL", -1).get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Tests that orders built from commands are recycled once they are filled, cancelled or
+     * discarded, so a steady flow never allocates beyond the preallocated pool, and that
+     * orders created by the caller are never taken over by the pool.
+     */
+    @Test
+    void testOrdersAreRecycled() {
+        MatchingEngine engine = new MatchingEngine(new EngineSettings().withPreallocatedOrders(8));
+        OrderPool pool = engine.getOrderPool();
+        EngineCommand command = new EngineCommand();
+        for (int i = 0; i < 1000; i++) {
+            long passive = Order.nextId();
+            command.setAdd(passive, OrderType.SELL, "AAPL", 15000, 10, TestTimes.inSeconds(60), TimeInForce.GTC, null);
+            engine.execute(command);
+            command.setAdd(Order.nextId(), OrderType.BUY, "AAPL", 15000, 4, TestTimes.inSeconds(60), TimeInForce.IOC, null);
+            engine.execute(command);
+            command.setAdd(Order.nextId(), OrderType.BUY, "AAPL", 15000, 20, TestTimes.inSeconds(60), TimeInForce.FOK, null);
+            engine.execute(command);
+            command.setCancel("AAPL", passive, null);
+            assertTrue(engine.execute(command));
+        }
+        assertEquals(8, pool.getAllocated());
+        assertEquals(8, pool.available());
+
+        Order own = new Order(OrderType.SELL, "AAPL", 15000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        engine.addOrder("AAPL", own);
+        engine.cancelOrder("AAPL", own.getId());
+        assertEquals(8, pool.available());
+        assertEquals(10, own.getQuantity());
+    }
+
+    /**
+     * Tests that once the books are warm, a steady mixed flow of passive orders, cancels and
+     * orders that trade allocates nothing at all on the engine thread.
+     */
+    @Test
+    void testSteadyStateAllocatesNothing() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        MatchingEngine engine = new MatchingEngine(new EngineSettings().withPreallocatedOrders(1 << 12));
+        EngineCommand command = new EngineCommand();
+        String[] symbols = {"AAPL", "MSFT", "NFLX", "TSLA"};
+        long[] outstanding = new long[symbols.length * 64];
+        long expiry = TestTimes.inSeconds(600);
+        Random random = new Random(42);
+        // five windows of 40000 steps once warm: allocation per command would show in every one,
+        // while a one-off such as a deoptimization only shows in the window it happens in
+        long[] allocated = new long[5];
+        long windowStart = 0;
+        for (int step = 0; step < 600_000; step++) {
+            if (step >= 400_000 && step % 40_000 == 0) {
+                long now = threads.getCurrentThreadAllocatedBytes();
+                if (step > 400_000) allocated[(step - 400_000) / 40_000 - 1] = now - windowStart;
+                windowStart = now;
+            }
+            String symbol = symbols[step % symbols.length];
+            int quantity = 1 + random.nextInt(100);
+            switch (step / symbols.length % 4) {
+                case 0:
+                case 1: {
+                    OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                    long depth = 1 + random.nextInt(20);
+                    long id = Order.nextId();
+                    command.setAdd(id, side, symbol, side == OrderType.BUY ? 15000 - depth : 15000 + depth, quantity,
+                            expiry, TimeInForce.GTC, null);
+                    engine.execute(command);
+                    // each symbol cancels one of its own older orders, so the books stay the same size
+                    int slot = random.nextInt(64) * symbols.length + step % symbols.length;
+                    command.setCancel(symbol, outstanding[slot], null);
+                    engine.execute(command);
+                    outstanding[slot] = id;
+                    break;
+                }
+                case 2:
+                    command.setAdd(Order.nextId(), OrderType.BUY, symbol, 15002, quantity, expiry, TimeInForce.IOC, null);
+                    engine.execute(command);
+                    break;
+                default:
+                    command.setAdd(Order.nextId(), OrderType.SELL, symbol, 14998, quantity, expiry, TimeInForce.IOC, null);
+                    engine.execute(command);
+                    break;
+            }
+        }
+        allocated[allocated.length - 1] = threads.getCurrentThreadAllocatedBytes() - windowStart;
+        assertEquals(0, Arrays.stream(allocated).min().getAsLong(),
+                "bytes allocated per window of warm commands: " + Arrays.toString(allocated));
+    }
+
+    /**
+     * Tests that a batch is applied in order through one command and reports, per entry,
+     * whether it was accepted and how much was filled and left resting.
+     */
+    @Test
+    void testSubmitBatch() throws Exception {
+        try (ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(2).withRingSize(1024))) {
+            OrderBatch quotes = new OrderBatch("AAPL");
+            OrderBatch.Entry ask = quotes.add(OrderType.SELL, 15000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+            OrderBatch.Entry bid = quotes.add(OrderType.BUY, 14900, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+            quotes.add(OrderType.BUY, 15000, 4, TestTimes.inSeconds(60), TimeInForce.IOC);
+            quotes.add(OrderType.BUY, 15000, 7, TestTimes.inSeconds(60), TimeInForce.FOK);
+            engine.submitBatch(quotes).get(10, TimeUnit.SECONDS);
+
+            List<OrderBatch.Entry> entries = quotes.getEntries();
+            assertTrue(entries.get(0).isAccepted());
+            assertEquals(0, entries.get(0).getFilledQuantity());
+            assertEquals(10, entries.get(0).getLeavesQuantity());
+            assertEquals(4, entries.get(2).getFilledQuantity());
+            assertEquals(0, entries.get(2).getLeavesQuantity());
+            assertEquals(0, entries.get(3).getFilledQuantity(), "6 left, so the FOK order is killed");
+
+            OrderBatch requote = new OrderBatch("AAPL");
+            requote.amend(ask.getOrderId(), 15010, 5);
+            requote.cancel(bid.getOrderId());
+            requote.cancel(bid.getOrderId());
+            requote.add(OrderType.BUY, 15010, 2, TestTimes.inSeconds(60), TimeInForce.GTC);
+            entries = engine.submitBatch(requote).get(10, TimeUnit.SECONDS).getEntries();
+            assertTrue(entries.get(0).isAccepted());
+            assertEquals(5, entries.get(0).getLeavesQuantity());
+            assertTrue(entries.get(1).isAccepted());
+            assertFalse(entries.get(2).isAccepted(), "the order was already cancelled");
+            assertEquals(2, entries.get(3).getFilledQuantity());
+            assertEquals(3, engine.getQuote("AAPL").getAskQuantity());
+        }
+    }
+
+    /**
+     * Tests that a submitted order completes with its execution report: what traded on arrival
+     * and what was left resting, including the hidden reserve of an iceberg.
+     */
+    @Test
+    void testSubmitOrderReportsExecution() throws Exception {
+        try (ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(2).withRingSize(1024))) {
+            Order iceberg = new Order(OrderType.SELL, "AAPL", 15000, 20, TestTimes.inSeconds(60), TimeInForce.GTC);
+            iceberg.setIceberg(5, 0);
+            ExecutionReport resting = engine.submitOrder(iceberg).get(10, TimeUnit.SECONDS);
+            assertEquals(iceberg.getId(), resting.getOrderId());
+            assertTrue(resting.isAccepted());
+            assertEquals(0, resting.getFilledQuantity());
+            assertEquals(20, resting.getLeavesQuantity());
+
+            ExecutionReport partial = engine.submitOrder(
+                    new Order(OrderType.BUY, "AAPL", 15000, 12, TestTimes.inSeconds(60), TimeInForce.IOC)).get(10, TimeUnit.SECONDS);
+            assertEquals(12, partial.getFilledQuantity());
+            assertEquals(0, partial.getLeavesQuantity(), "an IOC order never rests");
+
+            ExecutionReport killed = engine.submitOrder(
+                    new Order(OrderType.BUY, "AAPL", 15000, 9, TestTimes.inSeconds(60), TimeInForce.FOK)).get(10, TimeUnit.SECONDS);
+            assertEquals(0, killed.getFilledQuantity(), "8 left, so the FOK order is killed");
+            assertEquals(0, killed.getLeavesQuantity());
+        }
+    }
+
+    /**
+     * Tests that an engine closed right after it was created stops its shards, and that
+     * commands submitted afterwards fail at once instead of waiting for a shard that is gone.
+     */
+    @Test
+    void testSubmitAfterCloseFailsFast() {
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(2).withRingSize(8));
+        engine.close();
+
+        CompletableFuture<Boolean> added = engine.addOrder(new Order(OrderType.BUY, "AAPL", 15000, 1, TestTimes.inSeconds(60), TimeInForce.GTC));
+        assertTrue(added.isCompletedExceptionally());
+        assertThrows(CancellationException.class, added::join);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(engine.cancelOrder("AAPL", i).isCompletedExceptionally(), "more commands than the ring holds");
+        }
+        assertTrue(engine.snapshot().isCompletedExceptionally());
+    }
+
+    /**
+     * Tests that a command whose producer got past the stopped check just before the shard
+     * stopped, and published it only after the shard had drained its ring, is failed rather
+     * than left waiting forever.
+     */
+    @Test
+    void testCommandPublishedWhileStoppingFails() {
+        ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(1).withRingSize(8));
+        EngineShard shard = engine.shardFor("AAPL");
+        assertFalse(shard.isStopped());
+        RingBuffer<EngineCommand> ring = shard.getRingBuffer();
+        long sequence = ring.next();
+        engine.close();
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        ring.get(sequence).setCancel("AAPL", 1, result);
+        shard.publish(sequence);
+        assertTrue(result.isCompletedExceptionally());
+        assertThrows(CancellationException.class, result::join);
+    }
 }
@@ -0,0 +1,209 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineClock;
+import radu.engine.EngineCommand;
+import radu.engine.EngineSettings;
+import radu.engine.MatchingEngine;
+import radu.engine.OffHeapOrderStore;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderKind;
+import radu.engine.OrderType;
+import radu.engine.PriceLevel;
+import radu.engine.TimeInForce;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the off-heap order store: orders queued behind the front of a level are kept
+ * in the store and still matched, cancelled, amended and expired in price-time priority.
+ */
+public class OffHeapOrderStoreTest {
+
+    private static Order sell(long id, long price, int quantity, long timestamp, long expiry) {
+        return new Order(id, OrderType.SELL, "AAPL", price, quantity, timestamp, expiry, TimeInForce.GTC);
+    }
+
+    private static List<Long> ids(Iterable<Order> orders) {
+        List<Long> ids = new ArrayList<>();
+        for (Order order : orders) {
+            ids.add(order.getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Tests that orders beyond the front of a level go to the store, still count in the level's
+     * aggregates, and are filled in time priority as they come back to the front.
+     */
+    @Test
+    void testStoredOrdersAreFilledInTimePriority() {
+        List<String> trades = new ArrayList<>();
+        OffHeapOrderStore store = new OffHeapOrderStore(2);
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setOrderStore(store);
+        ob.setTradeListener((symbol, buyId, sellId, price, quantity, timestamp) -> trades.add(sellId + "x" + quantity));
+
+        for (int i = 1; i <= 5; i++) {
+            ob.processOrder(sell(i, 10000, 10, i, TestTimes.inSeconds(60)));
+        }
+        PriceLevel level = ob.getSellOrders().getLevel(10000);
+        assertEquals(5, level.getOrderCount());
+        assertEquals(3, level.getStoredCount());
+        assertEquals(50, level.getTotalQuantity());
+        assertEquals(3, store.size());
+        assertEquals(5, ob.getSellOrders().size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), ids(ob.getSellOrders()));
+
+        ob.processOrder(new Order(6, OrderType.BUY, "AAPL", 10000, 35, 6, TestTimes.inSeconds(60), TimeInForce.IOC));
+        assertEquals(List.of("1x10", "2x10", "3x10", "4x5"), trades);
+        assertEquals(2, level.getOrderCount());
+        assertEquals(0, level.getStoredCount());
+        assertEquals(15, level.getTotalQuantity());
+        assertEquals(4, level.getFirst().getId());
+        assertEquals(5, level.getFirst().getQuantity());
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * Tests that stored orders can be cancelled, reduced in place, moved to another price and
+     * expired, and that unknown ids are still rejected.
+     */
+    @Test
+    void testStoredOrdersCanBeCancelledAmendedAndExpired() throws InterruptedException {
+        OffHeapOrderStore store = new OffHeapOrderStore(1);
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setOrderStore(store);
+        ob.processOrder(sell(1, 10000, 10, 1, TestTimes.inSeconds(60)));
+        ob.processOrder(sell(2, 10000, 10, 2, TestTimes.inSeconds(60)));
+        ob.processOrder(sell(3, 10000, 10, 3, TestTimes.inSeconds(60)));
+        ob.processOrder(sell(4, 10000, 10, 4, EngineClock.epochNanos() + TimeUnit.MILLISECONDS.toNanos(1)));
+        PriceLevel level = ob.getSellOrders().getLevel(10000);
+        assertEquals(3, level.getStoredCount());
+
+        assertTrue(ob.cancelOrder(2));
+        assertFalse(ob.cancelOrder(2));
+        assertEquals(2, level.getStoredCount());
+        assertEquals(30, level.getTotalQuantity());
+
+        assertTrue(ob.updateOrder(3, 10000, 5, 5));
+        assertEquals(List.of(1L, 3L, 4L), ids(ob.getSellOrders()), "A reduction must keep the order's priority");
+        assertEquals(25, level.getTotalQuantity());
+
+        assertTrue(ob.updateOrder(3, 10100, 5, 6));
+        PriceLevel moved = ob.getSellOrders().getLevel(10100);
+        assertEquals(3, moved.getFirst().getId());
+        assertEquals(0, moved.getStoredCount());
+        assertEquals(1, level.getStoredCount());
+
+        Thread.sleep(20);
+        ob.purgeExpiredOrders();
+        assertEquals(List.of(1L, 3L), ids(ob.getSellOrders()));
+        assertEquals(0, level.getStoredCount());
+        assertEquals(0, store.size());
+        assertFalse(ob.cancelOrder(4));
+        assertFalse(ob.updateOrder(99, 10000, 1));
+    }
+
+    /**
+     * Tests that an engine with an order store produces exactly the trades and books of one
+     * without, and reports the same outcome for every command, for a random mix of new, iceberg,
+     * IOC, cancel and amend commands.
+     */
+    @Test
+    void testEngineWithStoreMatchesEngineWithout() {
+        MatchingEngine heap = new MatchingEngine();
+        MatchingEngine offHeap = new MatchingEngine(new EngineSettings().withHotOrdersPerLevel(2));
+        List<String> heapTrades = new ArrayList<>();
+        List<String> offHeapTrades = new ArrayList<>();
+        heap.addTradeListener((symbol, buyId, sellId, price, quantity, timestamp) ->
+                heapTrades.add(buyId + "/" + sellId + "@" + price + "x" + quantity));
+        offHeap.addTradeListener((symbol, buyId, sellId, price, quantity, timestamp) ->
+                offHeapTrades.add(buyId + "/" + sellId + "@" + price + "x" + quantity));
+
+        Random random = new Random(42);
+        long expiry = TestTimes.inSeconds(600);
+        int maxStored = 0;
+        for (int i = 1; i <= 20000; i++) {
+            EngineCommand command = new EngineCommand();
+            int roll = random.nextInt(10);
+            if (roll < 6 || i < 100) {
+                OrderType side = random.nextBoolean() ? OrderType.BUY : OrderType.SELL;
+                long price = 10000 + random.nextInt(11) - (side == OrderType.BUY ? 6 : 4);
+                TimeInForce tif = random.nextInt(8) == 0 ? TimeInForce.IOC : TimeInForce.GTC;
+                command.setAdd(i, side, "AAPL", price, 1 + random.nextInt(20), expiry, tif, null);
+                if (tif == TimeInForce.GTC && random.nextInt(10) == 0) {
+                    command.setDisplayQuantity(1 + random.nextInt(5));
+                }
+            }
+            else if (roll < 8) {
+                command.setCancel("AAPL", 1 + random.nextInt(i), null);
+            }
+            else {
+                command.setAmend("AAPL", 1 + random.nextInt(i), 9995 + random.nextInt(11), 1 + random.nextInt(20), null);
+            }
+            command.setTimestamp(i);
+            boolean heapResult = heap.replay(command);
+            int heapFilled = command.getFilledQuantity();
+            int heapLeaves = command.getLeavesQuantity();
+            boolean offHeapResult = offHeap.replay(command);
+            assertEquals(heapResult, offHeapResult, "Outcome of command " + i);
+            assertEquals(heapFilled, command.getFilledQuantity(), "Filled quantity of command " + i);
+            assertEquals(heapLeaves, command.getLeavesQuantity(), "Leaves quantity of command " + i);
+            maxStored = Math.max(maxStored, offHeap.getOrderStore().size());
+        }
+
+        assertTrue(maxStored > 0, "The store was never used");
+        assertEquals(heapTrades, offHeapTrades);
+        OrderBook heapBook = heap.getBooks().get("AAPL");
+        OrderBook offHeapBook = offHeap.getBooks().get("AAPL");
+        assertEquals(describe(heapBook.getBuyOrders()), describe(offHeapBook.getBuyOrders()));
+        assertEquals(describe(heapBook.getSellOrders()), describe(offHeapBook.getSellOrders()));
+    }
+
+    /**
+     * Tests that a new order that is filled and released on arrival still reports its own
+     * outcome when the stops it triggers bring a stored order forward, which takes an order
+     * object from the same pool.
+     */
+    @Test
+    void testOutcomeSurvivesStopsThatRestoreStoredOrders() {
+        for (TimeInForce tif : new TimeInForce[] {TimeInForce.IOC, TimeInForce.GTC}) {
+            MatchingEngine engine = new MatchingEngine(new EngineSettings().withHotOrdersPerLevel(1));
+            long expiry = TestTimes.inSeconds(60);
+            replay(engine, 1, OrderType.SELL, OrderKind.LIMIT, 9900, 0, 3, expiry, TimeInForce.GTC);
+            replay(engine, 2, OrderType.SELL, OrderKind.LIMIT, 10000, 0, 5, expiry, TimeInForce.GTC);
+            replay(engine, 3, OrderType.SELL, OrderKind.LIMIT, 10000, 0, 7, expiry, TimeInForce.GTC);
+            assertEquals(1, engine.getOrderStore().size());
+            EngineCommand stop = replay(engine, 4, OrderType.BUY, OrderKind.STOP_LIMIT, 10000, 9900, 5, expiry, TimeInForce.GTC);
+            assertEquals(5, stop.getLeavesQuantity(), "a waiting stop is live");
+
+            EngineCommand incoming = replay(engine, 5, OrderType.BUY, OrderKind.LIMIT, 9900, 0, 3, expiry, tif);
+            assertEquals(3, incoming.getFilledQuantity(), tif.toString());
+            assertEquals(0, incoming.getLeavesQuantity(), tif.toString());
+            assertEquals(0, engine.getOrderStore().size(), "the stop traded order 2 and brought order 3 forward");
+            assertEquals(List.of("3@10000x7+0"), describe(engine.getBooks().get("AAPL").getSellOrders()));
+        }
+    }
+
+    private static EngineCommand replay(MatchingEngine engine, long id, OrderType side, OrderKind kind, long price,
+                                        long stopPrice, int quantity, long expiry, TimeInForce tif) {
+        EngineCommand command = new EngineCommand();
+        command.setAdd(id, side, "AAPL", kind, price, stopPrice, quantity, expiry, tif, null);
+        command.setTimestamp(id);
+        assertTrue(engine.replay(command));
+        return command;
+    }
+
+    private static List<String> describe(Iterable<Order> orders) {
+        List<String> described = new ArrayList<>();
+        for (Order order : orders) {
+            described.add(order.getId() + "@" + order.getPrice() + "x" + order.getQuantity() + "+" + order.getReserveQuantity());
+        }
+        return described;
+    }
+}
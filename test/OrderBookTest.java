@@ -1,10 +1,15 @@
 import org.junit.jupiter.api.Test;
+import radu.engine.LongIndex;
 import radu.engine.Order;
 import radu.engine.OrderBook;
 import radu.engine.OrderType;
 import radu.engine.TimeInForce;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,7 +22,7 @@ public class OrderBookTest {
     @Test
     void testAddBuyOrder() {
         OrderBook ob = new OrderBook();
-        Order buyOrder = new Order(OrderType.BUY, "AAPL", 150.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order buyOrder = new Order(OrderType.BUY, "AAPL", 15000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(buyOrder);
         assertDoesNotThrow(ob::matchOrders);
     }
@@ -26,8 +31,8 @@ public class OrderBookTest {
     @Test
     void testMatchGTCOrders() {
         OrderBook ob = new OrderBook();
-        Order buy = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order buy = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(buy);
         ob.addOrder(sell);
         ob.matchOrders();
@@ -39,8 +44,8 @@ public class OrderBookTest {
     @Test
     void testGTCPartialMatch() {
         OrderBook ob = new OrderBook();
-        Order buy = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.GTC);
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 4, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order buy = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 4, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(buy);
         ob.addOrder(sell);
         ob.matchOrders();
@@ -53,8 +58,8 @@ public class OrderBookTest {
     @Test
     void testFOKNotMatched() {
         OrderBook ob = new OrderBook();
-        Order fokBuy = new Order(OrderType.BUY, "AAPL", 100.0, 10, Instant.now().plusSeconds(60), TimeInForce.FOK);
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order fokBuy = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.FOK);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(fokBuy);
         ob.addOrder(sell);
         ob.matchOrders();
@@ -66,11 +71,11 @@ public class OrderBookTest {
     @Test
     void testUpdateOrder() {
         OrderBook ob = new OrderBook();
-        Order buy = new Order(OrderType.BUY, "AAPL", 100.0, 5, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order buy = new Order(OrderType.BUY, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(buy);
-        boolean updated = ob.updateOrder(buy.getId(), 110.0, 10);
+        boolean updated = ob.updateOrder(buy.getId(), 11000, 10);
         assertTrue(updated);
-        assertEquals(110.0, ob.getBuyOrders().peek().getPrice());
+        assertEquals(11000, ob.getBuyOrders().peek().getPrice());
         assertEquals(10, ob.getBuyOrders().peek().getQuantity());
     }
 
@@ -78,7 +83,7 @@ public class OrderBookTest {
     @Test
     void testCancelOrder() {
         OrderBook ob = new OrderBook();
-        Order sell = new Order(OrderType.SELL, "AAPL", 100.0, 8, Instant.now().plusSeconds(60), TimeInForce.GTC);
+        Order sell = new Order(OrderType.SELL, "AAPL", 10000, 8, TestTimes.inSeconds(60), TimeInForce.GTC);
         ob.addOrder(sell);
         boolean cancelled = ob.cancelOrder(sell.getId());
         assertTrue(cancelled);
@@ -89,9 +94,201 @@ public class OrderBookTest {
     @Test
     void testPurgeExpiredOrder() {
         OrderBook ob = new OrderBook();
-        Order expired = new Order(OrderType.SELL, "AAPL", 100.0, 5, Instant.now().minusSeconds(5), TimeInForce.GTC);
+        Order expired = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(-5), TimeInForce.GTC);
         ob.addOrder(expired);
         ob.purgeExpiredOrders();
         assertTrue(ob.getSellOrders().isEmpty());
     }
+
+    // ✅ 8. Test: Price Levels Aggregate Quantity
+    @Test
+    void testPriceLevelAggregates() {
+        OrderBook ob = new OrderBook();
+        ob.addOrder(new Order(OrderType.BUY, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+        ob.addOrder(new Order(OrderType.BUY, "AAPL", 10000, 7, TestTimes.inSeconds(60), TimeInForce.GTC));
+        ob.addOrder(new Order(OrderType.BUY, "AAPL", 10100, 3, TestTimes.inSeconds(60), TimeInForce.GTC));
+
+        assertEquals(2, ob.getBuyOrders().levelCount());
+        assertEquals(10100, ob.getBuyOrders().getBestLevel().getPrice());
+        assertEquals(12, ob.getBuyOrders().getLevel(10000).getTotalQuantity());
+        assertEquals(2, ob.getBuyOrders().getLevel(10000).getOrderCount());
+    }
+
+    // ✅ 9. Test: Cancel Keeps Time Priority Of The Rest Of The Level
+    @Test
+    void testCancelFromMiddleOfLevel() {
+        OrderBook ob = new OrderBook();
+        Order first = new Order(OrderType.SELL, "AAPL", 10000, 1, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order middle = new Order(OrderType.SELL, "AAPL", 10000, 2, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order last = new Order(OrderType.SELL, "AAPL", 10000, 3, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(first);
+        ob.addOrder(middle);
+        ob.addOrder(last);
+
+        assertTrue(ob.cancelOrder(middle.getId()));
+        assertEquals(4, ob.getSellOrders().getLevel(10000).getTotalQuantity());
+        assertEquals(first, ob.getSellOrders().poll());
+        assertEquals(last, ob.getSellOrders().poll());
+        assertNull(ob.getSellOrders().getLevel(10000));
+    }
+
+    // ✅ 10. Test: Quantity-Down Amend Keeps Time Priority
+    @Test
+    void testAmendQuantityDownKeepsPriority() {
+        OrderBook ob = new OrderBook();
+        Order first = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order second = new Order(OrderType.BUY, "AAPL", 10000, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(first);
+        ob.addOrder(second);
+
+        assertTrue(ob.updateOrder(first.getId(), 10000, 4));
+        assertSame(first, ob.getBuyOrders().peek());
+        assertEquals(4, first.getQuantity());
+        assertEquals(14, ob.getBuyOrders().getLevel(10000).getTotalQuantity());
+    }
+
+    // ✅ 11. Test: Quantity-Up And Price Amends Lose Time Priority
+    @Test
+    void testAmendQuantityUpMovesToBack() {
+        OrderBook ob = new OrderBook();
+        Order first = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order second = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(first);
+        ob.addOrder(second);
+
+        assertTrue(ob.updateOrder(first.getId(), 10000, 8));
+        assertSame(second, ob.getSellOrders().peek());
+        assertEquals(13, ob.getSellOrders().getLevel(10000).getTotalQuantity());
+
+        assertTrue(ob.updateOrder(second.getId(), 10100, 5));
+        assertSame(first, ob.getSellOrders().peek());
+        assertEquals(5, ob.getSellOrders().getLevel(10100).getTotalQuantity());
+    }
+
+    // ✅ 12. Test: Amending An Unknown Order
+    @Test
+    void testAmendUnknownOrder() {
+        OrderBook ob = new OrderBook();
+        assertFalse(ob.updateOrder(-1, 10000, 5));
+    }
+
+    // ✅ 13. Test: Available Quantity Stops At The Limit Price
+    @Test
+    void testQuantityAvailableUpToLimit() {
+        OrderBook ob = new OrderBook();
+        ob.addOrder(new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+        ob.addOrder(new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+        ob.addOrder(new Order(OrderType.SELL, "AAPL", 10100, 7, TestTimes.inSeconds(60), TimeInForce.GTC));
+        ob.addOrder(new Order(OrderType.SELL, "AAPL", 10200, 9, TestTimes.inSeconds(60), TimeInForce.GTC));
+
+        assertEquals(0, ob.getSellOrders().quantityAvailable(9900, 100));
+        assertEquals(10, ob.getSellOrders().quantityAvailable(10000, 100));
+        assertEquals(17, ob.getSellOrders().quantityAvailable(10150, 100));
+        assertEquals(10, ob.getSellOrders().quantityAvailable(10200, 10));
+    }
+
+    // ✅ 14. Test: Resting FOK Fills Across Levels Without Reordering The Counter Side
+    @Test
+    void testRestingFOKFillsAcrossLevels() {
+        OrderBook ob = new OrderBook();
+        Order fokBuy = new Order(OrderType.BUY, "AAPL", 10100, 8, TestTimes.inSeconds(60), TimeInForce.FOK);
+        Order sell1 = new Order(OrderType.SELL, "AAPL", 10100, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order sell2 = new Order(OrderType.SELL, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(fokBuy);
+        ob.addOrder(sell1);
+        ob.addOrder(sell2);
+        ob.matchOrders();
+
+        assertTrue(ob.getBuyOrders().isEmpty());
+        assertEquals(0, sell2.getQuantity());
+        assertSame(sell1, ob.getSellOrders().peek());
+        assertEquals(2, sell1.getQuantity());
+    }
+
+    // ✅ 15. Test: The Id Index Agrees With A HashMap Under Strided Ids, Removals And Resizes
+    @Test
+    void testLongIndexMatchesHashMap() {
+        LongIndex<Order> index = new LongIndex<>(8);
+        Map<Long, Order> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // ids handed out round-robin over 64 books collide in a naive hash
+            long id = (long) random.nextInt(20_000) * 64 + 3;
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(id), index.remove(id));
+            }
+            else {
+                Order order = new Order(id, OrderType.BUY, "AAPL", 10000, 1, 0, TestTimes.inSeconds(60), TimeInForce.GTC);
+                assertSame(expected.put(id, order), index.put(id, order));
+            }
+            assertEquals(expected.size(), index.size());
+        }
+        for (long id = 3; id < 20_000L * 64; id += 64) {
+            assertSame(expected.get(id), index.get(id));
+        }
+    }
+
+    // ✅ 16. Test: Cancelling By Id Frees The Level For Reuse At The Same Price
+    @Test
+    void testCancelAndReAddAtSamePrice() {
+        OrderBook ob = new OrderBook();
+        Order first = new Order(OrderType.BUY, "AAPL", 10000, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(first);
+        assertTrue(ob.cancelOrder(first.getId()));
+        assertFalse(ob.cancelOrder(first.getId()));
+        assertNull(ob.getBuyOrders().getLevel(10000));
+
+        Order second = new Order(OrderType.BUY, "AAPL", 10000, 7, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.addOrder(second);
+        assertEquals(7, ob.getBuyOrders().getLevel(10000).getTotalQuantity());
+        assertTrue(ob.updateOrder(second.getId(), 10000, 3));
+        assertEquals(3, ob.getBuyOrders().getLevel(10000).getTotalQuantity());
+    }
+
+    // ✅ 17. Test: Amending A Bid Through The Best Ask Trades Instead Of Crossing The Book
+    @Test
+    void testAmendThroughBestAskTrades() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setTradeListener((symbol, buyId, sellId, price, quantity, timestamp) -> trades.add(sellId + "@" + price + "x" + quantity));
+        Order bid = new Order(OrderType.BUY, "AAPL", 9900, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order ask = new Order(OrderType.SELL, "AAPL", 10000, 4, TestTimes.inSeconds(60), TimeInForce.GTC);
+        Order higherAsk = new Order(OrderType.SELL, "AAPL", 10100, 5, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.processOrder(bid);
+        ob.processOrder(ask);
+        ob.processOrder(higherAsk);
+
+        assertTrue(ob.updateOrder(bid.getId(), 10000, 10));
+        assertEquals(List.of(ask.getId() + "@10000x4"), trades);
+        assertEquals(4, ob.getLastFilledQuantity());
+        assertEquals(6, ob.getLastLeavesQuantity());
+        assertNull(ob.getSellOrders().getLevel(10000));
+        assertEquals(6, ob.getBuyOrders().getLevel(10000).getTotalQuantity());
+        assertEquals(10000, ob.getTopOfBook().get().getBidPrice());
+        assertEquals(10100, ob.getTopOfBook().get().getAskPrice());
+
+        assertTrue(ob.updateOrder(bid.getId(), 10100, 5));
+        assertEquals(5, ob.getLastFilledQuantity());
+        assertEquals(0, ob.getLastLeavesQuantity());
+        assertTrue(ob.getBuyOrders().isEmpty());
+        assertTrue(ob.getSellOrders().isEmpty());
+        assertFalse(ob.cancelOrder(bid.getId()), "a fully filled amend leaves nothing to cancel");
+    }
+
+    // ✅ 18. Test: An Order Without A Side Is Rejected Before It Trades
+    @Test
+    void testOrderWithoutSideIsRejectedBeforeItTrades() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setTradeListener((symbol, buyId, sellId, price, quantity, timestamp) -> trades.add(buyId + "/" + sellId));
+        Order bid = new Order(OrderType.BUY, "AAPL", 100, 10, TestTimes.inSeconds(60), TimeInForce.GTC);
+        ob.processOrder(bid);
+
+        Order sideless = new Order(null, "AAPL", 100, 15, TestTimes.inSeconds(60), TimeInForce.GTC);
+        assertThrows(IllegalArgumentException.class, () -> ob.processOrder(sideless));
+        assertTrue(trades.isEmpty());
+        assertEquals(0, ob.getLastTradePrice());
+        assertSame(bid, ob.getBuyOrders().peek());
+        assertEquals(10, bid.getQuantity());
+    }
 }
@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.Test;
+import radu.pipeline.BatchEventProcessor;
+import radu.pipeline.BusySpinWaitStrategy;
+import radu.pipeline.ParkingWaitStrategy;
+import radu.pipeline.RingBuffer;
+import radu.pipeline.Sequence;
+import radu.pipeline.WaitStrategy;
+import radu.pipeline.YieldingWaitStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ring buffer command pipeline.
+ */
+public class RingBufferTest {
+
+    static class LongEvent {
+        long value;
+    }
+
+    /**
+     * Sums everything it sees; only the processor thread writes the fields.
+     */
+    static class SummingHandler implements radu.pipeline.EventHandler<LongEvent> {
+        volatile long sum;
+        volatile long count;
+
+        @Override
+        public void onEvent(LongEvent event, long sequence, boolean endOfBatch) {
+            sum += event.value;
+            count++;
+        }
+    }
+
+    /**
+     * Tests that events from several producers all reach the consumer exactly once
+     * with each wait strategy, through a ring much smaller than the number of events.
+     */
+    @Test
+    void testMultiProducerDeliversEveryEvent() throws Exception {
+        WaitStrategy[] strategies = {new BusySpinWaitStrategy(), new YieldingWaitStrategy(), new ParkingWaitStrategy()};
+        for (WaitStrategy strategy : strategies) {
+            RingBuffer<LongEvent> ring = new RingBuffer<>(64, LongEvent::new, strategy);
+            SummingHandler handler = new SummingHandler();
+            BatchEventProcessor<LongEvent> processor = new BatchEventProcessor<>(ring, handler);
+            Thread consumer = new Thread(processor);
+            consumer.start();
+
+            int producers = 3;
+            int perProducer = 10_000;
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                Thread producer = new Thread(() -> {
+                    for (int i = 1; i <= perProducer; i++) {
+                        long sequence = ring.next();
+                        ring.get(sequence).value = i;
+                        ring.publish(sequence);
+                    }
+                });
+                threads.add(producer);
+                producer.start();
+            }
+            for (Thread producer : threads) {
+                producer.join();
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (processor.getSequence().get() < ring.getCursor() && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            processor.halt();
+            consumer.join();
+
+            assertEquals((long) producers * perProducer, handler.count, strategy.getClass().getSimpleName());
+            assertEquals((long) producers * perProducer * (perProducer + 1) / 2, handler.sum);
+        }
+    }
+
+    /**
+     * Tests that a producer cannot claim more slots than the slowest consumer has freed.
+     */
+    @Test
+    void testProducerIsGatedByConsumer() {
+        RingBuffer<LongEvent> ring = new RingBuffer<>(8, LongEvent::new, new YieldingWaitStrategy());
+        new BatchEventProcessor<>(ring, (event, sequence, endOfBatch) -> { });
+
+        long last = ring.next(8);
+        ring.publish(0, last);
+        assertEquals(0, ring.remainingCapacity());
+    }
+
+    /**
+     * Tests that a processor halted before its thread reaches {@code run()} stays halted, so
+     * stopping a consumer right after starting it cannot hang the join.
+     */
+    @Test
+    void testHaltBeforeStart() throws Exception {
+        RingBuffer<LongEvent> ring = new RingBuffer<>(8, LongEvent::new, new ParkingWaitStrategy());
+        SummingHandler handler = new SummingHandler();
+        BatchEventProcessor<LongEvent> processor = new BatchEventProcessor<>(ring, handler);
+        processor.halt();
+
+        Thread consumer = new Thread(processor);
+        consumer.start();
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(consumer.isAlive(), "A halted processor must not start handling events");
+        assertFalse(processor.isRunning());
+        assertEquals(0, handler.count);
+    }
+
+    /**
+     * Tests that ring sizes must be powers of two.
+     */
+    @Test
+    void testRejectsInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(10, LongEvent::new, new YieldingWaitStrategy()));
+    }
+
+    /**
+     * Tests that tryNext hands out slots until the slowest consumer is a whole ring behind and
+     * then fails instead of waiting, until the consumer moves on.
+     */
+    @Test
+    void testTryNextFailsWhenFull() {
+        RingBuffer<LongEvent> ring = new RingBuffer<>(4, LongEvent::new, new YieldingWaitStrategy());
+        Sequence consumed = new Sequence();
+        ring.addGatingSequences(consumed);
+
+        for (int i = 0; i < 4; i++) {
+            long sequence = ring.tryNext();
+            assertEquals(i, sequence);
+            ring.publish(sequence);
+        }
+        assertEquals(-1, ring.tryNext());
+        assertEquals(3, ring.getCursor());
+
+        consumed.set(1);
+        assertEquals(4, ring.tryNext());
+        assertEquals(5, ring.tryNext());
+        assertEquals(-1, ring.tryNext());
+    }
+}
@@ -0,0 +1,212 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineClock;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderKind;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for market orders and for stop and stop-limit orders waiting in the trigger index.
+ */
+public class StopOrderTest {
+
+    private static Order limit(OrderType side, long price, int quantity) {
+        return new Order(side, "AAPL", price, quantity, TestTimes.inSeconds(60), TimeInForce.GTC);
+    }
+
+    private static Order order(OrderType side, OrderKind kind, long price, long stopPrice, int quantity) {
+        return new Order(Order.nextId(), side, "AAPL", kind, price, stopPrice, quantity, EngineClock.epochNanos(),
+                TestTimes.inSeconds(60), TimeInForce.GTC);
+    }
+
+    /**
+     * Book whose trades are recorded as "buyId/sellId@price x quantity".
+     */
+    private static OrderBook book(List<String> trades) {
+        OrderBook ob = new OrderBook("AAPL", null);
+        ob.setTradeListener((symbol, buyId, sellId, price, quantity, timestamp) ->
+                trades.add(buyId + "/" + sellId + "@" + price + "x" + quantity));
+        return ob;
+    }
+
+    /**
+     * Tests that a market order sweeps the opposite side up to its protection price and that
+     * whatever it cannot fill there is discarded rather than rested.
+     */
+    @Test
+    void testMarketOrderStopsAtProtectionPrice() {
+        OrderBook ob = new OrderBook();
+        ob.addOrder(limit(OrderType.SELL, 10000, 5));
+        ob.addOrder(limit(OrderType.SELL, 10100, 5));
+        Order far = limit(OrderType.SELL, 10300, 5);
+        ob.addOrder(far);
+
+        Order market = order(OrderType.BUY, OrderKind.MARKET, 10200, 0, 20);
+        ob.processOrder(market);
+
+        assertEquals(10, 20 - market.getQuantity());
+        assertTrue(ob.getBuyOrders().isEmpty(), "A market order must never rest");
+        assertSame(far, ob.getSellOrders().peek());
+        assertEquals(10100, ob.getLastTradePrice());
+    }
+
+    /**
+     * Tests that a market order without a protection price trades up to the book's default
+     * band around the best opposite price.
+     */
+    @Test
+    void testMarketOrderDefaultProtection() {
+        OrderBook ob = new OrderBook();
+        ob.addOrder(limit(OrderType.BUY, 10000, 5));
+        ob.addOrder(limit(OrderType.BUY, 9600, 5));
+        ob.addOrder(limit(OrderType.BUY, 9400, 5));
+
+        // 5% below the best bid is 9500
+        Order market = order(OrderType.SELL, OrderKind.MARKET, 0, 0, 15);
+        ob.processOrder(market);
+        assertEquals(5, market.getQuantity());
+        assertEquals(9400, ob.getBuyOrders().peek().getPrice());
+        assertTrue(ob.getSellOrders().isEmpty());
+
+        // with nothing to trade against, a market order just goes away
+        ob.processOrder(order(OrderType.BUY, OrderKind.MARKET, 0, 0, 5));
+        assertTrue(ob.getBuyOrders().size() == 1 && ob.getSellOrders().isEmpty());
+    }
+
+    /**
+     * Tests that a buy stop waits until a trade reaches its stop price and is then matched
+     * as a market order in the same call as the trade that triggered it.
+     */
+    @Test
+    void testStopTriggersOnTradeInSameCall() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = book(trades);
+        Order ask1 = limit(OrderType.SELL, 10000, 5);
+        Order ask2 = limit(OrderType.SELL, 10100, 5);
+        ob.addOrder(ask1);
+        ob.addOrder(ask2);
+
+        Order stop = order(OrderType.BUY, OrderKind.STOP, 0, 10000, 5);
+        ob.processOrder(stop);
+        assertEquals(1, ob.getStopCount(), "No trade yet, so the stop must wait");
+        assertTrue(trades.isEmpty());
+
+        Order buy = limit(OrderType.BUY, 10000, 5);
+        ob.processOrder(buy);
+
+        assertEquals(0, ob.getStopCount());
+        assertEquals(List.of(buy.getId() + "/" + ask1.getId() + "@10000x5",
+                stop.getId() + "/" + ask2.getId() + "@10100x5"), trades);
+        assertTrue(ob.getSellOrders().isEmpty());
+    }
+
+    /**
+     * Tests that a trade only triggers the stops its price crossed, in stop price order, and
+     * that a triggered stop-limit rests at its limit with the trigger as its time priority.
+     */
+    @Test
+    void testOnlyCrossedStopsTrigger() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = book(trades);
+        Order near = order(OrderType.SELL, OrderKind.STOP_LIMIT, 9800, 9900, 3);
+        Order nearer = order(OrderType.SELL, OrderKind.STOP_LIMIT, 9850, 9950, 3);
+        Order far = order(OrderType.SELL, OrderKind.STOP_LIMIT, 9000, 9500, 3);
+        ob.addOrder(limit(OrderType.SELL, 10000, 1));
+        ob.processOrder(limit(OrderType.BUY, 10000, 1)); // last trade 10000
+        ob.processOrder(near);
+        ob.processOrder(nearer);
+        ob.processOrder(far);
+        assertEquals(3, ob.getStopCount());
+
+        ob.addOrder(limit(OrderType.BUY, 9900, 1));
+        ob.processOrder(limit(OrderType.SELL, 9900, 1)); // last trade 9900
+
+        assertEquals(1, ob.getStopCount());
+        // nothing left to trade against: both triggered stop-limits rest, the higher stop first
+        assertEquals(2, ob.getSellOrders().size());
+        assertSame(nearer, ob.getSellOrders().getLevel(9850).getFirst());
+        assertSame(near, ob.getSellOrders().getLevel(9800).getFirst());
+        assertEquals(OrderKind.LIMIT, near.getKind());
+        assertTrue(nearer.getTimestamp() <= near.getTimestamp());
+        assertFalse(ob.updateOrder(far.getId(), 9000, 1), "Waiting stops cannot be amended");
+    }
+
+    /**
+     * Tests that a stop whose stop price the last trade already reached triggers on arrival,
+     * and that triggered stops cascade when their own trades reach further stops.
+     */
+    @Test
+    void testStopsCascade() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = book(trades);
+        ob.addOrder(limit(OrderType.BUY, 10000, 1));
+        ob.processOrder(limit(OrderType.SELL, 10000, 1));
+        ob.addOrder(limit(OrderType.BUY, 9900, 2));
+        ob.addOrder(limit(OrderType.BUY, 9800, 2));
+
+        Order second = order(OrderType.SELL, OrderKind.STOP, 0, 9900, 2);
+        ob.processOrder(second);
+        assertEquals(1, ob.getStopCount());
+
+        // already triggered at 10000, trades at 9900 and so triggers the second stop
+        Order first = order(OrderType.SELL, OrderKind.STOP, 0, 10000, 2);
+        ob.processOrder(first);
+
+        assertEquals(0, ob.getStopCount());
+        assertTrue(ob.getBuyOrders().isEmpty());
+        assertEquals(9800, ob.getLastTradePrice());
+        assertEquals(3, trades.size());
+    }
+
+    /**
+     * Tests that before the first trade no stop triggers, not even a sell stop above every
+     * price, when an order arrives that does not trade.
+     */
+    @Test
+    void testNoStopTriggersBeforeTheFirstTrade() {
+        List<String> trades = new ArrayList<>();
+        OrderBook ob = book(trades);
+        Order stop = order(OrderType.SELL, OrderKind.STOP, 0, 100, 10);
+        ob.processOrder(stop);
+        assertEquals(1, ob.getStopCount());
+
+        Order bid = limit(OrderType.BUY, 50, 10);
+        ob.processOrder(bid);
+
+        assertEquals(1, ob.getStopCount());
+        assertTrue(trades.isEmpty());
+        assertSame(bid, ob.getBuyOrders().peek());
+        assertEquals(0, ob.getLastTradePrice());
+    }
+
+    /**
+     * Tests that waiting stops can be cancelled and expire like resting orders.
+     */
+    @Test
+    void testCancelAndExpireWaitingStops() throws InterruptedException {
+        OrderBook ob = new OrderBook();
+        Order cancelled = order(OrderType.BUY, OrderKind.STOP, 0, 10500, 5);
+        Order expiring = new Order(Order.nextId(), OrderType.BUY, "AAPL", OrderKind.STOP_LIMIT, 10600, 10500, 5,
+                EngineClock.epochNanos(), EngineClock.epochNanos() + TimeUnit.MILLISECONDS.toNanos(20), TimeInForce.GTC);
+        ob.processOrder(cancelled);
+        ob.processOrder(expiring);
+        assertEquals(2, ob.getStopCount());
+
+        assertTrue(ob.cancelOrder(cancelled.getId()));
+        assertFalse(ob.cancelOrder(cancelled.getId()));
+        assertEquals(1, ob.getStopCount());
+
+        Thread.sleep(30);
+        ob.purgeExpiredOrders();
+        assertEquals(0, ob.getStopCount());
+        assertThrows(IllegalArgumentException.class,
+                () -> ob.processOrder(order(OrderType.BUY, OrderKind.STOP, 0, 0, 5)));
+    }
+}
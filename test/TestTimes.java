@@ -0,0 +1,20 @@
+import radu.engine.EngineClock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expiry times shared by the tests, on the engine's clock.
+ */
+final class TestTimes {
+
+    private TestTimes() {
+    }
+
+    /**
+     * @param seconds how far ahead
+     * @return the engine time that many seconds from now, in nanoseconds
+     */
+    static long inSeconds(long seconds) {
+        return EngineClock.epochNanos() + TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineSettings;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderType;
+import radu.engine.TimeInForce;
+import radu.engine.TimingWheel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the hierarchical timing wheel used for order expiry.
+ */
+public class TimingWheelTest {
+
+    private static final long START = TimeUnit.SECONDS.toNanos(1_700_000_000L);
+    private static final long RESOLUTION = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static Order orderExpiringAt(long expiry) {
+        return new Order(Order.nextId(), OrderType.BUY, "AAPL", 10000, 1, START, expiry, TimeInForce.GTC);
+    }
+
+    /**
+     * Tests that orders spread over several wheel levels all expire no earlier than their
+     * expiry time and at most one tick after it.
+     */
+    @Test
+    void testOrdersExpireWithinOneTick() {
+        Map<Long, Long> expiredAt = new HashMap<>();
+        long[] now = {START};
+        TimingWheel wheel = new TimingWheel(RESOLUTION, START, o -> expiredAt.put(o.getId(), now[0]));
+
+        Random random = new Random(42);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            // from sub-tick up to several minutes, crossing the level 0, 1 and 2 boundaries
+            long delay = (long) (Math.pow(random.nextDouble(), 3) * TimeUnit.MINUTES.toNanos(5));
+            Order order = orderExpiringAt(START + delay);
+            orders.add(order);
+            wheel.schedule(order);
+        }
+
+        long end = START + TimeUnit.MINUTES.toNanos(6);
+        while (now[0] < end) {
+            now[0] += RESOLUTION / 2 + random.nextInt((int) RESOLUTION);
+            wheel.advance(now[0]);
+        }
+
+        assertEquals(0, wheel.size());
+        for (Order order : orders) {
+            Long at = expiredAt.get(order.getId());
+            assertNotNull(at, "order never expired: " + order);
+            assertTrue(at >= order.getExpiry(), "expired early: " + order);
+            assertTrue(at - order.getExpiry() < 3 * RESOLUTION, "expired late: " + order);
+        }
+    }
+
+    /**
+     * Tests that cancelled orders never expire and that overdue orders go out on the next advance.
+     */
+    @Test
+    void testCancelAndOverdue() {
+        List<Order> expired = new ArrayList<>();
+        TimingWheel wheel = new TimingWheel(RESOLUTION, START, expired::add);
+
+        Order cancelled = orderExpiringAt(START + TimeUnit.SECONDS.toNanos(10));
+        Order overdue = orderExpiringAt(START - TimeUnit.SECONDS.toNanos(5));
+        wheel.schedule(cancelled);
+        wheel.schedule(overdue);
+
+        assertTrue(wheel.cancel(cancelled));
+        assertFalse(wheel.cancel(cancelled));
+
+        assertEquals(1, wheel.advance(START));
+        assertSame(overdue, expired.get(0));
+        assertEquals(0, wheel.advance(START + TimeUnit.SECONDS.toNanos(20)));
+    }
+
+    /**
+     * Tests that an order far beyond the wheel's range is held back until its real expiry.
+     */
+    @Test
+    void testExpiryBeyondWheelRange() {
+        List<Order> expired = new ArrayList<>();
+        long resolution = TimeUnit.SECONDS.toNanos(1000);
+        TimingWheel wheel = new TimingWheel(resolution, START, expired::add);
+
+        Order farAway = orderExpiringAt(Long.MAX_VALUE);
+        wheel.schedule(farAway);
+        wheel.advance(START + TimeUnit.DAYS.toNanos(365 * 50));
+
+        assertTrue(expired.isEmpty());
+        assertEquals(1, wheel.size());
+    }
+
+    /**
+     * Tests that the engine expires orders of all its books through its shared wheel.
+     */
+    @Test
+    void testEngineExpiresOrdersAcrossBooks() {
+        MatchingEngine engine = new MatchingEngine(new EngineSettings().withExpiryResolutionNanos(RESOLUTION));
+        long now = radu.engine.EngineClock.epochNanos();
+        engine.addOrder("AAPL", new Order(Order.nextId(), OrderType.BUY, "AAPL", 10000, 1, now, now + RESOLUTION, TimeInForce.GTC));
+        engine.addOrder("TSLA", new Order(Order.nextId(), OrderType.SELL, "TSLA", 70000, 1, now, now + RESOLUTION, TimeInForce.GTC));
+        Order keep = new Order(Order.nextId(), OrderType.SELL, "TSLA", 70000, 1, now, now + TimeUnit.HOURS.toNanos(1), TimeInForce.GTC);
+        engine.addOrder("TSLA", keep);
+
+        assertEquals(2, engine.expireOrders(now + TimeUnit.SECONDS.toNanos(1)));
+        assertTrue(engine.cancelOrder("TSLA", keep.getId()));
+    }
+}
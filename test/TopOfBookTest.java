@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.EngineSettings;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.Quote;
+import radu.engine.ShardedMatchingEngine;
+import radu.engine.TimeInForce;
+import radu.engine.TopOfBook;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the top of book published by every order book.
+ */
+public class TopOfBookTest {
+
+    /**
+     * Tests that the quote follows the best level of both sides through adds, fills and cancels,
+     * and that its sequence only moves when the top of book changes.
+     */
+    @Test
+    void testQuoteFollowsBestLevels() {
+        OrderBook book = new OrderBook("AAPL", null);
+        TopOfBook top = book.getTopOfBook();
+        assertEquals(0, top.get().getBidPrice());
+        assertEquals(0, top.get().getSequence());
+
+        book.processOrder(new Order(OrderType.BUY, "AAPL", 9900, 5, TestTimes.inSeconds(60), TimeInForce.GTC));
+        Order bid = new Order(OrderType.BUY, "AAPL", 9950, 2, TestTimes.inSeconds(60), TimeInForce.GTC);
+        book.processOrder(bid);
+        book.processOrder(new Order(OrderType.SELL, "AAPL", 10000, 3, TestTimes.inSeconds(60), TimeInForce.GTC));
+        Quote quote = top.get();
+        assertEquals(9950, quote.getBidPrice());
+        assertEquals(2, quote.getBidQuantity());
+        assertEquals(10000, quote.getAskPrice());
+        assertEquals(3, quote.getAskQuantity());
+        assertEquals(1, quote.getAskOrderCount());
+
+        // a level behind the top does not move the quote
+        long sequence = quote.getSequence();
+        book.processOrder(new Order(OrderType.SELL, "AAPL", 10100, 3, TestTimes.inSeconds(60), TimeInForce.GTC));
+        assertEquals(sequence, top.get().getSequence());
+
+        book.processOrder(new Order(OrderType.SELL, "AAPL", 9950, 1, TestTimes.inSeconds(60), TimeInForce.IOC));
+        assertEquals(1, top.get().getBidQuantity());
+        book.cancelOrder(bid.getId());
+        quote = top.get();
+        assertEquals(9900, quote.getBidPrice());
+        assertEquals(5, quote.getBidQuantity());
+        assertTrue(quote.getSequence() > sequence);
+    }
+
+    /**
+     * Tests that a reader never sees a torn quote while another thread keeps moving the top of book.
+     */
+    @Test
+    void testReadsAreConsistentUnderConcurrentUpdates() throws InterruptedException {
+        MatchingEngine engine = new MatchingEngine();
+        engine.addOrder("AAPL", new Order(OrderType.BUY, "AAPL", 1, 1, TestTimes.inSeconds(60), TimeInForce.GTC));
+        TopOfBook top = engine.getTopOfBook("AAPL");
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread writer = new Thread(() -> {
+            // the best bid always rests at price p with quantity p
+            for (int p = 2; p <= 20000; p++) {
+                Order order = new Order(OrderType.BUY, "AAPL", p, p, TestTimes.inSeconds(60), TimeInForce.GTC);
+                engine.addOrder("AAPL", order);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            Quote quote = top.get();
+            if (quote.getBidPrice() != quote.getBidQuantity()) {
+                torn.set(quote.toString());
+            }
+        }
+        writer.join();
+        assertNull(torn.get());
+        assertEquals(20000, top.get().getBidPrice());
+    }
+
+    /**
+     * Tests that the sharded engine serves quotes without going through the shard rings.
+     */
+    @Test
+    void testShardedEngineQuote() {
+        try (ShardedMatchingEngine engine = new ShardedMatchingEngine(new EngineSettings().withShardCount(2).withRingSize(1024))) {
+            assertNull(engine.getQuote("MSFT"));
+            engine.addOrder(new Order(OrderType.SELL, "MSFT", 20000, 7, TestTimes.inSeconds(60), TimeInForce.GTC)).join();
+            Quote quote = engine.getQuote("MSFT");
+            assertEquals(20000, quote.getAskPrice());
+            assertEquals(7, quote.getAskQuantity());
+            assertEquals(0, quote.getBidPrice());
+        }
+    }
+}
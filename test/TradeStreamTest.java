@@ -0,0 +1,106 @@
+import org.junit.jupiter.api.Test;
+import radu.engine.MatchingEngine;
+import radu.engine.Order;
+import radu.engine.OrderBook;
+import radu.engine.OrderType;
+import radu.engine.RecentTrades;
+import radu.engine.TimeInForce;
+import radu.engine.TradeStream;
+import radu.pipeline.YieldingWaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the trade stream and the bounded recent trades of a book.
+ */
+public class TradeStreamTest {
+
+    /**
+     * Tests that every subscriber receives every trade of the engine, in order.
+     */
+    @Test
+    void testSubscribersReceiveAllTrades() {
+        List<Long> first = Collections.synchronizedList(new ArrayList<>());
+        List<Long> second = Collections.synchronizedList(new ArrayList<>());
+        TradeStream stream = new TradeStream(8, new YieldingWaitStrategy());
+        stream.subscribe("first", (event, sequence, endOfBatch) -> first.add(event.getBuyOrderId()));
+        stream.subscribe("second", (event, sequence, endOfBatch) -> second.add(event.getBuyOrderId()));
+        stream.start();
+
+        MatchingEngine engine = new MatchingEngine();
+        engine.setTradeStream(stream);
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Order sell = new Order(OrderType.SELL, "AAPL", 15000, 1, TestTimes.inSeconds(60), TimeInForce.GTC);
+            Order buy = new Order(OrderType.BUY, "AAPL", 15000, 1, TestTimes.inSeconds(60), TimeInForce.IOC);
+            engine.addOrder("AAPL", sell);
+            engine.addOrder("AAPL", buy);
+            expected.add(buy.getId());
+        }
+        stream.close();
+
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+    }
+
+    /**
+     * Tests that a subscriber that stops consuming blocks the publisher once the ring is full,
+     * and releases it as soon as it catches up.
+     */
+    @Test
+    void testSlowSubscriberAppliesBackpressure() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TradeStream stream = new TradeStream(4, new YieldingWaitStrategy());
+        stream.subscribe("slow", (event, sequence, endOfBatch) -> {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stream.start();
+
+        Thread publisher = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                stream.onTrade("AAPL", i, i, 15000, 1, 0);
+            }
+        });
+        publisher.start();
+        publisher.join(200);
+        assertTrue(publisher.isAlive(), "Publisher should wait for the slow subscriber");
+        assertTrue(stream.getCursor() < 9);
+
+        release.countDown();
+        publisher.join(5_000);
+        assertFalse(publisher.isAlive());
+        stream.close();
+    }
+
+    /**
+     * Tests that a book only keeps its most recent trades, oldest first.
+     */
+    @Test
+    void testRecentTradesAreBounded() {
+        OrderBook book = new OrderBook();
+        int trades = OrderBook.RECENT_TRADES + 10;
+        long lastBuyId = 0;
+        for (int i = 0; i < trades; i++) {
+            book.processOrder(new Order(OrderType.SELL, "AAPL", 15000 + i, 1, TestTimes.inSeconds(60), TimeInForce.GTC));
+            Order buy = new Order(OrderType.BUY, "AAPL", 15000 + i, 1, TestTimes.inSeconds(60), TimeInForce.IOC);
+            book.processOrder(buy);
+            lastBuyId = buy.getId();
+        }
+
+        RecentTrades recent = book.getRecentTrades();
+        assertEquals(OrderBook.RECENT_TRADES, recent.size());
+        assertEquals(trades, recent.getTotalCount());
+        assertEquals(15010, recent.get(0).getPrice());
+        assertEquals(lastBuyId, recent.get(recent.size() - 1).getBuyOrderId());
+    }
+}